@@ -0,0 +1,22 @@
+package com.eazybytes.accounts.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class AggregationConfig {
+
+    /**
+     * Executor used to fan out the downstream calls of the customer details aggregation.
+     * Each task runs on its own virtual thread, so blocking Feign calls do not hold platform threads.
+     *
+     * @return an ExecutorService creating one virtual thread per submitted task
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService aggregationExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -0,0 +1,34 @@
+package com.eazybytes.accounts.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the customer details aggregation which combines the local account data with the
+ * loans and cards microservices.
+ */
+@ConfigurationProperties(prefix = "accounts.aggregation")
+@Getter
+@Setter
+public class AggregationProperties {
+
+    /**
+     * When true the loans and cards calls are issued concurrently on virtual threads,
+     * otherwise they are made one after the other on the request thread.
+     */
+    private boolean parallel = true;
+
+    /**
+     * Deadline applied to each individual downstream call.
+     */
+    private Duration callTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Deadline for all downstream calls together. Legs still running once it has elapsed are
+     * abandoned and reported as degraded.
+     */
+    private Duration overallTimeout = Duration.ofSeconds(3);
+}
@@ -0,0 +1,29 @@
+package com.eazybytes.accounts.config;
+
+import com.eazybytes.common.sequence.JdbcBlockSource;
+import com.eazybytes.common.sequence.NumberAllocator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class NumberAllocatorConfig {
+
+    /**
+     * Allocator for new account numbers. Blocks are reserved from the number_block table, so every
+     * instance sharing the database hands out distinct numbers (account numbers: 10 digits). Numbers were
+     * drawn at random from 1000000000-1899999999 before, so the range starts above them.
+     *
+     * @param dataSource the DataSource holding the number_block table
+     * @param blockSize  the number of account numbers reserved per round trip
+     * @return the NumberAllocator for account numbers
+     */
+    @Bean
+    public NumberAllocator accountNumberAllocator(DataSource dataSource,
+                                          @Value("${accounts.number-block-size:100}") int blockSize) {
+        return new NumberAllocator(new JdbcBlockSource(dataSource), "account_number",
+                1_900_000_000L, 1_999_999_999L, blockSize);
+    }
+}
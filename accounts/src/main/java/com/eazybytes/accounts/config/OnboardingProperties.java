@@ -0,0 +1,20 @@
+package com.eazybytes.accounts.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the bulk onboarding of customers.
+ */
+@ConfigurationProperties(prefix = "accounts.onboarding")
+@Getter
+@Setter
+public class OnboardingProperties {
+
+    /**
+     * Number of customers read, checked and persisted per transaction. Only one chunk is held in
+     * memory at a time, and a failing chunk is rolled back without affecting the others.
+     */
+    private int chunkSize = 500;
+}
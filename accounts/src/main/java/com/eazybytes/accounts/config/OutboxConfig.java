@@ -0,0 +1,23 @@
+package com.eazybytes.accounts.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.channel.PublishSubscribeChannel;
+import org.springframework.messaging.SubscribableChannel;
+
+@Configuration
+public class OutboxConfig {
+
+    public static final String PUBLISHED_CHANNEL = "outboxPublished";
+
+    /**
+     * Channel on which the Kafka binder confirms every record of the sendCommunication binding that the
+     * broker acknowledged. It is named by the producer's record-metadata-channel property.
+     *
+     * @return a channel delivering the sent messages to the outbox relay
+     */
+    @Bean(PUBLISHED_CHANNEL)
+    public SubscribableChannel outboxPublished() {
+        return new PublishSubscribeChannel();
+    }
+}
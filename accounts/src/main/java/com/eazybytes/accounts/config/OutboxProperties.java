@@ -0,0 +1,62 @@
+package com.eazybytes.accounts.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the relay which publishes the communication outbox to the sendCommunication binding.
+ */
+@ConfigurationProperties(prefix = "accounts.outbox")
+@Getter
+@Setter
+public class OutboxProperties {
+
+    /**
+     * When false the relay is not started and rows stay in the outbox.
+     */
+    private boolean relayEnabled = true;
+
+    /**
+     * Maximum number of rows a worker reads and publishes per poll.
+     */
+    private int batchSize = 100;
+
+    /**
+     * How long a worker waits before polling again after a batch that was not full, letting new rows
+     * accumulate instead of polling an almost empty table.
+     */
+    private Duration linger = Duration.ofMillis(200);
+
+    /**
+     * Number of relay workers. Workers lease the rows they publish, so they never publish the same row at
+     * the same time.
+     */
+    private int concurrency = 2;
+
+    /**
+     * How long a worker holds the rows it claimed. Rows of a worker that stopped are claimed again once
+     * its lease ends; longer than publish-timeout, so a worker still waiting for confirmations keeps them.
+     */
+    private Duration claimLease = Duration.ofMinutes(1);
+
+    /**
+     * When true a row is only deleted once the binder confirmed the send on the outboxPublished channel,
+     * set as the producer's record-metadata-channel. When false a row counts as published as soon as the
+     * binding accepted it, for binders that cannot confirm sends.
+     */
+    private boolean confirmSends = true;
+
+    /**
+     * How long a worker waits for the confirmations of a batch. Rows not confirmed in time stay in the
+     * outbox and are published again.
+     */
+    private Duration publishTimeout = Duration.ofSeconds(10);
+
+    /**
+     * How often the relay refreshes the accounts.outbox.pending and accounts.outbox.oldest.age gauges.
+     */
+    private Duration statsInterval = Duration.ofSeconds(10);
+}
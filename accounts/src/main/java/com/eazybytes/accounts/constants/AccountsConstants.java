@@ -8,10 +8,16 @@ public class AccountsConstants {
 
     public static final String  SAVINGS = "Savings";
     public static final String  ADDRESS = "123 Main Street, New York";
+    public static final String  CUSTOMER_ACCOUNTS_CACHE = "customerAccounts";
+    public static final String  MOBILE_NUMBER_CONSTRAINT = "uk_customer_mobile_number";
     public static final String  STATUS_201 = "201";
     public static final String  MESSAGE_201 = "Account created successfully";
     public static final String  STATUS_200 = "200";
     public static final String  MESSAGE_200 = "Request processed successfully";
+    public static final String  STATUS_400 = "400";
+    public static final String  STATUS_404 = "404";
+    public static final String  STATUS_409 = "409";
+    public static final String  MESSAGE_409 = "Customer already registered with given mobileNumber";
     public static final String  STATUS_417 = "417";
     public static final String  MESSAGE_417_UPDATE= "Update operation failed. Please try again or contact Dev team";
     public static final String  MESSAGE_417_DELETE= "Delete operation failed. Please try again or contact Dev team";
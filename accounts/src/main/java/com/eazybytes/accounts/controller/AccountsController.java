@@ -3,12 +3,18 @@ package com.eazybytes.accounts.controller;
 import com.eazybytes.accounts.constants.AccountsConstants;
 import com.eazybytes.accounts.dto.AccountsContactInfoDto;
 import com.eazybytes.accounts.dto.CustomerDto;
+import com.eazybytes.accounts.dto.CustomerOnboardingEntryDto;
 import com.eazybytes.accounts.dto.ResponseDto;
 import com.eazybytes.accounts.service.IAccountsService;
+import com.eazybytes.accounts.service.IOnboardingService;
 import com.eazybytes.common.dto.ErrorResponseDto;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import io.github.resilience4j.retry.annotation.Retry;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -27,6 +33,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+
 @Tag(
         name = "CRUD REST APIs for Accounts in EazyBank",
         description = "CRUD REST APIs in EazyBank to CREATE, UPDATE, FETCH AND DELETE account details"
@@ -40,9 +51,14 @@ public class AccountsController {
     private static final Logger logger = LoggerFactory.getLogger(AccountsController.class);
 
     private final IAccountsService iAccountsService;
+    private final IOnboardingService iOnboardingService;
+    private final ObjectMapper objectMapper;
 
-    public AccountsController(IAccountsService iAccountsService) {
+    public AccountsController(IAccountsService iAccountsService, IOnboardingService iOnboardingService,
+                              ObjectMapper objectMapper) {
         this.iAccountsService = iAccountsService;
+        this.iOnboardingService = iOnboardingService;
+        this.objectMapper = objectMapper;
     }
 
     @Value("${build.version}")
@@ -86,6 +102,71 @@ public class AccountsController {
                .body(new ResponseDto(AccountsConstants.STATUS_201, AccountsConstants.MESSAGE_201));
    }
 
+    /**
+     * Creates an account for every customer in the request body, which is a JSON array of customers.
+     * The array is read element by element while the customers are persisted chunk by chunk, so the
+     * request is never held in memory as a whole. An element that can not be mapped to a customer gets a
+     * 400 entry and reading continues with the next one. Only JSON that can not be parsed ends the request;
+     * chunks committed before it stay committed.
+     * @param requestBody The JSON array of customers.
+     * @return A ResponseEntity containing one entry per customer with its own status code.
+     * @throws IOException if the request body can not be read.
+     */
+    @Operation(
+            summary = "Create Accounts in bulk REST API",
+            description = "REST API to create new Customers & Accounts inside EazyBank for a whole list of customers",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    content = @Content(
+                            array = @ArraySchema(schema = @Schema(implementation = CustomerDto.class))
+                    )
+            )
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "HTTP Status OK"
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "HTTP Status Internal Server Error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            )
+    }
+    )
+    @PostMapping(path = "/createBulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<CustomerOnboardingEntryDto>> createAccounts(InputStream requestBody) throws IOException {
+        try (MappingIterator<CustomerDto> customers = objectMapper.readerFor(CustomerDto.class).readValues(requestBody)) {
+            List<CustomerOnboardingEntryDto> entries = iOnboardingService.createAccounts(skippingUnmappable(customers));
+            return ResponseEntity
+                    .status(HttpStatus.OK)
+                    .body(entries);
+        }
+    }
+
+    /**
+     * Hands a customer that can not be mapped, e.g. an array where the email is expected, on as null.
+     * The mapping iterator skips the rest of that element, so the next one is read as usual.
+     */
+    private static Iterator<CustomerDto> skippingUnmappable(MappingIterator<CustomerDto> customers) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return customers.hasNext();
+            }
+
+            @Override
+            public CustomerDto next() {
+                try {
+                    return customers.next();
+                } catch (RuntimeJsonMappingException ex) {
+                    return null;
+                }
+            }
+        };
+    }
+
     /**
      * Fetches the account details for the given mobile number.
      * @param mobileNumber The mobile number of the customer for whom the account details are being fetched.
@@ -1,13 +1,17 @@
 package com.eazybytes.accounts.controller;
 
+import com.eazybytes.accounts.dto.CustomerDetailsBatchEntryDto;
+import com.eazybytes.accounts.dto.CustomerDetailsBatchRequestDto;
 import com.eazybytes.accounts.dto.CustomerDetailsDto;
 import com.eazybytes.accounts.service.ICustomersService;
+import com.eazybytes.common.dto.ErrorResponseDto;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
 import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
@@ -17,6 +21,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Tag(
         name = "REST API for Customers in EazyBank",
         description = "REST APIs in EazyBank to FETCH customer details"
@@ -71,4 +77,40 @@ public class CustomerController {
         return ResponseEntity.status(HttpStatus.SC_OK).body(customerDetailsDto);
 
     }
+
+    /**
+     * REST API to fetch customer details for many mobile numbers in one round trip
+     * @param correlationId eazybank-correlation-id to be used for logging and tracing
+     * @param requestDto the mobile numbers of the customers whose details are being fetched
+     * @return a ResponseEntity containing one entry per mobile number with either the details or an error
+     */
+    @Operation(
+            summary = "Fetch Customer Details in batch REST API",
+            description = "REST API to fetch Customer details for a list of mobile numbers, with a result or error per entry"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "HTTP Status OK"
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "HTTP Status Internal Server Error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            )
+    }
+    )
+    @PostMapping("/fetchCustomerDetailsBatch")
+    public ResponseEntity<List<CustomerDetailsBatchEntryDto>> fetchCustomerDetailsBatch(@RequestHeader("eazybank-correlation-id")
+                                                                                             String correlationId,
+                                                                                         @Valid @RequestBody
+                                                                                         CustomerDetailsBatchRequestDto requestDto){
+        logger.debug("fetchCustomerDetailsBatch method start");
+        List<CustomerDetailsBatchEntryDto> entries =
+                iCustomersService.fetchCustomerDetailsBatch(requestDto.getMobileNumbers(), correlationId);
+        logger.debug("fetchCustomerDetailsBatch method end");
+        return ResponseEntity.status(HttpStatus.SC_OK).body(entries);
+    }
 }
@@ -0,0 +1,36 @@
+package com.eazybytes.accounts.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(
+        name = "CustomerDetailsBatchEntry",
+        description = "Schema to hold the outcome of one mobile number inside a batch Customer details fetch"
+)
+public class CustomerDetailsBatchEntryDto {
+
+    @Schema(
+            description = "Mobile Number the entry belongs to", example = "9345432123"
+    )
+    private String mobileNumber;
+
+    @Schema(
+            description = "Status code of this entry", example = "200"
+    )
+    private String statusCode;
+
+    @Schema(
+            description = "Error message when the entry could not be resolved"
+    )
+    private String errorMessage;
+
+    @Schema(
+            description = "Customer details when the entry was resolved"
+    )
+    private CustomerDetailsDto customerDetails;
+}
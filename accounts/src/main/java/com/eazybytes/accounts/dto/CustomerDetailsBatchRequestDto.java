@@ -0,0 +1,24 @@
+package com.eazybytes.accounts.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(
+        name = "CustomerDetailsBatchRequest",
+        description = "Schema to hold the mobile numbers whose Customer details are fetched in one call"
+)
+public class CustomerDetailsBatchRequestDto {
+
+    @Schema(
+            description = "Mobile Numbers of the customers", example = "[\"9345432123\", \"4354437687\"]"
+    )
+    @NotEmpty(message = "Mobile numbers can not be a null or empty")
+    @Size(max = 200, message = "At most 200 mobile numbers can be fetched in one call")
+    private List<@Pattern(regexp = "(^$|[0-9]{10})", message = "Mobile number must be 10 digits") String> mobileNumbers;
+}
@@ -7,6 +7,9 @@ import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Schema(
         name = "CustomerDetails",
@@ -48,4 +51,14 @@ public class CustomerDetailsDto {
             description = "Cards details of the Customer"
     )
     private CardsDto cardsDto;
+
+    @Schema(
+            description = "True when one or more downstream services did not answer and the details are partial"
+    )
+    private boolean degraded;
+
+    @Schema(
+            description = "Downstream services whose details are missing from the response", example = "[\"loans\"]"
+    )
+    private List<String> degradedServices = new ArrayList<>();
 }
@@ -0,0 +1,36 @@
+package com.eazybytes.accounts.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(
+        name = "CustomerOnboardingEntry",
+        description = "Schema to hold the outcome of one Customer inside a bulk account creation"
+)
+public class CustomerOnboardingEntryDto {
+
+    @Schema(
+            description = "Mobile Number of the customer", example = "9345432123"
+    )
+    private String mobileNumber;
+
+    @Schema(
+            description = "Status code of this entry", example = "201"
+    )
+    private String statusCode;
+
+    @Schema(
+            description = "Error message when the account could not be created"
+    )
+    private String errorMessage;
+
+    @Schema(
+            description = "Account Number assigned to the new account", example = "1000000001"
+    )
+    private Long accountNumber;
+}
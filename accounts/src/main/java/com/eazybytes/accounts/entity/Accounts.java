@@ -1,14 +1,16 @@
 package com.eazybytes.accounts.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 
 @Entity
 @Getter @Setter @AllArgsConstructor @NoArgsConstructor
-public class Accounts extends BaseEntity {
+public class Accounts extends BaseEntity implements Persistable<Long> {
 
     @Column(name="customer_id")
     private Long customerId;
@@ -25,4 +27,29 @@ public class Accounts extends BaseEntity {
 
     @Column(name = "communication_sw")
     private Boolean communicationSw;
+
+    /**
+     * The account number is assigned rather than generated, so Spring Data cannot tell a new account from an
+     * existing one by its id. A new account is always inserted; if its number is taken, the insert fails
+     * instead of merging over the other account.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private boolean persisted;
+
+    @Override
+    public Long getId() {
+        return accountNumber;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 }
@@ -0,0 +1,44 @@
+package com.eazybytes.accounts.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A communication request waiting to be published. Rows are written in the same transaction as the
+ * account they belong to and removed once the relay has handed them to the binding.
+ */
+@Entity
+@Table(name = "communication_outbox")
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor
+public class CommunicationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "communication_outbox_seq")
+    @SequenceGenerator(name = "communication_outbox_seq", sequenceName = "communication_outbox_seq", allocationSize = 50)
+    @Column(name = "outbox_id")
+    private Long outboxId;
+
+    @Column(name = "account_number")
+    private Long accountNumber;
+
+    private String name;
+
+    private String email;
+
+    @Column(name = "mobile_number")
+    private String mobileNumber;
+
+    @Column(name = "created_at")
+    private Instant createdAt;
+
+    /**
+     * End of the lease of the relay worker publishing the row; null or past when no worker holds it.
+     */
+    @Column(name = "claimed_until")
+    private Instant claimedUntil;
+}
@@ -1,5 +1,6 @@
 package com.eazybytes.accounts.exception;
 
+import com.eazybytes.common.dto.ErrorResponseDto;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
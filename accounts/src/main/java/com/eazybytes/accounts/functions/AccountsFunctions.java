@@ -1,11 +1,16 @@
 package com.eazybytes.accounts.functions;
 
 import com.eazybytes.accounts.service.IAccountsService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
 import java.util.function.Consumer;
 
 @Configuration
@@ -14,18 +19,34 @@ public class AccountsFunctions {
     private static final Logger log = LoggerFactory.getLogger(AccountsFunctions.class);
 
     /**
-     * Returns a Consumer that accepts a Long representing an account number and
-     * updates the communication status for that account.
+     * Returns a Consumer that accepts a batch of account numbers and updates the
+     * communication status for all of them with a single bulk update.
+     * The binding runs in batch mode, so one invocation receives every record of a poll.
+     * Redelivered account numbers are skipped by the update, which makes the consumer idempotent.
      *
      * @param accountsService the service to use to update the communication status
-     * @return a Consumer that accepts a Long account number and updates the
-     *         communication status for that account
+     * @param meterRegistry   the registry the batch size and latency are reported to
+     * @return a Consumer that accepts a list of account numbers and updates the
+     *         communication status for those accounts
      */
     @Bean
-    public Consumer<Long> updateCommunication(IAccountsService accountsService) {
-        return accountNumber -> {
-            log.info("Updating Communication status for the account number : " + accountNumber.toString());
-            accountsService.updateCommunicationStatus(accountNumber);
+    public Consumer<List<Long>> updateCommunication(IAccountsService accountsService, MeterRegistry meterRegistry) {
+        DistributionSummary batchSize = DistributionSummary.builder("accounts.communication.batch.size")
+                .description("Account numbers received per communication-sent batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Timer batchLatency = Timer.builder("accounts.communication.batch.latency")
+                .description("Time taken to apply one communication-sent batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Counter updated = Counter.builder("accounts.communication.updated")
+                .description("Accounts whose communication status changed; redelivered account numbers are not counted")
+                .register(meterRegistry);
+        return accountNumbers -> {
+            batchSize.record(accountNumbers.size());
+            int changed = batchLatency.record(() -> accountsService.updateCommunicationStatus(accountNumbers));
+            updated.increment(changed);
+            log.info("Updated Communication status for {} of {} account numbers", changed, accountNumbers.size());
         };
     }
 }
@@ -2,6 +2,7 @@ package com.eazybytes.accounts.mapper;
 
 import com.eazybytes.accounts.dto.AccountsDto;
 import com.eazybytes.accounts.entity.Accounts;
+import com.eazybytes.accounts.repository.CustomerAccountView;
 
 public class AccountsMapper {
 
@@ -12,6 +13,13 @@ public class AccountsMapper {
         return accountsDto;
     }
 
+    public static AccountsDto mapToAccountsDto(CustomerAccountView view, AccountsDto accountsDto) {
+        accountsDto.setAccountNumber(view.accountNumber());
+        accountsDto.setAccountType(view.accountType());
+        accountsDto.setBranchAddress(view.branchAddress());
+        return accountsDto;
+    }
+
     public static Accounts mapToAccounts(AccountsDto accountsDto, Accounts accounts) {
         accounts.setAccountNumber(accountsDto.getAccountNumber());
         accounts.setAccountType(accountsDto.getAccountType());
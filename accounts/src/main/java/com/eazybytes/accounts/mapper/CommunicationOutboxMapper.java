@@ -0,0 +1,26 @@
+package com.eazybytes.accounts.mapper;
+
+import com.eazybytes.accounts.dto.AccountsMsgDto;
+import com.eazybytes.accounts.entity.Accounts;
+import com.eazybytes.accounts.entity.CommunicationOutbox;
+import com.eazybytes.accounts.entity.Customer;
+
+import java.time.Instant;
+
+public class CommunicationOutboxMapper {
+
+    public static CommunicationOutbox mapToCommunicationOutbox(Accounts accounts, Customer customer,
+                                                               CommunicationOutbox communicationOutbox) {
+        communicationOutbox.setAccountNumber(accounts.getAccountNumber());
+        communicationOutbox.setName(customer.getName());
+        communicationOutbox.setEmail(customer.getEmail());
+        communicationOutbox.setMobileNumber(customer.getMobileNumber());
+        communicationOutbox.setCreatedAt(Instant.now());
+        return communicationOutbox;
+    }
+
+    public static AccountsMsgDto mapToAccountsMsgDto(CommunicationOutbox communicationOutbox) {
+        return new AccountsMsgDto(communicationOutbox.getAccountNumber(), communicationOutbox.getName(),
+                communicationOutbox.getEmail(), communicationOutbox.getMobileNumber());
+    }
+}
@@ -3,6 +3,7 @@ package com.eazybytes.accounts.mapper;
 import com.eazybytes.accounts.dto.CustomerDetailsDto;
 import com.eazybytes.accounts.dto.CustomerDto;
 import com.eazybytes.accounts.entity.Customer;
+import com.eazybytes.accounts.repository.CustomerAccountView;
 
 public class CustomerMapper {
 
@@ -33,6 +34,32 @@ public class CustomerMapper {
         return customerDetailsDto;
     }
 
+    /**
+     * Maps the customer part of a CustomerAccountView to a CustomerDto.
+     * @param view The CustomerAccountView to map from.
+     * @param customerDto The CustomerDto to map to.
+     * @return The mapped CustomerDto.
+     */
+    public static CustomerDto mapToCustomerDto(CustomerAccountView view, CustomerDto customerDto) {
+        customerDto.setName(view.name());
+        customerDto.setEmail(view.email());
+        customerDto.setMobileNumber(view.mobileNumber());
+        return customerDto;
+    }
+
+    /**
+     * Maps the customer part of a CustomerAccountView to a CustomerDetailsDto.
+     * @param view The CustomerAccountView to map from.
+     * @param customerDetailsDto The CustomerDetailsDto to map to.
+     * @return The mapped CustomerDetailsDto.
+     */
+    public static CustomerDetailsDto mapToCustomerDetailsDto(CustomerAccountView view, CustomerDetailsDto customerDetailsDto) {
+        customerDetailsDto.setName(view.name());
+        customerDetailsDto.setEmail(view.email());
+        customerDetailsDto.setMobileNumber(view.mobileNumber());
+        return customerDetailsDto;
+    }
+
     /**
      * Maps a CustomerDto to a Customer entity.
      * @param customerDto The CustomerDto to map from.
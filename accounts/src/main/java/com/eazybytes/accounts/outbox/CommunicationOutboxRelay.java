@@ -0,0 +1,305 @@
+package com.eazybytes.accounts.outbox;
+
+import com.eazybytes.accounts.config.OutboxConfig;
+import com.eazybytes.accounts.config.OutboxProperties;
+import com.eazybytes.accounts.entity.CommunicationOutbox;
+import com.eazybytes.accounts.mapper.CommunicationOutboxMapper;
+import com.eazybytes.accounts.repository.CommunicationOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.integration.context.IntegrationContextUtils;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the rows of the communication outbox to the sendCommunication binding.
+ * <p>
+ * Every worker claims a batch of rows, oldest first, by setting a lease on them in a short transaction;
+ * FOR UPDATE SKIP LOCKED keeps two workers of this or other instances from claiming the same rows. The
+ * whole batch is then sent without waiting for the broker and outside any transaction, so a slow broker
+ * holds neither a connection nor row locks. Once the confirmations are in, a second short transaction
+ * deletes the confirmed rows and gives up the lease on the others, which the next poll publishes again.
+ * A row is only deleted after the broker confirmed it, so delivery is at least once: the rows of a worker
+ * that crashed are published again once its lease ends. Every message carries the outbox id, so the
+ * message service skips such duplicates, and marking an account as communicated is idempotent as well.
+ */
+@Component
+public class CommunicationOutboxRelay implements SmartLifecycle {
+
+    /**
+     * Header carrying the outbox id of a communication request. A row published twice keeps its id, which
+     * lets the message service recognise the second delivery as a duplicate.
+     */
+    public static final String MESSAGE_ID_HEADER = "eazybank-message-id";
+
+    private static final Logger log = LoggerFactory.getLogger(CommunicationOutboxRelay.class);
+
+    private final CommunicationOutboxRepository communicationOutboxRepository;
+    private final StreamBridge streamBridge;
+    private final OutboxProperties outboxProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final SubscribableChannel publishedChannel;
+    private final SubscribableChannel errorChannel;
+    private final MessageHandler confirmHandler = message -> confirm(message.getHeaders(), true);
+    private final MessageHandler rejectHandler = this::reject;
+    private final Map<Long, CompletableFuture<Boolean>> unconfirmed = new ConcurrentHashMap<>();
+    private final AtomicLong nextStatsRefresh = new AtomicLong();
+    private final Counter relayedCounter;
+    private final Counter failureCounter;
+    private final Timer deliveryLagTimer;
+
+    private volatile boolean running;
+    private volatile long pendingRows;
+    private volatile Instant oldestPending;
+    private ExecutorService workers;
+
+    public CommunicationOutboxRelay(CommunicationOutboxRepository communicationOutboxRepository,
+                                    StreamBridge streamBridge, OutboxProperties outboxProperties,
+                                    PlatformTransactionManager transactionManager,
+                                    @Qualifier(OutboxConfig.PUBLISHED_CHANNEL) SubscribableChannel publishedChannel,
+                                    @Qualifier(IntegrationContextUtils.ERROR_CHANNEL_BEAN_NAME)
+                                    SubscribableChannel errorChannel,
+                                    MeterRegistry meterRegistry) {
+        this.communicationOutboxRepository = communicationOutboxRepository;
+        this.streamBridge = streamBridge;
+        this.outboxProperties = outboxProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.publishedChannel = publishedChannel;
+        this.errorChannel = errorChannel;
+        this.relayedCounter = Counter.builder("accounts.outbox.relayed")
+                .description("Communication requests published from the outbox")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("accounts.outbox.publish.failures")
+                .description("Communication requests the broker did not confirm; they are retried on a later poll")
+                .register(meterRegistry);
+        this.deliveryLagTimer = Timer.builder("accounts.outbox.delivery.lag")
+                .description("Time between writing a communication request to the outbox and publishing it")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        // both gauges read the values the relay refreshes every stats interval, scrapes do not query the table
+        Gauge.builder("accounts.outbox.pending", this, relay -> relay.pendingRows)
+                .description("Communication requests waiting in the outbox")
+                .register(meterRegistry);
+        Gauge.builder("accounts.outbox.oldest.age", this, CommunicationOutboxRelay::oldestAgeSeconds)
+                .description("Age of the oldest communication request waiting in the outbox")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        if (!outboxProperties.isRelayEnabled()) {
+            log.info("Communication outbox relay is disabled");
+            return;
+        }
+        running = true;
+        if (outboxProperties.isConfirmSends()) {
+            publishedChannel.subscribe(confirmHandler);
+            errorChannel.subscribe(rejectHandler);
+        }
+        workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("outbox-relay-", 0).factory());
+        for (int worker = 0; worker < outboxProperties.getConcurrency(); worker++) {
+            workers.submit(this::drain);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        publishedChannel.unsubscribe(confirmHandler);
+        errorChannel.unsubscribe(rejectHandler);
+        if (workers != null) {
+            workers.shutdownNow();
+            try {
+                workers.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void drain() {
+        long lingerMillis = outboxProperties.getLinger().toMillis();
+        while (running) {
+            int relayed;
+            try {
+                relayed = relayBatch();
+                refreshStats();
+            } catch (RuntimeException ex) {
+                log.error("Relaying the outbox failed", ex);
+                relayed = 0;
+            }
+            // a full batch means more rows are probably waiting, so poll again right away
+            if (relayed < outboxProperties.getBatchSize()) {
+                try {
+                    Thread.sleep(lingerMillis);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claims one batch, publishes it and deletes the rows the broker confirmed. The rows are sent one
+     * after the other without waiting, so the producer can batch them, and the confirmations are awaited
+     * together.
+     *
+     * @return The number of rows published.
+     */
+    int relayBatch() {
+        List<CommunicationOutbox> claimed = claimBatch();
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        List<CompletableFuture<Boolean>> confirmations = claimed.stream().map(this::publish).toList();
+        long deadline = System.nanoTime() + outboxProperties.getPublishTimeout().toNanos();
+        List<Long> published = new ArrayList<>(claimed.size());
+        List<Long> failed = new ArrayList<>();
+        try {
+            for (int i = 0; i < claimed.size(); i++) {
+                CommunicationOutbox communicationOutbox = claimed.get(i);
+                if (!awaitConfirmation(confirmations.get(i), deadline)) {
+                    failureCounter.increment();
+                    failed.add(communicationOutbox.getOutboxId());
+                    continue;
+                }
+                published.add(communicationOutbox.getOutboxId());
+                deliveryLagTimer.record(Duration.between(communicationOutbox.getCreatedAt(), Instant.now()));
+            }
+        } finally {
+            claimed.forEach(communicationOutbox -> unconfirmed.remove(communicationOutbox.getOutboxId()));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!published.isEmpty()) {
+                communicationOutboxRepository.deleteAllByIdInBatch(published);
+            }
+            if (!failed.isEmpty()) {
+                // published again by the next poll rather than once the lease ends
+                communicationOutboxRepository.lease(failed, null);
+            }
+        });
+        relayedCounter.increment(published.size());
+        return published.size();
+    }
+
+    /**
+     * Leases the oldest unclaimed rows to this worker, committing right away so the rows are not locked
+     * while they are published.
+     */
+    private List<CommunicationOutbox> claimBatch() {
+        List<CommunicationOutbox> claimed = transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            List<CommunicationOutbox> rows = communicationOutboxRepository.lockUnclaimed(now,
+                    outboxProperties.getBatchSize());
+            if (!rows.isEmpty()) {
+                communicationOutboxRepository.lease(rows.stream().map(CommunicationOutbox::getOutboxId).toList(),
+                        now.plus(outboxProperties.getClaimLease()));
+            }
+            return rows;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    private CompletableFuture<Boolean> publish(CommunicationOutbox communicationOutbox) {
+        CompletableFuture<Boolean> confirmation = new CompletableFuture<>();
+        boolean confirmSends = outboxProperties.isConfirmSends();
+        if (confirmSends) {
+            // registered before sending, as the confirmation may arrive before send returns
+            unconfirmed.put(communicationOutbox.getOutboxId(), confirmation);
+        }
+        try {
+            boolean accepted = streamBridge.send("sendCommunication-out-0",
+                    MessageBuilder.withPayload(CommunicationOutboxMapper.mapToAccountsMsgDto(communicationOutbox))
+                            .setHeader(MESSAGE_ID_HEADER, communicationOutbox.getOutboxId())
+                            .build());
+            if (!accepted || !confirmSends) {
+                confirmation.complete(accepted);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Communication request for account {} could not be published",
+                    communicationOutbox.getAccountNumber(), ex);
+            confirmation.complete(false);
+        }
+        return confirmation;
+    }
+
+    private static boolean awaitConfirmation(CompletableFuture<Boolean> confirmation, long deadline) {
+        try {
+            return confirmation.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException ex) {
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(Message<?> errorMessage) {
+        if (errorMessage.getPayload() instanceof MessagingException ex && ex.getFailedMessage() != null) {
+            log.warn("Broker did not accept communication request {}",
+                    ex.getFailedMessage().getHeaders().get(MESSAGE_ID_HEADER), ex);
+            confirm(ex.getFailedMessage().getHeaders(), false);
+        }
+    }
+
+    private void confirm(MessageHeaders headers, boolean sent) {
+        if (headers.get(MESSAGE_ID_HEADER) instanceof Number outboxId) {
+            CompletableFuture<Boolean> confirmation = unconfirmed.remove(outboxId.longValue());
+            if (confirmation != null) {
+                confirmation.complete(sent);
+            }
+        }
+    }
+
+    private void refreshStats() {
+        long now = System.currentTimeMillis();
+        long next = nextStatsRefresh.get();
+        long interval = outboxProperties.getStatsInterval().toMillis();
+        // one worker refreshes per interval
+        if (now < next || !nextStatsRefresh.compareAndSet(next, now + interval)) {
+            return;
+        }
+        pendingRows = communicationOutboxRepository.count();
+        oldestPending = communicationOutboxRepository.findOldestCreatedAt();
+    }
+
+    private double oldestAgeSeconds() {
+        Instant oldest = oldestPending;
+        return oldest == null ? 0 : Duration.between(oldest, Instant.now()).toMillis() / 1000.0;
+    }
+}
@@ -4,8 +4,12 @@ import com.eazybytes.accounts.entity.Accounts;
 import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
@@ -29,4 +33,20 @@ public interface AccountsRepository extends JpaRepository<Accounts, Long> {
     @Modifying
     void deleteByCustomerId(Long customerId);
 
+    /**
+     * Marks the communication of all given accounts as sent in a single statement. Accounts already marked
+     * are left untouched, so applying the same account numbers again changes nothing.
+     *
+     * @param accountNumbers The account numbers whose communication was sent.
+     * @param updatedAt      The modification time to record.
+     * @param updatedBy      The auditor to record.
+     * @return The number of accounts that were not marked yet.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Accounts a set a.communicationSw = true, a.updatedAt = :updatedAt, a.updatedBy = :updatedBy " +
+            "where a.accountNumber in :accountNumbers and (a.communicationSw is null or a.communicationSw = false)")
+    int markCommunicationSent(@Param("accountNumbers") Collection<Long> accountNumbers,
+                              @Param("updatedAt") LocalDateTime updatedAt, @Param("updatedBy") String updatedBy);
+
 }
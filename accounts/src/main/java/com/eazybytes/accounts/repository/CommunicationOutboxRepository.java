@@ -0,0 +1,46 @@
+package com.eazybytes.accounts.repository;
+
+import com.eazybytes.accounts.entity.CommunicationOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface CommunicationOutboxRepository extends JpaRepository<CommunicationOutbox, Long> {
+
+    /**
+     * Locks the oldest rows no relay worker holds a lease on. Rows locked by another transaction are
+     * skipped, so two workers claiming at the same time never get the same rows.
+     *
+     * @param now   The current time; leases ending before it have expired.
+     * @param limit The maximum number of rows to lock.
+     * @return The unclaimed rows, oldest first.
+     */
+    @Query(value = "select * from communication_outbox where claimed_until is null or claimed_until < :now " +
+            "order by outbox_id limit :limit for update skip locked", nativeQuery = true)
+    List<CommunicationOutbox> lockUnclaimed(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Sets the lease of the given rows.
+     *
+     * @param outboxIds    The rows to lease.
+     * @param claimedUntil The end of the lease, or null to give the rows up.
+     * @return The number of rows updated.
+     */
+    @Modifying
+    @Query("update CommunicationOutbox o set o.claimedUntil = :claimedUntil where o.outboxId in :outboxIds")
+    int lease(@Param("outboxIds") List<Long> outboxIds, @Param("claimedUntil") Instant claimedUntil);
+
+    /**
+     * Retrieves the creation time of the oldest pending row.
+     *
+     * @return The creation time, or null if the outbox is empty.
+     */
+    @Query("select min(o.createdAt) from CommunicationOutbox o")
+    Instant findOldestCreatedAt();
+}
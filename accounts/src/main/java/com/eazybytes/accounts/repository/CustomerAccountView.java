@@ -0,0 +1,17 @@
+package com.eazybytes.accounts.repository;
+
+/**
+ * Read-only view of a customer together with its account, produced by a single joined query.
+ * Instances are built directly from the result set, so no entities are hydrated or tracked.
+ *
+ * @param customerId The id of the customer, which the account refers to.
+ * @param name The name of the customer.
+ * @param email The email address of the customer.
+ * @param mobileNumber The mobile number the customer is registered with.
+ * @param accountNumber The number of the customer's account.
+ * @param accountType The type of the account, e.g. Savings.
+ * @param branchAddress The address of the branch holding the account.
+ */
+public record CustomerAccountView(Long customerId, String name, String email, String mobileNumber,
+                                  Long accountNumber, String accountType, String branchAddress) {
+}
@@ -2,12 +2,48 @@ package com.eazybytes.accounts.repository;
 
 import com.eazybytes.accounts.entity.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
     Optional<Customer> findByMobileNumber(String mobileNumber);
+
+    /**
+     * Retrieves all customers registered with any of the given mobile numbers in a single query.
+     *
+     * @param mobileNumbers The mobile numbers to look up.
+     * @return The customers found; mobile numbers without a customer are simply absent.
+     */
+    List<Customer> findByMobileNumberIn(Collection<String> mobileNumbers);
+
+    /**
+     * Retrieves the customer registered with the given mobile number together with its account
+     * in a single statement.
+     *
+     * @param mobileNumber The mobile number of the customer.
+     * @return An Optional containing the view if both the customer and its account exist, or an empty Optional if not.
+     */
+    @Query("select new com.eazybytes.accounts.repository.CustomerAccountView(c.customerId, c.name, c.email, " +
+            "c.mobileNumber, a.accountNumber, a.accountType, a.branchAddress) " +
+            "from Customer c join Accounts a on a.customerId = c.customerId where c.mobileNumber = :mobileNumber")
+    Optional<CustomerAccountView> findCustomerAccountByMobileNumber(@Param("mobileNumber") String mobileNumber);
+
+    /**
+     * Retrieves the customers registered with any of the given mobile numbers together with their
+     * accounts in a single statement.
+     *
+     * @param mobileNumbers The mobile numbers to look up.
+     * @return The views found; mobile numbers without a customer or account are simply absent.
+     */
+    @Query("select new com.eazybytes.accounts.repository.CustomerAccountView(c.customerId, c.name, c.email, " +
+            "c.mobileNumber, a.accountNumber, a.accountType, a.branchAddress) " +
+            "from Customer c join Accounts a on a.customerId = c.customerId where c.mobileNumber in :mobileNumbers")
+    List<CustomerAccountView> findCustomerAccountsByMobileNumberIn(@Param("mobileNumbers") Collection<String> mobileNumbers);
 }
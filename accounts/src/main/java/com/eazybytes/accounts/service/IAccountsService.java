@@ -2,6 +2,8 @@ package com.eazybytes.accounts.service;
 
 import com.eazybytes.accounts.dto.CustomerDto;
 
+import java.util.List;
+
 public interface IAccountsService {
 
     /**
@@ -36,11 +38,10 @@ public interface IAccountsService {
 
 
     /**
-     * Updates the communication status for the given account number.
+     * Updates the communication status for all given account numbers at once.
      *
-     * @param accountNumber The account number for which the communication status is to be updated.
-     * @return true if the communication status is successfully updated, false otherwise.
+     * @param accountNumbers The account numbers for which the communication status is to be updated.
+     * @return The number of accounts whose communication status changed.
      */
-
-    boolean updateCommunicationStatus(Long accountNumber);
+    int updateCommunicationStatus(List<Long> accountNumbers);
 }
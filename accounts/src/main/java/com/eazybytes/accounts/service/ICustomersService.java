@@ -1,7 +1,10 @@
 package com.eazybytes.accounts.service;
 
+import com.eazybytes.accounts.dto.CustomerDetailsBatchEntryDto;
 import com.eazybytes.accounts.dto.CustomerDetailsDto;
 
+import java.util.List;
+
 public interface ICustomersService {
 
     /**
@@ -11,4 +14,12 @@ public interface ICustomersService {
      * @return The CustomerDetailsDto object containing the customer details.
      */
     CustomerDetailsDto fetchCustomerDetails(String mobileNumber, String correlationId);
+
+    /**
+     * Fetches the customer details for many mobile numbers with a constant number of round trips.
+     * @param mobileNumbers The mobile numbers of the customers whose details are being fetched.
+     * @param correlationId The correlation id to be used for logging.
+     * @return One entry per requested mobile number, in request order, holding either the details or an error.
+     */
+    List<CustomerDetailsBatchEntryDto> fetchCustomerDetailsBatch(List<String> mobileNumbers, String correlationId);
 }
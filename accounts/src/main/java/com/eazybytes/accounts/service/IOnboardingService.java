@@ -0,0 +1,17 @@
+package com.eazybytes.accounts.service;
+
+import com.eazybytes.accounts.dto.CustomerDto;
+import com.eazybytes.accounts.dto.CustomerOnboardingEntryDto;
+
+import java.util.Iterator;
+import java.util.List;
+
+public interface IOnboardingService {
+
+    /**
+     * Creates a customer and an account for every given customer, reading them chunk by chunk.
+     * @param customers - Customers to onboard, consumed once; a null customer stands for a malformed element.
+     * @return One entry per customer, in the order they were read.
+     */
+    List<CustomerOnboardingEntryDto> createAccounts(Iterator<CustomerDto> customers);
+}
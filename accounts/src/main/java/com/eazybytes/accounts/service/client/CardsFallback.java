@@ -4,6 +4,8 @@ import com.eazybytes.accounts.dto.CardsDto;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class CardsFallback implements CardsFeignClient {
 
@@ -11,4 +13,9 @@ public class CardsFallback implements CardsFeignClient {
     public ResponseEntity<CardsDto> fetchCardDetails(String correlationId, String mobileNumber) {
         return null;
     }
+
+    @Override
+    public ResponseEntity<List<CardsDto>> fetchCardDetailsBulk(String correlationId, List<String> mobileNumbers) {
+        return null;
+    }
 }
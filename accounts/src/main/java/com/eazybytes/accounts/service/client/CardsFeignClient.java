@@ -4,13 +4,21 @@ import com.eazybytes.accounts.dto.CardsDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
-@FeignClient(name="cards", fallback = CardsFallback.class)
+import java.util.List;
+
+@FeignClient(name="cards", fallback = CardsFallback.class, dismiss404 = true)
 public interface CardsFeignClient {
 
     @GetMapping(value = "/api/fetch",consumes = "application/json")
     public ResponseEntity<CardsDto> fetchCardDetails(@RequestHeader("eazybank-correlation-id")
-                                                         String correlationId, @RequestParam String mobileNumber);
+                                                         String correlationId, @RequestParam("mobileNumber") String mobileNumber);
+
+    @PostMapping(value = "/api/fetchBulk",consumes = "application/json")
+    public ResponseEntity<List<CardsDto>> fetchCardDetailsBulk(@RequestHeader("eazybank-correlation-id")
+                                                                   String correlationId, @RequestBody List<String> mobileNumbers);
 }
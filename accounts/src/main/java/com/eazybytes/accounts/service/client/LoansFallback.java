@@ -4,6 +4,8 @@ import com.eazybytes.accounts.dto.LoansDto;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class LoansFallback implements LoansFeignClient {
 
@@ -11,4 +13,9 @@ public class LoansFallback implements LoansFeignClient {
     public ResponseEntity<LoansDto> fetchLoanDetails(String correlationId, String mobileNumber) {
         return null;
     }
+
+    @Override
+    public ResponseEntity<List<LoansDto>> fetchLoanDetailsBulk(String correlationId, List<String> mobileNumbers) {
+        return null;
+    }
 }
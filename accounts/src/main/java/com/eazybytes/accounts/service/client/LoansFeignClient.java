@@ -1,17 +1,24 @@
 package com.eazybytes.accounts.service.client;
 
-import com.eazybytes.accounts.dto.CardsDto;
 import com.eazybytes.accounts.dto.LoansDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 
-@FeignClient(name="loans",fallback = LoansFallback.class)
+import java.util.List;
+
+@FeignClient(name="loans",fallback = LoansFallback.class, dismiss404 = true)
 public interface LoansFeignClient {
 
     @GetMapping(value = "/api/fetch",consumes = "application/json")
     public ResponseEntity<LoansDto> fetchLoanDetails(@RequestHeader("eazybank-correlation-id")
-                                                         String correlationId, @RequestParam String mobileNumber);
+                                                         String correlationId, @RequestParam("mobileNumber") String mobileNumber);
+
+    @PostMapping(value = "/api/fetchBulk",consumes = "application/json")
+    public ResponseEntity<List<LoansDto>> fetchLoanDetailsBulk(@RequestHeader("eazybank-correlation-id")
+                                                                   String correlationId, @RequestBody List<String> mobileNumbers);
 }
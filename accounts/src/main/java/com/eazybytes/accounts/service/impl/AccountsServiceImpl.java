@@ -2,79 +2,91 @@ package com.eazybytes.accounts.service.impl;
 
 import com.eazybytes.accounts.constants.AccountsConstants;
 import com.eazybytes.accounts.dto.AccountsDto;
-import com.eazybytes.accounts.dto.AccountsMsgDto;
 import com.eazybytes.accounts.dto.CustomerDto;
 import com.eazybytes.accounts.entity.Accounts;
+import com.eazybytes.accounts.entity.CommunicationOutbox;
 import com.eazybytes.accounts.entity.Customer;
 import com.eazybytes.accounts.exception.CustomerAlreadyExistsException;
 import com.eazybytes.accounts.exception.ResourceNotFoundException;
 import com.eazybytes.accounts.mapper.AccountsMapper;
+import com.eazybytes.accounts.mapper.CommunicationOutboxMapper;
 import com.eazybytes.accounts.mapper.CustomerMapper;
 import com.eazybytes.accounts.repository.AccountsRepository;
+import com.eazybytes.accounts.repository.CommunicationOutboxRepository;
+import com.eazybytes.accounts.repository.CustomerAccountView;
 import com.eazybytes.accounts.repository.CustomerRepository;
 import com.eazybytes.accounts.service.IAccountsService;
+import com.eazybytes.common.persistence.UniqueConstraints;
+import com.eazybytes.common.sequence.NumberAllocator;
+import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.AuditorAware;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.Optional;
-import java.util.Random;
+import java.util.List;
+import java.util.Objects;
 
 @Service
 @AllArgsConstructor
 public class AccountsServiceImpl implements IAccountsService {
 
-    private static final Logger log = LoggerFactory.getLogger(AccountsServiceImpl.class);
-
     private AccountsRepository accountsRepository;
     private CustomerRepository customerRepository;
-    private final StreamBridge streamBridge;
+    private final CommunicationOutboxRepository communicationOutboxRepository;
+    private final CacheManager cacheManager;
+    private final NumberAllocator accountNumberAllocator;
+    private final AuditorAware<String> auditAwareImpl;
 
     /**
      * This method will create a new account for the given customer.
+     * The communication request is written to the outbox in the same transaction and published by the relay.
+     * The customer is inserted right away; the unique constraint on the mobile number rejects a second
+     * customer, also when two requests for the same mobile number arrive at the same time.
      * @param customerDto - CustomerDto Object
      */
     @Override
+    @Transactional
     public void createAccount(CustomerDto customerDto) {
         Customer customer = CustomerMapper.mapToCustomer(customerDto, new Customer());
 
-        Optional<Customer> optionalCustomer = customerRepository.findByMobileNumber(customerDto.getMobileNumber());
-        if(optionalCustomer.isPresent()) {
-            throw new CustomerAlreadyExistsException("Customer already registered with given mobileNumber "
-                    +customerDto.getMobileNumber());
-        }
 //        customer.setCreatedAt(LocalDateTime.now());
 //        customer.setCreatedBy("Anonymous");
-        Customer savedCustomer = customerRepository.save(customer);
+        Customer savedCustomer;
+        try {
+            // flushed, as the sequence generated id would otherwise delay the insert until the commit
+            savedCustomer = customerRepository.saveAndFlush(customer);
+        } catch (DataIntegrityViolationException ex) {
+            if (UniqueConstraints.isViolated(ex, AccountsConstants.MOBILE_NUMBER_CONSTRAINT)) {
+                throw new CustomerAlreadyExistsException("Customer already registered with given mobileNumber "
+                        +customerDto.getMobileNumber());
+            }
+            throw ex;
+        }
 //        accountsRepository.save(createNewAccount(savedCustomer));
         Accounts savedAccount = accountsRepository.save(createNewAccount(savedCustomer));
         sendCommunication(savedAccount, savedCustomer);
     }
 
     private void sendCommunication(Accounts account, Customer customer) {
-        var accountsMsgDto = new AccountsMsgDto(account.getAccountNumber(), customer.getName(),
-                customer.getEmail(), customer.getMobileNumber());
-        log.info("Sending Communication request for the details: {}", accountsMsgDto);
-        var result = streamBridge.send("sendCommunication-out-0", accountsMsgDto);
-        log.info("Is the Communication request successfully triggered ? : {}", result);
+        communicationOutboxRepository.save(
+                CommunicationOutboxMapper.mapToCommunicationOutbox(account, customer, new CommunicationOutbox()));
     }
 
 
     /**
-     * Creates a new account for the given customer with a random account number.
+     * Creates a new account for the given customer with a unique account number.
      *
      * @param customer The customer for whom the account is being created.
-     * @return A new Accounts object with the assigned customerId, random account number, default account type, and branch address.
+     * @return A new Accounts object with the assigned customerId, allocated account number, default account type, and branch address.
      */
     private Accounts createNewAccount(Customer customer) {
         Accounts newAccount = new Accounts();
         newAccount.setCustomerId(customer.getCustomerId());
-        long randomAccNumber = 1000000000L + new Random().nextInt(900000000);
-
-        newAccount.setAccountNumber(randomAccNumber);
+        newAccount.setAccountNumber(accountNumberAllocator.next());
         newAccount.setAccountType(AccountsConstants.SAVINGS);
         newAccount.setBranchAddress(AccountsConstants.ADDRESS);
 //        newAccount.setCreatedAt(LocalDateTime.now());
@@ -84,20 +96,29 @@ public class AccountsServiceImpl implements IAccountsService {
 
     /**
      * Fetches the account for the given mobile number.
+     * Results are cached per mobile number; concurrent misses for the same mobile number load it only once.
+     * The cache holds the immutable CustomerAccountView, and every caller gets DTOs of its own, so a caller
+     * changing the returned DTO does not change what the next caller reads.
      * @param mobileNumber - Unique mobile number of the customer.
      * @return The CustomerDto object containing the account details.
      */
     @Override
     public CustomerDto fetchAccount(String mobileNumber) {
-        Customer customer = customerRepository.findByMobileNumber(mobileNumber).orElseThrow(
-                () -> new ResourceNotFoundException("Customer", "mobileNumber", mobileNumber)
-        );
-        Accounts accounts = accountsRepository.findByCustomerId(customer.getCustomerId()).orElseThrow(
-                () -> new ResourceNotFoundException("Account", "customerId", customer.getCustomerId().toString())
-        );
+        CustomerAccountView view;
+        try {
+            view = customerAccountsCache().get(mobileNumber, () -> customerRepository
+                    .findCustomerAccountByMobileNumber(mobileNumber).orElseThrow(
+                            () -> customerAccountNotFound(mobileNumber)
+                    ));
+        } catch (Cache.ValueRetrievalException ex) {
+            if (ex.getCause() instanceof ResourceNotFoundException notFound) {
+                throw notFound;
+            }
+            throw ex;
+        }
 
-        CustomerDto customerDto = CustomerMapper.mapToCustomerDto(customer, new CustomerDto());
-        customerDto.setAccountsDto(AccountsMapper.mapToAccountsDto(accounts, new AccountsDto()));
+        CustomerDto customerDto = CustomerMapper.mapToCustomerDto(view, new CustomerDto());
+        customerDto.setAccountsDto(AccountsMapper.mapToAccountsDto(view, new AccountsDto()));
 
         return customerDto;
     }
@@ -126,8 +147,11 @@ public class AccountsServiceImpl implements IAccountsService {
             Customer customer = customerRepository.findById(customerId).orElseThrow(
                     () -> new ResourceNotFoundException("Customer", "CustomerID", customerId.toString())
             );
+            String previousMobileNumber = customer.getMobileNumber();
             CustomerMapper.mapToCustomer(customerDto,customer);
             customerRepository.save(customer);
+            evictCustomer(previousMobileNumber);
+            evictCustomer(customer.getMobileNumber());
             isUpdated = true;
         }
         return  isUpdated;
@@ -147,29 +171,54 @@ public class AccountsServiceImpl implements IAccountsService {
         );
         accountsRepository.deleteByCustomerId(customer.getCustomerId());
         customerRepository.deleteById(customer.getCustomerId());
+        evictCustomer(mobileNumber);
         return true;
     }
 
     /**
-     * Updates the communication status of the account associated with the given account number.
+     * Updates the communication status of all given accounts with one bulk update.
+     * Accounts already marked are skipped, so a redelivered batch has no effect. The cached account details
+     * do not carry the communication status, so nothing needs to be evicted.
      *
-     * @param accountNumber The account number of the account whose communication status is to be updated.
-     * @return true if the communication status is successfully updated, false otherwise.
-     * @throws ResourceNotFoundException if no account is found for the given account number.
+     * @param accountNumbers The account numbers whose communication was sent; duplicates and nulls are ignored.
+     * @return The number of accounts whose communication status changed.
      */
     @Override
-    public boolean updateCommunicationStatus(Long accountNumber) {
-        boolean isUpdated = false;
-        if(accountNumber !=null ){
-            Accounts accounts = accountsRepository.findById(accountNumber).orElseThrow(
-                    () -> new ResourceNotFoundException("Account", "AccountNumber", accountNumber.toString())
-            );
-            accounts.setCommunicationSw(true);
-            accountsRepository.save(accounts);
-            isUpdated = true;
+    public int updateCommunicationStatus(List<Long> accountNumbers) {
+        List<Long> distinctAccountNumbers = accountNumbers.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (distinctAccountNumbers.isEmpty()) {
+            return 0;
+        }
+        return accountsRepository.markCommunicationSent(distinctAccountNumbers, LocalDateTime.now(),
+                auditAwareImpl.getCurrentAuditor().orElse(null));
+    }
+
+    /**
+     * Explains an empty joined lookup, which is only read again when the customer and account were not both found.
+     */
+    private ResourceNotFoundException customerAccountNotFound(String mobileNumber) {
+        return customerRepository.findByMobileNumber(mobileNumber)
+                .map(customer -> new ResourceNotFoundException("Account", "customerId", customer.getCustomerId().toString()))
+                .orElseGet(() -> new ResourceNotFoundException("Customer", "mobileNumber", mobileNumber));
+    }
+
+    /**
+     * Removes the cached account details of the given mobile number so the next fetch reads them again.
+     *
+     * @param mobileNumber The mobile number whose cached details are to be removed.
+     */
+    private void evictCustomer(String mobileNumber) {
+        if (mobileNumber != null) {
+            customerAccountsCache().evict(mobileNumber);
         }
-        return  isUpdated;
     }
 
+    private Cache customerAccountsCache() {
+        return Objects.requireNonNull(cacheManager.getCache(AccountsConstants.CUSTOMER_ACCOUNTS_CACHE),
+                "Cache " + AccountsConstants.CUSTOMER_ACCOUNTS_CACHE + " is not configured");
+    }
 
 }
@@ -1,31 +1,79 @@
 package com.eazybytes.accounts.service.impl;
 
+import com.eazybytes.accounts.config.AggregationProperties;
+import com.eazybytes.accounts.constants.AccountsConstants;
 import com.eazybytes.accounts.dto.AccountsDto;
 import com.eazybytes.accounts.dto.CardsDto;
+import com.eazybytes.accounts.dto.CustomerDetailsBatchEntryDto;
 import com.eazybytes.accounts.dto.CustomerDetailsDto;
 import com.eazybytes.accounts.dto.LoansDto;
-import com.eazybytes.accounts.entity.Accounts;
 import com.eazybytes.accounts.entity.Customer;
 import com.eazybytes.accounts.exception.ResourceNotFoundException;
 import com.eazybytes.accounts.mapper.AccountsMapper;
 import com.eazybytes.accounts.mapper.CustomerMapper;
-import com.eazybytes.accounts.repository.AccountsRepository;
+import com.eazybytes.accounts.repository.CustomerAccountView;
 import com.eazybytes.accounts.repository.CustomerRepository;
 import com.eazybytes.accounts.service.ICustomersService;
 import com.eazybytes.accounts.service.client.CardsFeignClient;
 import com.eazybytes.accounts.service.client.LoansFeignClient;
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
 @Service
-@AllArgsConstructor
 public class CustomersServiceImpl implements ICustomersService {
 
-    private AccountsRepository accountsRepository;
-    private CustomerRepository customerRepository;
-    private CardsFeignClient cardsFeignClient;
-    private LoansFeignClient loansFeignClient;
+    private static final Logger log = LoggerFactory.getLogger(CustomersServiceImpl.class);
+
+    private static final String LEG_TIMER = "accounts.customer.details.leg";
+    private static final String LEG_ACCOUNTS = "accounts";
+    private static final String LEG_LOANS = "loans";
+    private static final String LEG_CARDS = "cards";
+    private static final String LEG_LOANS_BULK = "loans-bulk";
+    private static final String LEG_CARDS_BULK = "cards-bulk";
+
+    private final CustomerRepository customerRepository;
+    private final CardsFeignClient cardsFeignClient;
+    private final LoansFeignClient loansFeignClient;
+    private final AggregationProperties aggregationProperties;
+    private final ExecutorService aggregationExecutor;
+    private final MeterRegistry meterRegistry;
+
+    public CustomersServiceImpl(CustomerRepository customerRepository,
+                                CardsFeignClient cardsFeignClient, LoansFeignClient loansFeignClient,
+                                AggregationProperties aggregationProperties,
+                                @Qualifier("aggregationExecutor") ExecutorService aggregationExecutor,
+                                MeterRegistry meterRegistry) {
+        this.customerRepository = customerRepository;
+        this.cardsFeignClient = cardsFeignClient;
+        this.loansFeignClient = loansFeignClient;
+        this.aggregationProperties = aggregationProperties;
+        this.aggregationExecutor = aggregationExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
     /**
      * Fetches the customer details for the given mobile number.
      * @param mobileNumber The unique mobile number of the customer for whom the customer details are being fetched.
@@ -33,26 +81,272 @@ public class CustomersServiceImpl implements ICustomersService {
      */
     @Override
     public CustomerDetailsDto fetchCustomerDetails(String mobileNumber, String correlationId) {
-        Customer customer = customerRepository.findByMobileNumber(mobileNumber).orElseThrow(
-                () -> new ResourceNotFoundException("Customer", "mobileNumber", mobileNumber)
-        );
-        Accounts accounts = accountsRepository.findByCustomerId(customer.getCustomerId()).orElseThrow(
-                () -> new ResourceNotFoundException("Account", "customerId", customer.getCustomerId().toString())
+        long start = System.nanoTime();
+        CustomerAccountView view = customerRepository.findCustomerAccountByMobileNumber(mobileNumber).orElseThrow(
+                () -> customerAccountNotFound(mobileNumber)
         );
+        recordLeg(LEG_ACCOUNTS, "success", System.nanoTime() - start);
 
-        CustomerDetailsDto customerDetailsDto = CustomerMapper.mapToCustomerDetailsDto(customer, new CustomerDetailsDto());
-        customerDetailsDto.setAccountsDto(AccountsMapper.mapToAccountsDto(accounts, new AccountsDto()));
+        CustomerDetailsDto customerDetailsDto = CustomerMapper.mapToCustomerDetailsDto(view, new CustomerDetailsDto());
+        customerDetailsDto.setAccountsDto(AccountsMapper.mapToAccountsDto(view, new AccountsDto()));
 
-        ResponseEntity<LoansDto> loansDtoResponseEntity = loansFeignClient.fetchLoanDetails(correlationId, mobileNumber);
-        if(null != loansDtoResponseEntity) {
-            customerDetailsDto.setLoansDto(loansDtoResponseEntity.getBody());
+        LegResult<LoansDto> loans;
+        LegResult<CardsDto> cards;
+        if (aggregationProperties.isParallel()) {
+            // a leg that fails, times out or misses the overall deadline leaves its section of the response empty
+            PendingLeg<LoansDto> loansLeg = submitLeg(LEG_LOANS,
+                    () -> loansFeignClient.fetchLoanDetails(correlationId, mobileNumber));
+            PendingLeg<CardsDto> cardsLeg = submitLeg(LEG_CARDS,
+                    () -> cardsFeignClient.fetchCardDetails(correlationId, mobileNumber));
+            awaitLegs(loansLeg, cardsLeg);
+            loans = loansLeg.resultOrFailure();
+            cards = cardsLeg.resultOrFailure();
+        } else {
+            loans = callLeg(LEG_LOANS, () -> loansFeignClient.fetchLoanDetails(correlationId, mobileNumber));
+            cards = callLeg(LEG_CARDS, () -> cardsFeignClient.fetchCardDetails(correlationId, mobileNumber));
         }
 
-        ResponseEntity<CardsDto> cardsDtoResponseEntity = cardsFeignClient.fetchCardDetails(correlationId, mobileNumber);
-        if(null != cardsDtoResponseEntity) {
-            customerDetailsDto.setCardsDto(cardsDtoResponseEntity.getBody());
+        customerDetailsDto.setLoansDto(loans.body());
+        customerDetailsDto.setCardsDto(cards.body());
+        markDegraded(customerDetailsDto, loans.failed(), cards.failed());
+        return customerDetailsDto;
+    }
+
+    /**
+     * Fetches the customer details for many mobile numbers. Customers and accounts are resolved with one
+     * joined IN query and loans and cards with one bulk call each, independent of the number of entries.
+     * @param mobileNumbers The mobile numbers of the customers whose details are being fetched.
+     * @param correlationId The correlation id to be used for logging.
+     * @return One entry per requested mobile number, in request order, holding either the details or an error.
+     */
+    @Override
+    public List<CustomerDetailsBatchEntryDto> fetchCustomerDetailsBatch(List<String> mobileNumbers,
+                                                                        String correlationId) {
+        List<String> distinctMobileNumbers = mobileNumbers.stream().distinct().toList();
+
+        long start = System.nanoTime();
+        Map<String, CustomerAccountView> views = customerRepository
+                .findCustomerAccountsByMobileNumberIn(distinctMobileNumbers).stream()
+                .collect(Collectors.toMap(CustomerAccountView::mobileNumber, Function.identity(), (first, second) -> first));
+        recordLeg(LEG_ACCOUNTS, "success", System.nanoTime() - start);
+
+        List<String> resolved = distinctMobileNumbers.stream().filter(views::containsKey).toList();
+        Map<String, LoansDto> loans = Collections.emptyMap();
+        Map<String, CardsDto> cards = Collections.emptyMap();
+        boolean loansFailed = false;
+        boolean cardsFailed = false;
+        if (!resolved.isEmpty()) {
+            LegResult<List<LoansDto>> loansResult;
+            LegResult<List<CardsDto>> cardsResult;
+            if (aggregationProperties.isParallel()) {
+                PendingLeg<List<LoansDto>> loansLeg = submitLeg(LEG_LOANS_BULK,
+                        () -> loansFeignClient.fetchLoanDetailsBulk(correlationId, resolved));
+                PendingLeg<List<CardsDto>> cardsLeg = submitLeg(LEG_CARDS_BULK,
+                        () -> cardsFeignClient.fetchCardDetailsBulk(correlationId, resolved));
+                awaitLegs(loansLeg, cardsLeg);
+                loansResult = loansLeg.resultOrFailure();
+                cardsResult = cardsLeg.resultOrFailure();
+            } else {
+                loansResult = callLeg(LEG_LOANS_BULK,
+                        () -> loansFeignClient.fetchLoanDetailsBulk(correlationId, resolved));
+                cardsResult = callLeg(LEG_CARDS_BULK,
+                        () -> cardsFeignClient.fetchCardDetailsBulk(correlationId, resolved));
+            }
+            // a customer missing from an answered bulk call has no loan or card, which is not a failure
+            loansFailed = loansResult.failed();
+            cardsFailed = cardsResult.failed();
+            if (loansResult.body() != null) {
+                loans = loansResult.body().stream().collect(
+                        Collectors.toMap(LoansDto::getMobileNumber, Function.identity(), (first, second) -> first));
+            }
+            if (cardsResult.body() != null) {
+                cards = cardsResult.body().stream().collect(
+                        Collectors.toMap(CardsDto::getMobileNumber, Function.identity(), (first, second) -> first));
+            }
         }
 
-        return customerDetailsDto;
+        // the joined query cannot tell a missing customer from a customer without an account
+        List<String> unresolved = distinctMobileNumbers.stream()
+                .filter(mobileNumber -> !views.containsKey(mobileNumber))
+                .toList();
+        Map<String, Long> customerIdsWithoutAccount = unresolved.isEmpty() ? Collections.emptyMap() :
+                customerRepository.findByMobileNumberIn(unresolved).stream()
+                        .collect(Collectors.toMap(Customer::getMobileNumber, Customer::getCustomerId));
+
+        List<CustomerDetailsBatchEntryDto> entries = new ArrayList<>(mobileNumbers.size());
+        for (String mobileNumber : mobileNumbers) {
+            CustomerAccountView view = views.get(mobileNumber);
+            if (view == null) {
+                Long customerId = customerIdsWithoutAccount.get(mobileNumber);
+                entries.add(notFound(mobileNumber, customerId == null
+                        ? new ResourceNotFoundException("Customer", "mobileNumber", mobileNumber)
+                        : new ResourceNotFoundException("Account", "customerId", customerId.toString())));
+                continue;
+            }
+            CustomerDetailsDto customerDetailsDto = CustomerMapper.mapToCustomerDetailsDto(view, new CustomerDetailsDto());
+            customerDetailsDto.setAccountsDto(AccountsMapper.mapToAccountsDto(view, new AccountsDto()));
+            customerDetailsDto.setLoansDto(loans.get(mobileNumber));
+            customerDetailsDto.setCardsDto(cards.get(mobileNumber));
+            markDegraded(customerDetailsDto, loansFailed, cardsFailed);
+            entries.add(new CustomerDetailsBatchEntryDto(mobileNumber, AccountsConstants.STATUS_200, null,
+                    customerDetailsDto));
+        }
+        return entries;
+    }
+
+    /**
+     * Explains an empty joined lookup, which is only read again when the customer and account were not both found.
+     */
+    private ResourceNotFoundException customerAccountNotFound(String mobileNumber) {
+        return customerRepository.findByMobileNumber(mobileNumber)
+                .map(customer -> new ResourceNotFoundException("Account", "customerId", customer.getCustomerId().toString()))
+                .orElseGet(() -> new ResourceNotFoundException("Customer", "mobileNumber", mobileNumber));
+    }
+
+    private CustomerDetailsBatchEntryDto notFound(String mobileNumber, ResourceNotFoundException exception) {
+        return new CustomerDetailsBatchEntryDto(mobileNumber, AccountsConstants.STATUS_404, exception.getMessage(), null);
+    }
+
+    /**
+     * Waits for the given legs until the overall deadline and then cancels the ones still running.
+     */
+    private void awaitLegs(PendingLeg<?>... legs) {
+        try {
+            CompletableFuture.allOf(Arrays.stream(legs).map(PendingLeg::result).toArray(CompletableFuture[]::new))
+                    .get(aggregationProperties.getOverallTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Customer details aggregation exceeded the overall deadline of {}",
+                    aggregationProperties.getOverallTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // each leg handles its own failure, so this is not expected
+            log.warn("Customer details aggregation failed", e);
+        } finally {
+            for (PendingLeg<?> leg : legs) {
+                leg.cancel();
+            }
+        }
+    }
+
+    /**
+     * Runs a downstream call on its own virtual thread, which is cancelled once the per-call deadline has passed.
+     */
+    private <T> PendingLeg<T> submitLeg(String leg, Supplier<ResponseEntity<T>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<ResponseEntity<T>> response = new CompletableFuture<>();
+        Future<?> task = aggregationExecutor.submit(() -> {
+            try {
+                response.complete(call.get());
+            } catch (Throwable e) {
+                response.completeExceptionally(e);
+            }
+        });
+        CompletableFuture<LegResult<T>> result = response
+                .orTimeout(aggregationProperties.getCallTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .handle((body, ex) -> {
+                    if (ex != null) {
+                        task.cancel(true);
+                    }
+                    return complete(leg, body, ex, System.nanoTime() - start);
+                });
+        return new PendingLeg<>(task, response, result);
+    }
+
+    private <T> LegResult<T> callLeg(String leg, Supplier<ResponseEntity<T>> call) {
+        long start = System.nanoTime();
+        ResponseEntity<T> response = null;
+        Throwable failure = null;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        return complete(leg, response, failure, System.nanoTime() - start);
+    }
+
+    /**
+     * Records the outcome of a downstream call and unwraps its body. A 404 means the customer has nothing
+     * in that service, which is not a failure. A null response means the Feign fallback answered on behalf
+     * of the service.
+     */
+    private <T> LegResult<T> complete(String leg, ResponseEntity<T> response, Throwable failure, long elapsedNanos) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        String outcome;
+        LegResult<T> result = LegResult.failure();
+        if (cause instanceof TimeoutException) {
+            outcome = "timeout";
+        } else if (cause instanceof CancellationException) {
+            outcome = "cancelled";
+        } else if (cause != null) {
+            outcome = "error";
+            log.warn("Call to {} failed: {}", leg, cause.getMessage());
+        } else if (response == null) {
+            outcome = "fallback";
+        } else if (response.getStatusCode().value() == HttpStatus.NOT_FOUND.value()) {
+            outcome = "not_found";
+            result = new LegResult<>(null, false);
+        } else if (response.getBody() == null) {
+            outcome = "fallback";
+        } else {
+            outcome = "success";
+            result = new LegResult<>(response.getBody(), false);
+        }
+        recordLeg(leg, outcome, elapsedNanos);
+        return result;
+    }
+
+    private void recordLeg(String leg, String outcome, long elapsedNanos) {
+        Timer.builder(LEG_TIMER)
+                .description("Latency of each leg of the customer details aggregation")
+                .tag("leg", leg)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void markDegraded(CustomerDetailsDto customerDetailsDto, boolean loansFailed, boolean cardsFailed) {
+        if (loansFailed) {
+            customerDetailsDto.getDegradedServices().add(LEG_LOANS);
+        }
+        if (cardsFailed) {
+            customerDetailsDto.getDegradedServices().add(LEG_CARDS);
+        }
+        customerDetailsDto.setDegraded(!customerDetailsDto.getDegradedServices().isEmpty());
+    }
+
+    /**
+     * The body of a downstream call, if any. Failed tells a call that did not answer apart from one that
+     * found nothing for the customer.
+     */
+    private record LegResult<T>(T body, boolean failed) {
+
+        static <T> LegResult<T> failure() {
+            return new LegResult<>(null, true);
+        }
+    }
+
+    /**
+     * A downstream call in flight.
+     * @param task The task running the call on its virtual thread.
+     * @param response Completed by the call.
+     * @param result The recorded outcome of the call.
+     */
+    private record PendingLeg<T>(Future<?> task, CompletableFuture<ResponseEntity<T>> response,
+                                 CompletableFuture<LegResult<T>> result) {
+
+        LegResult<T> resultOrFailure() {
+            return result.getNow(LegResult.failure());
+        }
+
+        /**
+         * Gives up on the call if it has not answered yet. Interrupting the virtual thread of the call
+         * closes the socket it is blocked on, so the call does not keep running past the deadline.
+         */
+        void cancel() {
+            response.cancel(false);
+            task.cancel(true);
+        }
     }
 }
@@ -0,0 +1,190 @@
+package com.eazybytes.accounts.service.impl;
+
+import com.eazybytes.accounts.config.OnboardingProperties;
+import com.eazybytes.accounts.constants.AccountsConstants;
+import com.eazybytes.accounts.dto.CustomerDto;
+import com.eazybytes.accounts.dto.CustomerOnboardingEntryDto;
+import com.eazybytes.accounts.entity.Accounts;
+import com.eazybytes.accounts.entity.CommunicationOutbox;
+import com.eazybytes.accounts.entity.Customer;
+import com.eazybytes.accounts.mapper.CommunicationOutboxMapper;
+import com.eazybytes.accounts.mapper.CustomerMapper;
+import com.eazybytes.accounts.repository.CustomerRepository;
+import com.eazybytes.accounts.service.IOnboardingService;
+import com.eazybytes.common.persistence.UniqueConstraints;
+import com.eazybytes.common.sequence.NumberAllocator;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class OnboardingServiceImpl implements IOnboardingService {
+
+    private static final Logger log = LoggerFactory.getLogger(OnboardingServiceImpl.class);
+
+    private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final NumberAllocator accountNumberAllocator;
+    private final OnboardingProperties onboardingProperties;
+
+    public OnboardingServiceImpl(CustomerRepository customerRepository, EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager, Validator validator,
+                                 NumberAllocator accountNumberAllocator,
+                                 OnboardingProperties onboardingProperties) {
+        this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.accountNumberAllocator = accountNumberAllocator;
+        this.onboardingProperties = onboardingProperties;
+    }
+
+    /**
+     * Creates a customer and an account for every given customer.
+     * Customers are handled in chunks of {@code accounts.onboarding.chunk-size}; every chunk is checked for
+     * duplicates with one query and persisted with JDBC batch inserts in its own transaction, together
+     * with the communication requests the outbox relay publishes afterwards. A customer registered by
+     * another request after that query is reported as a duplicate, and the rest of its chunk is retried.
+     * @param customers - Customers to onboard, consumed once; a null customer stands for a malformed element.
+     * @return One entry per customer, in the order they were read.
+     */
+    @Override
+    public List<CustomerOnboardingEntryDto> createAccounts(Iterator<CustomerDto> customers) {
+        int chunkSize = onboardingProperties.getChunkSize();
+        List<CustomerOnboardingEntryDto> entries = new ArrayList<>();
+        List<CustomerDto> chunk = new ArrayList<>(chunkSize);
+        while (customers.hasNext()) {
+            chunk.add(customers.next());
+            if (chunk.size() == chunkSize) {
+                entries.addAll(createChunk(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            entries.addAll(createChunk(chunk));
+        }
+        return entries;
+    }
+
+    private List<CustomerOnboardingEntryDto> createChunk(List<CustomerDto> chunk) {
+        CustomerOnboardingEntryDto[] entries = new CustomerOnboardingEntryDto[chunk.size()];
+        Set<String> mobileNumbers = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            CustomerDto customerDto = chunk.get(i);
+            String violations = validate(customerDto);
+            if (violations != null) {
+                entries[i] = new CustomerOnboardingEntryDto(customerDto == null ? null : customerDto.getMobileNumber(),
+                        AccountsConstants.STATUS_400, violations, null);
+            } else {
+                mobileNumbers.add(customerDto.getMobileNumber());
+            }
+        }
+
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> persistChunk(chunk, mobileNumbers, entries));
+                return Arrays.asList(entries);
+            } catch (RuntimeException ex) {
+                // nothing of the chunk was created
+                for (int i = 0; i < entries.length; i++) {
+                    if (entries[i] != null && AccountsConstants.STATUS_201.equals(entries[i].getStatusCode())) {
+                        entries[i] = null;
+                    }
+                }
+                if (UniqueConstraints.isViolated(ex, AccountsConstants.MOBILE_NUMBER_CONSTRAINT)
+                        && rejectRegisteredMeanwhile(chunk, mobileNumbers, entries)) {
+                    continue;
+                }
+                log.error("Bulk account creation of {} customers failed and was rolled back", chunk.size(), ex);
+                for (int i = 0; i < entries.length; i++) {
+                    if (entries[i] == null) {
+                        entries[i] = new CustomerOnboardingEntryDto(chunk.get(i).getMobileNumber(),
+                                AccountsConstants.STATUS_500, AccountsConstants.MESSAGE_500, null);
+                    }
+                }
+                return Arrays.asList(entries);
+            }
+        }
+    }
+
+    /**
+     * Reports the customers of the chunk whose mobile number was registered after the chunk checked for
+     * duplicates, e.g. by a single account creation, so the chunk can be retried without them.
+     * @return true if any customer was rejected; otherwise retrying would fail the same way.
+     */
+    private boolean rejectRegisteredMeanwhile(List<CustomerDto> chunk, Set<String> mobileNumbers,
+                                              CustomerOnboardingEntryDto[] entries) {
+        Set<String> taken = customerRepository.findByMobileNumberIn(mobileNumbers).stream()
+                .map(Customer::getMobileNumber)
+                .collect(Collectors.toSet());
+        boolean rejected = false;
+        for (int i = 0; i < chunk.size(); i++) {
+            if (entries[i] == null && taken.contains(chunk.get(i).getMobileNumber())) {
+                entries[i] = new CustomerOnboardingEntryDto(chunk.get(i).getMobileNumber(),
+                        AccountsConstants.STATUS_409, AccountsConstants.MESSAGE_409, null);
+                rejected = true;
+            }
+        }
+        return rejected;
+    }
+
+    private void persistChunk(List<CustomerDto> chunk, Set<String> mobileNumbers,
+                              CustomerOnboardingEntryDto[] entries) {
+        Set<String> taken = customerRepository.findByMobileNumberIn(mobileNumbers).stream()
+                .map(Customer::getMobileNumber)
+                .collect(Collectors.toCollection(HashSet::new));
+        for (int i = 0; i < chunk.size(); i++) {
+            if (entries[i] != null) {
+                continue;
+            }
+            CustomerDto customerDto = chunk.get(i);
+            // add() also rejects a mobile number repeated within the chunk
+            if (!taken.add(customerDto.getMobileNumber())) {
+                entries[i] = new CustomerOnboardingEntryDto(customerDto.getMobileNumber(),
+                        AccountsConstants.STATUS_409, AccountsConstants.MESSAGE_409, null);
+                continue;
+            }
+            Customer customer = CustomerMapper.mapToCustomer(customerDto, new Customer());
+            entityManager.persist(customer);
+            Accounts account = new Accounts();
+            account.setCustomerId(customer.getCustomerId());
+            account.setAccountNumber(accountNumberAllocator.next());
+            account.setAccountType(AccountsConstants.SAVINGS);
+            account.setBranchAddress(AccountsConstants.ADDRESS);
+            entityManager.persist(account);
+            entries[i] = new CustomerOnboardingEntryDto(customer.getMobileNumber(), AccountsConstants.STATUS_201,
+                    null, account.getAccountNumber());
+            entityManager.persist(
+                    CommunicationOutboxMapper.mapToCommunicationOutbox(account, customer, new CommunicationOutbox()));
+        }
+    }
+
+    private String validate(CustomerDto customerDto) {
+        if (customerDto == null) {
+            return "Customer is missing or malformed";
+        }
+        Set<ConstraintViolation<CustomerDto>> violations = validator.validate(customerDto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
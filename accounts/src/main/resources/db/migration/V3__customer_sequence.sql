@@ -0,0 +1,10 @@
+-- customer ids come from a pooled sequence instead of an identity column, so the inserts of a bulk onboarding
+-- can be batched
+CREATE SEQUENCE IF NOT EXISTS `customer_seq` START WITH 1 INCREMENT BY 50;
+
+ALTER TABLE `customer` ALTER COLUMN `customer_id` DROP IDENTITY;
+ALTER TABLE `customer` ALTER COLUMN `customer_id` SET DATA TYPE bigint;
+
+-- Hibernate's pooled optimizer hands out the 50 ids up to each value it reads, so the first value it reads has
+-- to be 50 above the ids taken before the sequence existed
+ALTER SEQUENCE `customer_seq` RESTART WITH (SELECT COALESCE(MAX(`customer_id`), 0) + 50 FROM `customer`);
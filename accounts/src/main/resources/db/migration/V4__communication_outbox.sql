@@ -0,0 +1,12 @@
+-- communication requests written in the transaction of the account, published by the outbox relay
+CREATE SEQUENCE IF NOT EXISTS `communication_outbox_seq` START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS `communication_outbox` (
+  `outbox_id` bigint PRIMARY KEY,
+  `account_number` bigint NOT NULL,
+  `name` varchar(100) NOT NULL,
+  `email` varchar(100) NOT NULL,
+  `mobile_number` varchar(20) NOT NULL,
+  `created_at` timestamp NOT NULL,
+  `claimed_until` timestamp DEFAULT NULL
+);
@@ -0,0 +1,5 @@
+-- customers are looked up by mobile number, and a mobile number registers one customer
+ALTER TABLE `customer` ADD CONSTRAINT `uk_customer_mobile_number` UNIQUE (`mobile_number`);
+
+-- a customer has one account, looked up by customer id
+ALTER TABLE `accounts` ADD CONSTRAINT `uk_accounts_customer_id` UNIQUE (`customer_id`);
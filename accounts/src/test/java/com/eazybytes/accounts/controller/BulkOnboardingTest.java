@@ -0,0 +1,193 @@
+package com.eazybytes.accounts.controller;
+
+import com.eazybytes.accounts.config.OnboardingProperties;
+import com.eazybytes.accounts.constants.AccountsConstants;
+import com.eazybytes.accounts.dto.CustomerDto;
+import com.eazybytes.accounts.dto.CustomerOnboardingEntryDto;
+import com.eazybytes.accounts.repository.CustomerRepository;
+import com.eazybytes.accounts.service.impl.OnboardingServiceImpl;
+import com.eazybytes.common.sequence.NumberAllocator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Posts customer arrays to /api/createBulk with a chunk size of 2, so every request spans several chunks and
+ * transactions. The relay is off, so the outbox rows written with the accounts stay in place.
+ */
+@SpringBootTest(properties = {
+        "build.version=test",
+        "eureka.client.enabled=false",
+        "spring.cloud.stream.default-binder=integration",
+        "spring.cloud.function.definition=",
+        "spring.jpa.show-sql=false",
+        // a database of its own, as the relay of other cached test contexts would drain a shared outbox
+        "spring.datasource.url=jdbc:h2:mem:bulk_onboarding",
+        "accounts.outbox.relay-enabled=false",
+        "accounts.onboarding.chunk-size=2"
+})
+@AutoConfigureMockMvc
+@Import(TestChannelBinderConfiguration.class)
+class BulkOnboardingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private NumberAllocator accountNumberAllocator;
+
+    @Autowired
+    private OnboardingProperties onboardingProperties;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from communication_outbox");
+        jdbcTemplate.update("delete from accounts");
+        jdbcTemplate.update("delete from customer");
+    }
+
+    @Test
+    void everyElementGetsItsOwnResult() throws Exception {
+        createBulk("[" + customer("Existing Customer", "existing@eazybank.com", "9000000001") + "]");
+
+        List<CustomerOnboardingEntryDto> entries = createBulk("[" +
+                customer("First Customer", "first@eazybank.com", "9000000002") + "," +
+                customer("Existing Customer", "existing@eazybank.com", "9000000001") + "," +
+                customer("Invalid Email", "not an email", "9000000003") + "," +
+                // an array where the email is expected can not be mapped
+                "{\"name\": \"Malformed Customer\", \"email\": [\"a\", {\"b\": 1}], \"mobileNumber\": \"9000000004\"}," +
+                customer("Second Customer", "second@eazybank.com", "9000000005") + "," +
+                customer("Repeated Customer", "repeated@eazybank.com", "9000000005") + "," +
+                "null]");
+
+        assertEquals(List.of(AccountsConstants.STATUS_201, AccountsConstants.STATUS_409, AccountsConstants.STATUS_400,
+                        AccountsConstants.STATUS_400, AccountsConstants.STATUS_201, AccountsConstants.STATUS_409,
+                        AccountsConstants.STATUS_400),
+                entries.stream().map(CustomerOnboardingEntryDto::getStatusCode).toList());
+        assertNotNull(entries.get(0).getAccountNumber());
+        assertEquals("9000000003", entries.get(2).getMobileNumber());
+        assertEquals(3, count("customer"));
+        assertEquals(3, count("accounts"));
+        assertEquals(3, count("communication_outbox"));
+    }
+
+    @Test
+    void failingChunkIsRolledBackWithoutTheOthers() throws Exception {
+        // a valid address longer than the email column, so the insert of the second chunk fails
+        String tooLongEmail = "a".repeat(60) + "@" + "b".repeat(60) + ".com";
+
+        List<CustomerOnboardingEntryDto> entries = createBulk("[" +
+                customer("First Customer", "first@eazybank.com", "9000000011") + "," +
+                customer("Second Customer", "second@eazybank.com", "9000000012") + "," +
+                customer("Third Customer", "third@eazybank.com", "9000000013") + "," +
+                customer("Fourth Customer", tooLongEmail, "9000000014") + "," +
+                customer("Fifth Customer", "fifth@eazybank.com", "9000000015") + "]");
+
+        assertEquals(List.of(AccountsConstants.STATUS_201, AccountsConstants.STATUS_201, AccountsConstants.STATUS_500,
+                        AccountsConstants.STATUS_500, AccountsConstants.STATUS_201),
+                entries.stream().map(CustomerOnboardingEntryDto::getStatusCode).toList());
+        assertEquals(List.of("9000000011", "9000000012", "9000000015"), jdbcTemplate.queryForList(
+                "select mobile_number from customer order by mobile_number", String.class));
+        assertEquals(3, count("communication_outbox"));
+    }
+
+    @Test
+    void customerRegisteredDuringTheChunkIsRejectedWithoutTheOthers() {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicBoolean raced = new AtomicBoolean();
+        // the duplicate check of the chunk runs just before a single creation commits the same mobile number
+        CustomerRepository racingRepository = (CustomerRepository) Proxy.newProxyInstance(
+                CustomerRepository.class.getClassLoader(), new Class<?>[]{CustomerRepository.class},
+                (proxy, method, args) -> {
+                    Object result = method.invoke(customerRepository, args);
+                    if (method.getName().equals("findByMobileNumberIn") && raced.compareAndSet(false, true)) {
+                        requiresNew.executeWithoutResult(status -> jdbcTemplate.update("insert into customer " +
+                                "(customer_id, name, email, mobile_number, created_at, created_by) values " +
+                                "(next value for customer_seq, 'Single Customer', 'single@eazybank.com', " +
+                                "'9000000022', current_date, 'ACCOUNTS_MS')"));
+                    }
+                    return result;
+                });
+        OnboardingServiceImpl onboardingService = new OnboardingServiceImpl(racingRepository, entityManager,
+                transactionManager, validator, accountNumberAllocator, onboardingProperties);
+
+        List<CustomerOnboardingEntryDto> entries = onboardingService.createAccounts(List.of(
+                customerDto("First Customer", "first@eazybank.com", "9000000021"),
+                customerDto("Second Customer", "second@eazybank.com", "9000000022")).iterator());
+
+        assertEquals(List.of(AccountsConstants.STATUS_201, AccountsConstants.STATUS_409),
+                entries.stream().map(CustomerOnboardingEntryDto::getStatusCode).toList());
+        assertEquals(List.of("first@eazybank.com", "single@eazybank.com"), jdbcTemplate.queryForList(
+                "select email from customer order by mobile_number", String.class));
+        assertEquals(1, count("accounts"));
+        assertEquals(1, count("communication_outbox"));
+    }
+
+    private List<CustomerOnboardingEntryDto> createBulk(String body) throws Exception {
+        String response = mockMvc.perform(post("/api/createBulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, new TypeReference<>() {
+        });
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+    private static CustomerDto customerDto(String name, String email, String mobileNumber) {
+        CustomerDto customerDto = new CustomerDto();
+        customerDto.setName(name);
+        customerDto.setEmail(email);
+        customerDto.setMobileNumber(mobileNumber);
+        return customerDto;
+    }
+
+    private static String customer(String name, String email, String mobileNumber) {
+        return "{\"name\": \"" + name + "\", \"email\": \"" + email + "\", \"mobileNumber\": \"" + mobileNumber + "\"}";
+    }
+}
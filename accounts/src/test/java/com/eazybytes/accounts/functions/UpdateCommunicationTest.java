@@ -0,0 +1,112 @@
+package com.eazybytes.accounts.functions;
+
+import com.eazybytes.accounts.audit.AuditAwareImpl;
+import com.eazybytes.accounts.constants.AccountsConstants;
+import com.eazybytes.accounts.entity.Accounts;
+import com.eazybytes.accounts.repository.AccountsRepository;
+import com.eazybytes.accounts.repository.CommunicationOutboxRepository;
+import com.eazybytes.accounts.repository.CustomerRepository;
+import com.eazybytes.accounts.service.impl.AccountsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Feeds communication-sent batches to the updateCommunication consumer, to check that a batch is applied with
+ * one bulk update and that accounts already marked as sent are left untouched.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(AuditAwareImpl.class)
+class UpdateCommunicationTest {
+
+    private static final long NOT_SENT = 1_000_000_001L;
+    private static final long ALREADY_SENT = 1_000_000_002L;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountsRepository accountsRepository;
+
+    @Autowired
+    private CommunicationOutboxRepository communicationOutboxRepository;
+
+    @Autowired
+    private AuditAwareImpl auditAware;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Consumer<List<Long>> updateCommunication;
+
+    @BeforeEach
+    void setUp() {
+        saveAccount(NOT_SENT, 1L, null);
+        saveAccount(ALREADY_SENT, 2L, true);
+        AccountsServiceImpl accountsService = new AccountsServiceImpl(accountsRepository, customerRepository,
+                communicationOutboxRepository, new CaffeineCacheManager(AccountsConstants.CUSTOMER_ACCOUNTS_CACHE),
+                null, auditAware);
+        updateCommunication = new AccountsFunctions().updateCommunication(accountsService, meterRegistry);
+    }
+
+    @Test
+    void batchMarksOnlyAccountsNotSentYet() {
+        updateCommunication.accept(Arrays.asList(NOT_SENT, ALREADY_SENT, NOT_SENT, null, 1_999_999_999L));
+
+        Map<String, Object> notSent = account(NOT_SENT);
+        assertEquals(true, notSent.get("communication_sw"));
+        assertNotNull(notSent.get("updated_at"));
+        assertEquals("ACCOUNTS_MS", notSent.get("updated_by"));
+        // the account already marked keeps its audit columns
+        Map<String, Object> alreadySent = account(ALREADY_SENT);
+        assertEquals(true, alreadySent.get("communication_sw"));
+        assertNull(alreadySent.get("updated_at"));
+        assertEquals(1, meterRegistry.get("accounts.communication.updated").counter().count());
+        assertEquals(5, meterRegistry.get("accounts.communication.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void redeliveredBatchChangesNothing() {
+        updateCommunication.accept(List.of(NOT_SENT, ALREADY_SENT));
+        Object updatedAt = account(NOT_SENT).get("updated_at");
+
+        updateCommunication.accept(List.of(NOT_SENT, ALREADY_SENT));
+
+        assertEquals(updatedAt, account(NOT_SENT).get("updated_at"));
+        assertEquals(1, meterRegistry.get("accounts.communication.updated").counter().count());
+        assertEquals(2, meterRegistry.get("accounts.communication.batch.latency").timer().count());
+    }
+
+    private void saveAccount(long accountNumber, long customerId, Boolean communicationSw) {
+        Accounts accounts = new Accounts();
+        accounts.setCustomerId(customerId);
+        accounts.setAccountNumber(accountNumber);
+        accounts.setAccountType(AccountsConstants.SAVINGS);
+        accounts.setBranchAddress(AccountsConstants.ADDRESS);
+        accounts.setCommunicationSw(communicationSw);
+        accountsRepository.saveAndFlush(accounts);
+    }
+
+    private Map<String, Object> account(long accountNumber) {
+        // the bulk update bypasses the persistence context, so read the row itself
+        return jdbcTemplate.queryForMap("select communication_sw, updated_at, updated_by from accounts " +
+                "where account_number = ?", accountNumber);
+    }
+}
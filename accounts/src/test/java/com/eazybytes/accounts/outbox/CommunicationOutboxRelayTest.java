@@ -0,0 +1,171 @@
+package com.eazybytes.accounts.outbox;
+
+import com.eazybytes.accounts.config.OutboxConfig;
+import com.eazybytes.accounts.config.OutboxProperties;
+import com.eazybytes.accounts.entity.CommunicationOutbox;
+import com.eazybytes.accounts.repository.CommunicationOutboxRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.integration.context.IntegrationContextUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the relay against the in-memory test binder, so no Kafka broker is needed. The test binder does not
+ * confirm sends, so the tests confirm or reject the received messages the way the Kafka binder does.
+ */
+@SpringBootTest(classes = CommunicationOutboxRelayTest.RelayTestApplication.class, properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.stream.default-binder=integration",
+        "spring.cloud.function.definition=",
+        "spring.jpa.show-sql=false",
+        "accounts.outbox.batch-size=10",
+        "accounts.outbox.linger=20ms",
+        "accounts.outbox.concurrency=3",
+        "accounts.outbox.publish-timeout=10s"
+})
+class CommunicationOutboxRelayTest {
+
+    private static final int ROWS = 55;
+
+    @Autowired
+    private CommunicationOutboxRepository communicationOutboxRepository;
+
+    @Autowired
+    private OutputDestination outputDestination;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier(OutboxConfig.PUBLISHED_CHANNEL)
+    private MessageChannel publishedChannel;
+
+    @Autowired
+    @Qualifier(IntegrationContextUtils.ERROR_CHANNEL_BEAN_NAME)
+    private MessageChannel errorChannel;
+
+    @Test
+    void publishesEveryRowAndDeletesItOnceConfirmed() throws Exception {
+        List<CommunicationOutbox> rows = LongStream.range(0, ROWS)
+                .mapToObj(i -> new CommunicationOutbox(null, 1_000_000_000L + i, "Customer " + i,
+                        "customer" + i + "@eazybytes.com", String.valueOf(9_000_000_000L + i), Instant.now(), null))
+                .toList();
+        double relayed = meterRegistry.get("accounts.outbox.relayed").counter().count();
+        communicationOutboxRepository.saveAll(rows);
+
+        Set<Long> accountNumbers = new HashSet<>();
+        Set<Object> messageIds = new HashSet<>();
+        for (int i = 0; i < ROWS; i++) {
+            Message<byte[]> message = outputDestination.receive(5_000, "send-communication");
+            if (i == 0) {
+                // nothing is confirmed yet, so nothing may be deleted
+                assertEquals(ROWS, communicationOutboxRepository.count());
+                // the claimed rows carry a committed lease, but no row lock is held while awaiting the broker
+                List<Long> leased = new TransactionTemplate(transactionManager).execute(status ->
+                        jdbcTemplate.queryForList("select outbox_id from communication_outbox " +
+                                "where claimed_until is not null for update", Long.class));
+                assertTrue(leased.size() > 0);
+            }
+            JsonNode payload = objectMapper.readTree(message.getPayload());
+            accountNumbers.add(payload.get("accountNumber").asLong());
+            messageIds.add(message.getHeaders().get(CommunicationOutboxRelay.MESSAGE_ID_HEADER));
+            publishedChannel.send(message);
+        }
+        assertEquals(ROWS, accountNumbers.size());
+        assertEquals(ROWS, messageIds.size());
+
+        awaitEmptyOutbox();
+        assertEquals(relayed + ROWS, meterRegistry.get("accounts.outbox.relayed").counter().count());
+    }
+
+    @Test
+    void rejectedRowIsPublishedAgain() throws Exception {
+        communicationOutboxRepository.save(new CommunicationOutbox(null, 1_000_000_100L, "Customer",
+                "customer@eazybytes.com", "9000000100", Instant.now(), null));
+        double failures = meterRegistry.get("accounts.outbox.publish.failures").counter().count();
+
+        Message<byte[]> rejected = outputDestination.receive(5_000, "send-communication");
+        errorChannel.send(new ErrorMessage(new MessagingException(rejected, "broker unavailable")));
+        Message<byte[]> republished = outputDestination.receive(5_000, "send-communication");
+        assertEquals(rejected.getHeaders().get(CommunicationOutboxRelay.MESSAGE_ID_HEADER),
+                republished.getHeaders().get(CommunicationOutboxRelay.MESSAGE_ID_HEADER));
+        publishedChannel.send(republished);
+
+        awaitEmptyOutbox();
+        assertTrue(meterRegistry.get("accounts.outbox.publish.failures").counter().count() > failures);
+    }
+
+    @Test
+    void leasedRowIsNotPublishedBeforeTheLeaseEnds() throws Exception {
+        // as left behind by a worker that crashed while publishing
+        CommunicationOutbox leased = communicationOutboxRepository.save(new CommunicationOutbox(null,
+                1_000_000_200L, "Customer", "customer@eazybytes.com", "9000000200", Instant.now(),
+                Instant.now().plus(Duration.ofHours(1))));
+
+        assertNull(outputDestination.receive(500, "send-communication"));
+
+        jdbcTemplate.update("update communication_outbox set claimed_until = ? where outbox_id = ?",
+                Instant.now().minusSeconds(1), leased.getOutboxId());
+        Message<byte[]> published = outputDestination.receive(5_000, "send-communication");
+        assertEquals(leased.getOutboxId(), published.getHeaders().get(CommunicationOutboxRelay.MESSAGE_ID_HEADER));
+        publishedChannel.send(published);
+
+        awaitEmptyOutbox();
+    }
+
+    private void awaitEmptyOutbox() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (communicationOutboxRepository.count() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, communicationOutboxRepository.count());
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = CommunicationOutbox.class)
+    @EnableJpaRepositories(basePackageClasses = CommunicationOutboxRepository.class)
+    @EnableConfigurationProperties(OutboxProperties.class)
+    @Import({CommunicationOutboxRelay.class, OutboxConfig.class, TestChannelBinderConfiguration.class})
+    static class RelayTestApplication {
+    }
+}
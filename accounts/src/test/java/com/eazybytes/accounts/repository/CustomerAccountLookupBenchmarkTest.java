@@ -0,0 +1,102 @@
+package com.eazybytes.accounts.repository;
+
+import com.eazybytes.accounts.audit.AuditAwareImpl;
+import com.eazybytes.accounts.entity.Accounts;
+import com.eazybytes.accounts.entity.Customer;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the joined customer/account projection with the original two-query lookup on a large H2 dataset.
+ * Opt-in because seeding takes a while: run with {@code mvn test -Dbenchmark=true -Dtest=CustomerAccountLookupBenchmarkTest}
+ * and optionally {@code -Dbenchmark.rows=500000 -Dbenchmark.lookups=20000}.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(AuditAwareImpl.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class CustomerAccountLookupBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 200_000);
+    private static final int LOOKUPS = Integer.getInteger("benchmark.lookups", 10_000);
+    private static final int WARMUP = LOOKUPS / 5;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountsRepository accountsRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeAll
+    static void seed(@Autowired JdbcTemplate jdbcTemplate) {
+        Date today = Date.valueOf(LocalDate.now());
+        int chunk = 10_000;
+        for (int from = 0; from < ROWS; from += chunk) {
+            List<Object[]> customers = new ArrayList<>(chunk);
+            List<Object[]> accounts = new ArrayList<>(chunk);
+            for (int i = from; i < Math.min(from + chunk, ROWS); i++) {
+                long customerId = i + 1L;
+                customers.add(new Object[]{customerId, "Customer " + i, "customer" + i + "@eazybank.com",
+                        mobileNumber(i), today, "BENCHMARK"});
+                accounts.add(new Object[]{customerId, 1_000_000_000L + i, "Savings", "123 Main Street, New York",
+                        today, "BENCHMARK"});
+            }
+            jdbcTemplate.batchUpdate("insert into customer (customer_id, name, email, mobile_number, created_at, created_by) " +
+                    "values (?, ?, ?, ?, ?, ?)", customers);
+            jdbcTemplate.batchUpdate("insert into accounts (customer_id, account_number, account_type, branch_address, " +
+                    "created_at, created_by) values (?, ?, ?, ?, ?, ?)", accounts);
+        }
+    }
+
+    @Test
+    void compareTwoQueryAndJoinedLookups() {
+        Consumer<String> twoQueries = mobileNumber -> {
+            Customer customer = customerRepository.findByMobileNumber(mobileNumber).orElseThrow();
+            Accounts accounts = accountsRepository.findByCustomerId(customer.getCustomerId()).orElseThrow();
+            assertEquals(customer.getCustomerId(), accounts.getCustomerId());
+        };
+        Consumer<String> joined = mobileNumber ->
+                assertEquals(mobileNumber, customerRepository.findCustomerAccountByMobileNumber(mobileNumber)
+                        .orElseThrow().mobileNumber());
+
+        run(twoQueries, WARMUP);
+        run(joined, WARMUP);
+        long twoQueryNanos = run(twoQueries, LOOKUPS);
+        long joinedNanos = run(joined, LOOKUPS);
+
+        System.out.printf("customer/account lookup over %,d rows, %,d lookups%n", ROWS, LOOKUPS);
+        System.out.printf("  two queries : %8.1f us/lookup%n", twoQueryNanos / 1_000.0 / LOOKUPS);
+        System.out.printf("  joined view : %8.1f us/lookup%n", joinedNanos / 1_000.0 / LOOKUPS);
+    }
+
+    private long run(Consumer<String> lookup, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            lookup.accept(mobileNumber(ThreadLocalRandom.current().nextInt(ROWS)));
+            // keep the persistence context from growing like it would across requests
+            entityManager.clear();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static String mobileNumber(int i) {
+        return String.format("9%09d", i);
+    }
+}
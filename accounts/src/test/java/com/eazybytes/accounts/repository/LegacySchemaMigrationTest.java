@@ -0,0 +1,61 @@
+package com.eazybytes.accounts.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Migrates a database that was set up from the former schema.sql, which is baselined at V1, and checks that
+ * the objects of the later migrations are there and carry on from the existing rows.
+ */
+class LegacySchemaMigrationTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy_accounts;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(dataSource);
+        for (int i = 1; i <= 3; i++) {
+            jdbcTemplate.update("insert into customer (name, email, mobile_number, created_at, created_by) " +
+                    "values (?, ?, ?, current_date, 'LEGACY')", "Customer " + i, "customer" + i + "@eazybank.com",
+                    "934543212" + i);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    @Test
+    void legacyDatabaseGetsTheObjectsOfTheLaterMigrations() {
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).load().migrate();
+
+        long legacyMax = jdbcTemplate.queryForObject("select max(customer_id) from customer", Long.class);
+        // the first id of the pooled block, see V3
+        long firstId = jdbcTemplate.queryForObject("select next value for customer_seq", Long.class) - 49;
+        assertTrue(firstId > legacyMax, firstId + " vs " + legacyMax);
+        jdbcTemplate.update("insert into customer (customer_id, name, email, mobile_number, created_at, created_by) " +
+                "values (?, 'New', 'new@eazybank.com', '9345432129', current_date, 'ACCOUNTS_MS')", firstId);
+
+        jdbcTemplate.update("insert into number_block (sequence_name, next_value) values ('account_number', 1)");
+        jdbcTemplate.update("insert into communication_outbox (outbox_id, account_number, name, email, mobile_number, " +
+                        "created_at) values (next value for communication_outbox_seq, 1, 'New', 'new@eazybank.com', " +
+                        "'9345432129', ?)", Timestamp.valueOf(LocalDateTime.now()));
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from communication_outbox", Integer.class));
+    }
+}
@@ -0,0 +1,83 @@
+package com.eazybytes.accounts.service.impl;
+
+import com.eazybytes.accounts.audit.AuditAwareImpl;
+import com.eazybytes.accounts.constants.AccountsConstants;
+import com.eazybytes.accounts.dto.CustomerDto;
+import com.eazybytes.accounts.entity.Accounts;
+import com.eazybytes.accounts.entity.Customer;
+import com.eazybytes.accounts.repository.AccountsRepository;
+import com.eazybytes.accounts.repository.CommunicationOutboxRepository;
+import com.eazybytes.accounts.repository.CustomerRepository;
+import com.eazybytes.common.sequence.InMemoryBlockSource;
+import com.eazybytes.common.sequence.NumberAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Creates an account whose allocated number is already taken, as on a database with numbers from before the
+ * allocator, to check that the insert fails instead of taking over the other customer's account.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(AuditAwareImpl.class)
+class AccountCreationTest {
+
+    private static final long TAKEN = 1_900_000_000L;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountsRepository accountsRepository;
+
+    @Autowired
+    private CommunicationOutboxRepository communicationOutboxRepository;
+
+    @Autowired
+    private AuditAwareImpl auditAware;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void takenAccountNumberFailsTheCreation() {
+        Customer existing = new Customer();
+        existing.setName("Eazy Bytes");
+        existing.setEmail("tutor@eazybytes.com");
+        existing.setMobileNumber("9345432123");
+        existing = customerRepository.save(existing);
+        Accounts accounts = new Accounts();
+        accounts.setCustomerId(existing.getCustomerId());
+        accounts.setAccountNumber(TAKEN);
+        accounts.setAccountType(AccountsConstants.SAVINGS);
+        accounts.setBranchAddress(AccountsConstants.ADDRESS);
+        accountsRepository.save(accounts);
+        entityManager.flush();
+        entityManager.clear();
+        AccountsServiceImpl accountsService = new AccountsServiceImpl(accountsRepository, customerRepository,
+                communicationOutboxRepository, new CaffeineCacheManager(AccountsConstants.CUSTOMER_ACCOUNTS_CACHE),
+                new NumberAllocator(new InMemoryBlockSource(), "account_number", TAKEN, TAKEN + 10, 1), auditAware);
+        CustomerDto customerDto = new CustomerDto();
+        customerDto.setName("Another Customer");
+        customerDto.setEmail("another@eazybytes.com");
+        customerDto.setMobileNumber("9345432124");
+
+        assertThrows(DataIntegrityViolationException.class, () -> {
+            accountsService.createAccount(customerDto);
+            accountsRepository.flush();
+        });
+        assertEquals(existing.getCustomerId(), jdbcTemplate.queryForObject(
+                "select customer_id from accounts where account_number = ?", Long.class, TAKEN));
+    }
+}
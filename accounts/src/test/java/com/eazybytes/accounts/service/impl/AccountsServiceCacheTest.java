@@ -0,0 +1,113 @@
+package com.eazybytes.accounts.service.impl;
+
+import com.eazybytes.accounts.audit.AuditAwareImpl;
+import com.eazybytes.accounts.constants.AccountsConstants;
+import com.eazybytes.accounts.dto.AccountsDto;
+import com.eazybytes.accounts.dto.CustomerDto;
+import com.eazybytes.accounts.entity.Accounts;
+import com.eazybytes.accounts.entity.Customer;
+import com.eazybytes.accounts.exception.ResourceNotFoundException;
+import com.eazybytes.accounts.repository.AccountsRepository;
+import com.eazybytes.accounts.repository.CommunicationOutboxRepository;
+import com.eazybytes.accounts.repository.CustomerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that fetchAccount serves cached details until a change of the customer evicts them, and that callers
+ * cannot change what is cached.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(AuditAwareImpl.class)
+class AccountsServiceCacheTest {
+
+    private static final String MOBILE_NUMBER = "9345432123";
+    private static final long ACCOUNT_NUMBER = 1_000_000_001L;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountsRepository accountsRepository;
+
+    @Autowired
+    private CommunicationOutboxRepository communicationOutboxRepository;
+
+    @Autowired
+    private AuditAwareImpl auditAware;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private AccountsServiceImpl accountsService;
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = new Customer();
+        customer.setName("Eazy Bytes");
+        customer.setEmail("tutor@eazybytes.com");
+        customer.setMobileNumber(MOBILE_NUMBER);
+        customer = customerRepository.save(customer);
+        Accounts accounts = new Accounts();
+        accounts.setCustomerId(customer.getCustomerId());
+        accounts.setAccountNumber(ACCOUNT_NUMBER);
+        accounts.setAccountType(AccountsConstants.SAVINGS);
+        accounts.setBranchAddress(AccountsConstants.ADDRESS);
+        accountsRepository.saveAndFlush(accounts);
+
+        accountsService = new AccountsServiceImpl(accountsRepository, customerRepository,
+                communicationOutboxRepository, new CaffeineCacheManager(AccountsConstants.CUSTOMER_ACCOUNTS_CACHE),
+                null, auditAware);
+    }
+
+    @Test
+    void fetchedDetailsAreCachedAndCannotBeChangedByCallers() {
+        CustomerDto first = accountsService.fetchAccount(MOBILE_NUMBER);
+        first.setName("Changed by the caller");
+        first.getAccountsDto().setBranchAddress("Changed by the caller");
+        jdbcTemplate.update("update customer set name = 'Changed in the database' where mobile_number = ?",
+                MOBILE_NUMBER);
+
+        CustomerDto second = accountsService.fetchAccount(MOBILE_NUMBER);
+
+        assertEquals("Eazy Bytes", second.getName());
+        assertEquals(AccountsConstants.ADDRESS, second.getAccountsDto().getBranchAddress());
+    }
+
+    @Test
+    void updateEvictsThePreviousAndTheNewMobileNumber() {
+        String newMobileNumber = "9345432124";
+        accountsService.fetchAccount(MOBILE_NUMBER);
+        // a miss is not cached, but make sure the new number is looked up again anyway
+        assertThrows(ResourceNotFoundException.class, () -> accountsService.fetchAccount(newMobileNumber));
+
+        CustomerDto update = accountsService.fetchAccount(MOBILE_NUMBER);
+        update.setName("Eazy Bytes Updated");
+        update.setMobileNumber(newMobileNumber);
+        AccountsDto accountsDto = update.getAccountsDto();
+        accountsDto.setBranchAddress("456 Main Street, New York");
+        accountsService.updateAccount(update);
+
+        assertThrows(ResourceNotFoundException.class, () -> accountsService.fetchAccount(MOBILE_NUMBER));
+        CustomerDto updated = accountsService.fetchAccount(newMobileNumber);
+        assertEquals("Eazy Bytes Updated", updated.getName());
+        assertEquals("456 Main Street, New York", updated.getAccountsDto().getBranchAddress());
+    }
+
+    @Test
+    void deleteEvictsTheMobileNumber() {
+        accountsService.fetchAccount(MOBILE_NUMBER);
+
+        accountsService.deleteAccount(MOBILE_NUMBER);
+
+        assertThrows(ResourceNotFoundException.class, () -> accountsService.fetchAccount(MOBILE_NUMBER));
+    }
+}
@@ -0,0 +1,260 @@
+package com.eazybytes.accounts.service.impl;
+
+import com.eazybytes.accounts.audit.AuditAwareImpl;
+import com.eazybytes.accounts.config.AggregationProperties;
+import com.eazybytes.accounts.constants.AccountsConstants;
+import com.eazybytes.accounts.dto.CardsDto;
+import com.eazybytes.accounts.dto.CustomerDetailsBatchEntryDto;
+import com.eazybytes.accounts.dto.CustomerDetailsBatchRequestDto;
+import com.eazybytes.accounts.dto.CustomerDetailsDto;
+import com.eazybytes.accounts.dto.LoansDto;
+import com.eazybytes.accounts.entity.Accounts;
+import com.eazybytes.accounts.entity.Customer;
+import com.eazybytes.accounts.exception.ResourceNotFoundException;
+import com.eazybytes.accounts.repository.AccountsRepository;
+import com.eazybytes.accounts.repository.CustomerRepository;
+import com.eazybytes.accounts.service.client.CardsFeignClient;
+import com.eazybytes.accounts.service.client.LoansFeignClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Aggregates customer details against stubbed loans and cards clients, to check which missing sections
+ * count as degraded, that legs missing a deadline are abandoned and how a batch reports partial results.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(AuditAwareImpl.class)
+class CustomerDetailsAggregationTest {
+
+    private static final String MOBILE_NUMBER = "9345432123";
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountsRepository accountsRepository;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AggregationProperties properties = new AggregationProperties();
+
+    private Supplier<ResponseEntity<LoansDto>> loans = () -> ResponseEntity.ok(loan(MOBILE_NUMBER));
+    private Supplier<ResponseEntity<CardsDto>> cards = () -> ResponseEntity.ok(card(MOBILE_NUMBER));
+    private Function<List<String>, ResponseEntity<List<LoansDto>>> loansBulk =
+            mobileNumbers -> ResponseEntity.ok(mobileNumbers.stream().map(CustomerDetailsAggregationTest::loan).toList());
+    private Function<List<String>, ResponseEntity<List<CardsDto>>> cardsBulk =
+            mobileNumbers -> ResponseEntity.ok(mobileNumbers.stream().map(CustomerDetailsAggregationTest::card).toList());
+
+    private CustomersServiceImpl customersService;
+
+    @BeforeEach
+    void setUp() {
+        saveCustomer(MOBILE_NUMBER, 1_000_000_001L);
+        LoansFeignClient loansClient = new LoansFeignClient() {
+            @Override
+            public ResponseEntity<LoansDto> fetchLoanDetails(String correlationId, String mobileNumber) {
+                return loans.get();
+            }
+
+            @Override
+            public ResponseEntity<List<LoansDto>> fetchLoanDetailsBulk(String correlationId, List<String> mobileNumbers) {
+                return loansBulk.apply(mobileNumbers);
+            }
+        };
+        CardsFeignClient cardsClient = new CardsFeignClient() {
+            @Override
+            public ResponseEntity<CardsDto> fetchCardDetails(String correlationId, String mobileNumber) {
+                return cards.get();
+            }
+
+            @Override
+            public ResponseEntity<List<CardsDto>> fetchCardDetailsBulk(String correlationId, List<String> mobileNumbers) {
+                return cardsBulk.apply(mobileNumbers);
+            }
+        };
+        customersService = new CustomersServiceImpl(customerRepository, cardsClient, loansClient, properties,
+                executor, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void customerWithoutALoanIsNotDegraded() {
+        loans = () -> ResponseEntity.notFound().build();
+
+        CustomerDetailsDto details = customersService.fetchCustomerDetails(MOBILE_NUMBER, "test");
+
+        assertNull(details.getLoansDto());
+        assertEquals(MOBILE_NUMBER, details.getCardsDto().getMobileNumber());
+        assertFalse(details.isDegraded());
+    }
+
+    @Test
+    void failedLegsAreReportedAsDegraded() {
+        // what the Feign fallback answers
+        cards = () -> null;
+        loans = () -> {
+            throw new IllegalStateException("loans is down");
+        };
+
+        CustomerDetailsDto details = customersService.fetchCustomerDetails(MOBILE_NUMBER, "test");
+
+        assertEquals(MOBILE_NUMBER, details.getMobileNumber());
+        assertNull(details.getLoansDto());
+        assertNull(details.getCardsDto());
+        assertTrue(details.isDegraded());
+        assertEquals(List.of("loans", "cards"), details.getDegradedServices());
+    }
+
+    @Test
+    void legPastTheDeadlineIsInterruptedAndReportedAsDegraded() throws Exception {
+        properties.setCallTimeout(Duration.ofMillis(200));
+        properties.setOverallTimeout(Duration.ofMillis(300));
+        CountDownLatch abandoned = new CountDownLatch(1);
+        try (ServerSocket server = new ServerSocket(0)) {
+            // the server accepts the connection but never answers, like a hung downstream service
+            loans = () -> {
+                try (Socket socket = new Socket("localhost", server.getLocalPort())) {
+                    socket.getInputStream().read();
+                    return ResponseEntity.ok(loan(MOBILE_NUMBER));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    abandoned.countDown();
+                }
+            };
+
+            long start = System.nanoTime();
+            CustomerDetailsDto details = customersService.fetchCustomerDetails(MOBILE_NUMBER, "test");
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(elapsedMillis < 2_000, elapsedMillis + " ms");
+            assertEquals(List.of("loans"), details.getDegradedServices());
+            assertEquals(MOBILE_NUMBER, details.getCardsDto().getMobileNumber());
+            assertTrue(abandoned.await(2, TimeUnit.SECONDS), "the blocked call was not interrupted");
+        }
+    }
+
+    @Test
+    void batchReportsMissingCustomersAndPartialDownstreamResults() {
+        String withoutLoan = "9345432124";
+        String unknown = "1111111111";
+        saveCustomer(withoutLoan, 1_000_000_002L);
+        List<List<String>> requested = new ArrayList<>();
+        loansBulk = mobileNumbers -> {
+            requested.add(mobileNumbers);
+            return ResponseEntity.ok(List.of(loan(MOBILE_NUMBER)));
+        };
+        cardsBulk = mobileNumbers -> null;
+
+        List<CustomerDetailsBatchEntryDto> entries = customersService.fetchCustomerDetailsBatch(
+                List.of(MOBILE_NUMBER, unknown, withoutLoan, MOBILE_NUMBER), "test");
+
+        // one bulk call for the distinct customers that exist
+        assertEquals(List.of(List.of(MOBILE_NUMBER, withoutLoan)), requested);
+        assertEquals(List.of(MOBILE_NUMBER, unknown, withoutLoan, MOBILE_NUMBER),
+                entries.stream().map(CustomerDetailsBatchEntryDto::getMobileNumber).toList());
+        assertEquals(AccountsConstants.STATUS_404, entries.get(1).getStatusCode());
+        assertNull(entries.get(1).getCustomerDetails());
+
+        CustomerDetailsDto withLoanDetails = entries.get(0).getCustomerDetails();
+        assertEquals(MOBILE_NUMBER, withLoanDetails.getLoansDto().getMobileNumber());
+        assertEquals(List.of("cards"), withLoanDetails.getDegradedServices());
+        CustomerDetailsDto withoutLoanDetails = entries.get(2).getCustomerDetails();
+        assertEquals(AccountsConstants.STATUS_200, entries.get(2).getStatusCode());
+        assertNull(withoutLoanDetails.getLoansDto());
+        assertEquals(List.of("cards"), withoutLoanDetails.getDegradedServices());
+    }
+
+    @Test
+    void customerWithoutAnAccountIsReportedAsAMissingAccount() {
+        String withoutAccount = "9345432125";
+        Customer customer = new Customer();
+        customer.setName("Customer " + withoutAccount);
+        customer.setEmail("customer" + withoutAccount + "@eazybank.com");
+        customer.setMobileNumber(withoutAccount);
+        Long customerId = customerRepository.save(customer).getCustomerId();
+
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
+                () -> customersService.fetchCustomerDetails(withoutAccount, "test"));
+        List<CustomerDetailsBatchEntryDto> entries = customersService.fetchCustomerDetailsBatch(
+                List.of(withoutAccount, "1111111111"), "test");
+
+        String accountNotFound = new ResourceNotFoundException("Account", "customerId", customerId.toString()).getMessage();
+        assertEquals(accountNotFound, exception.getMessage());
+        assertEquals(accountNotFound, entries.get(0).getErrorMessage());
+        assertEquals(new ResourceNotFoundException("Customer", "mobileNumber", "1111111111").getMessage(),
+                entries.get(1).getErrorMessage());
+    }
+
+    @Test
+    void batchRequestIsLimitedTo200MobileNumbers() {
+        try (ValidatorFactory validatorFactory = Validation.buildDefaultValidatorFactory()) {
+            Validator validator = validatorFactory.getValidator();
+            CustomerDetailsBatchRequestDto requestDto = new CustomerDetailsBatchRequestDto();
+
+            requestDto.setMobileNumbers(Collections.nCopies(200, MOBILE_NUMBER));
+            assertTrue(validator.validate(requestDto).isEmpty());
+            requestDto.setMobileNumbers(Collections.nCopies(201, MOBILE_NUMBER));
+            assertEquals(1, validator.validate(requestDto).size());
+        }
+    }
+
+    private void saveCustomer(String mobileNumber, long accountNumber) {
+        Customer customer = new Customer();
+        customer.setName("Customer " + mobileNumber);
+        customer.setEmail("customer" + mobileNumber + "@eazybank.com");
+        customer.setMobileNumber(mobileNumber);
+        customer = customerRepository.save(customer);
+        Accounts accounts = new Accounts();
+        accounts.setCustomerId(customer.getCustomerId());
+        accounts.setAccountNumber(accountNumber);
+        accounts.setAccountType("Savings");
+        accounts.setBranchAddress("123 Main Street, New York");
+        accountsRepository.save(accounts);
+    }
+
+    private static LoansDto loan(String mobileNumber) {
+        LoansDto loansDto = new LoansDto();
+        loansDto.setMobileNumber(mobileNumber);
+        return loansDto;
+    }
+
+    private static CardsDto card(String mobileNumber) {
+        CardsDto cardsDto = new CardsDto();
+        cardsDto.setMobileNumber(mobileNumber);
+        return cardsDto;
+    }
+}
@@ -1,5 +1,6 @@
 package com.eazybytes.cards;
 
+import com.eazybytes.cards.config.CardLedgerProperties;
 import com.eazybytes.cards.dto.CardsContactInfoDto;
 import io.swagger.v3.oas.annotations.ExternalDocumentation;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
@@ -16,7 +17,7 @@ import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 @EnableJpaRepositories("com.eazybytes.cards.repository")
 @EntityScan("com.eazybytes.cards.model")*/
 @EnableJpaAuditing(auditorAwareRef = "auditAwareImpl")
-@EnableConfigurationProperties(value = {CardsContactInfoDto.class})
+@EnableConfigurationProperties(value = {CardsContactInfoDto.class, CardLedgerProperties.class})
 @OpenAPIDefinition(
 		info = @Info(
 				title = "Cards microservice REST API Documentation",
@@ -0,0 +1,34 @@
+package com.eazybytes.cards.config;
+
+import com.eazybytes.cards.ledger.CardLedger;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+@ConditionalOnProperty(prefix = "cards.ledger", name = "enabled", havingValue = "true")
+public class CardLedgerConfig {
+
+    /**
+     * In-memory ledger for card spends, see {@link CardLedger}. Only for deployments where one instance
+     * handles the spends of a card; other instances' spends are taken over at every reconciliation.
+     *
+     * @param jdbcTemplate         the JdbcTemplate the spends are written with
+     * @param transactionManager   the transaction manager every flush runs in
+     * @param cardLedgerProperties the flush and reconcile intervals
+     * @param auditAwareImpl       the auditor recorded on flushed cards
+     * @param meterRegistry        the registry for the ledger's metrics
+     * @return the CardLedger
+     */
+    @Bean
+    public CardLedger cardLedger(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 CardLedgerProperties cardLedgerProperties, AuditorAware<String> auditAwareImpl,
+                                 MeterRegistry meterRegistry) {
+        return new CardLedger(jdbcTemplate, transactionManager, cardLedgerProperties,
+                auditAwareImpl.getCurrentAuditor().orElse(null), meterRegistry);
+    }
+}
@@ -0,0 +1,34 @@
+package com.eazybytes.cards.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory ledger which authorizes card spends without a row update per spend.
+ */
+@ConfigurationProperties(prefix = "cards.ledger")
+@Getter
+@Setter
+public class CardLedgerProperties {
+
+    /**
+     * When false spends update the cards table one by one.
+     */
+    private boolean enabled = false;
+
+    /**
+     * How often the spends in the journal are written to the cards table. Spends are in the journal before
+     * they are authorized, so the interval only decides how far the table lags behind.
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * How often the amounts in memory are compared with the cards table. Changes made to the table by
+     * others, such as another instance, are taken over, and cards without spends since the last check are
+     * dropped from memory.
+     */
+    private Duration reconcileInterval = Duration.ofSeconds(30);
+}
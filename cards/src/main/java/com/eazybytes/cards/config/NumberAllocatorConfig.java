@@ -0,0 +1,29 @@
+package com.eazybytes.cards.config;
+
+import com.eazybytes.common.sequence.JdbcBlockSource;
+import com.eazybytes.common.sequence.NumberAllocator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class NumberAllocatorConfig {
+
+    /**
+     * Allocator for new card numbers. Blocks are reserved from the number_block table, so every
+     * instance sharing the database hands out distinct numbers (card numbers: 11 digits, a Luhn check digit is appended to make 12).
+     * Card numbers were drawn at random from 100000000000-100899999999 before, so the range starts above them.
+     *
+     * @param dataSource the DataSource holding the number_block table
+     * @param blockSize  the number of card numbers reserved per round trip
+     * @return the NumberAllocator for card numbers
+     */
+    @Bean
+    public NumberAllocator cardNumberAllocator(DataSource dataSource,
+                                          @Value("${cards.number-block-size:100}") int blockSize) {
+        return new NumberAllocator(new JdbcBlockSource(dataSource), "card_number",
+                10_090_000_000L, 99_999_999_999L, blockSize);
+    }
+}
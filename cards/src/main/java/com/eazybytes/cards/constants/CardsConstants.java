@@ -15,6 +15,8 @@ public class CardsConstants {
     public static final String  STATUS_417 = "417";
     public static final String  MESSAGE_417_UPDATE= "Update operation failed. Please try again or contact Dev team";
     public static final String  MESSAGE_417_DELETE= "Delete operation failed. Please try again or contact Dev team";
+    public static final String  MESSAGE_409_UPDATE= "Card was changed by another request. Please fetch it again and retry";
+    public static final String  MOBILE_NUMBER_CONSTRAINT = "uk_cards_mobile_number";
     // public static final String  STATUS_500 = "500";
     // public static final String  MESSAGE_500 = "An error occurred. Please try again or contact Dev team";
 }
@@ -14,6 +14,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +27,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Tag(
         name = "CRUD REST APIs for Cards in EazyBank",
         description = "CRUD REST APIs in EazyBank to CREATE, UPDATE, FETCH AND DELETE card details"
@@ -122,6 +126,39 @@ public class CardsController {
         return ResponseEntity.status(HttpStatus.OK).body(cardsDto);
     }
 
+    /**
+     * Fetches the card details of many mobile numbers in one call.
+     * @param mobileNumbers the mobile numbers the cards are associated with
+     * @return a ResponseEntity containing the card details of every mobile number that has a card
+     */
+    @Operation(
+            summary = "Fetch Card Details in bulk REST API",
+            description = "REST API to fetch card details of a list of mobile numbers"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "HTTP Status OK"
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "HTTP Status Internal Server Error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            )
+    })
+    @PostMapping("/fetchBulk")
+    public ResponseEntity<List<CardsDto>> fetchCardDetailsBulk(@RequestHeader("eazybank-correlation-id") String correlationId,
+                                                             @RequestBody
+                                                             @Size(max = 200, message = "At most 200 mobile numbers can be fetched in one call")
+                                                             List<@Pattern(regexp="(^$|[0-9]{10})",message = "Mobile number must be 10 digits") String> mobileNumbers) {
+        logger.debug("fetchCardDetailsBulk method start");
+        List<CardsDto> cardsDtos = iCardsService.fetchCards(mobileNumbers);
+        logger.debug("fetchCardDetailsBulk method end");
+        return ResponseEntity.status(HttpStatus.OK).body(cardsDtos);
+    }
+
     /**
      * Updates the card details for the given card number.
      * @param cardsDto The CardsDto object containing the updated card details.
@@ -136,6 +173,13 @@ public class CardsController {
                     responseCode = "200",
                     description = "HTTP Status OK"
             ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Card was changed after it was read",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            ),
             @ApiResponse(
                     responseCode = "417",
                     description = "Expectation Failed"
@@ -162,6 +206,56 @@ public class CardsController {
         }
     }
 
+    /**
+     * Spends the given amount on a card, if enough of its limit is available.
+     * @param cardNumber the card number of the card to spend on
+     * @param amount the amount to spend
+     * @return a ResponseEntity containing status and message
+     */
+    @Operation(
+            summary = "Spend on Card REST API",
+            description = "REST API to authorize a spend against the available amount of a card"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "HTTP Status OK"
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "HTTP Status Not Found",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Available amount too low",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "HTTP Status Internal Server Error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            )
+    })
+    @PostMapping("/spend")
+    public ResponseEntity<ResponseDto> spend(@RequestParam
+                                             @Pattern(regexp="(^$|[0-9]{12})",message = "CardNumber must be 12 digits")
+                                             String cardNumber,
+                                             @RequestParam
+                                             @Positive(message = "Amount should be greater than zero")
+                                             int amount) {
+        iCardsService.spend(cardNumber, amount);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(new ResponseDto(CardsConstants.STATUS_200, CardsConstants.MESSAGE_200));
+    }
+
     /**
      * Deletes the card associated with the given mobile number.
      * @param mobileNumber The unique mobile number of the customer for whom the card is being deleted.
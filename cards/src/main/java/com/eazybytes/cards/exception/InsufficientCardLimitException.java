@@ -0,0 +1,12 @@
+package com.eazybytes.cards.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.UNPROCESSABLE_ENTITY)
+public class InsufficientCardLimitException extends RuntimeException {
+
+    public InsufficientCardLimitException(String cardNumber, int amount){
+        super(String.format("Card '%s' has less than %d available", cardNumber, amount));
+    }
+}
@@ -0,0 +1,414 @@
+package com.eazybytes.cards.ledger;
+
+import com.eazybytes.cards.config.CardLedgerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Authorizes card spends against available amounts held in memory, records them in a journal before
+ * acknowledging them, and writes them to the cards table in the background.
+ * <p>
+ * Every card in use has its own entry whose available amount is a single AtomicLong. A spend is a
+ * compare-and-set on that value, so spends on one card never wait for a lock and spends on different cards
+ * never touch the same memory. A card's entry is loaded from the table, less the spends still in the journal,
+ * when it is first used.
+ * <p>
+ * A spend deducted in memory is only authorized once its row in the card_spend_journal table is committed.
+ * The journal is only ever appended to, so concurrent spends, even on the same card, never wait for each
+ * other's row locks the way updates of the card row do. Every flush interval, the journal rows are summed
+ * up per card, written as deltas to amount_used and available_amount and deleted, all in one transaction.
+ * The table plus the journal therefore always holds every authorized spend: a crash loses nothing, and the
+ * journal left behind is written to the table when a ledger starts, or by the next flush of any other
+ * instance.
+ * <p>
+ * The entries assume that this ledger makes all spends on a card. A reconciliation every reconcile interval
+ * compares what the table and the journal leave available with what the ledger journaled, and takes over
+ * any other change, such as spends made by another instance. Overspending across instances is therefore
+ * bounded by that interval. A full update of a card must {@link #retire(String) retire} its entry so the
+ * next spend loads the new amounts.
+ */
+public class CardLedger implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(CardLedger.class);
+
+    // the available amount of an entry that is being removed; no spend can match it
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    private static final String JOURNAL_SQL = "insert into card_spend_journal (card_number, amount, created_at) " +
+            "values (?, ?, ?)";
+
+    private static final String FLUSH_SQL = "update cards set amount_used = amount_used + ?, " +
+            "available_amount = available_amount - ?, version = version + 1, updated_at = ?, updated_by = ? " +
+            "where card_number = ?";
+
+    // what the table and the journal leave available on a card
+    private static final String AVAILABLE_SQL = "select c.card_number, c.available_amount - coalesce(" +
+            "(select sum(j.amount) from card_spend_journal j where j.card_number = c.card_number), 0) " +
+            "from cards c where c.card_number in (:cardNumbers)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate journalTransactionTemplate;
+    private final CardLedgerProperties cardLedgerProperties;
+    private final String auditor;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // serializes loading, flushing, retiring and reconciling; spends on loaded cards never take it
+    private final Object lock = new Object();
+    // spends journal under the read lock; reconciliations take the write lock, so they never see journal
+    // rows whose spends the entries do not count yet
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final Timer flushTimer;
+    private final Timer journalTimer;
+    private final Counter mismatchCounter;
+
+    private volatile boolean running;
+    private ScheduledExecutorService scheduler;
+
+    public CardLedger(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                      CardLedgerProperties cardLedgerProperties, String auditor, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // outside any transaction of the caller, so a spend is committed on its own before it is authorized
+        this.journalTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.journalTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        this.cardLedgerProperties = cardLedgerProperties;
+        this.auditor = auditor;
+        this.flushTimer = Timer.builder("cards.ledger.flush")
+                .description("Time to write the spends in the journal to the cards table")
+                .register(meterRegistry);
+        this.journalTimer = Timer.builder("cards.ledger.journal")
+                .description("Time to insert a spend into the journal")
+                .register(meterRegistry);
+        this.mismatchCounter = Counter.builder("cards.ledger.reconciliation.mismatches")
+                .description("Cards whose amounts in the table were changed by someone other than the ledger")
+                .register(meterRegistry);
+        Gauge.builder("cards.ledger.cards", entries, Map::size)
+                .description("Cards whose available amount is held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Spends the given amount on a card if enough of it is available. Returns once the spend is in the
+     * journal.
+     *
+     * @param cardNumber The card number of the card to spend on.
+     * @param amount     The amount to spend, greater than zero.
+     * @return The outcome; {@link Result#UNAVAILABLE} if the ledger is not running or the journal can not be
+     * written, and the spend has to go to the table directly.
+     */
+    public Result authorize(String cardNumber, int amount) {
+        while (running) {
+            Entry entry = entries.get(cardNumber);
+            if (entry == null) {
+                entry = load(cardNumber);
+                if (entry == null) {
+                    return running ? Result.NOT_FOUND : Result.UNAVAILABLE;
+                }
+            }
+            // counted before reading the amount, so removing the entry waits for this spend
+            entry.inFlight.incrementAndGet();
+            try {
+                long available = entry.available.get();
+                while (available != RETIRED) {
+                    if (available < amount) {
+                        return Result.INSUFFICIENT_LIMIT;
+                    }
+                    long witness = entry.available.compareAndExchange(available, available - amount);
+                    if (witness == available) {
+                        return journal(cardNumber, entry, amount);
+                    }
+                    available = witness;
+                }
+            } finally {
+                entry.inFlight.decrementAndGet();
+            }
+            // the entry is being removed; load it again afterwards
+            Thread.yield();
+        }
+        return Result.UNAVAILABLE;
+    }
+
+    private Result journal(String cardNumber, Entry entry, int amount) {
+        try {
+            journalLock.readLock().lock();
+            try {
+                journalTimer.record(() -> journalTransactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.update(JOURNAL_SQL, cardNumber, amount, Timestamp.valueOf(LocalDateTime.now()))));
+                entry.journaled.addAndGet(-amount);
+                entry.spentSinceReconcile = true;
+            } finally {
+                journalLock.readLock().unlock();
+            }
+            return Result.AUTHORIZED;
+        } catch (RuntimeException ex) {
+            log.error("Writing a spend on card {} to the card ledger journal failed", cardNumber, ex);
+            // give the amount back, unless the entry is being removed and loads it from the table anyway
+            entry.available.getAndUpdate(available -> available == RETIRED ? RETIRED : available + amount);
+            return Result.UNAVAILABLE;
+        }
+    }
+
+    private Entry load(String cardNumber) {
+        synchronized (lock) {
+            Entry entry = entries.get(cardNumber);
+            if (entry != null || !running) {
+                return entry;
+            }
+            List<Long> available = namedParameterJdbcTemplate.query(AVAILABLE_SQL,
+                    Map.of("cardNumbers", List.of(cardNumber)), (row, rowNum) -> row.getLong(2));
+            if (available.isEmpty()) {
+                return null;
+            }
+            entry = new Entry(available.get(0));
+            entries.put(cardNumber, entry);
+            return entry;
+        }
+    }
+
+    /**
+     * Writes the spends in the journal to the cards table in one batch, including those a crashed ledger
+     * left behind.
+     *
+     * @return The number of cards written.
+     */
+    public int flush() {
+        return flush(null);
+    }
+
+    /**
+     * @param cardNumber The card whose spends to write, or null for all cards.
+     */
+    private int flush(String cardNumber) {
+        synchronized (lock) {
+            List<String> deleted = new ArrayList<>();
+            Integer flushed = flushTimer.record(() -> transactionTemplate.execute(status -> {
+                Map<String, Long> deltas = new LinkedHashMap<>();
+                List<Object[]> journalIds = new ArrayList<>();
+                // rows another instance is writing out right now are left to it
+                jdbcTemplate.query("select journal_id, card_number, amount from card_spend_journal " +
+                                (cardNumber == null ? "" : "where card_number = ? ") +
+                                "order by journal_id for update skip locked",
+                        row -> {
+                            journalIds.add(new Object[]{row.getLong(1)});
+                            deltas.merge(row.getString(2), row.getLong(3), Long::sum);
+                        }, cardNumber == null ? new Object[0] : new Object[]{cardNumber});
+                if (deltas.isEmpty()) {
+                    return 0;
+                }
+                List<String> cardNumbers = new ArrayList<>(deltas.keySet());
+                List<Object[]> batch = new ArrayList<>(cardNumbers.size());
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                for (String flushedCard : cardNumbers) {
+                    long delta = deltas.get(flushedCard);
+                    batch.add(new Object[]{delta, delta, now, auditor, flushedCard});
+                }
+                int[] updated = jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+                jdbcTemplate.batchUpdate("delete from card_spend_journal where journal_id = ?", journalIds);
+                for (int i = 0; i < cardNumbers.size(); i++) {
+                    if (updated[i] == 0) {
+                        deleted.add(cardNumbers.get(i));
+                    }
+                }
+                return cardNumbers.size();
+            }));
+            for (String deletedCard : deleted) {
+                log.warn("Card {} was deleted; dropping its spends from the ledger", deletedCard);
+                Entry entry = entries.get(deletedCard);
+                if (entry != null) {
+                    remove(deletedCard, entry);
+                }
+            }
+            return flushed == null ? 0 : flushed;
+        }
+    }
+
+    /**
+     * Writes the spends of a card to the table and drops it from memory, so the next spend loads it again.
+     * Needed after the card was changed in the table by other means than the ledger.
+     *
+     * @param cardNumber The card number of the card.
+     */
+    public void retire(String cardNumber) {
+        synchronized (lock) {
+            Entry entry = entries.get(cardNumber);
+            if (entry != null) {
+                remove(cardNumber, entry);
+            }
+            flush(cardNumber);
+        }
+    }
+
+    /**
+     * Flushes, then compares what the table and the journal leave available with what the ledger journaled.
+     * A difference means someone else changed the card, and the ledger takes the change over. Cards without
+     * spends since the last reconciliation are dropped from memory.
+     *
+     * @return The number of cards whose amounts had been changed by someone else.
+     */
+    public int reconcile() {
+        synchronized (lock) {
+            flush();
+            List<String> cardNumbers = new ArrayList<>(entries.keySet());
+            List<String> idle = new ArrayList<>();
+            int mismatches = 0;
+            journalLock.writeLock().lock();
+            try {
+                Map<String, Long> available = new HashMap<>();
+                for (int from = 0; from < cardNumbers.size(); from += 500) {
+                    namedParameterJdbcTemplate.query(AVAILABLE_SQL,
+                            Map.of("cardNumbers", cardNumbers.subList(from, Math.min(from + 500, cardNumbers.size()))),
+                            row -> {
+                                available.put(row.getString(1), row.getLong(2));
+                            });
+                }
+                for (String cardNumber : cardNumbers) {
+                    Entry entry = entries.get(cardNumber);
+                    Long inTable = available.get(cardNumber);
+                    if (inTable == null) {
+                        log.warn("Card {} was deleted; dropping it from the ledger", cardNumber);
+                        idle.add(cardNumber);
+                        mismatches++;
+                    } else if (inTable != entry.journaled.get()) {
+                        log.warn("Available amount of card {} was changed from {} to {} outside the ledger",
+                                cardNumber, entry.journaled.get(), inTable);
+                        // spends still being journaled stay deducted
+                        entry.available.addAndGet(inTable - entry.journaled.getAndSet(inTable));
+                        mismatches++;
+                    } else if (!entry.spentSinceReconcile) {
+                        idle.add(cardNumber);
+                    } else {
+                        entry.spentSinceReconcile = false;
+                    }
+                }
+            } finally {
+                journalLock.writeLock().unlock();
+            }
+            // outside the journal lock, as removing waits for the spends being journaled
+            idle.forEach(cardNumber -> remove(cardNumber, entries.get(cardNumber)));
+            mismatchCounter.increment(mismatches);
+            return mismatches;
+        }
+    }
+
+    // only with the lock held and without the journal lock
+    private void remove(String cardNumber, Entry entry) {
+        entry.available.set(RETIRED);
+        // spends that got in before are journaled or given back shortly
+        while (entry.inFlight.get() > 0) {
+            Thread.yield();
+        }
+        entries.remove(cardNumber, entry);
+    }
+
+    /**
+     * Writes out the journal left behind by a ledger that did not stop gracefully, then starts taking spends.
+     */
+    @Override
+    public void start() {
+        run("Replaying the journal of", this::flush);
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("card-ledger").factory());
+        long flushMillis = cardLedgerProperties.getFlushInterval().toMillis();
+        long reconcileMillis = cardLedgerProperties.getReconcileInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(() -> run("Flushing", this::flush), flushMillis, flushMillis,
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> run("Reconciling", this::reconcile), reconcileMillis,
+                reconcileMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void run(String task, Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (RuntimeException ex) {
+            // the spends stay in the journal and go out with the next flush
+            log.error("{} the card ledger failed", task, ex);
+        }
+    }
+
+    /**
+     * Stops taking spends and writes out the journal. Spends racing with the stop are either journaled or
+     * get {@link Result#UNAVAILABLE}.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (lock) {
+            entries.forEach(this::remove);
+            flush();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the web server, so requests still coming in during shutdown find the
+     * ledger running or fall back to row updates.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    public enum Result {
+        AUTHORIZED, INSUFFICIENT_LIMIT, NOT_FOUND, UNAVAILABLE
+    }
+
+    private static final class Entry {
+
+        private final AtomicLong available;
+
+        // spends deducted from available and not yet journaled or given up
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        // what the table and the journal leave available as far as the ledger knows; spends lower it with
+        // the journal read lock held, reconciliations read and set it with the write lock held
+        private final AtomicLong journaled;
+
+        private volatile boolean spentSinceReconcile = true;
+
+        private Entry(long available) {
+            this.available = new AtomicLong(available);
+            this.journaled = new AtomicLong(available);
+        }
+    }
+}
@@ -12,9 +12,13 @@ public class CardsMapper {
         cardsDto.setTotalLimit(cards.getTotalLimit());
         cardsDto.setAvailableAmount(cards.getAvailableAmount());
         cardsDto.setAmountUsed(cards.getAmountUsed());
+        cardsDto.setVersion(cards.getVersion());
         return cardsDto;
     }
 
+    /**
+     * Copies everything but the version, which only the persistence provider changes.
+     */
     public static Cards mapToCards(CardsDto cardsDto, Cards cards) {
         cards.setCardNumber(cardsDto.getCardNumber());
         cards.setCardType(cardsDto.getCardType());
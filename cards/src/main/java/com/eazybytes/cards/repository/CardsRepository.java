@@ -2,8 +2,15 @@ package com.eazybytes.cards.repository;
 
 import com.eazybytes.cards.entity.Cards;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -24,4 +31,41 @@ public interface CardsRepository extends JpaRepository<Cards, Long> {
      * @return An Optional containing the Cards object associated with the given card number if found, empty otherwise.
      */
     Optional<Cards> findByCardNumber(String cardNumber);
+
+    /**
+     * Finds the cards of all the given mobile numbers in a single query.
+     *
+     * @param mobileNumbers The mobile numbers of the customers.
+     * @return The cards found; mobile numbers without a card are simply absent.
+     */
+    List<Cards> findByMobileNumberIn(Collection<String> mobileNumbers);
+
+    /**
+     * Tells whether a card with the given card number exists.
+     *
+     * @param cardNumber The card number of the card.
+     * @return true if the card exists, false otherwise.
+     */
+    boolean existsByCardNumber(String cardNumber);
+
+    /**
+     * Moves the given amount from the available amount to the amount used of a card in a single statement,
+     * provided enough of it is available. The database applies concurrent spends one after the other, so
+     * none of them is lost and the available amount never drops below zero. The version is incremented, so
+     * full updates based on an earlier read fail.
+     *
+     * @param cardNumber The card number of the card.
+     * @param amount     The amount to spend, greater than zero.
+     * @param updatedAt  The modification time to record.
+     * @param updatedBy  The auditor to record.
+     * @return 1 if the amount was spent, 0 if the card does not exist or has less than the amount available.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Cards c set c.amountUsed = c.amountUsed + :amount, " +
+            "c.availableAmount = c.availableAmount - :amount, c.version = c.version + 1, " +
+            "c.updatedAt = :updatedAt, c.updatedBy = :updatedBy " +
+            "where c.cardNumber = :cardNumber and c.availableAmount >= :amount")
+    int spend(@Param("cardNumber") String cardNumber, @Param("amount") int amount,
+              @Param("updatedAt") LocalDateTime updatedAt, @Param("updatedBy") String updatedBy);
 }
@@ -2,6 +2,8 @@ package com.eazybytes.cards.service;
 
 import com.eazybytes.cards.dto.CardsDto;
 
+import java.util.List;
+
 public interface ICardsService {
 
     /**
@@ -17,6 +19,13 @@ public interface ICardsService {
      */
     CardsDto fetchCard(String mobileNumber);
 
+    /**
+     *
+     * @param mobileNumbers - Input mobile Numbers
+     * @return Card Details of every given mobileNumber that has a card
+     */
+    List<CardsDto> fetchCards(List<String> mobileNumbers);
+
     /**
      *
      * @param cardsDto - CardsDto Object
@@ -24,6 +33,13 @@ public interface ICardsService {
      */
     boolean updateCard(CardsDto cardsDto);
 
+    /**
+     *
+     * @param cardNumber - Card Number of the card to spend on
+     * @param amount - Amount to spend, greater than zero
+     */
+    void spend(String cardNumber, int amount);
+
     /**
      *
      * @param mobileNumber - Input Mobile Number
@@ -4,46 +4,61 @@ import com.eazybytes.cards.constants.CardsConstants;
 import com.eazybytes.cards.dto.CardsDto;
 import com.eazybytes.cards.entity.Cards;
 import com.eazybytes.cards.exception.CardAlreadyExistsException;
+import com.eazybytes.cards.exception.InsufficientCardLimitException;
 import com.eazybytes.cards.exception.ResourceNotFoundException;
+import com.eazybytes.cards.ledger.CardLedger;
 import com.eazybytes.cards.mapper.CardsMapper;
 import com.eazybytes.cards.repository.CardsRepository;
 import com.eazybytes.cards.service.ICardsService;
+import com.eazybytes.common.persistence.UniqueConstraints;
+import com.eazybytes.common.sequence.NumberAllocator;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
-import java.util.Random;
 
 @Service
 @AllArgsConstructor
 public class CardsServiceImpl implements ICardsService {
 
     private CardsRepository cardsRepository;
+    private NumberAllocator cardNumberAllocator;
+    private AuditorAware<String> auditAwareImpl;
+    private Optional<CardLedger> cardLedger;
 
     /**
      * Creates a new card associated with the given mobile number.
+     * The card is inserted right away; the unique constraint on the mobile number rejects a second card,
+     * also when two requests for the same mobile number arrive at the same time.
      *
      * @param mobileNumber The unique mobile number of the customer for whom the card is being created.
      * @throws CardAlreadyExistsException if a card already exists with the given mobile number.
      */
     @Override
     public void createCard(String mobileNumber) {
-        Optional<Cards> optionalCards= cardsRepository.findByMobileNumber(mobileNumber);
-        if(optionalCards.isPresent()){
-            throw new CardAlreadyExistsException("Card already registered with given mobileNumber "+mobileNumber);
+        try {
+            cardsRepository.save(createNewCard(mobileNumber));
+        } catch (DataIntegrityViolationException ex) {
+            if (UniqueConstraints.isViolated(ex, CardsConstants.MOBILE_NUMBER_CONSTRAINT)) {
+                throw new CardAlreadyExistsException("Card already registered with given mobileNumber "+mobileNumber);
+            }
+            throw ex;
         }
-        cardsRepository.save(createNewCard(mobileNumber));
     }
 
     /**
      * Creates a new card for the given mobile number.
      * @param mobileNumber The mobile number of the customer for whom the card is being created.
-     * @return A new Cards entity with a randomly assigned card number, the given mobile number, credit card type, default total limit, 0 as amount used, and the default total limit as available amount.
+     * @return A new Cards entity with a unique, Luhn checked card number, the given mobile number, credit card type, default total limit, 0 as amount used, and the default total limit as available amount.
      */
     private Cards createNewCard(String mobileNumber) {
         Cards newCard = new Cards();
-        long randomCardNumber = 100000000000L + new Random().nextInt(900000000);
-        newCard.setCardNumber(Long.toString(randomCardNumber));
+        newCard.setCardNumber(Long.toString(cardNumberAllocator.nextWithCheckDigit()));
         newCard.setMobileNumber(mobileNumber);
         newCard.setCardType(CardsConstants.CREDIT_CARD);
         newCard.setTotalLimit(CardsConstants.NEW_CARD_LIMIT);
@@ -66,21 +81,77 @@ public class CardsServiceImpl implements ICardsService {
         return CardsMapper.mapToCardsDto(cards, new CardsDto());
     }
 
+    /**
+     * Fetches the card details of many mobile numbers with a single query.
+     * @param mobileNumbers The mobile numbers of the customers whose card details are being fetched.
+     * @return The CardsDto objects of the mobile numbers that have a card; others are simply absent.
+     */
+    @Override
+    public List<CardsDto> fetchCards(List<String> mobileNumbers) {
+        return cardsRepository.findByMobileNumberIn(mobileNumbers).stream()
+                .map(cards -> CardsMapper.mapToCardsDto(cards, new CardsDto()))
+                .toList();
+    }
+
     /**
      * Updates the card details for the given card number.
-     * @param cardsDto The CardsDto object containing the updated card details.
+     * The update is based on the version the client read; if the card changed since, e.g. by a spend, it is
+     * rejected rather than overwriting the amounts.
+     * @param cardsDto The CardsDto object containing the updated card details and the version they are based on.
      * @return true if the update is successful, false otherwise.
      * @throws ResourceNotFoundException if no card is found for the given card number.
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the card changed after it was read.
      */
     @Override
     public boolean updateCard(CardsDto cardsDto) {
+        // writes the spends held in memory first, so they count against the version and are not overwritten
+        cardLedger.ifPresent(ledger -> ledger.retire(cardsDto.getCardNumber()));
         Cards cards = cardsRepository.findByCardNumber(cardsDto.getCardNumber()).orElseThrow(
                 () -> new ResourceNotFoundException("Card", "CardNumber", cardsDto.getCardNumber()));
+        if (cardsDto.getVersion() == null || cardsDto.getVersion() != cards.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Cards.class, cards.getCardId());
+        }
         CardsMapper.mapToCards(cardsDto, cards);
         cardsRepository.save(cards);
+        // a spend in between may have loaded the amounts from before the update again
+        cardLedger.ifPresent(ledger -> ledger.retire(cards.getCardNumber()));
         return  true;
     }
 
+    /**
+     * Spends the given amount on a card. With the card ledger running the spend is authorized in memory,
+     * otherwise it is a single conditional update without reading the card first; only when nothing was
+     * updated is the card looked up, to tell a missing card from an insufficient limit.
+     * @param cardNumber The card number of the card to spend on.
+     * @param amount The amount to spend, greater than zero.
+     * @throws ResourceNotFoundException if no card is found for the given card number.
+     * @throws InsufficientCardLimitException if the card has less than the amount available.
+     */
+    @Override
+    public void spend(String cardNumber, int amount) {
+        CardLedger.Result result = cardLedger.map(ledger -> ledger.authorize(cardNumber, amount))
+                .orElse(CardLedger.Result.UNAVAILABLE);
+        switch (result) {
+            case AUTHORIZED -> {
+                return;
+            }
+            case NOT_FOUND -> throw new ResourceNotFoundException("Card", "CardNumber", cardNumber);
+            case INSUFFICIENT_LIMIT -> throw new InsufficientCardLimitException(cardNumber, amount);
+            case UNAVAILABLE -> spendInTable(cardNumber, amount);
+        }
+    }
+
+    private void spendInTable(String cardNumber, int amount) {
+        int updated = cardsRepository.spend(cardNumber, amount, LocalDateTime.now(),
+                auditAwareImpl.getCurrentAuditor().orElse(null));
+        if (updated == 0) {
+            if (!cardsRepository.existsByCardNumber(cardNumber)) {
+                throw new ResourceNotFoundException("Card", "CardNumber", cardNumber);
+            }
+            throw new InsufficientCardLimitException(cardNumber, amount);
+        }
+    }
+
     /**
      * Deletes the card associated with the given mobile number.
      * @param mobileNumber The unique mobile number of the customer for whom the card is being deleted.
@@ -92,6 +163,7 @@ public class CardsServiceImpl implements ICardsService {
         Cards cards = cardsRepository.findByMobileNumber(mobileNumber).orElseThrow(
                 () -> new ResourceNotFoundException("Card", "mobileNumber", mobileNumber)
         );
+        cardLedger.ifPresent(ledger -> ledger.retire(cards.getCardNumber()));
         cardsRepository.deleteById(cards.getCardId());
         return true;
     }
@@ -0,0 +1,2 @@
+-- optimistic locking of full card updates; every spend increments it as well
+ALTER TABLE `cards` ADD COLUMN IF NOT EXISTS `version` bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,5 @@
+-- cards are looked up by card number, e.g. for every spend
+ALTER TABLE `cards` ADD CONSTRAINT `uk_cards_card_number` UNIQUE (`card_number`);
+
+-- cards are fetched by mobile number, and a mobile number registers one card
+ALTER TABLE `cards` ADD CONSTRAINT `uk_cards_mobile_number` UNIQUE (`mobile_number`);
@@ -0,0 +1,8 @@
+-- spends authorized by a card ledger and not yet written to the cards table; flushed within moments, so it
+-- stays small and has no index besides its key
+CREATE TABLE IF NOT EXISTS `card_spend_journal` (
+  `journal_id` bigint AUTO_INCREMENT PRIMARY KEY,
+  `card_number` varchar(100) NOT NULL,
+  `amount` int NOT NULL,
+  `created_at` timestamp NOT NULL
+);
@@ -0,0 +1,220 @@
+package com.eazybytes.cards.ledger;
+
+import com.eazybytes.cards.config.CardLedgerProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Spends on a few cards from many threads through the ledger while it flushes, retires and reconciles, and
+ * checks that the table ends up with exactly the authorized spends. Also compares the throughput with
+ * spending through row updates.
+ */
+class CardLedgerStressTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CardLedgerStressTest.class);
+
+    private static final String[] CARDS = {"100000000001", "100000000002", "100000000003", "100000000004"};
+    private static final int LIMIT = 200_000;
+    private static final int THREADS = 16;
+    private static final Duration RUN_TIME = Duration.ofSeconds(2);
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private CardLedger cardLedger;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:card_ledger;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(THREADS);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("delete from card_spend_journal");
+        jdbcTemplate.update("delete from cards");
+        for (String cardNumber : CARDS) {
+            jdbcTemplate.update("insert into cards (mobile_number, card_number, card_type, total_limit, amount_used, " +
+                    "available_amount, created_at, created_by) values (?, ?, 'Credit Card', ?, 0, ?, " +
+                    "current_date, 'TEST')", cardNumber.substring(2), cardNumber, LIMIT, LIMIT);
+        }
+        cardLedger = cardLedger(Duration.ofMillis(10));
+        cardLedger.start();
+    }
+
+    private CardLedger cardLedger(Duration flushInterval) {
+        CardLedgerProperties properties = new CardLedgerProperties();
+        properties.setFlushInterval(flushInterval);
+        // the tests reconcile themselves
+        properties.setReconcileInterval(Duration.ofMinutes(10));
+        return new CardLedger(jdbcTemplate, new DataSourceTransactionManager(dataSource), properties, "TEST",
+                new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardLedger.stop();
+        dataSource.close();
+    }
+
+    @Test
+    void tableHoldsExactlyTheAuthorizedSpends() throws Exception {
+        AtomicLongArray authorized = new AtomicLongArray(CARDS.length);
+        AtomicBoolean spending = new AtomicBoolean(true);
+        // full updates retire entries and reconciliations run while spends go on
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        Future<?> retirer = executor.submit(() -> {
+            for (int i = 0; spending.get(); i++) {
+                cardLedger.retire(CARDS[ThreadLocalRandom.current().nextInt(CARDS.length)]);
+                if (i % 10 == 0) {
+                    assertEquals(0, cardLedger.reconcile());
+                }
+                Thread.sleep(5);
+            }
+            return null;
+        });
+        long spends = spend(executor, () -> {
+            int card = ThreadLocalRandom.current().nextInt(CARDS.length);
+            int amount = ThreadLocalRandom.current().nextInt(1, 10);
+            CardLedger.Result result = cardLedger.authorize(CARDS[card], amount);
+            if (result == CardLedger.Result.AUTHORIZED) {
+                authorized.addAndGet(card, amount);
+            } else {
+                assertEquals(CardLedger.Result.INSUFFICIENT_LIMIT, result);
+            }
+        });
+        spending.set(false);
+        retirer.get();
+        executor.shutdown();
+        cardLedger.stop();
+
+        for (int card = 0; card < CARDS.length; card++) {
+            long amountUsed = jdbcTemplate.queryForObject("select amount_used from cards where card_number = ?",
+                    Long.class, CARDS[card]);
+            long available = jdbcTemplate.queryForObject("select available_amount from cards where card_number = ?",
+                    Long.class, CARDS[card]);
+            assertEquals(authorized.get(card), amountUsed, "amount used of card " + CARDS[card]);
+            assertEquals(LIMIT - authorized.get(card), available, "available amount of card " + CARDS[card]);
+            assertTrue(available >= 0, "available amount of card " + CARDS[card]);
+        }
+        log.info("{} spends through the ledger", spends);
+    }
+
+    @Test
+    void restartContinuesFromTheTableAndReconciliationTakesOverOtherChanges() {
+        assertEquals(CardLedger.Result.AUTHORIZED, cardLedger.authorize(CARDS[0], 100));
+        cardLedger.stop();
+        cardLedger.start();
+        assertEquals(CardLedger.Result.AUTHORIZED, cardLedger.authorize(CARDS[0], 50));
+
+        // another instance spends 300 on the same card
+        jdbcTemplate.update("update cards set amount_used = amount_used + 300, available_amount = available_amount - 300 " +
+                "where card_number = ?", CARDS[0]);
+        assertEquals(1, cardLedger.reconcile());
+
+        int left = LIMIT - 100 - 300 - 50;
+        assertEquals(CardLedger.Result.INSUFFICIENT_LIMIT, cardLedger.authorize(CARDS[0], left + 1));
+        assertEquals(CardLedger.Result.AUTHORIZED, cardLedger.authorize(CARDS[0], left));
+        assertEquals(CardLedger.Result.NOT_FOUND, cardLedger.authorize("999999999999", 1));
+        cardLedger.stop();
+        assertEquals(CardLedger.Result.UNAVAILABLE, cardLedger.authorize(CARDS[0], 1));
+        assertEquals(0, jdbcTemplate.queryForObject("select available_amount from cards where card_number = ?",
+                Long.class, CARDS[0]));
+    }
+
+    @Test
+    void spendsSurviveACrashBeforeTheFlush() {
+        cardLedger.stop();
+        // never flushes and is never stopped gracefully, like an instance that crashed
+        CardLedger crashed = cardLedger(Duration.ofMinutes(10));
+        crashed.start();
+        assertEquals(CardLedger.Result.AUTHORIZED, crashed.authorize(CARDS[1], 100));
+        assertEquals(CardLedger.Result.AUTHORIZED, crashed.authorize(CARDS[1], 200));
+        assertEquals(LIMIT, available(CARDS[1]));
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from card_spend_journal", Integer.class));
+
+        // a ledger starting meanwhile counts the journal as spent
+        CardLedger other = cardLedger(Duration.ofMinutes(10));
+        other.start();
+        assertEquals(CardLedger.Result.INSUFFICIENT_LIMIT, other.authorize(CARDS[1], LIMIT - 299));
+        other.stop();
+        assertEquals(LIMIT - 300, available(CARDS[1]));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from card_spend_journal", Integer.class));
+
+        assertEquals(CardLedger.Result.AUTHORIZED, crashed.authorize(CARDS[2], 50));
+        // the restarted instance writes out what the crashed one left in the journal
+        cardLedger.start();
+        assertEquals(LIMIT - 50, available(CARDS[2]));
+        assertEquals(CardLedger.Result.INSUFFICIENT_LIMIT, cardLedger.authorize(CARDS[2], LIMIT - 49));
+        // the crashed ledger's threads would be gone with its process
+        crashed.stop();
+    }
+
+    private long available(String cardNumber) {
+        return jdbcTemplate.queryForObject("select available_amount from cards where card_number = ?", Long.class,
+                cardNumber);
+    }
+
+    @Test
+    void ledgerOutperformsRowUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long rowUpdates = spend(executor, () -> jdbcTemplate.update("update cards " +
+                "set amount_used = amount_used + 1, available_amount = available_amount - 1, version = version + 1 " +
+                "where card_number = ? and available_amount >= 1", CARDS[ThreadLocalRandom.current().nextInt(CARDS.length)]));
+        // start from full limits again; the row updates took some of them
+        jdbcTemplate.update("update cards set amount_used = 0, available_amount = ?", Integer.MAX_VALUE);
+        cardLedger.stop();
+        cardLedger.start();
+        long ledgerSpends = spend(executor, () -> cardLedger.authorize(CARDS[ThreadLocalRandom.current()
+                .nextInt(CARDS.length)], 1));
+        executor.shutdown();
+
+        log.info("{} spends/s with row updates, {} spends/s through the ledger",
+                rowUpdates / RUN_TIME.toSeconds(), ledgerSpends / RUN_TIME.toSeconds());
+        assertTrue(ledgerSpends > rowUpdates, ledgerSpends + " vs " + rowUpdates);
+    }
+
+    /**
+     * Runs the spend on {@link #THREADS} threads for {@link #RUN_TIME}.
+     *
+     * @return The number of spends made.
+     */
+    private static long spend(ExecutorService executor, Runnable spend) throws Exception {
+        long deadline = System.nanoTime() + RUN_TIME.toNanos();
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                long spends = 0;
+                while (System.nanoTime() < deadline) {
+                    spend.run();
+                    spends++;
+                }
+                return spends;
+            }));
+        }
+        long spends = 0;
+        for (Future<Long> future : futures) {
+            spends += future.get();
+        }
+        return spends;
+    }
+}
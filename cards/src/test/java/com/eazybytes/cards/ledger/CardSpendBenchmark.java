@@ -0,0 +1,99 @@
+package com.eazybytes.cards.ledger;
+
+import com.eazybytes.cards.config.CardLedgerProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares spending through the CardLedger with the conditional row update it can replace. The spends go
+ * to an in-memory H2 database, spread over {@code cards} cards, so with one card every spend competes for
+ * the same row or the same ledger entry. Run with {@code mvn test-compile exec:exec
+ * -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-cp %classpath com.eazybytes.cards.ledger.CardSpendBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class CardSpendBenchmark {
+
+    private static final String SPEND_SQL = "update cards set amount_used = amount_used + ?, " +
+            "available_amount = available_amount - ?, version = version + 1 " +
+            "where card_number = ? and available_amount >= ?";
+
+    @Param({"1", "16"})
+    public int cards;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private CardLedger cardLedger;
+    private String[] cardNumbers;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:card_spend_benchmark;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(8);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("delete from cards");
+        cardNumbers = new String[cards];
+        for (int i = 0; i < cards; i++) {
+            cardNumbers[i] = Long.toString(100_000_000_000L + i);
+            // enough for every spend of a run
+            jdbcTemplate.update("insert into cards (mobile_number, card_number, card_type, total_limit, amount_used, " +
+                    "available_amount, created_at, created_by) values (?, ?, 'Credit Card', ?, 0, ?, " +
+                    "current_date, 'BENCHMARK')", cardNumbers[i].substring(2), cardNumbers[i], Integer.MAX_VALUE,
+                    Integer.MAX_VALUE);
+        }
+        cardLedger = new CardLedger(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                new CardLedgerProperties(), "BENCHMARK", new SimpleMeterRegistry());
+        cardLedger.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        cardLedger.stop();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int rowUpdate() {
+        String cardNumber = cardNumbers[ThreadLocalRandom.current().nextInt(cards)];
+        return jdbcTemplate.update(SPEND_SQL, 1, 1, cardNumber, 1);
+    }
+
+    @Benchmark
+    public CardLedger.Result ledger() {
+        return cardLedger.authorize(cardNumbers[ThreadLocalRandom.current().nextInt(cards)], 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CardSpendBenchmark.class.getSimpleName()).build()).run();
+    }
+}
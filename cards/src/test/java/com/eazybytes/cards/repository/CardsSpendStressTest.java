@@ -0,0 +1,187 @@
+package com.eazybytes.cards.repository;
+
+import com.eazybytes.cards.audit.AuditAwareImpl;
+import com.eazybytes.cards.config.CardLedgerProperties;
+import com.eazybytes.cards.constants.CardsConstants;
+import com.eazybytes.cards.dto.CardsDto;
+import com.eazybytes.cards.entity.Cards;
+import com.eazybytes.cards.exception.InsufficientCardLimitException;
+import com.eazybytes.cards.exception.ResourceNotFoundException;
+import com.eazybytes.cards.ledger.CardLedger;
+import com.eazybytes.cards.service.impl.CardsServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Spends on the same card from many threads at once. Each spend commits on its own, as it does behind the
+ * endpoint, so the test itself runs outside a transaction.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(AuditAwareImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CardsSpendStressTest {
+
+    private static final int THREADS = 16;
+    private static final int SPENDS_PER_THREAD = 250;
+
+    @Autowired
+    private CardsRepository cardsRepository;
+
+    @Autowired
+    private AuditAwareImpl auditAwareImpl;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentSpendsAreNeverLost() throws Exception {
+        Cards card = saveCard("100000000001", CardsConstants.NEW_CARD_LIMIT);
+        CardsServiceImpl cardsService = new CardsServiceImpl(cardsRepository, null, auditAwareImpl, Optional.empty());
+
+        int spent = spendConcurrently(() -> {
+            cardsService.spend(card.getCardNumber(), 1);
+            return 1;
+        });
+
+        Cards updated = cardsRepository.findByCardNumber(card.getCardNumber()).orElseThrow();
+        assertEquals(THREADS * SPENDS_PER_THREAD, spent);
+        assertEquals(spent, updated.getAmountUsed());
+        assertEquals(CardsConstants.NEW_CARD_LIMIT - spent, updated.getAvailableAmount());
+        assertEquals(card.getVersion() + spent, updated.getVersion());
+    }
+
+    @Test
+    void concurrentSpendsNeverExceedTheLimit() throws Exception {
+        // the threads ask for more than the limit
+        Cards card = saveCard("100000000002", 10_000);
+        CardsServiceImpl cardsService = new CardsServiceImpl(cardsRepository, null, auditAwareImpl, Optional.empty());
+
+        int spent = spendConcurrently(() -> {
+            try {
+                cardsService.spend(card.getCardNumber(), 3);
+                return 3;
+            } catch (InsufficientCardLimitException e) {
+                return 0;
+            }
+        });
+
+        Cards updated = cardsRepository.findByCardNumber(card.getCardNumber()).orElseThrow();
+        assertEquals(spent, updated.getAmountUsed());
+        assertEquals(10_000, updated.getAmountUsed() + updated.getAvailableAmount());
+        assertTrue(updated.getAvailableAmount() >= 0 && updated.getAvailableAmount() < 3,
+                "available amount " + updated.getAvailableAmount());
+        assertThrows(ResourceNotFoundException.class, () -> cardsService.spend("999999999999", 1));
+    }
+
+    @Test
+    void fullUpdateBasedOnAnOutdatedReadFails() {
+        Cards card = saveCard("100000000003", CardsConstants.NEW_CARD_LIMIT);
+        CardsServiceImpl cardsService = new CardsServiceImpl(cardsRepository, null, auditAwareImpl, Optional.empty());
+        CardsDto outdated = cardsService.fetchCard(card.getMobileNumber());
+
+        cardsService.spend(card.getCardNumber(), 500);
+        outdated.setTotalLimit(2 * CardsConstants.NEW_CARD_LIMIT);
+        outdated.setAvailableAmount(2 * CardsConstants.NEW_CARD_LIMIT);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> cardsService.updateCard(outdated));
+        assertEquals(500, cardsRepository.findByCardNumber(card.getCardNumber()).orElseThrow().getAmountUsed());
+
+        CardsDto current = cardsService.fetchCard(card.getMobileNumber());
+        current.setTotalLimit(2 * CardsConstants.NEW_CARD_LIMIT);
+        current.setAvailableAmount(2 * CardsConstants.NEW_CARD_LIMIT - 500);
+        assertTrue(cardsService.updateCard(current));
+        assertEquals(current.getVersion() + 1,
+                cardsRepository.findByCardNumber(card.getCardNumber()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void fullUpdateAfterSpendsHeldByTheLedgerFails() {
+        Cards card = saveCard("100000000004", CardsConstants.NEW_CARD_LIMIT);
+        CardLedgerProperties properties = new CardLedgerProperties();
+        // the spend stays in memory until the update retires the card
+        properties.setFlushInterval(Duration.ofMinutes(10));
+        properties.setReconcileInterval(Duration.ofMinutes(10));
+        CardLedger cardLedger = new CardLedger(jdbcTemplate, transactionManager, properties, "TEST",
+                new SimpleMeterRegistry());
+        cardLedger.start();
+        try {
+            CardsServiceImpl cardsService = new CardsServiceImpl(cardsRepository, null, auditAwareImpl,
+                    Optional.of(cardLedger));
+            CardsDto outdated = cardsService.fetchCard(card.getMobileNumber());
+
+            cardsService.spend(card.getCardNumber(), 500);
+            outdated.setTotalLimit(2 * CardsConstants.NEW_CARD_LIMIT);
+            outdated.setAvailableAmount(2 * CardsConstants.NEW_CARD_LIMIT);
+
+            assertThrows(OptimisticLockingFailureException.class, () -> cardsService.updateCard(outdated));
+            Cards stored = cardsRepository.findByCardNumber(card.getCardNumber()).orElseThrow();
+            assertEquals(500, stored.getAmountUsed());
+            assertEquals(CardsConstants.NEW_CARD_LIMIT - 500, stored.getAvailableAmount());
+        } finally {
+            cardLedger.stop();
+        }
+    }
+
+    private Cards saveCard(String cardNumber, int limit) {
+        Cards card = new Cards();
+        card.setCardNumber(cardNumber);
+        card.setMobileNumber(cardNumber.substring(2));
+        card.setCardType(CardsConstants.CREDIT_CARD);
+        card.setTotalLimit(limit);
+        card.setAmountUsed(0);
+        card.setAvailableAmount(limit);
+        return cardsRepository.save(card);
+    }
+
+    /**
+     * Runs the spend {@link #SPENDS_PER_THREAD} times on each of {@link #THREADS} threads.
+     *
+     * @return The sum of the amounts the spends returned.
+     */
+    private static int spendConcurrently(Callable<Integer> spend) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    int spent = 0;
+                    for (int i = 0; i < SPENDS_PER_THREAD; i++) {
+                        spent += spend.call();
+                    }
+                    return spent;
+                }));
+            }
+            int spent = 0;
+            for (Future<Integer> future : futures) {
+                spent += future.get();
+            }
+            return spent;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.eazybytes.cards.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Migrates a database that was set up from the former schema.sql, which is baselined at V1, and checks that
+ * the objects of the later migrations are there.
+ */
+class LegacySchemaMigrationTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy_cards;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(dataSource);
+        jdbcTemplate.update("insert into cards (mobile_number, card_number, card_type, total_limit, amount_used, " +
+                "available_amount, created_at, created_by) values ('9345432123', '100646930341', 'Credit Card', " +
+                "100000, 0, 100000, current_date, 'LEGACY')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    @Test
+    void legacyDatabaseGetsTheObjectsOfTheLaterMigrations() {
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).load().migrate();
+
+        assertEquals(0, jdbcTemplate.queryForObject("select version from cards where card_number = '100646930341'",
+                Long.class));
+        jdbcTemplate.update("insert into number_block (sequence_name, next_value) values ('card_number', 1)");
+    }
+}
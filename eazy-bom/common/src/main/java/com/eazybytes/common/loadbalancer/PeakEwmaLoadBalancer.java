@@ -0,0 +1,304 @@
+package com.eazybytes.common.loadbalancer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/**
+ * Load balancer that sends a request to the instance expected to answer it soonest, instead of taking turns.
+ * <p>
+ * The cost of an instance is its peak-EWMA latency times its outstanding requests plus one. The latency
+ * jumps to any sample above it, so a stall shows at once, and otherwise decays towards the samples over the
+ * decay time; without samples it decays towards zero, so an instance that got no traffic because it was slow
+ * is tried again after a while. An instance without a sample yet costs nothing while idle and is avoided
+ * while its first request is outstanding. A failed request or a 5xx response counts as a sample of at least
+ * the failure penalty, so an instance that fails fast does not attract traffic.
+ * <p>
+ * Each request compares two instances picked at random and goes to the cheaper one, which keeps several
+ * clients from all piling onto the same instance.
+ * <p>
+ * Outstanding requests and latencies come from the {@link LoadBalancerLifecycle} callbacks, which both the
+ * gateway's load balancer filter and the Feign load balancer client invoke for the beans of the client's
+ * context. With a MeterRegistry, it reports loadbalancer.instance.latency, loadbalancer.instance.outstanding
+ * and loadbalancer.instance.weight, the share of requests the instance would get by cost, per service and
+ * instance.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    // cost of an instance whose first request is still outstanding: worse than any measured one
+    private static final double UNMEASURED_PENALTY = 1e18;
+
+    private final String serviceId;
+    private final ObjectProvider<ServiceInstanceListSupplier> suppliers;
+    private final double decayNanos;
+    private final long failurePenaltyNanos;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier clock;
+    private final Supplier<RandomGenerator> random;
+    private final ConcurrentMap<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    // membership of the last instance list seen, so stats are only pruned when an instance left
+    private volatile Membership lastMembership = new Membership(0, 0);
+
+    /**
+     * @param decayTime      Time over which a latency sample loses most of its weight.
+     * @param failurePenalty Latency a failed request counts as at least.
+     * @param meterRegistry  Registry for the instance metrics, or null for none.
+     */
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, String serviceId,
+                                Duration decayTime, Duration failurePenalty, MeterRegistry meterRegistry) {
+        this(suppliers, serviceId, decayTime, failurePenalty, meterRegistry, System::nanoTime,
+                ThreadLocalRandom::current);
+    }
+
+    PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, String serviceId,
+                         Duration decayTime, Duration failurePenalty, MeterRegistry meterRegistry,
+                         LongSupplier clock, Supplier<RandomGenerator> random) {
+        this.suppliers = suppliers;
+        this.serviceId = serviceId;
+        this.decayNanos = decayTime.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = suppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> {
+            Response<ServiceInstance> response = choose(instances);
+            if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+                callback.selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        // suppliers such as the caching one hand out a new list per call, so compare the members
+        Membership membership = Membership.of(instances);
+        if (!membership.equals(lastMembership)) {
+            forgetRemoved(instances, membership);
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+        RandomGenerator generator = random.get();
+        int first = generator.nextInt(instances.size());
+        int second = generator.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        long now = clock.getAsLong();
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return new DefaultResponse(stats(a).cost(now) <= stats(b).cost(now) ? a : b);
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        stats(lbResponse.getServer()).outstanding.incrementAndGet();
+        if (request.getContext() instanceof TimedRequestContext context) {
+            context.setRequestStartTime(clock.getAsLong());
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (completionContext.status() == CompletionContext.Status.DISCARD || lbResponse == null
+                || !lbResponse.hasServer()) {
+            return;
+        }
+        InstanceStats instance = stats.get(instanceId(lbResponse.getServer()));
+        if (instance == null) {
+            // the instance left the registry while the request was outstanding
+            return;
+        }
+        instance.outstanding.updateAndGet(outstanding -> Math.max(0, outstanding - 1));
+        Object context = completionContext.getLoadBalancerRequest() != null
+                ? completionContext.getLoadBalancerRequest().getContext() : null;
+        if (!(context instanceof TimedRequestContext timed) || timed.getRequestStartTime() == 0) {
+            return;
+        }
+        long now = clock.getAsLong();
+        long rtt = now - timed.getRequestStartTime();
+        if (failed(completionContext)) {
+            rtt = Math.max(rtt, failurePenaltyNanos);
+        }
+        instance.observe(rtt, now);
+    }
+
+    private static boolean failed(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        if (completionContext.status() == CompletionContext.Status.FAILED) {
+            return true;
+        }
+        return completionContext.getClientResponse() instanceof ResponseData response
+                && response.getHttpStatus() != null && response.getHttpStatus().is5xxServerError();
+    }
+
+    /**
+     * @return The peak-EWMA latency of the instance in nanoseconds, or 0 before its first sample.
+     */
+    double latencyNanos(ServiceInstance instance) {
+        return stats(instance).latency(clock.getAsLong());
+    }
+
+    private InstanceStats stats(ServiceInstance instance) {
+        String id = instanceId(instance);
+        InstanceStats instanceStats = stats.get(id);
+        return instanceStats != null ? instanceStats : stats.computeIfAbsent(id, InstanceStats::new);
+    }
+
+    private static String instanceId(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    private synchronized void forgetRemoved(List<ServiceInstance> instances, Membership membership) {
+        if (membership.equals(lastMembership)) {
+            // pruned by another request meanwhile
+            return;
+        }
+        Set<String> current = new HashSet<>();
+        instances.forEach(instance -> current.add(instanceId(instance)));
+        stats.values().removeIf(instanceStats -> {
+            if (current.contains(instanceStats.id)) {
+                return false;
+            }
+            instanceStats.meters.forEach(meter -> meterRegistry.remove(meter));
+            return true;
+        });
+        lastMembership = membership;
+    }
+
+    /**
+     * Size and order-independent hash of the instance ids of a list, computed without allocating. Two lists
+     * with the same members are equal; a hash collision merely delays forgetting a removed instance until
+     * the next change.
+     */
+    private record Membership(int size, long hash) {
+
+        private static Membership of(List<ServiceInstance> instances) {
+            long hash = 0;
+            for (ServiceInstance instance : instances) {
+                long id = 31L * String.valueOf(instance.getHost()).hashCode() + instance.getPort();
+                // mixed, so that a sum of ids close to each other does not collide easily
+                hash += id * 0x9E3779B97F4A7C15L ^ (id >>> 29);
+            }
+            return new Membership(instances.size(), hash);
+        }
+    }
+
+    private double weight(InstanceStats instance) {
+        long now = clock.getAsLong();
+        double total = 0;
+        for (InstanceStats other : stats.values()) {
+            total += 1 / Math.max(1, other.cost(now));
+        }
+        return total > 0 ? (1 / Math.max(1, instance.cost(now))) / total : 0;
+    }
+
+    private final class InstanceStats {
+
+        private final String id;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final List<Meter> meters = new ArrayList<>();
+        private double ewmaNanos;
+        private long stampNanos;
+
+        private InstanceStats(String id) {
+            this.id = id;
+            if (meterRegistry != null) {
+                meters.add(Gauge.builder("loadbalancer.instance.latency", this,
+                                stats -> stats.latency(clock.getAsLong()) / 1e6)
+                        .description("Peak-EWMA latency of the instance")
+                        .baseUnit("milliseconds")
+                        .tag("service", serviceId)
+                        .tag("instance", id)
+                        .register(meterRegistry));
+                meters.add(Gauge.builder("loadbalancer.instance.outstanding", outstanding, AtomicInteger::get)
+                        .description("Requests sent to the instance and not answered yet")
+                        .tag("service", serviceId)
+                        .tag("instance", id)
+                        .register(meterRegistry));
+                meters.add(Gauge.builder("loadbalancer.instance.weight", this, PeakEwmaLoadBalancer.this::weight)
+                        .description("Share of the requests the instance would get by cost")
+                        .tag("service", serviceId)
+                        .tag("instance", id)
+                        .register(meterRegistry));
+            }
+        }
+
+        private synchronized void observe(long rttNanos, long now) {
+            double decayed = decay(now);
+            ewmaNanos = rttNanos > decayed ? rttNanos : decayed + (rttNanos - decayed) * (1 - weightOfPast(now));
+            stampNanos = now;
+        }
+
+        private synchronized double latency(long now) {
+            return decay(now);
+        }
+
+        private double cost(long now) {
+            double latency = latency(now);
+            int inFlight = outstanding.get();
+            if (latency == 0 && inFlight > 0) {
+                return UNMEASURED_PENALTY + inFlight;
+            }
+            return latency * (inFlight + 1);
+        }
+
+        private double decay(long now) {
+            return ewmaNanos * weightOfPast(now);
+        }
+
+        private double weightOfPast(long now) {
+            return Math.exp(-Math.max(0, now - stampNanos) / decayNanos);
+        }
+    }
+}
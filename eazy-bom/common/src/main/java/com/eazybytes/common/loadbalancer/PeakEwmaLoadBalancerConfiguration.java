@@ -0,0 +1,40 @@
+package com.eazybytes.common.loadbalancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Load balancer client configuration that balances with a {@link PeakEwmaLoadBalancer}. Not a
+ * {@code @Configuration}, so component scanning does not pick it up for the parent context; register it with
+ * {@code @LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)}.
+ * <p>
+ * The decay time and failure penalty can be set per client with
+ * spring.cloud.loadbalancer.peak-ewma.decay-time and failure-penalty (defaults 10s and 1s).
+ */
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    PeakEwmaLoadBalancer peakEwmaLoadBalancer(Environment environment,
+                                              LoadBalancerClientFactory loadBalancerClientFactory,
+                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new PeakEwmaLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(name, ServiceInstanceListSupplier.class), name,
+                duration(environment, "spring.cloud.loadbalancer.peak-ewma.decay-time", Duration.ofSeconds(10)),
+                duration(environment, "spring.cloud.loadbalancer.peak-ewma.failure-penalty", Duration.ofSeconds(1)),
+                meterRegistry.getIfAvailable());
+    }
+
+    // the environment of a client context has no conversion service for durations like "10s"
+    private static Duration duration(Environment environment, String key, Duration defaultValue) {
+        String value = environment.getProperty(key);
+        return value != null ? DurationStyle.detectAndParse(value) : defaultValue;
+    }
+}
@@ -0,0 +1,43 @@
+package com.eazybytes.common.persistence;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Recognises violations of a named unique constraint, so a service can insert right away and report a
+ * duplicate when the database rejects the row, instead of reading first and racing other inserts.
+ */
+public final class UniqueConstraints {
+
+    // the SQLSTATE class of integrity constraint violations
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    private UniqueConstraints() {
+        // restrict instantiation
+    }
+
+    /**
+     * Tells whether the exception was caused by a row violating the given constraint. Databases name the
+     * violated constraint, or the index backing it, in the message of the SQLException.
+     *
+     * @param exception      The exception thrown by the insert or update, e.g. a DataIntegrityViolationException.
+     * @param constraintName The name of the unique constraint, in any case.
+     * @return true if an integrity constraint violation naming the constraint is among the causes.
+     */
+    public static boolean isViolated(Throwable exception, String constraintName) {
+        String name = constraintName.toLowerCase(Locale.ROOT);
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION)
+                    && sqlException.getMessage() != null
+                    && sqlException.getMessage().toLowerCase(Locale.ROOT).contains(name)) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
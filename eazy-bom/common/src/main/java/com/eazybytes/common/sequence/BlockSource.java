@@ -0,0 +1,18 @@
+package com.eazybytes.common.sequence;
+
+/**
+ * Shared store from which each node reserves blocks of consecutive sequence values.
+ * Values inside a reserved block belong to the reserving node only, so nodes never hand out the same value.
+ */
+public interface BlockSource {
+
+    /**
+     * Reserves {@code blockSize} consecutive values of the given sequence.
+     *
+     * @param sequenceName Name of the sequence to reserve from.
+     * @param firstValue   Value the sequence starts at when it is reserved from for the first time.
+     * @param blockSize    Number of consecutive values to reserve.
+     * @return The first value of the reserved block.
+     */
+    long reserve(String sequenceName, long firstValue, int blockSize);
+}
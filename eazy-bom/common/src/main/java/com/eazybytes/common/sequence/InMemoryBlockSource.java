@@ -0,0 +1,19 @@
+package com.eazybytes.common.sequence;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BlockSource that keeps the sequences in memory. Only unique within a single JVM, so it is meant for tests
+ * and single-instance setups.
+ */
+public class InMemoryBlockSource implements BlockSource {
+
+    private final ConcurrentMap<String, AtomicLong> sequences = new ConcurrentHashMap<>();
+
+    @Override
+    public long reserve(String sequenceName, long firstValue, int blockSize) {
+        return sequences.computeIfAbsent(sequenceName, name -> new AtomicLong(firstValue)).getAndAdd(blockSize);
+    }
+}
@@ -0,0 +1,92 @@
+package com.eazybytes.common.sequence;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * BlockSource backed by a {@code number_block} table, so every node sharing the database reserves disjoint blocks.
+ * <pre>
+ * CREATE TABLE IF NOT EXISTS `number_block` (
+ *   `sequence_name` varchar(50) PRIMARY KEY,
+ *   `next_value` bigint NOT NULL
+ * );
+ * </pre>
+ * Each reservation runs in its own short transaction on a dedicated connection, independent of any
+ * transaction the caller may have open, like a database sequence.
+ */
+public class JdbcBlockSource implements BlockSource {
+
+    private static final String UPDATE = "UPDATE number_block SET next_value = next_value + ? WHERE sequence_name = ?";
+    private static final String SELECT = "SELECT next_value FROM number_block WHERE sequence_name = ?";
+    private static final String INSERT = "INSERT INTO number_block (sequence_name, next_value) VALUES (?, ?)";
+
+    private final DataSource dataSource;
+
+    public JdbcBlockSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public long reserve(String sequenceName, long firstValue, int blockSize) {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long blockEnd = advance(connection, sequenceName, blockSize);
+                if (blockEnd < 0) {
+                    blockEnd = createSequence(connection, sequenceName, firstValue, blockSize);
+                }
+                connection.commit();
+                return blockEnd - blockSize;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not reserve a block of sequence " + sequenceName, e);
+        }
+    }
+
+    /**
+     * Moves the sequence forward by one block and returns its new next value, or -1 if the sequence does not exist yet.
+     */
+    private long advance(Connection connection, String sequenceName, int blockSize) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+            update.setLong(1, blockSize);
+            update.setString(2, sequenceName);
+            if (update.executeUpdate() == 0) {
+                return -1;
+            }
+        }
+        try (PreparedStatement select = connection.prepareStatement(SELECT)) {
+            select.setString(1, sequenceName);
+            try (ResultSet resultSet = select.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private long createSequence(Connection connection, String sequenceName, long firstValue, int blockSize)
+            throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+            insert.setString(1, sequenceName);
+            insert.setLong(2, firstValue + blockSize);
+            insert.executeUpdate();
+            return firstValue + blockSize;
+        } catch (SQLException e) {
+            // another node created the row first, reserve from it instead
+            connection.rollback();
+            long blockEnd = advance(connection, sequenceName, blockSize);
+            if (blockEnd < 0) {
+                throw e;
+            }
+            return blockEnd;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.eazybytes.common.sequence;
+
+/**
+ * Luhn (mod 10) check digit calculation as used for card numbers.
+ */
+public final class LuhnCheckDigit {
+
+    private LuhnCheckDigit() {
+        // restrict instantiation
+    }
+
+    /**
+     * Computes the check digit of the given number without allocating.
+     *
+     * @param body The digits to protect, as a non-negative number.
+     * @return The check digit, between 0 and 9.
+     */
+    public static int compute(long body) {
+        int sum = 0;
+        boolean doubleDigit = true;
+        for (long remaining = body; remaining > 0; remaining /= 10) {
+            int digit = (int) (remaining % 10);
+            if (doubleDigit) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubleDigit = !doubleDigit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Appends the check digit to the given number.
+     *
+     * @param body The digits to protect, as a non-negative number.
+     * @return The body followed by its check digit.
+     */
+    public static long append(long body) {
+        return body * 10 + compute(body);
+    }
+
+    /**
+     * Verifies that the last digit of the given number is its Luhn check digit.
+     *
+     * @param number The number including its check digit.
+     * @return true if the check digit is valid, false otherwise.
+     */
+    public static boolean isValid(long number) {
+        return number >= 0 && compute(number / 10) == number % 10;
+    }
+}
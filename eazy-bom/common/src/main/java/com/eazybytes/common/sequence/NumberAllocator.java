@@ -0,0 +1,100 @@
+package com.eazybytes.common.sequence;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out unique numbers of one sequence, such as account, card or loan numbers.
+ * <p>
+ * Numbers are taken from a block reserved from a shared {@link BlockSource}. Taking a number from the current
+ * block is a single atomic increment; only the thread that exhausts a block goes to the BlockSource for the
+ * next one, while the others wait for it instead of reserving blocks of their own.
+ */
+public class NumberAllocator {
+
+    private final BlockSource blockSource;
+    private final String sequenceName;
+    private final long firstValue;
+    private final long lastValue;
+    private final int blockSize;
+    private final ReentrantLock refillLock = new ReentrantLock();
+
+    private volatile Block current = Block.EMPTY;
+
+    /**
+     * @param blockSource  Shared store the blocks are reserved from.
+     * @param sequenceName Name of the sequence inside the BlockSource.
+     * @param firstValue   First value of the sequence.
+     * @param lastValue    Last value the sequence may hand out.
+     * @param blockSize    Number of values reserved at once; larger blocks mean fewer round trips but
+     *                     bigger gaps when a node restarts.
+     */
+    public NumberAllocator(BlockSource blockSource, String sequenceName, long firstValue, long lastValue,
+                           int blockSize) {
+        if (firstValue > lastValue || blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid range or block size for sequence " + sequenceName);
+        }
+        this.blockSource = blockSource;
+        this.sequenceName = sequenceName;
+        this.firstValue = firstValue;
+        this.lastValue = lastValue;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the next number of the sequence. Numbers are unique across all allocators sharing the
+     * BlockSource, but not gap-free.
+     *
+     * @return The next number.
+     * @throws IllegalStateException if the sequence has no values left.
+     */
+    public long next() {
+        while (true) {
+            Block block = current;
+            long value = block.next.getAndIncrement();
+            if (value < block.end) {
+                return value;
+            }
+            refill(block);
+        }
+    }
+
+    /**
+     * Returns the next number of the sequence followed by its Luhn check digit.
+     *
+     * @return The next number with its check digit appended.
+     */
+    public long nextWithCheckDigit() {
+        return LuhnCheckDigit.append(next());
+    }
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            if (current != exhausted) {
+                // another thread already replaced the block
+                return;
+            }
+            long start = blockSource.reserve(sequenceName, firstValue, blockSize);
+            if (start > lastValue) {
+                throw new IllegalStateException("Sequence " + sequenceName + " is exhausted");
+            }
+            current = new Block(start, Math.min(start + blockSize, lastValue + 1));
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    private static final class Block {
+
+        private static final Block EMPTY = new Block(0, 0);
+
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
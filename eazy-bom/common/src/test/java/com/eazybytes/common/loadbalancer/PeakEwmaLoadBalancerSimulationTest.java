@@ -0,0 +1,273 @@
+package com.eazybytes.common.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the balancer against stub instances in a discrete-event simulation on a virtual clock, next to plain
+ * round robin on the same seeded arrivals and service times. Each stub instance serves a few requests at a
+ * time and queues the rest.
+ */
+class PeakEwmaLoadBalancerSimulationTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int REQUESTS = 30_000;
+
+    @Test
+    void slowInstanceGetsLittleTrafficAndTailLatencyStaysLow() {
+        // round robin sends the slow instance more than it can serve, so its queue keeps growing
+        Stub[] stubs = {new Stub("fast-1", 10), new Stub("fast-2", 10), new Stub("slow", 50)};
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        Result roundRobin = run(stubs, 300, false, null);
+        Result peakEwma = run(stubs, 300, true, meterRegistry);
+
+        assertTrue(peakEwma.share("slow") < 0.15, "slow instance share " + peakEwma.share("slow"));
+        assertTrue(peakEwma.p99 * 4 < roundRobin.p99, "p99 " + peakEwma + " vs " + roundRobin);
+        double slowWeight = meterRegistry.get("loadbalancer.instance.weight").tag("instance", "slow:80")
+                .gauge().value();
+        double fastWeight = meterRegistry.get("loadbalancer.instance.weight").tag("instance", "fast-1:80")
+                .gauge().value();
+        assertTrue(slowWeight < fastWeight, "weights " + slowWeight + " vs " + fastWeight);
+    }
+
+    @Test
+    void pausingInstanceIsAvoidedDuringPausesButNotStarved() {
+        // stops for 300ms every 2s, like a long garbage collection
+        Stub[] stubs = {new Stub("steady-1", 10), new Stub("steady-2", 10),
+                new Stub("pausing", 10).pausing(2_000, 300)};
+
+        Result roundRobin = run(stubs, 600, false, null);
+        Result peakEwma = run(stubs, 600, true, null);
+
+        assertTrue(peakEwma.p99 * 2 < roundRobin.p99, "p99 " + peakEwma + " vs " + roundRobin);
+        assertTrue(peakEwma.share("pausing") > 0.05, "pausing instance share " + peakEwma.share("pausing"));
+    }
+
+    /**
+     * Sends {@link #REQUESTS} requests arriving at the given rate to the stubs, balanced by a
+     * PeakEwmaLoadBalancer reporting to the given registry, if any, or by round robin.
+     */
+    private static Result run(Stub[] stubs, int requestsPerSecond, boolean peakEwma,
+                              SimpleMeterRegistry meterRegistry) {
+        Simulation simulation = new Simulation(stubs);
+        Balancer balancer = peakEwma ? simulation.peakEwma(meterRegistry) : simulation.roundRobin();
+        SplittableRandom random = new SplittableRandom(42);
+        long arrival = MS;
+        for (int i = 0; i < REQUESTS; i++) {
+            arrival += (long) (-Math.log(1 - random.nextDouble()) * 1e9 / requestsPerSecond);
+            long serviceTime = random.nextLong(Long.MAX_VALUE);
+            simulation.schedule(arrival, () -> simulation.send(balancer, serviceTime));
+        }
+        simulation.run();
+        return simulation.result();
+    }
+
+    private interface Balancer {
+
+        Call start();
+    }
+
+    private interface Call {
+
+        Stub stub();
+
+        void complete();
+    }
+
+    private static final class Simulation {
+
+        private final Map<String, Stub> stubs = new HashMap<>();
+        private final List<ServiceInstance> instances = new ArrayList<>();
+        private final PriorityQueue<Event> events = new PriorityQueue<>();
+        private final List<Long> latencies = new ArrayList<>();
+        private final Map<String, Integer> counts = new HashMap<>();
+        private long now;
+        private long sequence;
+
+        private Simulation(Stub[] stubs) {
+            for (Stub stub : stubs) {
+                this.stubs.put(stub.name, stub.reset());
+                instances.add(new DefaultServiceInstance(stub.name, "accounts", stub.name, 80, false));
+            }
+        }
+
+        private Balancer roundRobin() {
+            int[] next = {0};
+            return () -> {
+                Stub stub = stubs.get(instances.get(next[0]++ % instances.size()).getHost());
+                return new Call() {
+
+                    @Override
+                    public Stub stub() {
+                        return stub;
+                    }
+
+                    @Override
+                    public void complete() {
+                    }
+                };
+            };
+        }
+
+        private Balancer peakEwma(SimpleMeterRegistry meterRegistry) {
+            SplittableRandom random = new SplittableRandom(7);
+            PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(
+                    ServiceInstanceListSuppliers.toProvider("accounts", instances.toArray(ServiceInstance[]::new)),
+                    "accounts", Duration.ofSeconds(10), Duration.ofSeconds(1), meterRegistry,
+                    () -> now, () -> random);
+            return () -> {
+                Request<Object> request = new DefaultRequest<>(new RequestDataContext());
+                Response<ServiceInstance> response = loadBalancer.choose(request).block();
+                loadBalancer.onStartRequest(request, response);
+                Stub stub = stubs.get(response.getServer().getHost());
+                return new Call() {
+
+                    @Override
+                    public Stub stub() {
+                        return stub;
+                    }
+
+                    @Override
+                    public void complete() {
+                        loadBalancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request,
+                                response));
+                    }
+                };
+            };
+        }
+
+        private void schedule(long time, Runnable action) {
+            events.add(new Event(time, sequence++, action));
+        }
+
+        private void send(Balancer balancer, long serviceSeed) {
+            long sent = now;
+            Call call = balancer.start();
+            Stub stub = call.stub();
+            counts.merge(stub.name, 1, Integer::sum);
+            stub.queue.add(() -> {
+                long serviceTime = (long) (-Math.log(1 - new SplittableRandom(serviceSeed).nextDouble())
+                        * stub.meanMillis * MS);
+                schedule(stub.finishTime(now, serviceTime), () -> {
+                    latencies.add(now - sent);
+                    call.complete();
+                    stub.busy--;
+                    startNext(stub);
+                });
+            });
+            startNext(stub);
+        }
+
+        private void startNext(Stub stub) {
+            if (stub.busy < Stub.WORKERS && !stub.queue.isEmpty()) {
+                stub.busy++;
+                stub.queue.poll().run();
+            }
+        }
+
+        private void run() {
+            while (!events.isEmpty()) {
+                Event event = events.poll();
+                now = event.time;
+                event.action.run();
+            }
+        }
+
+        private Result result() {
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            return new Result(sorted[(int) (sorted.length * 0.99)] / (double) MS, counts, sorted.length);
+        }
+    }
+
+    private record Event(long time, long sequence, Runnable action) implements Comparable<Event> {
+
+        @Override
+        public int compareTo(Event other) {
+            return time != other.time ? Long.compare(time, other.time) : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private static final class Stub {
+
+        private static final int WORKERS = 4;
+
+        private final String name;
+        private final int meanMillis;
+        private final Queue<Runnable> queue = new ArrayDeque<>();
+        private long pausePeriod = Long.MAX_VALUE;
+        private long pauseLength;
+        private int busy;
+
+        private Stub(String name, int meanMillis) {
+            this.name = name;
+            this.meanMillis = meanMillis;
+        }
+
+        private Stub pausing(long periodMillis, long lengthMillis) {
+            this.pausePeriod = periodMillis * MS;
+            this.pauseLength = lengthMillis * MS;
+            return this;
+        }
+
+        private Stub reset() {
+            queue.clear();
+            busy = 0;
+            return this;
+        }
+
+        /**
+         * @return The time a request started at start finishes after the given time of work, which stands still
+         * during pauses.
+         */
+        private long finishTime(long start, long work) {
+            long time = start;
+            while (true) {
+                long pauseStart = time / pausePeriod * pausePeriod + pausePeriod - pauseLength;
+                if (time >= pauseStart) {
+                    time = pauseStart + pauseLength;
+                    continue;
+                }
+                if (time + work <= pauseStart) {
+                    return time + work;
+                }
+                work -= pauseStart - time;
+                time = pauseStart;
+            }
+        }
+    }
+
+    private record Result(double p99, Map<String, Integer> counts, int requests) {
+
+        private double share(String stub) {
+            return counts.getOrDefault(stub, 0) / (double) requests;
+        }
+
+        @Override
+        public String toString() {
+            return p99 + "ms " + Arrays.toString(counts.entrySet().toArray());
+        }
+    }
+}
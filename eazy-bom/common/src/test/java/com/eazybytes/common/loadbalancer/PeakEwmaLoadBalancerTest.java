@@ -0,0 +1,95 @@
+package com.eazybytes.common.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Feeds the balancer instance lists the way the caching supplier does, as a new list on every call.
+ */
+class PeakEwmaLoadBalancerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ServiceInstance first = instance("first");
+    private final ServiceInstance second = instance("second");
+    private final ServiceInstance third = instance("third");
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubSupplier supplier = new StubSupplier();
+    private long now = MS;
+
+    private final PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(new SimpleObjectProvider<>(supplier),
+            "accounts", Duration.ofSeconds(10), Duration.ofSeconds(1), meterRegistry, () -> now,
+            () -> new SplittableRandom(7));
+
+    @Test
+    void newListWithTheSameMembersKeepsTheLatencies() {
+        supplier.instances = List.of(first, second);
+        sample(first, 20 * MS);
+
+        supplier.instances = List.of(second, first);
+        loadBalancer.choose(new DefaultRequest<>(new RequestDataContext())).block();
+
+        assertEquals(20 * MS, loadBalancer.latencyNanos(first), MS);
+    }
+
+    @Test
+    void instanceReplacedByAnotherIsForgotten() {
+        supplier.instances = List.of(first, second);
+        sample(second, 20 * MS);
+
+        // the same number of instances, but the second one left
+        supplier.instances = List.of(first, third);
+        loadBalancer.choose(new DefaultRequest<>(new RequestDataContext())).block();
+
+        assertNull(meterRegistry.find("loadbalancer.instance.latency").tag("instance", "second:80").gauge());
+        assertEquals(0, loadBalancer.latencyNanos(second));
+    }
+
+    private void sample(ServiceInstance instance, long latencyNanos) {
+        loadBalancer.choose(new DefaultRequest<>(new RequestDataContext())).block();
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext());
+        Response<ServiceInstance> response = new DefaultResponse(instance);
+        loadBalancer.onStartRequest(request, response);
+        now += latencyNanos;
+        loadBalancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, response));
+    }
+
+    private static ServiceInstance instance(String host) {
+        return new DefaultServiceInstance(host, "accounts", host, 80, false);
+    }
+
+    private static final class StubSupplier implements ServiceInstanceListSupplier {
+
+        private List<ServiceInstance> instances = List.of();
+
+        @Override
+        public String getServiceId() {
+            return "accounts";
+        }
+
+        @Override
+        public Flux<List<ServiceInstance>> get() {
+            return Flux.just(new ArrayList<>(instances));
+        }
+    }
+}
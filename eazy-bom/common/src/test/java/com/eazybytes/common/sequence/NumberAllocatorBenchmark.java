@@ -0,0 +1,61 @@
+package com.eazybytes.common.sequence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the block based NumberAllocator with the {@code new Random()} per call approach it replaces.
+ * Run with {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-cp %classpath com.eazybytes.common.sequence.NumberAllocatorBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class NumberAllocatorBenchmark {
+
+    private NumberAllocator allocator;
+
+    @Setup
+    public void setUp() {
+        allocator = new NumberAllocator(new InMemoryBlockSource(), "account_number",
+                1_000_000_000L, Long.MAX_VALUE / 10, 10_000);
+    }
+
+    @Benchmark
+    public long newRandomPerCall() {
+        return 1000000000L + new Random().nextInt(900000000);
+    }
+
+    @Benchmark
+    public long allocator() {
+        return allocator.next();
+    }
+
+    @Benchmark
+    public long allocatorWithCheckDigit() {
+        return allocator.nextWithCheckDigit();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NumberAllocatorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
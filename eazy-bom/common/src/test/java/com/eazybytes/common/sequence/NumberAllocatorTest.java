@@ -0,0 +1,111 @@
+package com.eazybytes.common.sequence;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NumberAllocatorTest {
+
+    private static final long FIRST = 1_000_000_000L;
+
+    @Test
+    void allocatesMillionsOfUniqueNumbersAcrossThreads() throws Exception {
+        NumberAllocator allocator = new NumberAllocator(new InMemoryBlockSource(), "account_number",
+                FIRST, 1_999_999_999L, 1_000);
+
+        assertUnique(allocate(List.of(allocator), 8, 500_000));
+    }
+
+    @Test
+    void nodesSharingADatabaseNeverOverlap() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:number_block;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS number_block (sequence_name varchar(50) PRIMARY KEY, " +
+                    "next_value bigint NOT NULL)");
+        }
+        BlockSource blockSource = new JdbcBlockSource(dataSource);
+        List<NumberAllocator> nodes = IntStream.range(0, 4)
+                .mapToObj(i -> new NumberAllocator(blockSource, "account_number", FIRST, 1_999_999_999L, 500))
+                .toList();
+
+        assertUnique(allocate(nodes, 8, 100_000));
+    }
+
+    @Test
+    void appendsAValidLuhnCheckDigit() {
+        NumberAllocator allocator = new NumberAllocator(new InMemoryBlockSource(), "card_number",
+                10_000_000_000L, 99_999_999_999L, 100);
+        for (int i = 0; i < 10_000; i++) {
+            long cardNumber = allocator.nextWithCheckDigit();
+            assertEquals(12, Long.toString(cardNumber).length());
+            assertTrue(LuhnCheckDigit.isValid(cardNumber));
+            assertFalse(LuhnCheckDigit.isValid(cardNumber % 10 == 9 ? cardNumber - 1 : cardNumber + 1));
+        }
+        assertTrue(LuhnCheckDigit.isValid(79927398713L));
+    }
+
+    @Test
+    void failsOnceTheRangeIsExhausted() {
+        NumberAllocator allocator = new NumberAllocator(new InMemoryBlockSource(), "tiny", 1, 10, 4);
+        for (int i = 0; i < 10; i++) {
+            allocator.next();
+        }
+        assertThrows(IllegalStateException.class, allocator::next);
+    }
+
+    /**
+     * Runs the given number of threads, spread over the allocators, each taking perThread numbers.
+     */
+    private long[][] allocate(List<NumberAllocator> allocators, int threads, int perThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<long[]>> tasks = IntStream.range(0, threads)
+                    .<Callable<long[]>>mapToObj(t -> () -> {
+                        NumberAllocator allocator = allocators.get(t % allocators.size());
+                        long[] values = new long[perThread];
+                        for (int i = 0; i < perThread; i++) {
+                            values[i] = allocator.next();
+                        }
+                        return values;
+                    })
+                    .toList();
+            List<Future<long[]>> futures = executor.invokeAll(tasks);
+            long[][] results = new long[threads][];
+            for (int t = 0; t < threads; t++) {
+                results[t] = futures.get(t).get();
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertUnique(long[][] results) {
+        BitSet seen = new BitSet();
+        int total = 0;
+        for (long[] values : results) {
+            for (long value : values) {
+                int offset = Math.toIntExact(value - FIRST);
+                assertFalse(seen.get(offset), "duplicate number " + value);
+                seen.set(offset);
+                total++;
+            }
+        }
+        assertEquals(total, seen.cardinality());
+    }
+}
@@ -1,24 +1,40 @@
 package com.eazybytes.gatewayserver;
 
+import com.eazybytes.common.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import com.eazybytes.gatewayserver.concurrency.Priority;
+import com.eazybytes.gatewayserver.config.ConcurrencyLimitProperties;
+import com.eazybytes.gatewayserver.config.HttpClientPoolProperties;
+import com.eazybytes.gatewayserver.config.JwtProperties;
+import com.eazybytes.gatewayserver.config.RateLimiterProperties;
+import com.eazybytes.gatewayserver.config.ResponseCacheProperties;
+import com.eazybytes.gatewayserver.filters.CoalesceRequestsGatewayFilterFactory;
+import com.eazybytes.gatewayserver.filters.ConcurrencyLimitGatewayFilterFactory;
+import com.eazybytes.gatewayserver.filters.HedgeGatewayFilterFactory;
+import com.eazybytes.gatewayserver.filters.ResponseCacheGatewayFilterFactory;
+import com.eazybytes.gatewayserver.ratelimit.LocalRateLimiter;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.timelimiter.TimeLimiterConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
 import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
 import org.springframework.cloud.client.circuitbreaker.Customizer;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
-import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
+import java.util.List;
 
 @SpringBootApplication
+@EnableConfigurationProperties({RateLimiterProperties.class, JwtProperties.class, ResponseCacheProperties.class,
+		ConcurrencyLimitProperties.class, HttpClientPoolProperties.class})
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
 public class GatewayserverApplication {
 
 	public static void main(String[] args) {
@@ -26,29 +42,55 @@ public class GatewayserverApplication {
 	}
 
 	@Bean
-	public RouteLocator eazyBankRouteConfig(RouteLocatorBuilder routeLocatorBuilder) {
+	public RouteLocator eazyBankRouteConfig(RouteLocatorBuilder routeLocatorBuilder, LocalRateLimiter localRateLimiter,
+											ResponseCacheGatewayFilterFactory responseCache,
+											CoalesceRequestsGatewayFilterFactory coalesceRequests,
+											ConcurrencyLimitGatewayFilterFactory concurrencyLimit,
+											HedgeGatewayFilterFactory hedge,
+											ResponseCacheProperties responseCacheProperties) {
+		Duration infoEndpointsTtl = responseCacheProperties.getInfoEndpointsTtl();
 		return routeLocatorBuilder.routes()
-				.route(p -> p.path("/eazybank/accounts/**")
-						.filters( f -> f.rewritePath("/eazybank/accounts/(?<segment>.*)","/${segment}")
-								.addResponseHeader("X-Response-Time", LocalDateTime.now().toString())
+				.route("accounts", p -> p.path("/eazybank/accounts/**")
+						.filters( f -> f.filter(responseCache.apply(infoEndpointsCache(infoEndpointsTtl)))
+								.filter(coalesceRequests.apply(new CoalesceRequestsGatewayFilterFactory.Config()
+										.setPaths(List.of("/eazybank/accounts/api/fetchCustomerDetails"))))
+								.filter(concurrencyLimit.apply(new ConcurrencyLimitGatewayFilterFactory.Config()))
+								.rewritePath("/eazybank/accounts/(?<segment>.*)","/${segment}")
 								.circuitBreaker(config -> config.setName("accountsCircuitBreaker")
 										.setFallbackUri("forward:/contactSupport")))
 						.uri("lb://ACCOUNTS"))
-				.route(p -> p.path("/eazybank/loans/**")
-						.filters( f -> f.rewritePath("/eazybank/loans/(?<segment>.*)","/${segment}")
-								.addResponseHeader("X-Response-Time", LocalDateTime.now().toString())
+				.route("loans", p -> p.path("/eazybank/loans/**")
+						.filters( f -> f.filter(responseCache.apply(infoEndpointsCache(infoEndpointsTtl)))
+								.filter(concurrencyLimit.apply(new ConcurrencyLimitGatewayFilterFactory.Config()
+										.setWritePriority(Priority.SHEDDABLE)))
+								.rewritePath("/eazybank/loans/(?<segment>.*)","/${segment}")
 								.retry(retryConfig -> retryConfig.setRetries(3)
 										.setMethods(HttpMethod.GET)
-										.setBackoff(Duration.ofMillis(100), Duration.ofMillis(1000), 2, true)))
+										.setBackoff(Duration.ofMillis(100), Duration.ofMillis(1000), 2, true))
+								.filter(hedge.apply(new HedgeGatewayFilterFactory.Config())))
 						.uri("lb://LOANS"))
-				.route(p -> p.path("/eazybank/cards/**")
-						.filters( f -> f.rewritePath("/eazybank/cards/(?<segment>.*)","/${segment}")
-								.addResponseHeader("X-Response-Time", LocalDateTime.now().toString())
-								.requestRateLimiter(config -> config.setRateLimiter(redisRateLimiter())
-										.setKeyResolver(userKeyResolver())))
+				.route("cards", p -> p.path("/eazybank/cards/**")
+						.filters( f -> f.filter(responseCache.apply(infoEndpointsCache(infoEndpointsTtl)))
+								.rewritePath("/eazybank/cards/(?<segment>.*)","/${segment}")
+								.requestRateLimiter(config -> config.setRateLimiter(localRateLimiter)
+										.setKeyResolver(userKeyResolver()))
+								.filter(concurrencyLimit.apply(new ConcurrencyLimitGatewayFilterFactory.Config()
+										.setReadPriority(Priority.CRITICAL))))
 						.uri("lb://CARDS")).build();
 	}
 
+	/**
+	 * The contact-info, build-info and java-version endpoints of the services only change with their
+	 * configuration, so their GET responses are cached by the gateway. A configuration refresh of a service
+	 * does not reach the gateway, so gateway.response-cache.info-endpoints-ttl bounds how long they stay stale.
+	 */
+	private ResponseCacheGatewayFilterFactory.Config infoEndpointsCache(Duration ttl) {
+		return new ResponseCacheGatewayFilterFactory.Config()
+				.setPaths(List.of("/eazybank/*/api/contact-info", "/eazybank/*/api/build-info",
+						"/eazybank/*/api/java-version"))
+				.setTtl(ttl);
+	}
+
     /**
      * Provides a default configuration for the ReactiveResilience4JCircuitBreakerFactory.
      * <p>
@@ -66,22 +108,10 @@ public class GatewayserverApplication {
 				.timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(4)).build()).build());
 	}
 
-    /**
-     * Creates a RedisRateLimiter bean with specified configuration.
-     * The rate limiter is configured to allow one request per second with a burst capacity of one.
-     *
-     * @return a RedisRateLimiter instance configured for rate limiting.
-     */
-    @Bean
-    public RedisRateLimiter redisRateLimiter() {
-        return new RedisRateLimiter(1, 1, 1);
-    }
-
-
 	/**
 	 * A KeyResolver that returns the value of the "user" header if it is present,
 	 * otherwise returns "anonymous". This is used to determine the rate limiter
-	 * key for the {@link RedisRateLimiter}.
+	 * key for the {@link LocalRateLimiter}.
 	 * @return a KeyResolver that resolves to the value of the "user" header or
 	 *         "anonymous" if the header is not present.
 	 */
@@ -0,0 +1,106 @@
+package com.eazybytes.gatewayserver.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * A cached 200 response: its body, the entity headers worth replaying and a strong ETag.
+ * <p>
+ * Only entity headers are kept. Headers that belong to the exchange, such as the correlation id or the
+ * rate limit headers, are written again for every request by the gateway filters.
+ */
+public final class CachedResponse {
+
+    private static final List<String> ENTITY_HEADERS = List.of(HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_LANGUAGE, HttpHeaders.LAST_MODIFIED, HttpHeaders.VARY,
+            HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL);
+
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final String etag;
+    private final long ttlNanos;
+
+    private CachedResponse(HttpHeaders headers, byte[] body, String etag, long ttlNanos) {
+        this.headers = headers;
+        this.body = body;
+        this.etag = etag;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * @param responseHeaders Headers of the downstream response; its ETag is kept if it has one.
+     * @param body            Complete response body.
+     * @param ttlNanos        How long the response may be served from the cache.
+     */
+    public static CachedResponse of(HttpHeaders responseHeaders, byte[] body, long ttlNanos) {
+        String etag = responseHeaders.getETag();
+        return new CachedResponse(entityHeaders(responseHeaders), body, etag != null ? etag : strongEtag(body),
+                ttlNanos);
+    }
+
+    /**
+     * @return A read-only copy of the entity headers of a downstream response, the ones that can be replayed
+     * on a response to another request.
+     */
+    public static HttpHeaders entityHeaders(HttpHeaders responseHeaders) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : ENTITY_HEADERS) {
+            List<String> values = responseHeaders.get(name);
+            if (values != null) {
+                headers.put(name, values);
+            }
+        }
+        return HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    /**
+     * @return true if an If-None-Match header value names this response's ETag, weakly compared as RFC 9110
+     * requires for If-None-Match.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaqueTag(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    long getTtlNanos() {
+        return ttlNanos;
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static String strongEtag(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
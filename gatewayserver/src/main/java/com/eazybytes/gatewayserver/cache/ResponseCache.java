@@ -0,0 +1,158 @@
+package com.eazybytes.gatewayserver.cache;
+
+import com.eazybytes.gatewayserver.config.ResponseCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the GET responses cached by the ResponseCache route filter, for all routes together.
+ * <p>
+ * The cache is bounded by the total size of the cached bodies and evicts the least recently used responses
+ * beyond it; each response expires after the time to live of its route. Everything is dropped when the
+ * gateway's own configuration is refreshed. A refresh of a downstream service's configuration is not seen
+ * by the gateway, as there is no bus between them, so the time to live of a route is the only bound on how
+ * long a response from before such a refresh is served.
+ * <p>
+ * Reports gateway.response.cache.requests per route and result (hit, not_modified, miss) for the hit rate,
+ * and gateway.response.cache.saved for the body bytes served without calling the downstream service.
+ */
+@Component
+public class ResponseCache {
+
+    public static final String CACHE_NAME = "gatewayResponses";
+
+    private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+    /**
+     * Rough per-entry overhead of the key, headers and cache bookkeeping, in bytes.
+     */
+    private static final int ENTRY_OVERHEAD = 512;
+
+    private final Cache<String, CachedResponse> cache;
+    private final long maxEntrySize;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, RouteMeters> routeMeters = new ConcurrentHashMap<>();
+
+    public ResponseCache(ResponseCacheProperties responseCacheProperties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(responseCacheProperties.getMaxSize().toBytes())
+                .weigher((String key, CachedResponse response) ->
+                        response.getBody().length + key.length() * 2 + ENTRY_OVERHEAD)
+                .expireAfter(new RouteTtlExpiry())
+                .recordStats()
+                .build();
+        this.maxEntrySize = responseCacheProperties.getMaxEntrySize().toBytes();
+        this.meterRegistry = meterRegistry;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Caches a response unless its body is larger than the maximum entry size.
+     *
+     * @return true if the response was cached.
+     */
+    public boolean put(String key, CachedResponse response) {
+        if (response.getBody().length > maxEntrySize) {
+            return false;
+        }
+        cache.put(key, response);
+        return true;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onConfigRefresh() {
+        log.debug("Configuration refreshed, dropping {} cached responses", cache.estimatedSize());
+        invalidateAll();
+    }
+
+    public void recordHit(String routeId, int bodyBytes) {
+        RouteMeters meters = meters(routeId);
+        meters.hits.increment();
+        meters.savedBytes.increment(bodyBytes);
+    }
+
+    public void recordNotModified(String routeId, int bodyBytes) {
+        RouteMeters meters = meters(routeId);
+        meters.notModified.increment();
+        meters.savedBytes.increment(bodyBytes);
+    }
+
+    public void recordMiss(String routeId) {
+        meters(routeId).misses.increment();
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private RouteMeters meters(String routeId) {
+        RouteMeters meters = routeMeters.get(routeId);
+        return meters != null ? meters : routeMeters.computeIfAbsent(routeId, RouteMeters::new);
+    }
+
+    private final class RouteMeters {
+
+        private final Counter hits;
+        private final Counter notModified;
+        private final Counter misses;
+        private final Counter savedBytes;
+
+        private RouteMeters(String routeId) {
+            this.hits = requests(routeId, "hit");
+            this.notModified = requests(routeId, "not_modified");
+            this.misses = requests(routeId, "miss");
+            this.savedBytes = Counter.builder("gateway.response.cache.saved")
+                    .description("Response body bytes served from the gateway cache instead of the downstream service")
+                    .baseUnit("bytes")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+
+        private Counter requests(String routeId, String result) {
+            return Counter.builder("gateway.response.cache.requests")
+                    .description("Cacheable GET requests by cache result")
+                    .tag("route", routeId)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static final class RouteTtlExpiry implements Expiry<String, CachedResponse> {
+
+        @Override
+        public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+            return value.getTtlNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return value.getTtlNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.eazybytes.gatewayserver.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Limits the requests in flight to one backend to an adaptive limit (see {@link GradientLimit}).
+ * <p>
+ * A request is let through with a {@link Permit} as long as the requests in flight stay below the share of
+ * the limit its {@link Priority} may use, and rejected right away otherwise, so excess requests fail fast
+ * instead of queueing in the backend. The permit reports the round trip time of the request back to the
+ * limit when it is released.
+ */
+public class ConcurrencyLimiter {
+
+    private final GradientLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public ConcurrencyLimiter(Config config) {
+        this.limit = new GradientLimit(config);
+    }
+
+    /**
+     * @return A permit that must be released once the request is done, or null if the request is rejected.
+     */
+    public Permit tryAcquire(Priority priority) {
+        int threshold = priority.threshold(limit.limit());
+        while (true) {
+            int current = inFlight.get();
+            if (current >= threshold) {
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    public int limit() {
+        return limit.limit();
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * One request in flight. Only the first release of a permit counts.
+     */
+    public final class Permit {
+
+        private static final AtomicIntegerFieldUpdater<Permit> RELEASED =
+                AtomicIntegerFieldUpdater.newUpdater(Permit.class, "released");
+
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+        private volatile int released;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Releases the permit of a request the backend answered, in time and without reporting overload.
+         */
+        public void success() {
+            if (release()) {
+                limit.onSample(System.nanoTime() - startNanos, inFlightAtStart, false);
+            }
+        }
+
+        /**
+         * Releases the permit of a request that timed out or that the backend rejected as overloaded.
+         */
+        public void dropped() {
+            if (release()) {
+                limit.onSample(System.nanoTime() - startNanos, inFlightAtStart, true);
+            }
+        }
+
+        /**
+         * Releases the permit without a sample, e.g. when the client went away or the request failed for
+         * reasons that say nothing about the load of the backend.
+         */
+        public void ignore() {
+            release();
+        }
+
+        private boolean release() {
+            if (RELEASED.compareAndSet(this, 0, 1)) {
+                inFlight.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Settings of the limit of one route.
+     */
+    public static class Config {
+
+        /**
+         * Limit used until round trip times have been measured.
+         */
+        private int initialLimit = 20;
+
+        /**
+         * The limit never drops below this many requests in flight.
+         */
+        private int minLimit = 4;
+
+        /**
+         * The limit never grows above this many requests in flight.
+         */
+        private int maxLimit = 200;
+
+        /**
+         * How much slower than the lowest recent round trip time a request may be before the limit shrinks,
+         * e.g. 1.5 for 50% slower.
+         */
+        private double rttTolerance = 1.5;
+
+        /**
+         * Weight of each sample in the limit, between 0 and 1.
+         */
+        private double smoothing = 0.2;
+
+        /**
+         * Number of samples after which the lowest round trip time of the window before is forgotten.
+         */
+        private int rttWindow = 1000;
+
+        /**
+         * Factor the limit is multiplied with after a timeout or an overload response.
+         */
+        private double backoffRatio = 0.9;
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public Config setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public Config setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public Config setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        public double getRttTolerance() {
+            return rttTolerance;
+        }
+
+        public Config setRttTolerance(double rttTolerance) {
+            this.rttTolerance = rttTolerance;
+            return this;
+        }
+
+        public double getSmoothing() {
+            return smoothing;
+        }
+
+        public Config setSmoothing(double smoothing) {
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        public int getRttWindow() {
+            return rttWindow;
+        }
+
+        public Config setRttWindow(int rttWindow) {
+            this.rttWindow = rttWindow;
+            return this;
+        }
+
+        public double getBackoffRatio() {
+            return backoffRatio;
+        }
+
+        public Config setBackoffRatio(double backoffRatio) {
+            this.backoffRatio = backoffRatio;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Config{initialLimit=" + initialLimit + ", minLimit=" + minLimit + ", maxLimit=" + maxLimit
+                    + ", rttTolerance=" + rttTolerance + ", smoothing=" + smoothing + ", rttWindow=" + rttWindow
+                    + ", backoffRatio=" + backoffRatio + "}";
+        }
+    }
+}
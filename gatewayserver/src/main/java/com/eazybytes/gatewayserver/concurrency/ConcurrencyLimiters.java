@@ -0,0 +1,81 @@
+package com.eazybytes.gatewayserver.concurrency;
+
+import com.eazybytes.gatewayserver.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the {@link ConcurrencyLimiter} of every route, created on first use from the route's settings.
+ * <p>
+ * Reports gateway.concurrency.limit and gateway.concurrency.inflight per route, and
+ * gateway.concurrency.rejected per route and priority.
+ */
+@Component
+public class ConcurrencyLimiters {
+
+    private final ConcurrencyLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, RouteLimiter> routes = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiters(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @return A permit for a request of the route, or null if the request has to be rejected.
+     */
+    public ConcurrencyLimiter.Permit tryAcquire(String routeId, Priority priority) {
+        RouteLimiter route = routes.get(routeId);
+        if (route == null) {
+            route = routes.computeIfAbsent(routeId, this::newRoute);
+        }
+        ConcurrencyLimiter.Permit permit = route.limiter.tryAcquire(priority);
+        if (permit == null) {
+            route.rejected.get(priority).increment();
+        }
+        return permit;
+    }
+
+    public ConcurrencyLimiter limiter(String routeId) {
+        RouteLimiter route = routes.get(routeId);
+        return route != null ? route.limiter : null;
+    }
+
+    private RouteLimiter newRoute(String routeId) {
+        return new RouteLimiter(routeId,
+                new ConcurrencyLimiter(properties.getRoutes().getOrDefault(routeId, properties.getDefaultLimit())));
+    }
+
+    private final class RouteLimiter {
+
+        private final ConcurrencyLimiter limiter;
+        private final Map<Priority, Counter> rejected = new EnumMap<>(Priority.class);
+
+        private RouteLimiter(String routeId, ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+            Gauge.builder("gateway.concurrency.limit", limiter, ConcurrencyLimiter::limit)
+                    .description("Requests the route may currently have in flight")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.concurrency.inflight", limiter, ConcurrencyLimiter::inFlight)
+                    .description("Requests of the route in flight")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            for (Priority priority : Priority.values()) {
+                rejected.put(priority, Counter.builder("gateway.concurrency.rejected")
+                        .description("Requests rejected because the route was at its concurrency limit")
+                        .tag("route", routeId)
+                        .tag("priority", priority.name().toLowerCase())
+                        .register(meterRegistry));
+            }
+        }
+    }
+}
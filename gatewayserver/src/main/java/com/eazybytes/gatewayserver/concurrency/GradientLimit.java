@@ -0,0 +1,82 @@
+package com.eazybytes.gatewayserver.concurrency;
+
+/**
+ * Concurrency limit that follows the round trip times of a backend (the gradient algorithm of Netflix's
+ * concurrency-limits).
+ * <p>
+ * The lowest round trip time seen recently stands for the latency of the backend when nothing queues in front
+ * of it. Each sample is compared with it: while requests are about as fast, the limit grows by a small
+ * headroom; once they take longer than the tolerance allows, they are queueing in the backend and the limit
+ * shrinks in proportion, by at most half per sample. Timeouts and overload responses shrink the limit by the
+ * backoff ratio. The lowest round trip time is forgotten after two windows of samples, so that the limit
+ * follows a backend that became slower for good. The limit only grows while at least half of it is used, so
+ * that a quiet period does not leave it far above what the backend was ever seen to handle.
+ * <p>
+ * Samples are applied one at a time under the lock of the limit; reading the limit is lock-free.
+ */
+final class GradientLimit {
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final double backoffRatio;
+    private final int rttWindow;
+
+    private double estimatedLimit;
+    private long windowMinRttNanos = Long.MAX_VALUE;
+    private long previousMinRttNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private volatile int limit;
+
+    GradientLimit(ConcurrencyLimiter.Config config) {
+        if (config.getMinLimit() < 1 || config.getMaxLimit() < config.getMinLimit()
+                || config.getInitialLimit() < config.getMinLimit() || config.getInitialLimit() > config.getMaxLimit()
+                || config.getRttTolerance() < 1 || config.getRttWindow() < 1) {
+            throw new IllegalArgumentException("Invalid concurrency limit: " + config);
+        }
+        this.minLimit = config.getMinLimit();
+        this.maxLimit = config.getMaxLimit();
+        this.rttTolerance = config.getRttTolerance();
+        this.smoothing = config.getSmoothing();
+        this.backoffRatio = config.getBackoffRatio();
+        this.rttWindow = config.getRttWindow();
+        this.estimatedLimit = config.getInitialLimit();
+        this.limit = config.getInitialLimit();
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    /**
+     * @param rttNanos Time the request took.
+     * @param inFlight Requests in flight when it was let through, itself included.
+     * @param dropped  Whether the request timed out or the backend reported overload.
+     */
+    synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            update(estimatedLimit * backoffRatio);
+            return;
+        }
+        long rtt = Math.max(1, rttNanos);
+        windowMinRttNanos = Math.min(windowMinRttNanos, rtt);
+        if (++windowSamples >= rttWindow) {
+            previousMinRttNanos = windowMinRttNanos;
+            windowMinRttNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+        if (inFlight < estimatedLimit / 2) {
+            return;
+        }
+        double noLoadRtt = Math.min(Math.min(windowMinRttNanos, previousMinRttNanos), rtt);
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * noLoadRtt / rtt));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        update(estimatedLimit * (1 - smoothing) + target * smoothing);
+    }
+
+    private void update(double newLimit) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
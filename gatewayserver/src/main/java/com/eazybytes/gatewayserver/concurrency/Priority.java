@@ -0,0 +1,38 @@
+package com.eazybytes.gatewayserver.concurrency;
+
+/**
+ * How early requests are shed when a route approaches its concurrency limit.
+ * <p>
+ * Each priority may only use a share of the limit: once the requests in flight reach that share, new
+ * requests of the priority are rejected while those of higher priorities are still let through.
+ */
+public enum Priority {
+
+    /**
+     * May use the whole limit, e.g. reads the clients cannot do without.
+     */
+    CRITICAL(1.0),
+
+    /**
+     * May use 90% of the limit.
+     */
+    NORMAL(0.9),
+
+    /**
+     * May use 70% of the limit, e.g. writes that clients can retry later.
+     */
+    SHEDDABLE(0.7);
+
+    private final double share;
+
+    Priority(double share) {
+        this.share = share;
+    }
+
+    /**
+     * @return The number of requests in flight at which requests of this priority are rejected.
+     */
+    int threshold(int limit) {
+        return Math.max(1, (int) (limit * share));
+    }
+}
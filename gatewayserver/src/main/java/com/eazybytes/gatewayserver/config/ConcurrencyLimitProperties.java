@@ -0,0 +1,54 @@
+package com.eazybytes.gatewayserver.config;
+
+import com.eazybytes.gatewayserver.concurrency.ConcurrencyLimiter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for the adaptive concurrency limits used by the ConcurrencyLimit route filter.
+ */
+@ConfigurationProperties(prefix = "gateway.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    /**
+     * Limit settings of routes without an entry in routes.
+     */
+    private ConcurrencyLimiter.Config defaultLimit = new ConcurrencyLimiter.Config();
+
+    /**
+     * Limit settings per route id.
+     */
+    private Map<String, ConcurrencyLimiter.Config> routes = new LinkedHashMap<>();
+
+    /**
+     * Value of the Retry-After header of rejected requests, rounded up to whole seconds.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    public ConcurrencyLimiter.Config getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(ConcurrencyLimiter.Config defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public Map<String, ConcurrencyLimiter.Config> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, ConcurrencyLimiter.Config> routes) {
+        this.routes = routes;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+}
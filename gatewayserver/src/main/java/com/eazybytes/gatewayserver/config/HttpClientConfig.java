@@ -0,0 +1,52 @@
+package com.eazybytes.gatewayserver.config;
+
+import com.eazybytes.gatewayserver.filters.RouteHttpClientRoutingFilter;
+import com.eazybytes.gatewayserver.httpclient.ConnectionLeakDetector;
+import com.eazybytes.gatewayserver.httpclient.RouteHttpClients;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+@Configuration
+public class HttpClientConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.httpclient.leak-detection", name = "enabled", matchIfMissing = true)
+    public ConnectionLeakDetector connectionLeakDetector(HttpClientPoolProperties httpClientPoolProperties,
+                                                         MeterRegistry meterRegistry) {
+        HttpClientPoolProperties.LeakDetection leakDetection = httpClientPoolProperties.getLeakDetection();
+        return new ConnectionLeakDetector(leakDetection.getThreshold(), leakDetection.getSweepInterval(),
+                meterRegistry);
+    }
+
+    @Bean
+    public RouteHttpClients routeHttpClients(HttpClientPoolProperties httpClientPoolProperties,
+                                             HttpClientProperties httpClientProperties,
+                                             ServerProperties serverProperties, HttpClientSslConfigurer sslConfigurer,
+                                             ObjectProvider<HttpClientCustomizer> customizers,
+                                             ObjectProvider<ConnectionLeakDetector> connectionLeakDetector) {
+        return new RouteHttpClients(httpClientPoolProperties, httpClientProperties, serverProperties, sslConfigurer,
+                customizers.orderedStream().toList(), connectionLeakDetector.getIfAvailable());
+    }
+
+    /**
+     * Takes the place of the gateway's NettyRoutingFilter, which application.yml switches off.
+     */
+    @Bean
+    public RouteHttpClientRoutingFilter routeHttpClientRoutingFilter(RouteHttpClients routeHttpClients,
+                                                                     HttpClient httpClient,
+                                                                     ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                                                     HttpClientProperties httpClientProperties) {
+        return new RouteHttpClientRoutingFilter(routeHttpClients, httpClient, headersFilters, httpClientProperties);
+    }
+}
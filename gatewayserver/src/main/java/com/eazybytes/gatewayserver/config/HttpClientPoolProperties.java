@@ -0,0 +1,94 @@
+package com.eazybytes.gatewayserver.config;
+
+import com.eazybytes.gatewayserver.httpclient.RouteHttpClients;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for the upstream connection pools of the routes and their leak detection.
+ */
+@ConfigurationProperties(prefix = "gateway.httpclient")
+public class HttpClientPoolProperties {
+
+    /**
+     * Pool settings of routes without an entry in routes.
+     */
+    private RouteHttpClients.Pool defaultPool = new RouteHttpClients.Pool();
+
+    /**
+     * Pool settings per route id.
+     */
+    private Map<String, RouteHttpClients.Pool> routes = new LinkedHashMap<>();
+
+    private LeakDetection leakDetection = new LeakDetection();
+
+    public RouteHttpClients.Pool getDefaultPool() {
+        return defaultPool;
+    }
+
+    public void setDefaultPool(RouteHttpClients.Pool defaultPool) {
+        this.defaultPool = defaultPool;
+    }
+
+    public Map<String, RouteHttpClients.Pool> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, RouteHttpClients.Pool> routes) {
+        this.routes = routes;
+    }
+
+    public LeakDetection getLeakDetection() {
+        return leakDetection;
+    }
+
+    public void setLeakDetection(LeakDetection leakDetection) {
+        this.leakDetection = leakDetection;
+    }
+
+    public static class LeakDetection {
+
+        /**
+         * Whether upstream connections held too long are reported.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Time a route may hold a connection before it is reported as leaked. Well above the response
+         * timeout, so only connections whose response nobody finishes reading are reported.
+         */
+        private Duration threshold = Duration.ofMinutes(1);
+
+        /**
+         * Interval between two checks of the held connections.
+         */
+        private Duration sweepInterval = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(Duration threshold) {
+            this.threshold = threshold;
+        }
+
+        public Duration getSweepInterval() {
+            return sweepInterval;
+        }
+
+        public void setSweepInterval(Duration sweepInterval) {
+            this.sweepInterval = sweepInterval;
+        }
+    }
+}
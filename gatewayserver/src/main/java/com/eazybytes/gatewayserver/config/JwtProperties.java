@@ -0,0 +1,64 @@
+package com.eazybytes.gatewayserver.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for verifying bearer tokens: the cache of verified tokens and the refresh of the signing keys.
+ */
+@ConfigurationProperties(prefix = "gateway.jwt")
+public class JwtProperties {
+
+    /**
+     * Maximum number of verified tokens kept in the cache.
+     */
+    private long cacheSize = 10_000;
+
+    /**
+     * Longest time a verified token is cached; tokens expiring earlier leave the cache when they expire.
+     */
+    private Duration cacheMaxTtl = Duration.ofMinutes(5);
+
+    /**
+     * Interval between two background refreshes of the signing keys.
+     */
+    private Duration jwksRefreshInterval = Duration.ofMinutes(5);
+
+    /**
+     * Minimum time between two refreshes triggered by tokens signed with an unknown key.
+     */
+    private Duration jwksMinRefreshInterval = Duration.ofSeconds(30);
+
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(long cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public Duration getCacheMaxTtl() {
+        return cacheMaxTtl;
+    }
+
+    public void setCacheMaxTtl(Duration cacheMaxTtl) {
+        this.cacheMaxTtl = cacheMaxTtl;
+    }
+
+    public Duration getJwksRefreshInterval() {
+        return jwksRefreshInterval;
+    }
+
+    public void setJwksRefreshInterval(Duration jwksRefreshInterval) {
+        this.jwksRefreshInterval = jwksRefreshInterval;
+    }
+
+    public Duration getJwksMinRefreshInterval() {
+        return jwksMinRefreshInterval;
+    }
+
+    public void setJwksMinRefreshInterval(Duration jwksMinRefreshInterval) {
+        this.jwksMinRefreshInterval = jwksMinRefreshInterval;
+    }
+}
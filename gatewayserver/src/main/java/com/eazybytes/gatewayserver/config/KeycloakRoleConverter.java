@@ -7,22 +7,47 @@ import org.springframework.security.oauth2.jwt.Jwt;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Maps the realm roles of a Keycloak token to ROLE_ authorities. The authority of each role name is created
+ * once and shared by all tokens carrying that role.
+ */
 public class KeycloakRoleConverter implements Converter<Jwt, Collection<GrantedAuthority>> {
 
+    private static final int MAX_SHARED_AUTHORITIES = 1_024;
+
+    private final ConcurrentMap<String, GrantedAuthority> authorities = new ConcurrentHashMap<>();
+
     @Override
     public Collection<GrantedAuthority> convert(Jwt source) {
-        Map<String, Object> realmAccess = (Map<String, Object>) source.getClaims().get("realm_access");
-        if (realmAccess == null || realmAccess.isEmpty()) {
-            return new ArrayList<>();
+        if (!(source.getClaims().get("realm_access") instanceof Map<?, ?> realmAccess)
+                || !(realmAccess.get("roles") instanceof Collection<?> roles) || roles.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<GrantedAuthority> returnValue = new ArrayList<>(roles.size());
+        for (Object role : roles) {
+            if (role instanceof String roleName) {
+                returnValue.add(authority(roleName));
+            }
+        }
+        return Collections.unmodifiableList(returnValue);
+    }
+
+    private GrantedAuthority authority(String roleName) {
+        GrantedAuthority authority = authorities.get(roleName);
+        if (authority != null) {
+            return authority;
+        }
+        authority = new SimpleGrantedAuthority("ROLE_" + roleName);
+        // roles come from verified tokens only, the bound just guards against a misbehaving realm
+        if (authorities.size() < MAX_SHARED_AUTHORITIES) {
+            authorities.putIfAbsent(roleName, authority);
         }
-        Collection<GrantedAuthority> returnValue = ((List<String>) realmAccess.get("roles"))
-                .stream().map(roleName -> "ROLE_" + roleName)
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
-        return returnValue;
+        return authority;
     }
 }
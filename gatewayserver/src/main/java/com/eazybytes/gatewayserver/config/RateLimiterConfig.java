@@ -0,0 +1,48 @@
+package com.eazybytes.gatewayserver.config;
+
+import com.eazybytes.gatewayserver.ratelimit.LocalRateLimiter;
+import com.eazybytes.gatewayserver.ratelimit.RateLimiterMaintenance;
+import com.eazybytes.gatewayserver.ratelimit.RedisUsageSync;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+@Configuration
+public class RateLimiterConfig {
+
+    /**
+     * The rate limiter of the routes. It is primary because the gateway still registers its own
+     * RedisRateLimiter whenever Redis is on the classpath.
+     */
+    @Bean
+    @Primary
+    public LocalRateLimiter localRateLimiter(ConfigurationService configurationService,
+                                             RateLimiterProperties rateLimiterProperties) {
+        LocalRateLimiter rateLimiter = new LocalRateLimiter(configurationService,
+                rateLimiterProperties.getDefaultLimit(), rateLimiterProperties.isIncludeHeaders());
+        rateLimiter.getConfig().putAll(rateLimiterProperties.getRoutes());
+        return rateLimiter;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "gateway.rate-limiter", name = "mode", havingValue = "hybrid")
+    public RedisUsageSync redisUsageSync(LocalRateLimiter localRateLimiter,
+                                         ReactiveStringRedisTemplate reactiveStringRedisTemplate,
+                                         RateLimiterProperties rateLimiterProperties) {
+        return new RedisUsageSync(localRateLimiter, reactiveStringRedisTemplate,
+                rateLimiterProperties.getIdleTimeout());
+    }
+
+    @Bean
+    public RateLimiterMaintenance rateLimiterMaintenance(LocalRateLimiter localRateLimiter,
+                                                         ObjectProvider<RedisUsageSync> redisUsageSync,
+                                                         RateLimiterProperties rateLimiterProperties) {
+        return new RateLimiterMaintenance(localRateLimiter, rateLimiterProperties.getIdleTimeout(),
+                rateLimiterProperties.getSweepInterval(), redisUsageSync.getIfAvailable(),
+                rateLimiterProperties.getSyncInterval());
+    }
+}
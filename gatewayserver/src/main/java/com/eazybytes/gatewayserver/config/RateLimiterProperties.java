@@ -0,0 +1,107 @@
+package com.eazybytes.gatewayserver.config;
+
+import com.eazybytes.gatewayserver.ratelimit.LocalRateLimiter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings for the in-memory rate limiter used by the gateway routes.
+ */
+@ConfigurationProperties(prefix = "gateway.rate-limiter")
+public class RateLimiterProperties {
+
+    /**
+     * "local" to limit each gateway instance on its own traffic, or "hybrid" to additionally share the
+     * consumption of all instances through Redis in the background.
+     */
+    private String mode = "local";
+
+    /**
+     * Limits of routes without an entry in routes.
+     */
+    private LocalRateLimiter.Config defaultLimit = new LocalRateLimiter.Config(10, 20, 1);
+
+    /**
+     * Limits per route id.
+     */
+    private Map<String, LocalRateLimiter.Config> routes = new LinkedHashMap<>();
+
+    /**
+     * Whether the X-RateLimit-* headers are added to responses.
+     */
+    private boolean includeHeaders = true;
+
+    /**
+     * How long a bucket stays in memory after it has filled up again.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Interval between two scans for idle buckets.
+     */
+    private Duration sweepInterval = Duration.ofMinutes(1);
+
+    /**
+     * Interval between two usage syncs with Redis in hybrid mode.
+     */
+    private Duration syncInterval = Duration.ofSeconds(1);
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public LocalRateLimiter.Config getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(LocalRateLimiter.Config defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public Map<String, LocalRateLimiter.Config> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, LocalRateLimiter.Config> routes) {
+        this.routes = routes;
+    }
+
+    public boolean isIncludeHeaders() {
+        return includeHeaders;
+    }
+
+    public void setIncludeHeaders(boolean includeHeaders) {
+        this.includeHeaders = includeHeaders;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getSweepInterval() {
+        return sweepInterval;
+    }
+
+    public void setSweepInterval(Duration sweepInterval) {
+        this.sweepInterval = sweepInterval;
+    }
+
+    public Duration getSyncInterval() {
+        return syncInterval;
+    }
+
+    public void setSyncInterval(Duration syncInterval) {
+        this.syncInterval = syncInterval;
+    }
+}
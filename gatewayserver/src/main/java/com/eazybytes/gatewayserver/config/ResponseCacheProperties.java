@@ -0,0 +1,54 @@
+package com.eazybytes.gatewayserver.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory cache of GET responses used by the ResponseCache route filter.
+ */
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * Total size of the cached responses; the least recently used ones are evicted beyond it.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(16);
+
+    /**
+     * Largest response body that is cached.
+     */
+    private DataSize maxEntrySize = DataSize.ofKilobytes(256);
+
+    /**
+     * How long the info endpoints of the services are served from the cache. A refresh of a service's own
+     * configuration does not reach the gateway, so this is how long the gateway may serve the values from
+     * before it.
+     */
+    private Duration infoEndpointsTtl = Duration.ofSeconds(30);
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public Duration getInfoEndpointsTtl() {
+        return infoEndpointsTtl;
+    }
+
+    public void setInfoEndpointsTtl(Duration infoEndpointsTtl) {
+        this.infoEndpointsTtl = infoEndpointsTtl;
+    }
+}
@@ -1,17 +1,25 @@
 package com.eazybytes.gatewayserver.config;
 
+import com.eazybytes.gatewayserver.security.CachingJwtAuthenticationManager;
+import com.eazybytes.gatewayserver.security.JwksRefresher;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
-import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
 import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
 @Configuration
@@ -19,17 +27,51 @@ import reactor.core.publisher.Mono;
 public class SecurityConfig {
 
     @Bean
-    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity serverHttpSecurity) {
+    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity serverHttpSecurity,
+                                                           CachingJwtAuthenticationManager jwtAuthenticationManager) {
         serverHttpSecurity.authorizeExchange(exchanges -> exchanges.pathMatchers(HttpMethod.GET).permitAll()
                         .pathMatchers("/eazybank/accounts/**").hasRole("ACCOUNTS")
                         .pathMatchers("/eazybank/cards/**").hasRole("CARDS")
                         .pathMatchers("/eazybank/loans/**").hasRole("LOANS"))
                 .oauth2ResourceServer(oAuth2ResourceServerSpec -> oAuth2ResourceServerSpec
-                        .jwt(jwtSpec -> jwtSpec.jwtAuthenticationConverter(grantedAuthoritiesExtractor())));
+                        .jwt(jwtSpec -> jwtSpec.authenticationManager(jwtAuthenticationManager)));
         serverHttpSecurity.csrf(csrfSpec -> csrfSpec.disable());
         return serverHttpSecurity.build();
     }
 
+    /**
+     * Keeps the signing keys of the authorization server and refreshes them in the background, so token
+     * verification does not wait for the JWK set endpoint.
+     */
+    @Bean
+    public JwksRefresher jwksRefresher(WebClient.Builder webClientBuilder,
+                                       @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+                                       JwtProperties jwtProperties, MeterRegistry meterRegistry) {
+        return new JwksRefresher(webClientBuilder.build(), jwkSetUri, jwtProperties.getJwksRefreshInterval(),
+                jwtProperties.getJwksMinRefreshInterval(), meterRegistry);
+    }
+
+    @Bean
+    public ReactiveJwtDecoder jwtDecoder(JwksRefresher jwksRefresher) {
+        NimbusReactiveJwtDecoder jwtDecoder = NimbusReactiveJwtDecoder.withJwkSource(jwksRefresher::keysFor).build();
+        jwtDecoder.setJwtValidator(JwtValidators.createDefault());
+        return jwtDecoder;
+    }
+
+    /**
+     * Verifies each bearer token once and serves the resulting authentication, authorities included, from a
+     * cache until the token expires.
+     */
+    @Bean
+    public CachingJwtAuthenticationManager jwtAuthenticationManager(ReactiveJwtDecoder jwtDecoder,
+                                                                     JwtProperties jwtProperties,
+                                                                     MeterRegistry meterRegistry) {
+        JwtReactiveAuthenticationManager verifyingManager = new JwtReactiveAuthenticationManager(jwtDecoder);
+        verifyingManager.setJwtAuthenticationConverter(grantedAuthoritiesExtractor());
+        return new CachingJwtAuthenticationManager(verifyingManager, jwtProperties.getCacheSize(),
+                jwtProperties.getCacheMaxTtl(), meterRegistry);
+    }
+
     private Converter<Jwt, Mono<AbstractAuthenticationToken>> grantedAuthoritiesExtractor() {
         JwtAuthenticationConverter jwtAuthenticationConverter =
                 new JwtAuthenticationConverter();
@@ -0,0 +1,320 @@
+package com.eazybytes.gatewayserver.filters;
+
+import com.eazybytes.gatewayserver.cache.CachedResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Route filter that lets identical GET requests in flight at the same time share one downstream call.
+ * <p>
+ * Requests are identical when they have the same route, path, query, principal and configured request
+ * headers. The first one (the leader) is forwarded; requests arriving while it is in flight (followers) wait
+ * for its response and get a copy of its status, entity headers and body. The leader's body is streamed to
+ * its own client as usual and copied on the way, up to the maximum body size. If the body is larger, or the
+ * leader is cancelled before its response is complete, the followers are forwarded on their own instead.
+ * A downstream error is passed to the followers as well.
+ * <p>
+ * Reports gateway.coalescing.requests per route and role (leader, follower, fallback); followers divided by
+ * all requests is the coalescing ratio.
+ */
+@Component
+public class CoalesceRequestsGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<CoalesceRequestsGatewayFilterFactory.Config> {
+
+    private static final String ANONYMOUS = "anonymous";
+
+    private final ConcurrentMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, RouteMeters> routeMeters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public CoalesceRequestsGatewayFilterFactory(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("gateway.coalescing.inflight", inFlight, ConcurrentMap::size)
+                .description("Downstream calls currently shared by coalesced requests")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<PathPattern> paths = new ArrayList<>(config.getPaths().size());
+        for (String path : config.getPaths()) {
+            paths.add(PathPatternParser.defaultInstance.parse(path));
+        }
+        List<String> varyHeaders = List.copyOf(config.getVaryHeaders());
+        int maxBodyBytes = (int) Math.min(Integer.MAX_VALUE, config.getMaxBodySize().toBytes());
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || !matches(paths, request.getPath().pathWithinApplication())) {
+                return chain.filter(exchange);
+            }
+            return exchange.getPrincipal()
+                    .map(Principal::getName)
+                    .defaultIfEmpty(ANONYMOUS)
+                    .flatMap(principal -> coalesce(exchange, chain,
+                            flightKey(exchange, principal, varyHeaders), maxBodyBytes));
+        };
+    }
+
+    private Mono<Void> coalesce(ServerWebExchange exchange, GatewayFilterChain chain, String key, int maxBodyBytes) {
+        RouteMeters meters = meters(RouteTimingFilter.routeId(exchange));
+        Flight flight = new Flight(key);
+        Flight leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            meters.followers.increment();
+            return leader.response().flatMap(shared -> {
+                if (shared == SharedResponse.ABANDONED) {
+                    meters.fallbacks.increment();
+                    return chain.filter(exchange);
+                }
+                return write(exchange.getResponse(), shared);
+            });
+        }
+        meters.leaders.increment();
+        ServerWebExchange forwarded = exchange.mutate()
+                .response(new SharingResponse(exchange.getResponse(), flight, maxBodyBytes))
+                .build();
+        return chain.filter(forwarded)
+                .doOnError(flight::fail)
+                .doFinally(signal -> flight.abandon());
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(shared.status());
+        response.getHeaders().putAll(shared.headers());
+        if (shared.body().length == 0) {
+            return response.setComplete();
+        }
+        response.getHeaders().setContentLength(shared.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    private static boolean matches(List<PathPattern> paths, PathContainer path) {
+        for (PathPattern pattern : paths) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String flightKey(ServerWebExchange exchange, String principal, List<String> varyHeaders) {
+        ServerHttpRequest request = exchange.getRequest();
+        StringBuilder key = new StringBuilder(128)
+                .append(RouteTimingFilter.routeId(exchange)).append(' ')
+                .append(principal).append(' ')
+                .append(request.getURI().getRawPath());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        for (String header : varyHeaders) {
+            key.append('\n').append(header).append('=');
+            List<String> values = request.getHeaders().get(header);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    private RouteMeters meters(String routeId) {
+        RouteMeters meters = routeMeters.get(routeId);
+        return meters != null ? meters : routeMeters.computeIfAbsent(routeId, RouteMeters::new);
+    }
+
+    /**
+     * A downstream call shared by all identical requests that arrive before its response is complete.
+     */
+    private final class Flight {
+
+        private final String key;
+        private final Sinks.One<SharedResponse> sink = Sinks.one();
+
+        private Flight(String key) {
+            this.key = key;
+        }
+
+        private Mono<SharedResponse> response() {
+            return sink.asMono();
+        }
+
+        private void complete(SharedResponse response) {
+            // later requests must start a new call rather than get this response
+            inFlight.remove(key, this);
+            sink.tryEmitValue(response);
+        }
+
+        private void fail(Throwable error) {
+            inFlight.remove(key, this);
+            sink.tryEmitError(error);
+        }
+
+        private void abandon() {
+            inFlight.remove(key, this);
+            sink.tryEmitValue(SharedResponse.ABANDONED);
+        }
+    }
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+
+        private static final SharedResponse ABANDONED = new SharedResponse(null, null, null);
+    }
+
+    /**
+     * Copies the leader's response for its followers while it is written to the leader's client.
+     */
+    private static final class SharingResponse extends ServerHttpResponseDecorator {
+
+        private final Flight flight;
+        private final int maxBodyBytes;
+
+        private SharingResponse(ServerHttpResponse delegate, Flight flight, int maxBodyBytes) {
+            super(delegate);
+            this.flight = flight;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            HttpHeaders headers = CachedResponse.entityHeaders(getHeaders());
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            boolean[] sharing = {true};
+            Flux<? extends DataBuffer> copied = Flux.from(body)
+                    .doOnNext(buffer -> {
+                        if (!sharing[0]) {
+                            return;
+                        }
+                        int length = buffer.readableByteCount();
+                        if (copy.size() + length > maxBodyBytes) {
+                            sharing[0] = false;
+                            flight.abandon();
+                            return;
+                        }
+                        int readPosition = buffer.readPosition();
+                        byte[] chunk = new byte[length];
+                        buffer.read(chunk);
+                        buffer.readPosition(readPosition);
+                        copy.writeBytes(chunk);
+                    })
+                    .doOnComplete(() -> {
+                        if (sharing[0]) {
+                            flight.complete(new SharedResponse(status, headers, copy.toByteArray()));
+                        }
+                    });
+            return super.writeWith(copied);
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            // streamed responses are not shared
+            flight.abandon();
+            return super.writeAndFlushWith(body);
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            if (!isCommitted()) {
+                flight.complete(new SharedResponse(getStatusCode(), CachedResponse.entityHeaders(getHeaders()),
+                        new byte[0]));
+            }
+            return super.setComplete();
+        }
+    }
+
+    private final class RouteMeters {
+
+        private final Counter leaders;
+        private final Counter followers;
+        private final Counter fallbacks;
+
+        private RouteMeters(String routeId) {
+            this.leaders = requests(routeId, "leader");
+            this.followers = requests(routeId, "follower");
+            this.fallbacks = requests(routeId, "fallback");
+        }
+
+        private Counter requests(String routeId, String role) {
+            return Counter.builder("gateway.coalescing.requests")
+                    .description("Coalescable GET requests by role: leaders are forwarded, followers share the "
+                            + "leader's response, fallbacks are followers forwarded on their own")
+                    .tag("route", routeId)
+                    .tag("role", role)
+                    .register(meterRegistry);
+        }
+    }
+
+    public static class Config {
+
+        /**
+         * Path patterns of the requests to coalesce, matched against the path as received by the gateway.
+         */
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * Request headers that must be equal, besides path, query and principal, for requests to be coalesced.
+         */
+        private List<String> varyHeaders = List.of(HttpHeaders.ACCEPT);
+
+        /**
+         * Largest response body copied for the followers.
+         */
+        private DataSize maxBodySize = DataSize.ofKilobytes(256);
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public Config setPaths(List<String> paths) {
+            this.paths = paths;
+            return this;
+        }
+
+        public List<String> getVaryHeaders() {
+            return varyHeaders;
+        }
+
+        public Config setVaryHeaders(List<String> varyHeaders) {
+            this.varyHeaders = varyHeaders;
+            return this;
+        }
+
+        public DataSize getMaxBodySize() {
+            return maxBodySize;
+        }
+
+        public Config setMaxBodySize(DataSize maxBodySize) {
+            this.maxBodySize = maxBodySize;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.eazybytes.gatewayserver.filters;
+
+import com.eazybytes.gatewayserver.concurrency.ConcurrencyLimiter;
+import com.eazybytes.gatewayserver.concurrency.ConcurrencyLimiters;
+import com.eazybytes.gatewayserver.concurrency.Priority;
+import com.eazybytes.gatewayserver.config.ConcurrencyLimitProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Route filter that keeps the requests in flight to the route's backend within an adaptive concurrency limit
+ * (see {@link ConcurrencyLimiters}) and rejects the excess at once with 503 Service Unavailable and a
+ * Retry-After header.
+ * <p>
+ * Reads (GET and HEAD) and writes get separate priorities, so that e.g. writes clients can retry are shed
+ * before reads. Requests that time out or get a 503 or 504 back count as overload and shrink the limit.
+ * <p>
+ * Add it before the circuit breaker of a route. A circuit breaker with a fallback turns a timeout into the
+ * fallback's response, so the filter reads the failure the circuit breaker recorded on the exchange instead:
+ * a fallback after a timeout counts as overload, and a fallback for any other failure, such as an open
+ * circuit, is ignored as it says nothing about the backend's latency.
+ */
+@Component
+public class ConcurrencyLimitGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ConcurrencyLimitGatewayFilterFactory.Config> {
+
+    private final ConcurrencyLimiters limiters;
+    private final String retryAfter;
+
+    public ConcurrencyLimitGatewayFilterFactory(ConcurrencyLimiters limiters, ConcurrencyLimitProperties properties) {
+        super(Config.class);
+        this.limiters = limiters;
+        long millis = properties.getRetryAfter().toMillis();
+        this.retryAfter = Long.toString(Math.max(1, (millis + 999) / 1000));
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Priority readPriority = config.getReadPriority();
+        Priority writePriority = config.getWritePriority();
+        return (exchange, chain) -> {
+            HttpMethod method = exchange.getRequest().getMethod();
+            Priority priority = method == HttpMethod.GET || method == HttpMethod.HEAD ? readPriority : writePriority;
+            ConcurrencyLimiter.Permit permit = limiters.tryAcquire(RouteTimingFilter.routeId(exchange), priority);
+            if (permit == null) {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+                return response.setComplete();
+            }
+            return chain.filter(exchange)
+                    .doOnSuccess(done -> {
+                        Throwable fallbackCause =
+                                exchange.getAttribute(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR);
+                        if (fallbackCause != null ? isOverload(fallbackCause)
+                                : isOverload(exchange.getResponse().getStatusCode())) {
+                            permit.dropped();
+                        } else if (fallbackCause != null) {
+                            permit.ignore();
+                        } else {
+                            permit.success();
+                        }
+                    })
+                    .doOnError(error -> {
+                        if (isOverload(error)) {
+                            permit.dropped();
+                        } else {
+                            permit.ignore();
+                        }
+                    })
+                    .doOnCancel(permit::ignore);
+        };
+    }
+
+    private static boolean isOverload(HttpStatusCode status) {
+        return status != null && (status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || status.value() == HttpStatus.GATEWAY_TIMEOUT.value());
+    }
+
+    private static boolean isOverload(Throwable error) {
+        if (error instanceof ResponseStatusException statusException) {
+            return isOverload(statusException.getStatusCode());
+        }
+        return error instanceof TimeoutException;
+    }
+
+    public static class Config {
+
+        /**
+         * Priority of GET and HEAD requests.
+         */
+        private Priority readPriority = Priority.NORMAL;
+
+        /**
+         * Priority of all other requests.
+         */
+        private Priority writePriority = Priority.NORMAL;
+
+        public Priority getReadPriority() {
+            return readPriority;
+        }
+
+        public Config setReadPriority(Priority readPriority) {
+            this.readPriority = readPriority;
+            return this;
+        }
+
+        public Priority getWritePriority() {
+            return writePriority;
+        }
+
+        public Config setWritePriority(Priority writePriority) {
+            this.writePriority = writePriority;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.eazybytes.gatewayserver.filters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Makes sure every request carries an eazybank-correlation-id and echoes it on the response.
+ * <p>
+ * The request header is looked up once. A missing id is generated and added to the forwarded request, and
+ * the id is put on the response headers in the same pass.
+ */
+@Component
+public class CorrelationIdFilter implements GlobalFilter, Ordered {
+
+    public static final String CORRELATION_ID = "eazybank-correlation-id";
+
+    private static final Logger logger = LoggerFactory.getLogger(CorrelationIdFilter.class);
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String requestCorrelationId = exchange.getRequest().getHeaders().getFirst(CORRELATION_ID);
+        ServerWebExchange forwarded = exchange;
+        String correlationId;
+        if (requestCorrelationId != null) {
+            correlationId = requestCorrelationId;
+            logger.debug("eazyBank-correlation-id found in CorrelationIdFilter : {}", correlationId);
+        } else {
+            correlationId = CorrelationIdGenerator.next();
+            forwarded = exchange.mutate()
+                    .request(request -> request.header(CORRELATION_ID, correlationId))
+                    .build();
+            logger.debug("eazyBank-correlation-id generated in CorrelationIdFilter : {}", correlationId);
+        }
+        // written up front while the response headers are still writable; the proxied response headers are
+        // added to them later, so no second lookup or callback is needed on the way out
+        exchange.getResponse().getHeaders().set(CORRELATION_ID, correlationId);
+        return chain.filter(forwarded);
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
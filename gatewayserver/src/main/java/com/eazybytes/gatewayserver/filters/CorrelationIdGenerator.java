@@ -0,0 +1,27 @@
+package com.eazybytes.gatewayserver.filters;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates correlation ids as time-ordered 128-bit ids in the UUID version 7 layout: 48 bits of epoch
+ * milliseconds followed by 74 random bits. The random bits come from {@link ThreadLocalRandom}, which needs
+ * neither locking nor the SecureRandom behind {@link UUID#randomUUID()}; correlation ids have to be unique,
+ * not unpredictable.
+ */
+public final class CorrelationIdGenerator {
+
+    private CorrelationIdGenerator() {
+        // restrict instantiation
+    }
+
+    /**
+     * @return a new correlation id in the canonical 36 character UUID form
+     */
+    public static String next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSigBits = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+}
@@ -0,0 +1,43 @@
+package com.eazybytes.gatewayserver.filters;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the hedged requests of a route at a percentage of its requests.
+ * <p>
+ * Every request deposits the percentage of a hedge and every hedge withdraws a whole one, so hedging adds at
+ * most that percentage to the load of the backend, however slow it gets. The balance is capped at a few
+ * hedges, which is all the burst a quiet route can save up.
+ */
+final class HedgeBudget {
+
+    private static final long HEDGE = 100;
+
+    private final long deposit;
+    private final long maxBalance;
+    private final AtomicLong balance = new AtomicLong();
+
+    HedgeBudget(int percent, int maxHedges) {
+        this.deposit = percent;
+        this.maxBalance = maxHedges * HEDGE;
+    }
+
+    void deposit() {
+        long current = balance.get();
+        if (current < maxBalance) {
+            balance.accumulateAndGet(deposit, (value, added) -> Math.min(maxBalance, value + added));
+        }
+    }
+
+    boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < HEDGE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - HEDGE)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.eazybytes.gatewayserver.filters;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Route filter that enables hedging of the route's GET requests. It only hands its settings to the
+ * {@link HedgingFilter}, which has to run after the load balancer has picked the first instance.
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    public HedgeGatewayFilterFactory() {
+        super(Config.class);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            exchange.getAttributes().put(HedgingFilter.HEDGE_CONFIG_ATTR, config);
+            return chain.filter(exchange);
+        };
+    }
+
+    public static class Config {
+
+        /**
+         * Latency percentile of the route after which a GET is hedged, e.g. 95 to hedge the slowest 5%.
+         */
+        private double percentile = 95;
+
+        /**
+         * Shortest hedge delay, however fast the route is.
+         */
+        private Duration minDelay = Duration.ofMillis(10);
+
+        /**
+         * Longest hedge delay; also used until the route has enough latency samples.
+         */
+        private Duration maxDelay = Duration.ofSeconds(1);
+
+        /**
+         * Hedged requests as a percentage of the route's GET requests at most.
+         */
+        private int budgetPercent = 10;
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public Config setPercentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public Config setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public Config setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        public int getBudgetPercent() {
+            return budgetPercent;
+        }
+
+        public Config setBudgetPercent(int budgetPercent) {
+            this.budgetPercent = budgetPercent;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.eazybytes.gatewayserver.filters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.netty.Connection;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedges the GET requests of routes with a {@link HedgeGatewayFilterFactory} filter: when the instance the
+ * load balancer picked has not answered within the hedge delay, the same request is sent to another instance
+ * of the service, and whichever response arrives first is used. The other request is cancelled.
+ * <p>
+ * The hedge delay is a percentile of the route's recent latency, so only the slowest requests are hedged, and
+ * a {@link HedgeBudget} caps the hedges at a percentage of the route's requests, so a backend that is slow
+ * because it is overloaded gets little extra load. A request that fails before the delay is not hedged; that
+ * is left to the retry filter.
+ * <p>
+ * Each attempt runs the rest of the filter chain on a copy of the exchange attributes and a response that
+ * only keeps the status and headers. Those of the first attempt to receive a response are then copied to the
+ * exchange, and the response body is written from its connection as usual.
+ * <p>
+ * Reports gateway.hedging.requests per route and result (hedged, won, budget_exhausted, no_instance) and the
+ * current hedge delay as gateway.hedging.delay.
+ */
+@Component
+public class HedgingFilter implements GlobalFilter, Ordered {
+
+    public static final String HEDGE_CONFIG_ATTR = HedgingFilter.class.getName() + ".config";
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int MIN_SAMPLES = 100;
+    private static final int MAX_SAVED_HEDGES = 10;
+
+    private final LoadBalancerClientFactory clientFactory;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, RouteHedging> routes = new ConcurrentHashMap<>();
+    private final AtomicInteger nextInstance = new AtomicInteger();
+
+    public HedgingFilter(LoadBalancerClientFactory clientFactory, MeterRegistry meterRegistry) {
+        this.clientFactory = clientFactory;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        HedgeGatewayFilterFactory.Config config = exchange.getAttribute(HEDGE_CONFIG_ATTR);
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        Response<ServiceInstance> picked =
+                exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (config == null || route == null || url == null || picked == null || !picked.hasServer()
+                || exchange.getRequest().getMethod() != HttpMethod.GET
+                || ServerWebExchangeUtils.isAlreadyRouted(exchange)) {
+            return chain.filter(exchange);
+        }
+        RouteHedging hedging = routes.get(route.getId());
+        if (hedging == null) {
+            hedging = routes.computeIfAbsent(route.getId(), routeId -> new RouteHedging(routeId, config));
+        }
+        hedging.budget.deposit();
+        return hedge(exchange, chain, hedging, config, route.getUri().getHost(), url, picked.getServer());
+    }
+
+    private Mono<Void> hedge(ServerWebExchange exchange, GatewayFilterChain chain, RouteHedging hedging,
+                             HedgeGatewayFilterFactory.Config config, String serviceId, URI url,
+                             ServiceInstance first) {
+        AtomicReference<Attempt> winner = new AtomicReference<>();
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+        Sinks.One<Boolean> firstFailed = Sinks.one();
+
+        Attempt primary = new Attempt(exchange);
+        Duration delay = hedging.delay(config);
+        long start = System.nanoTime();
+        Mono<Attempt> primaryResponse = primary.send(chain, winner)
+                .doOnError(error -> {
+                    firstError.set(error);
+                    firstFailed.tryEmitValue(true);
+                })
+                .doFinally(signal -> {
+                    if (signal == SignalType.ON_COMPLETE) {
+                        hedging.latency.record(System.nanoTime() - start);
+                    } else if (signal == SignalType.CANCEL && winner.get() != null) {
+                        // all that is known of a primary cancelled by its hedge is that it took longer than the
+                        // delay; recording the time it ran instead would push the percentile up every time
+                        hedging.latency.record(delay.toNanos());
+                    }
+                });
+
+        Mono<Attempt> hedgeResponse = Mono.delay(delay)
+                .takeUntilOther(firstFailed.asMono())
+                .flatMap(tick -> otherInstance(serviceId, first)
+                        .switchIfEmpty(Mono.fromRunnable(hedging.noInstance::increment)))
+                .flatMap(instance -> {
+                    if (!hedging.budget.tryWithdraw()) {
+                        hedging.budgetExhausted.increment();
+                        return Mono.empty();
+                    }
+                    hedging.hedged.increment();
+                    Attempt hedge = new Attempt(exchange);
+                    hedge.attributes.put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR,
+                            LoadBalancerUriTools.reconstructURI(instance, url));
+                    hedge.attributes.put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR,
+                            new DefaultResponse(instance));
+                    return hedge.send(chain, winner).doOnNext(won -> hedging.won.increment());
+                });
+
+        return Mono.firstWithValue(primaryResponse, hedgeResponse)
+                .onErrorMap(NoSuchElementException.class,
+                        error -> firstError.get() != null ? firstError.get() : error)
+                .doOnNext(attempt -> attempt.copyTo(exchange))
+                .then();
+    }
+
+    private Mono<ServiceInstance> otherInstance(String serviceId, ServiceInstance excluded) {
+        ServiceInstanceListSupplier supplier = clientFactory.getInstance(serviceId, ServiceInstanceListSupplier.class);
+        if (supplier == null) {
+            return Mono.empty();
+        }
+        return supplier.get().next().mapNotNull(instances -> {
+            int size = instances.size();
+            int offset = nextInstance.getAndIncrement() & Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                ServiceInstance instance = instances.get((offset + i) % size);
+                if (!instance.getHost().equals(excluded.getHost()) || instance.getPort() != excluded.getPort()) {
+                    return instance;
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        // the first instance has to be picked already
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+
+    /**
+     * One request to a backend instance, running the rest of the chain on its own copy of the exchange state.
+     */
+    private static final class Attempt {
+
+        private final Map<String, Object> attributes;
+        private final AttemptResponse response;
+        private final ServerWebExchange exchange;
+
+        private Attempt(ServerWebExchange original) {
+            this.attributes = new ConcurrentHashMap<>(original.getAttributes());
+            this.response = new AttemptResponse(original.getResponse());
+            this.exchange = new ServerWebExchangeDecorator(original) {
+
+                @Override
+                public Map<String, Object> getAttributes() {
+                    return attributes;
+                }
+
+                @Override
+                public ServerHttpResponse getResponse() {
+                    return response;
+                }
+            };
+        }
+
+        /**
+         * @return This attempt if its response arrived first; empty if another one was first.
+         */
+        private Mono<Attempt> send(GatewayFilterChain chain, AtomicReference<Attempt> winner) {
+            return chain.filter(exchange)
+                    .then(Mono.fromCallable(() -> {
+                        if (winner.compareAndSet(null, this)) {
+                            return this;
+                        }
+                        discard();
+                        return null;
+                    }))
+                    // a Mono may be cancelled after its value as well; the winner's connection is still in use
+                    .doOnCancel(() -> {
+                        if (winner.get() != this) {
+                            discard();
+                        }
+                    });
+        }
+
+        /**
+         * Closes the connection of a response that is not used.
+         */
+        private void discard() {
+            Connection connection = (Connection) attributes.get(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+            if (connection != null) {
+                connection.dispose();
+            }
+        }
+
+        private void copyTo(ServerWebExchange original) {
+            original.getAttributes().putAll(attributes);
+            ServerHttpResponse target = original.getResponse();
+            if (response.status != null) {
+                target.setStatusCode(response.status);
+            }
+            if (response.headers.containsKey(HttpHeaders.CONTENT_LENGTH)
+                    && !response.headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+                target.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+            }
+            target.getHeaders().addAll(response.headers);
+            response.cookies.values().forEach(cookies -> cookies.forEach(target::addCookie));
+        }
+    }
+
+    /**
+     * Keeps the status and headers the routing filter sets, without touching the client's response.
+     */
+    private static final class AttemptResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private final MultiValueMap<String, ResponseCookie> cookies = new LinkedMultiValueMap<>();
+        private volatile HttpStatusCode status;
+
+        private AttemptResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatusCode status) {
+            this.status = status;
+            return true;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public MultiValueMap<String, ResponseCookie> getCookies() {
+            return cookies;
+        }
+
+        @Override
+        public void addCookie(ResponseCookie cookie) {
+            cookies.add(cookie.getName(), cookie);
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return false;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return Mono.error(new IllegalStateException("The body of a hedged request is written by the gateway"));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return Mono.error(new IllegalStateException("The body of a hedged request is written by the gateway"));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return Mono.empty();
+        }
+    }
+
+    private final class RouteHedging {
+
+        private final LatencyPercentile latency = new LatencyPercentile(WINDOW_NANOS, MIN_SAMPLES);
+        private final HedgeBudget budget;
+        private final Counter hedged;
+        private final Counter won;
+        private final Counter budgetExhausted;
+        private final Counter noInstance;
+        private volatile long delayNanos;
+
+        private RouteHedging(String routeId, HedgeGatewayFilterFactory.Config config) {
+            this.budget = new HedgeBudget(config.getBudgetPercent(), MAX_SAVED_HEDGES);
+            this.delayNanos = config.getMaxDelay().toNanos();
+            this.hedged = requests(routeId, "hedged");
+            this.won = requests(routeId, "won");
+            this.budgetExhausted = requests(routeId, "budget_exhausted");
+            this.noInstance = requests(routeId, "no_instance");
+            Gauge.builder("gateway.hedging.delay", this, hedging -> hedging.delayNanos / 1e6)
+                    .description("Time after which a GET of the route is hedged, in milliseconds")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+
+        private Duration delay(HedgeGatewayFilterFactory.Config config) {
+            long percentile = latency.percentileNanos(config.getPercentile());
+            long delay = percentile < 0 ? config.getMaxDelay().toNanos()
+                    : Math.max(config.getMinDelay().toNanos(), Math.min(config.getMaxDelay().toNanos(), percentile));
+            delayNanos = delay;
+            return Duration.ofNanos(delay);
+        }
+
+        private Counter requests(String routeId, String result) {
+            return Counter.builder("gateway.hedging.requests")
+                    .description("Hedging of GET requests by result: hedged requests sent, hedges whose "
+                            + "response was used, and hedges skipped for lack of budget or of another instance")
+                    .tag("route", routeId)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.eazybytes.gatewayserver.filters;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Recent latency distribution of one route, for the hedge delay of the {@link HedgingFilter}.
+ * <p>
+ * Latencies are counted in buckets that grow by 10% each, from 100µs up to about 18s, and a percentile is
+ * reported as the lower bound of its bucket, so it is at most 10% low and a latency recorded at exactly that
+ * value lands in the same bucket again. Counts are kept for the current and the previous window; once a
+ * window is over, the previous one is dropped, so the percentiles follow the latency of the last one to two
+ * windows.
+ */
+final class LatencyPercentile {
+
+    private static final long MIN_NANOS = 100_000;
+    private static final double LOG_GROWTH = Math.log(1.1);
+    private static final int BUCKETS = 128;
+
+    private final long windowNanos;
+    private final int minSamples;
+    private volatile Window current;
+    private volatile Window previous;
+
+    /**
+     * @param minSamples Samples needed before a percentile is reported.
+     */
+    LatencyPercentile(long windowNanos, int minSamples) {
+        this.windowNanos = windowNanos;
+        this.minSamples = minSamples;
+        this.current = new Window(System.nanoTime());
+        this.previous = new Window(current.startNanos - windowNanos);
+    }
+
+    void record(long nanos) {
+        int bucket = nanos < MIN_NANOS ? 0
+                : Math.min(BUCKETS - 1, 1 + (int) (Math.log(nanos / (double) MIN_NANOS) / LOG_GROWTH));
+        window(System.nanoTime()).counts.incrementAndGet(bucket);
+    }
+
+    /**
+     * @param percentile Between 0 and 100.
+     * @return The lower bound of the bucket holding the percentile, or -1 with too few samples.
+     */
+    long percentileNanos(double percentile) {
+        Window latest = window(System.nanoTime());
+        Window before = previous;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latest.counts.get(i) + before.counts.get(i);
+            total += counts[i];
+        }
+        if (total < minSamples) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return lowerBound(i);
+            }
+        }
+        return lowerBound(BUCKETS - 1);
+    }
+
+    private static long lowerBound(int bucket) {
+        return bucket == 0 ? 0 : (long) Math.ceil(MIN_NANOS * Math.pow(1.1, bucket - 1));
+    }
+
+    private Window window(long now) {
+        Window window = current;
+        if (now - window.startNanos < windowNanos) {
+            return window;
+        }
+        synchronized (this) {
+            window = current;
+            if (now - window.startNanos >= windowNanos) {
+                // after more than one idle window the old counts are stale as well
+                previous = now - window.startNanos < 2 * windowNanos ? window : new Window(now - windowNanos);
+                window = new Window(now);
+                current = window;
+            }
+            return window;
+        }
+    }
+
+    private static final class Window {
+
+        private final long startNanos;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        private Window(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.eazybytes.gatewayserver.filters;
+
+import com.eazybytes.gatewayserver.cache.CachedResponse;
+import com.eazybytes.gatewayserver.cache.ResponseCache;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Route filter that serves GET responses of selected paths from the gateway's {@link ResponseCache}.
+ * <p>
+ * Responses are cached per route, keyed by path, query and the configured request headers, for the time to
+ * live of the route. A cached response carries an ETag, and a request whose If-None-Match matches it is
+ * answered with 304. The If-None-Match header is not forwarded on a miss, so the downstream service always
+ * returns a body that can be cached. Responses that are not 200, are marked no-store or private, or set a
+ * cookie are passed through uncached. Add it before the other filters of a route so hits skip them.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCache responseCache) {
+        super(Config.class);
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<PathPattern> paths = new ArrayList<>(config.getPaths().size());
+        for (String path : config.getPaths()) {
+            paths.add(PathPatternParser.defaultInstance.parse(path));
+        }
+        long ttlNanos = config.getTtl().toNanos();
+        List<String> varyHeaders = List.copyOf(config.getVaryHeaders());
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || !matches(paths, request.getPath().pathWithinApplication())) {
+                return chain.filter(exchange);
+            }
+            String routeId = RouteTimingFilter.routeId(exchange);
+            String key = cacheKey(routeId, request, varyHeaders);
+            String ifNoneMatch = request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+            CachedResponse cached = responseCache.get(key);
+            if (cached != null) {
+                return serve(exchange.getResponse(), cached, routeId, ifNoneMatch);
+            }
+            responseCache.recordMiss(routeId);
+            ServerWebExchange forwarded = exchange.mutate()
+                    .request(ifNoneMatch == null ? request
+                            : request.mutate().headers(headers -> headers.remove(HttpHeaders.IF_NONE_MATCH)).build())
+                    .response(new CachingResponse(exchange.getResponse(), key, ttlNanos, ifNoneMatch))
+                    .build();
+            return chain.filter(forwarded);
+        };
+    }
+
+    private Mono<Void> serve(ServerHttpResponse response, CachedResponse cached, String routeId, String ifNoneMatch) {
+        HttpHeaders headers = response.getHeaders();
+        headers.putAll(cached.getHeaders());
+        headers.setETag(cached.getEtag());
+        headers.set(CACHE_STATUS_HEADER, "HIT");
+        if (cached.matches(ifNoneMatch)) {
+            responseCache.recordNotModified(routeId, cached.getBody().length);
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            return response.setComplete();
+        }
+        responseCache.recordHit(routeId, cached.getBody().length);
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentLength(cached.getBody().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    private static boolean matches(List<PathPattern> paths, PathContainer path) {
+        for (PathPattern pattern : paths) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String cacheKey(String routeId, ServerHttpRequest request, List<String> varyHeaders) {
+        StringBuilder key = new StringBuilder(128).append(routeId).append(' ').append(request.getURI().getRawPath());
+        String query = request.getURI().getRawQuery();
+        if (query != null) {
+            key.append('?').append(query);
+        }
+        for (String header : varyHeaders) {
+            key.append('\n').append(header).append('=');
+            List<String> values = request.getHeaders().get(header);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isCacheable(HttpHeaders headers) {
+        if (headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        return cacheControl == null
+                || !(cacheControl.contains(CacheControl.noStore().getHeaderValue())
+                || cacheControl.contains("private"));
+    }
+
+    /**
+     * Collects the body of a cacheable downstream response, caches it and then writes it to the client.
+     */
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+        private final long ttlNanos;
+        private final String ifNoneMatch;
+
+        private CachingResponse(ServerHttpResponse delegate, String key, long ttlNanos, String ifNoneMatch) {
+            super(delegate);
+            this.key = key;
+            this.ttlNanos = ttlNanos;
+            this.ifNoneMatch = ifNoneMatch;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!HttpStatus.OK.equals(getStatusCode()) || !isCacheable(getHeaders())) {
+                return super.writeWith(body);
+            }
+            return DataBufferUtils.join(body).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                CachedResponse cached = CachedResponse.of(getHeaders(), bytes, ttlNanos);
+                boolean stored = responseCache.put(key, cached);
+                getHeaders().setETag(cached.getEtag());
+                getHeaders().set(CACHE_STATUS_HEADER, stored ? "MISS" : "BYPASS");
+                if (cached.matches(ifNoneMatch)) {
+                    setStatusCode(HttpStatus.NOT_MODIFIED);
+                    getHeaders().remove(HttpHeaders.CONTENT_TYPE);
+                    getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                    return getDelegate().setComplete();
+                }
+                return getDelegate().writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return writeWith(Mono.from(body).flatMapMany(publisher -> publisher));
+        }
+    }
+
+    public static class Config {
+
+        /**
+         * Path patterns of the requests to cache, matched against the path as received by the gateway.
+         */
+        private List<String> paths = new ArrayList<>();
+
+        /**
+         * Request headers whose values are part of the cache key.
+         */
+        private List<String> varyHeaders = List.of(HttpHeaders.ACCEPT);
+
+        /**
+         * How long a response is served from the cache.
+         */
+        private Duration ttl = Duration.ofMinutes(1);
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public Config setPaths(List<String> paths) {
+            this.paths = paths;
+            return this;
+        }
+
+        public List<String> getVaryHeaders() {
+            return varyHeaders;
+        }
+
+        public Config setVaryHeaders(List<String> varyHeaders) {
+            this.varyHeaders = varyHeaders;
+            return this;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public Config setTtl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.eazybytes.gatewayserver.filters;
+
+import com.eazybytes.gatewayserver.httpclient.RouteHttpClients;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
+
+/**
+ * The gateway's routing filter, sending each request with the HttpClient of its route (see
+ * {@link RouteHttpClients}) instead of the one shared client. It replaces the gateway's own routing filter,
+ * which is switched off with spring.cloud.gateway.server.webflux.global-filter.netty-routing.enabled.
+ */
+public class RouteHttpClientRoutingFilter extends NettyRoutingFilter {
+
+    private final RouteHttpClients clients;
+
+    public RouteHttpClientRoutingFilter(RouteHttpClients clients, HttpClient httpClient,
+                                        ObjectProvider<List<HttpHeadersFilter>> headersFilters,
+                                        HttpClientProperties properties) {
+        super(httpClient, headersFilters, properties);
+        this.clients = clients;
+    }
+
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        HttpClient client = clients.get(route.getId());
+        Object connectTimeout = route.getMetadata().get(CONNECT_TIMEOUT_ATTR);
+        if (connectTimeout != null) {
+            return client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout instanceof Number number
+                    ? number.intValue() : Integer.parseInt(connectTimeout.toString()));
+        }
+        return client;
+    }
+}
@@ -0,0 +1,90 @@
+package com.eazybytes.gatewayserver.filters;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-route latency timers, tagged by route id and response status.
+ * <p>
+ * Timers are registered on first use and then looked up by route id and status code without building tags
+ * or a meter id again, so recording a sample on the hot path allocates nothing.
+ */
+@Component
+public class RouteTimers {
+
+    public static final String TOTAL_TIMER = "gateway.route.total";
+    public static final String UPSTREAM_TIMER = "gateway.route.upstream";
+
+    private static final int MAX_STATUS = 599;
+    private static final int UNKNOWN_STATUS = 0;
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Route> routes = new ConcurrentHashMap<>();
+
+    public RouteTimers(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param routeId     Id of the matched route.
+     * @param status      HTTP status code of the response, or 0 if none was set.
+     * @param elapsedNanos Time from the request entering the gateway until its response completed.
+     */
+    public void recordTotal(String routeId, int status, long elapsedNanos) {
+        route(routeId).total(status).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param routeId     Id of the matched route.
+     * @param status      HTTP status code returned by the upstream service, or 0 if none was received.
+     * @param elapsedNanos Time from forwarding the request until the upstream response headers arrived.
+     */
+    public void recordUpstream(String routeId, int status, long elapsedNanos) {
+        route(routeId).upstream(status).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Route route(String routeId) {
+        Route route = routes.get(routeId);
+        return route != null ? route : routes.computeIfAbsent(routeId, Route::new);
+    }
+
+    private final class Route {
+
+        private final String routeId;
+        private final AtomicReferenceArray<Timer> total = new AtomicReferenceArray<>(MAX_STATUS + 1);
+        private final AtomicReferenceArray<Timer> upstream = new AtomicReferenceArray<>(MAX_STATUS + 1);
+
+        private Route(String routeId) {
+            this.routeId = routeId;
+        }
+
+        private Timer total(int status) {
+            return timer(total, TOTAL_TIMER, status);
+        }
+
+        private Timer upstream(int status) {
+            return timer(upstream, UPSTREAM_TIMER, status);
+        }
+
+        private Timer timer(AtomicReferenceArray<Timer> timers, String name, int status) {
+            int index = status > 0 && status <= MAX_STATUS ? status : UNKNOWN_STATUS;
+            Timer timer = timers.get(index);
+            if (timer == null) {
+                // registering the same id twice returns the existing timer, so a lost race is harmless
+                timer = Timer.builder(name)
+                        .tag("route", routeId)
+                        .tag("status", index == UNKNOWN_STATUS ? "UNKNOWN" : Integer.toString(index))
+                        .publishPercentileHistogram()
+                        .register(meterRegistry);
+                timers.set(index, timer);
+            }
+            return timer;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.eazybytes.gatewayserver.filters;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Measures how long the gateway takes to answer a request and reports it per route.
+ * <p>
+ * The clock starts when the request enters the gateway filter chain. The elapsed time until the response is
+ * committed is returned in the X-Response-Time header, and the time until the response completed is recorded
+ * in the {@link RouteTimers#TOTAL_TIMER} timer. {@link UpstreamTimingFilter} times the call to the downstream
+ * service itself.
+ */
+@Component
+public class RouteTimingFilter implements GlobalFilter, Ordered {
+
+    public static final String RESPONSE_TIME_HEADER = "X-Response-Time";
+
+    private final RouteTimers routeTimers;
+
+    public RouteTimingFilter(RouteTimers routeTimers) {
+        this.routeTimers = routeTimers;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        ServerHttpResponse response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            response.getHeaders().set(RESPONSE_TIME_HEADER, formatMillis(System.nanoTime() - start));
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                .doFinally(signal -> routeTimers.recordTotal(routeId(exchange), statusOf(response),
+                        System.nanoTime() - start));
+    }
+
+    @Override
+    public int getOrder() {
+        // right after the correlation id, so the measurement covers every other filter
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "unknown";
+    }
+
+    static int statusOf(ServerHttpResponse response) {
+        HttpStatusCode status = response.getStatusCode();
+        return status != null ? status.value() : 0;
+    }
+
+    /**
+     * Formats a duration as milliseconds with microsecond precision, e.g. "12.034ms".
+     */
+    static String formatMillis(long nanos) {
+        long micros = Math.max(nanos, 0) / 1_000;
+        long fraction = micros % 1_000;
+        StringBuilder value = new StringBuilder(16).append(micros / 1_000).append('.');
+        if (fraction < 100) {
+            value.append('0');
+        }
+        if (fraction < 10) {
+            value.append('0');
+        }
+        return value.append(fraction).append("ms").toString();
+    }
+}
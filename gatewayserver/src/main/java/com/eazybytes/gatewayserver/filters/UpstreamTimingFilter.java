@@ -0,0 +1,41 @@
+package com.eazybytes.gatewayserver.filters;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times the call to the downstream service of a route.
+ * <p>
+ * Runs just before the routing filters, which complete once the downstream response headers have arrived, and
+ * records that interval in the {@link RouteTimers#UPSTREAM_TIMER} timer. A route that retries records one
+ * sample per attempt.
+ */
+@Component
+public class UpstreamTimingFilter implements GlobalFilter, Ordered {
+
+    private final RouteTimers routeTimers;
+
+    public UpstreamTimingFilter(RouteTimers routeTimers) {
+        this.routeTimers = routeTimers;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long upstreamStart = System.nanoTime();
+        // doOnTerminate runs before the signal moves on, so the sample does not include the work of the filters
+        // that resume after the routing filter; a call cancelled by the client is not sampled
+        return chain.filter(exchange)
+                .doOnTerminate(() -> routeTimers.recordUpstream(RouteTimingFilter.routeId(exchange),
+                        RouteTimingFilter.statusOf(exchange.getResponse()), System.nanoTime() - upstreamStart));
+    }
+
+    @Override
+    public int getOrder() {
+        // NettyRoutingFilter and ForwardRoutingFilter run at LOWEST_PRECEDENCE
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+}
@@ -0,0 +1,139 @@
+package com.eazybytes.gatewayserver.httpclient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.http.client.HttpClientState;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports upstream connections that a route has held for longer than a threshold without giving them back to
+ * its pool, which is what a response body nobody reads or a lost cancel looks like. A leaked connection is
+ * never reused and, once a route has leaked all of them, its requests only wait for the pending acquire
+ * timeout.
+ * <p>
+ * A lease starts when a connection is taken from the pool (an h2c stream is opened) and ends when it goes
+ * back (the stream is closed). Leases are checked at every sweep; each one held past the threshold is logged
+ * once and counted in gateway.httpclient.leaked per route. Buffer leaks are Netty's own leak detector's job,
+ * see spring.netty.leak-detection.
+ */
+public class ConnectionLeakDetector implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionLeakDetector.class);
+
+    private final Duration threshold;
+    private final Duration sweepInterval;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Channel, Lease> leases = new ConcurrentHashMap<>();
+
+    private volatile Disposable sweeper;
+
+    public ConnectionLeakDetector(Duration threshold, Duration sweepInterval, MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        this.sweepInterval = sweepInterval;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param streams Whether the route speaks h2c, where requests lease streams rather than connections.
+     * @return The observer to register with the HttpClient of the route.
+     */
+    ConnectionObserver observer(String routeId, boolean streams) {
+        Counter leaked = Counter.builder("gateway.httpclient.leaked")
+                .description("Upstream connections held past the leak detection threshold")
+                .tag("route", routeId)
+                .register(meterRegistry);
+        ConnectionObserver.State leased = streams ? HttpClientState.STREAM_CONFIGURED
+                : ConnectionObserver.State.CONFIGURED;
+        return (connection, state) -> {
+            if (state == leased) {
+                leases.put(connection.channel(), new Lease(routeId, leaked));
+            } else if (state == ConnectionObserver.State.RELEASED || state == ConnectionObserver.State.DISCONNECTING) {
+                Lease lease = leases.remove(connection.channel());
+                if (lease != null && lease.reported) {
+                    log.info("Upstream connection {} of route {} came back after {}ms", connection.channel(),
+                            routeId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lease.startNanos));
+                }
+            }
+        };
+    }
+
+    /**
+     * @return The number of connections found held past the threshold for the first time.
+     */
+    int sweep() {
+        long now = System.nanoTime();
+        long thresholdNanos = threshold.toNanos();
+        int found = 0;
+        for (Iterator<Map.Entry<Channel, Lease>> it = leases.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Channel, Lease> entry = it.next();
+            Channel channel = entry.getKey();
+            Lease lease = entry.getValue();
+            if (!channel.isOpen()) {
+                // closed without the pool being told, e.g. when the event loop was shut down
+                it.remove();
+            } else if (!lease.reported && now - lease.startNanos > thresholdNanos) {
+                lease.reported = true;
+                lease.leaked.increment();
+                found++;
+                log.warn("Upstream connection {} of route {} has been held for {}ms without going back to the pool",
+                        channel, lease.routeId, TimeUnit.NANOSECONDS.toMillis(now - lease.startNanos));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return The number of connections currently leased.
+     */
+    int leased() {
+        return leases.size();
+    }
+
+    @Override
+    public void start() {
+        sweeper = Flux.interval(sweepInterval, Schedulers.parallel())
+                .onBackpressureDrop()
+                .subscribe(tick -> sweep());
+    }
+
+    @Override
+    public void stop() {
+        Disposable running = sweeper;
+        if (running != null) {
+            running.dispose();
+            sweeper = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return sweeper != null;
+    }
+
+    private static final class Lease {
+
+        private final String routeId;
+        private final Counter leaked;
+        private final long startNanos = System.nanoTime();
+        private volatile boolean reported;
+
+        private Lease(String routeId, Counter leaked) {
+            this.routeId = routeId;
+            this.leaked = leaked;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.eazybytes.gatewayserver.httpclient;
+
+import com.eazybytes.gatewayserver.config.HttpClientPoolProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the HttpClient of every route, created on first use from the route's {@link Pool} settings.
+ * <p>
+ * Each route gets a connection pool of its own, named gateway-&lt;route id&gt;, so a slow backend can only
+ * exhaust the connections of its own route. Everything else (timeouts, SSL, proxy, wiretap, customizers)
+ * comes from the gateway's httpclient settings; only its pool settings are not used for routes.
+ * <p>
+ * With metrics enabled, reactor-netty reports the pools as reactor.netty.connection.provider.*, tagged with
+ * the pool name and the remote address: total, active, idle and pending connections, and the time requests
+ * waited for a connection (pending.connections.time). For h2c it also reports active and pending streams,
+ * and the time requests waited for a stream (pending.streams.time), under the pool name http2.gateway-&lt;route
+ * id&gt;.
+ */
+public class RouteHttpClients implements DisposableBean {
+
+    private final HttpClientPoolProperties properties;
+    private final HttpClientProperties httpClientProperties;
+    private final ServerProperties serverProperties;
+    private final HttpClientSslConfigurer sslConfigurer;
+    private final List<HttpClientCustomizer> customizers;
+    private final ConnectionLeakDetector leakDetector;
+    private final ConcurrentMap<String, HttpClient> clients = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+
+    /**
+     * @param leakDetector Detector to report connections held too long to, or null to not track them.
+     */
+    public RouteHttpClients(HttpClientPoolProperties properties, HttpClientProperties httpClientProperties,
+                            ServerProperties serverProperties, HttpClientSslConfigurer sslConfigurer,
+                            List<HttpClientCustomizer> customizers, ConnectionLeakDetector leakDetector) {
+        this.properties = properties;
+        this.httpClientProperties = httpClientProperties;
+        this.serverProperties = serverProperties;
+        this.sslConfigurer = sslConfigurer;
+        this.customizers = customizers;
+        this.leakDetector = leakDetector;
+    }
+
+    public HttpClient get(String routeId) {
+        HttpClient client = clients.get(routeId);
+        return client != null ? client : clients.computeIfAbsent(routeId, this::newClient);
+    }
+
+    private HttpClient newClient(String routeId) {
+        Pool pool = properties.getRoutes().getOrDefault(routeId, properties.getDefaultPool());
+        ConnectionProvider provider = pool.connectionProvider("gateway-" + routeId);
+        providers.put(routeId, provider);
+        HttpClient client = new RouteHttpClientFactory(provider).build()
+                .protocol(pool.getProtocol().httpProtocol);
+        if (leakDetector != null) {
+            client = client.observe(leakDetector.observer(routeId, pool.getProtocol() == Protocol.H2C));
+        }
+        return client;
+    }
+
+    @Override
+    public void destroy() {
+        providers.values().forEach(ConnectionProvider::dispose);
+        providers.clear();
+        clients.clear();
+    }
+
+    /**
+     * Builds a client the way the gateway builds its own, on the connection pool of a route.
+     */
+    private final class RouteHttpClientFactory extends HttpClientFactory {
+
+        private final ConnectionProvider provider;
+
+        private RouteHttpClientFactory(ConnectionProvider provider) {
+            super(RouteHttpClients.this.httpClientProperties, RouteHttpClients.this.serverProperties,
+                    RouteHttpClients.this.sslConfigurer, RouteHttpClients.this.customizers);
+            this.provider = provider;
+        }
+
+        @Override
+        protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+            return provider;
+        }
+
+        private HttpClient build() {
+            return createInstance();
+        }
+    }
+
+    public enum Protocol {
+
+        /**
+         * One request at a time per connection.
+         */
+        HTTP11(HttpProtocol.HTTP11),
+
+        /**
+         * HTTP/2 over plain TCP with prior knowledge, many concurrent requests per connection. The backend
+         * has to serve h2c, e.g. Tomcat with server.http2.enabled.
+         */
+        H2C(HttpProtocol.H2C);
+
+        private final HttpProtocol httpProtocol;
+
+        Protocol(HttpProtocol httpProtocol) {
+            this.httpProtocol = httpProtocol;
+        }
+    }
+
+    /**
+     * Settings of the connection pool of one route. The limits apply per backend instance.
+     */
+    public static class Pool {
+
+        /**
+         * Protocol spoken to the backend.
+         */
+        private Protocol protocol = Protocol.HTTP11;
+
+        /**
+         * Connections to one backend instance at most.
+         */
+        private int maxConnections = 64;
+
+        /**
+         * Concurrent requests on one h2c connection at most; the backend may allow fewer.
+         */
+        private int maxConcurrentStreams = 100;
+
+        /**
+         * Requests that may wait for a connection or stream at once; beyond it they fail right away.
+         */
+        private int pendingAcquireMaxCount = 256;
+
+        /**
+         * Time a request waits for a connection or stream before it fails.
+         */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Idle connections are closed after this time. Below the keep-alive timeout of the backends (20s on
+         * Tomcat), so the gateway does not pick a connection the backend is just closing.
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(15);
+
+        /**
+         * Connections are closed after this time, so new backend instances get their share of them.
+         */
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+
+        /**
+         * Interval at which idle and expired connections are closed in the background.
+         */
+        private Duration evictionInterval = Duration.ofSeconds(30);
+
+        /**
+         * Whether the pool reports its metrics.
+         */
+        private boolean metrics = true;
+
+        ConnectionProvider connectionProvider(String name) {
+            ConnectionProvider.Builder builder = ConnectionProvider.builder(name)
+                    .maxConnections(maxConnections)
+                    .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                    .pendingAcquireTimeout(pendingAcquireTimeout)
+                    .maxIdleTime(maxIdleTime)
+                    .maxLifeTime(maxLifeTime)
+                    .evictInBackground(evictionInterval)
+                    .metrics(metrics);
+            if (protocol == Protocol.H2C) {
+                // has to come after maxConnections, which drops any allocation strategy set before
+                builder.allocationStrategy(Http2AllocationStrategy.builder()
+                        .maxConnections(maxConnections)
+                        .maxConcurrentStreams(maxConcurrentStreams)
+                        .build());
+            }
+            return builder.build();
+        }
+
+        public Protocol getProtocol() {
+            return protocol;
+        }
+
+        public Pool setProtocol(Protocol protocol) {
+            this.protocol = protocol;
+            return this;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        public Pool setMaxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public int getMaxConcurrentStreams() {
+            return maxConcurrentStreams;
+        }
+
+        public Pool setMaxConcurrentStreams(int maxConcurrentStreams) {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+            return this;
+        }
+
+        public int getPendingAcquireMaxCount() {
+            return pendingAcquireMaxCount;
+        }
+
+        public Pool setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+            this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+            return this;
+        }
+
+        public Duration getPendingAcquireTimeout() {
+            return pendingAcquireTimeout;
+        }
+
+        public Pool setPendingAcquireTimeout(Duration pendingAcquireTimeout) {
+            this.pendingAcquireTimeout = pendingAcquireTimeout;
+            return this;
+        }
+
+        public Duration getMaxIdleTime() {
+            return maxIdleTime;
+        }
+
+        public Pool setMaxIdleTime(Duration maxIdleTime) {
+            this.maxIdleTime = maxIdleTime;
+            return this;
+        }
+
+        public Duration getMaxLifeTime() {
+            return maxLifeTime;
+        }
+
+        public Pool setMaxLifeTime(Duration maxLifeTime) {
+            this.maxLifeTime = maxLifeTime;
+            return this;
+        }
+
+        public Duration getEvictionInterval() {
+            return evictionInterval;
+        }
+
+        public Pool setEvictionInterval(Duration evictionInterval) {
+            this.evictionInterval = evictionInterval;
+            return this;
+        }
+
+        public boolean isMetrics() {
+            return metrics;
+        }
+
+        public Pool setMetrics(boolean metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+    }
+}
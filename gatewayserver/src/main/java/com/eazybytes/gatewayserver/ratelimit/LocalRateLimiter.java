@@ -0,0 +1,245 @@
+package com.eazybytes.gatewayserver.ratelimit;
+
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Token bucket rate limiter that keeps its buckets in gateway memory instead of Redis.
+ * <p>
+ * Buckets are kept per route in a {@link ConcurrentHashMap}, whose bins are locked individually, and updated
+ * with a single compare-and-set (see {@link TokenBucket}), so a request only contends with requests for the
+ * same key. The limits have the same meaning as those of {@link RedisRateLimiter} and the same response
+ * headers are returned. Buckets that have been full for the idle timeout are dropped by {@link #evictIdle}.
+ * <p>
+ * Each gateway instance enforces the limits on its own traffic. {@link RedisUsageSync} can share the
+ * consumption between instances in the background.
+ */
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Config defaultConfig;
+    private final boolean includeHeaders;
+    private final ConcurrentMap<String, RouteBuckets> routes = new ConcurrentHashMap<>();
+    private volatile boolean trackUsage;
+
+    public LocalRateLimiter(ConfigurationService configurationService, Config defaultConfig, boolean includeHeaders) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.defaultConfig = defaultConfig;
+        this.includeHeaders = includeHeaders;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        RouteBuckets route = routes.get(routeId);
+        if (route == null) {
+            route = routes.computeIfAbsent(routeId, this::newRoute);
+        }
+        long now = System.nanoTime();
+        long result;
+        TokenBucket bucket;
+        do {
+            bucket = route.buckets.get(id);
+            if (bucket == null) {
+                bucket = route.buckets.computeIfAbsent(id, key -> new TokenBucket(now));
+            }
+            result = route.tryAcquire(bucket, now);
+            if (result == TokenBucket.RETIRED) {
+                // lost a race with evictIdle, which removes the bucket right after retiring it
+                route.buckets.remove(id, bucket);
+            }
+        } while (result == TokenBucket.RETIRED);
+
+        boolean allowed = result >= 0;
+        if (allowed && trackUsage) {
+            bucket.recordUsage(route.requestedTokens);
+        }
+        return Mono.just(new Response(allowed, route.headers(allowed ? result : -1 - result)));
+    }
+
+    /**
+     * Drops the buckets that have been full for at least the given time. Such buckets are indistinguishable
+     * from new ones, so no request is let through or denied differently because of it.
+     *
+     * @return The number of buckets dropped.
+     */
+    public int evictIdle(long idleNanos) {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (RouteBuckets route : routes.values()) {
+            for (Map.Entry<String, TokenBucket> entry : route.buckets.entrySet()) {
+                if (entry.getValue().retireIfIdle(now, idleNanos)
+                        && route.buckets.remove(entry.getKey(), entry.getValue())) {
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return The number of buckets currently held.
+     */
+    public int size() {
+        int size = 0;
+        for (RouteBuckets route : routes.values()) {
+            size += route.buckets.size();
+        }
+        return size;
+    }
+
+    void setTrackUsage(boolean trackUsage) {
+        this.trackUsage = trackUsage;
+    }
+
+    void forEachBucket(RouteBucketConsumer consumer) {
+        routes.forEach((routeId, route) -> route.buckets.forEach((id, bucket) -> consumer.accept(routeId, id, bucket)));
+    }
+
+    /**
+     * Takes tokens consumed for the key by other gateway instances out of its local bucket.
+     */
+    void chargeRemoteUsage(String routeId, TokenBucket bucket, long tokens) {
+        RouteBuckets route = routes.get(routeId);
+        if (route != null && tokens > 0) {
+            bucket.charge(System.nanoTime(), saturatedMultiply(tokens, route.intervalNanos), route.toleranceNanos);
+        }
+    }
+
+    private RouteBuckets newRoute(String routeId) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        if (config == null) {
+            throw new IllegalArgumentException("No rate limiter configuration found for route " + routeId);
+        }
+        return new RouteBuckets(config, includeHeaders);
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        return (high == 0 && low >= 0) ? low : Long.MAX_VALUE;
+    }
+
+    @FunctionalInterface
+    interface RouteBucketConsumer {
+
+        void accept(String routeId, String id, TokenBucket bucket);
+    }
+
+    /**
+     * Buckets of one route, with its limits converted to nanosecond intervals once.
+     */
+    private static final class RouteBuckets {
+
+        private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+        private final long intervalNanos;
+        private final long costNanos;
+        private final long toleranceNanos;
+        private final int requestedTokens;
+        private final boolean includeHeaders;
+        private final String replenishRate;
+        private final String burstCapacity;
+        private final String requested;
+
+        private RouteBuckets(Config config, boolean includeHeaders) {
+            if (config.getReplenishRate() <= 0 || config.getBurstCapacity() <= 0 || config.getRequestedTokens() <= 0) {
+                throw new IllegalArgumentException("Rate limiter limits must be positive: " + config);
+            }
+            this.intervalNanos = Math.max(1, NANOS_PER_SECOND / config.getReplenishRate());
+            this.costNanos = saturatedMultiply(intervalNanos, config.getRequestedTokens());
+            this.toleranceNanos = saturatedMultiply(intervalNanos, config.getBurstCapacity());
+            this.requestedTokens = config.getRequestedTokens();
+            this.includeHeaders = includeHeaders;
+            this.replenishRate = Integer.toString(config.getReplenishRate());
+            this.burstCapacity = Integer.toString(config.getBurstCapacity());
+            this.requested = Integer.toString(config.getRequestedTokens());
+        }
+
+        private long tryAcquire(TokenBucket bucket, long now) {
+            return bucket.tryAcquire(now, costNanos, toleranceNanos, intervalNanos);
+        }
+
+        private Map<String, String> headers(long tokensLeft) {
+            if (!includeHeaders) {
+                return Collections.emptyMap();
+            }
+            return Map.of(RedisRateLimiter.REMAINING_HEADER, Long.toString(tokensLeft),
+                    RedisRateLimiter.REPLENISH_RATE_HEADER, replenishRate,
+                    RedisRateLimiter.BURST_CAPACITY_HEADER, burstCapacity,
+                    RedisRateLimiter.REQUESTED_TOKENS_HEADER, requested);
+        }
+    }
+
+    /**
+     * Limits of one route.
+     */
+    public static class Config {
+
+        /**
+         * Tokens added to a bucket per second.
+         */
+        private int replenishRate;
+
+        /**
+         * Maximum number of tokens a bucket holds, i.e. the largest burst allowed.
+         */
+        private int burstCapacity;
+
+        /**
+         * Tokens a single request takes.
+         */
+        private int requestedTokens = 1;
+
+        public Config() {
+        }
+
+        public Config(int replenishRate, int burstCapacity, int requestedTokens) {
+            this.replenishRate = replenishRate;
+            this.burstCapacity = burstCapacity;
+            this.requestedTokens = requestedTokens;
+        }
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Config{replenishRate=" + replenishRate + ", burstCapacity=" + burstCapacity
+                    + ", requestedTokens=" + requestedTokens + "}";
+        }
+    }
+}
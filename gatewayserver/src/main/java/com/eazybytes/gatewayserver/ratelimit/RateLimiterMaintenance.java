@@ -0,0 +1,75 @@
+package com.eazybytes.gatewayserver.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+/**
+ * Runs the background work of the {@link LocalRateLimiter}: dropping idle buckets and, in hybrid mode,
+ * syncing usage with Redis. A run that is still busy when the next one is due is skipped.
+ */
+public class RateLimiterMaintenance implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimiterMaintenance.class);
+
+    private final LocalRateLimiter rateLimiter;
+    private final Duration idleTimeout;
+    private final Duration sweepInterval;
+    private final RedisUsageSync usageSync;
+    private final Duration syncInterval;
+
+    private volatile Disposable tasks;
+
+    /**
+     * @param usageSync    Usage sync to run, or null when the limiter only counts local usage.
+     * @param syncInterval Interval between two usage syncs; ignored without a usage sync.
+     */
+    public RateLimiterMaintenance(LocalRateLimiter rateLimiter, Duration idleTimeout, Duration sweepInterval,
+                                  RedisUsageSync usageSync, Duration syncInterval) {
+        this.rateLimiter = rateLimiter;
+        this.idleTimeout = idleTimeout;
+        this.sweepInterval = sweepInterval;
+        this.usageSync = usageSync;
+        this.syncInterval = syncInterval;
+    }
+
+    @Override
+    public void start() {
+        long idleNanos = idleTimeout.toNanos();
+        Disposable.Composite composite = Disposables.composite();
+        composite.add(Flux.interval(sweepInterval, Schedulers.parallel())
+                .onBackpressureDrop()
+                .subscribe(tick -> {
+                    int evicted = rateLimiter.evictIdle(idleNanos);
+                    log.debug("Evicted {} idle rate limiter buckets, {} left", evicted, rateLimiter.size());
+                }));
+        if (usageSync != null) {
+            composite.add(Flux.interval(syncInterval, Schedulers.parallel())
+                    .onBackpressureDrop()
+                    .concatMap(tick -> usageSync.sync().onErrorResume(e -> Mono.empty()), 1)
+                    .subscribe());
+        }
+        tasks = composite;
+    }
+
+    @Override
+    public void stop() {
+        Disposable running = tasks;
+        if (running != null) {
+            running.dispose();
+            tasks = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return tasks != null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.eazybytes.gatewayserver.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shares the consumption of the {@link LocalRateLimiter} buckets between gateway instances through Redis.
+ * <p>
+ * Requests never wait for Redis. Instead, every sync adds the tokens each key consumed locally since the
+ * previous sync to a counter in Redis, reads the new total back and takes whatever the other instances consumed
+ * in the meantime out of the local bucket. The limits therefore hold across instances up to the usage of one
+ * sync interval, and the gateway keeps limiting requests on its own while Redis is unavailable.
+ */
+public class RedisUsageSync {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisUsageSync.class);
+
+    private static final int CONCURRENCY = 16;
+
+    /**
+     * Adds ARGV[1] to the counter in KEYS[1], refreshes its TTL to ARGV[2] seconds and returns the new total,
+     * all in one round trip.
+     */
+    static final RedisScript<Long> ADD_USAGE_SCRIPT = RedisScript.of("""
+            local total = redis.call('incrby', KEYS[1], ARGV[1])
+            redis.call('expire', KEYS[1], ARGV[2])
+            return total
+            """, Long.class);
+
+    private final LocalRateLimiter rateLimiter;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final long keyTtlSeconds;
+
+    /**
+     * @param keyTtl How long a usage counter is kept in Redis after its last update.
+     */
+    public RedisUsageSync(LocalRateLimiter rateLimiter, ReactiveStringRedisTemplate redisTemplate, Duration keyTtl) {
+        this.rateLimiter = rateLimiter;
+        this.redisTemplate = redisTemplate;
+        this.keyTtlSeconds = Math.max(1, keyTtl.toSeconds());
+        rateLimiter.setTrackUsage(true);
+    }
+
+    static String usageKey(String routeId, String id) {
+        // braces keep the key on one slot in Redis Cluster, like the keys of RedisRateLimiter
+        return "request_rate_limiter.{" + routeId + "." + id + "}.consumed";
+    }
+
+    /**
+     * Pushes the local usage of every key used since the last sync and charges the usage of other instances.
+     *
+     * @return Completes once every key was synced; failed keys are retried on the next sync.
+     */
+    public Mono<Void> sync() {
+        List<Usage> usages = new ArrayList<>();
+        rateLimiter.forEachBucket((routeId, id, bucket) -> {
+            long tokens = bucket.drainUsage();
+            if (tokens > 0) {
+                usages.add(new Usage(routeId, id, bucket, tokens));
+            }
+        });
+        return Flux.fromIterable(usages)
+                .flatMap(this::push, CONCURRENCY)
+                .then();
+    }
+
+    private Mono<Void> push(Usage usage) {
+        String key = usageKey(usage.routeId(), usage.id());
+        return redisTemplate.execute(ADD_USAGE_SCRIPT, List.of(key),
+                        List.of(Long.toString(usage.tokens()), Long.toString(keyTtlSeconds)))
+                .next()
+                .doOnNext(total -> {
+                    TokenBucket bucket = usage.bucket();
+                    if (bucket.lastGlobalTokens >= 0) {
+                        rateLimiter.chargeRemoteUsage(usage.routeId(), bucket,
+                                total - bucket.lastGlobalTokens - usage.tokens());
+                    }
+                    bucket.lastGlobalTokens = total;
+                })
+                .then()
+                .onErrorResume(e -> {
+                    log.debug("Could not sync rate limiter usage of {}: {}", key, e.getMessage());
+                    usage.bucket().restoreUsage(usage.tokens());
+                    return Mono.empty();
+                });
+    }
+
+    private record Usage(String routeId, String id, TokenBucket bucket, long tokens) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.eazybytes.gatewayserver.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket for a single rate limiter key.
+ * <p>
+ * The bucket is kept as one number, the theoretical arrival time of the next request on the
+ * {@link System#nanoTime()} scale (the generic cell rate algorithm). Taking tokens moves it forward by the
+ * emission interval per token, and a request is allowed as long as this does not push it further ahead of now
+ * than the burst tolerance. One compare-and-set therefore updates both the token count and the refill time.
+ * <p>
+ * A bucket whose arrival time lies in the past is full, which is exactly the state of a new bucket, so idle
+ * buckets can be dropped without losing anything. {@link #retireIfIdle} marks such a bucket so that no request
+ * is counted against it after it has been removed from its map.
+ */
+final class TokenBucket {
+
+    /**
+     * Returned by {@link #tryAcquire} when the bucket was retired; the caller has to look the key up again.
+     */
+    static final long RETIRED = Long.MIN_VALUE;
+
+    private static final long RETIRED_ARRIVAL = Long.MAX_VALUE;
+
+    private final AtomicLong theoreticalArrival;
+    private final AtomicLong unsyncedTokens = new AtomicLong();
+
+    /**
+     * Global consumption last read from Redis for this key, or -1 before the first sync. Only used by
+     * {@link RedisUsageSync}, whose runs never overlap.
+     */
+    long lastGlobalTokens = -1;
+
+    TokenBucket(long nowNanos) {
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @param nowNanos      Current {@link System#nanoTime()}.
+     * @param costNanos     Emission interval times the number of tokens requested.
+     * @param toleranceNanos Emission interval times the burst capacity.
+     * @param intervalNanos Emission interval of one token.
+     * @return The tokens left if the request is allowed; {@code -1 - tokensLeft} if it is denied; or
+     * {@link #RETIRED}.
+     */
+    long tryAcquire(long nowNanos, long costNanos, long toleranceNanos, long intervalNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            if (arrival == RETIRED_ARRIVAL) {
+                return RETIRED;
+            }
+            long base = arrival - nowNanos > 0 ? arrival : nowNanos;
+            long backlog = base - nowNanos + costNanos;
+            if (backlog > toleranceNanos) {
+                return -1 - Math.max(0, (toleranceNanos - (base - nowNanos)) / intervalNanos);
+            }
+            if (theoreticalArrival.compareAndSet(arrival, base + costNanos)) {
+                return (toleranceNanos - backlog) / intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * Takes tokens consumed elsewhere out of the bucket, at most until it is empty.
+     */
+    void charge(long nowNanos, long costNanos, long toleranceNanos) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            if (arrival == RETIRED_ARRIVAL) {
+                return;
+            }
+            long base = arrival - nowNanos > 0 ? arrival : nowNanos;
+            long charged = Math.min(base - nowNanos + costNanos, toleranceNanos);
+            if (charged <= arrival - nowNanos || theoreticalArrival.compareAndSet(arrival, nowNanos + charged)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retires the bucket if it has been full for at least the idle timeout and has no usage left to sync.
+     *
+     * @return true if the bucket was retired and may be removed from its map.
+     */
+    boolean retireIfIdle(long nowNanos, long idleNanos) {
+        long arrival = theoreticalArrival.get();
+        return arrival != RETIRED_ARRIVAL
+                && nowNanos - arrival >= idleNanos
+                && unsyncedTokens.get() == 0
+                && theoreticalArrival.compareAndSet(arrival, RETIRED_ARRIVAL);
+    }
+
+    void recordUsage(long tokens) {
+        unsyncedTokens.addAndGet(tokens);
+    }
+
+    long drainUsage() {
+        return unsyncedTokens.getAndSet(0);
+    }
+
+    void restoreUsage(long tokens) {
+        unsyncedTokens.addAndGet(tokens);
+    }
+}
@@ -0,0 +1,136 @@
+package com.eazybytes.gatewayserver.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.AbstractOAuth2TokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers verified bearer tokens so that a token is only decoded and its signature checked once.
+ * <p>
+ * Entries are keyed by the SHA-256 hash of the token, so the cache holds no usable tokens, and hold the
+ * complete Authentication including its granted authorities. An entry expires with its token, or after the
+ * maximum time to live if that comes first. Only successful authentications are cached; a rejected token is
+ * verified again on every request.
+ */
+public class CachingJwtAuthenticationManager implements ReactiveAuthenticationManager {
+
+    public static final String CACHE_NAME = "jwtAuthentication";
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final ReactiveAuthenticationManager delegate;
+    private final Cache<TokenHash, Authentication> cache;
+    private final Timer verificationTimer;
+
+    /**
+     * @param delegate     Manager that decodes and verifies tokens missing from the cache.
+     * @param maximumSize  Maximum number of cached authentications.
+     * @param maxTimeToLive Longest time an authentication is cached, however late its token expires.
+     */
+    public CachingJwtAuthenticationManager(ReactiveAuthenticationManager delegate, long maximumSize,
+                                           Duration maxTimeToLive, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(maxTimeToLive.toNanos()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.verificationTimer = Timer.builder("gateway.jwt.verification")
+                .description("Time to decode and verify a bearer token that was not cached")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (!(authentication instanceof BearerTokenAuthenticationToken bearer)) {
+            return delegate.authenticate(authentication);
+        }
+        TokenHash key = TokenHash.of(bearer.getToken());
+        Authentication cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        long start = System.nanoTime();
+        return delegate.authenticate(authentication)
+                .doOnNext(verified -> {
+                    verificationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (expiresAt(verified) != null) {
+                        cache.put(key, verified);
+                    }
+                });
+    }
+
+    long cachedTokens() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private static Instant expiresAt(Authentication authentication) {
+        return authentication instanceof AbstractOAuth2TokenAuthenticationToken<?> token
+                ? token.getToken().getExpiresAt() : null;
+    }
+
+    /**
+     * First 128 bits of the SHA-256 hash of a token.
+     */
+    record TokenHash(long high, long low) {
+
+        static TokenHash of(String token) {
+            MessageDigest digest = SHA_256.get();
+            ByteBuffer hash = ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenHash(hash.getLong(), hash.getLong());
+        }
+    }
+
+    private static final class TokenExpiry implements Expiry<TokenHash, Authentication> {
+
+        private final long maxTimeToLiveNanos;
+
+        private TokenExpiry(long maxTimeToLiveNanos) {
+            this.maxTimeToLiveNanos = maxTimeToLiveNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(TokenHash key, Authentication value, long currentTime) {
+            Instant expiresAt = expiresAt(value);
+            if (expiresAt == null) {
+                return 0;
+            }
+            long untilExpiry = Duration.between(Instant.now(), expiresAt).toNanos();
+            return Math.max(0, Math.min(untilExpiry, maxTimeToLiveNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenHash key, Authentication value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenHash key, Authentication value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.eazybytes.gatewayserver.security;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the signing keys of the authorization server in memory and refreshes them in the background.
+ * <p>
+ * Token verification looks keys up in the current key set and never waits for the authorization server,
+ * except when a token names a key id that is not known yet, as happens right after a key rotation. Such a
+ * lookup triggers one immediate refresh, at most once per minimum refresh interval, so tokens with made-up
+ * key ids cannot be used to flood the authorization server.
+ */
+public class JwksRefresher implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(JwksRefresher.class);
+
+    private final WebClient webClient;
+    private final String jwkSetUri;
+    private final Duration refreshInterval;
+    private final long minRefreshNanos;
+    private final AtomicLong lastRefresh;
+    private final Counter refreshSuccess;
+    private final Counter refreshFailure;
+
+    private volatile JWKSet jwkSet = new JWKSet();
+    private volatile Disposable refresher;
+
+    public JwksRefresher(WebClient webClient, String jwkSetUri, Duration refreshInterval,
+                         Duration minRefreshInterval, MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.jwkSetUri = jwkSetUri;
+        this.refreshInterval = refreshInterval;
+        this.minRefreshNanos = minRefreshInterval.toNanos();
+        // allows the first unknown key id to trigger a refresh right away
+        this.lastRefresh = new AtomicLong(System.nanoTime() - minRefreshNanos);
+        this.refreshSuccess = Counter.builder("gateway.jwks.refresh")
+                .description("Refreshes of the authorization server signing keys")
+                .tag("result", "success")
+                .register(meterRegistry);
+        this.refreshFailure = Counter.builder("gateway.jwks.refresh")
+                .description("Refreshes of the authorization server signing keys")
+                .tag("result", "failure")
+                .register(meterRegistry);
+        Gauge.builder("gateway.jwks.keys", this, refresher -> refresher.jwkSet.size())
+                .description("Signing keys currently known")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Key source for {@code NimbusReactiveJwtDecoder.withJwkSource}.
+     *
+     * @return The keys that may have signed the token: the key with its key id, or all keys if it has none.
+     */
+    public Flux<JWK> keysFor(SignedJWT jwt) {
+        String keyId = jwt.getHeader().getKeyID();
+        if (keyId == null) {
+            return Flux.fromIterable(jwkSet.getKeys());
+        }
+        JWK key = jwkSet.getKeyByKeyId(keyId);
+        if (key != null) {
+            return Flux.just(key);
+        }
+        long last = lastRefresh.get();
+        long now = System.nanoTime();
+        if (now - last < minRefreshNanos || !lastRefresh.compareAndSet(last, now)) {
+            return Flux.empty();
+        }
+        log.debug("Refreshing signing keys for unknown key id {}", keyId);
+        return refresh().flatMapMany(keys -> Mono.justOrEmpty(keys.getKeyByKeyId(keyId)));
+    }
+
+    /**
+     * Fetches the key set and replaces the current one. A failed fetch keeps the current keys.
+     *
+     * @return The key set in use after the refresh.
+     */
+    public Mono<JWKSet> refresh() {
+        return webClient.get()
+                .uri(jwkSetUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(body -> {
+                    try {
+                        return JWKSet.parse(body);
+                    } catch (ParseException e) {
+                        throw new IllegalStateException("Invalid JWK set from " + jwkSetUri, e);
+                    }
+                })
+                .doOnNext(keys -> {
+                    jwkSet = keys;
+                    lastRefresh.set(System.nanoTime());
+                    refreshSuccess.increment();
+                    log.debug("Loaded {} signing keys from {}", keys.size(), jwkSetUri);
+                })
+                .onErrorResume(e -> {
+                    refreshFailure.increment();
+                    log.warn("Could not refresh signing keys from {}: {}", jwkSetUri, e.getMessage());
+                    return Mono.just(jwkSet);
+                });
+    }
+
+    @Override
+    public void start() {
+        refresher = Flux.interval(Duration.ZERO, refreshInterval, Schedulers.parallel())
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh(), 1)
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        Disposable running = refresher;
+        if (running != null) {
+            running.dispose();
+            refresher = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return refresher != null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.eazybytes.gatewayserver.concurrency;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for a backend service with a fixed capacity: a fixed number of workers, each taking the
+ * service time per request. Requests beyond the capacity queue up in front of the workers, the way they do in
+ * front of the Tomcat threads of an overloaded service.
+ */
+class BackendStub implements AutoCloseable {
+
+    private static final byte[] BODY = "{\"statusCode\":\"200\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+
+    BackendStub(int workerCount, Duration serviceTime) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        workers = Executors.newFixedThreadPool(workerCount);
+        server.setExecutor(workers);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(serviceTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        });
+        server.start();
+    }
+
+    String uri() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/fetch";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+}
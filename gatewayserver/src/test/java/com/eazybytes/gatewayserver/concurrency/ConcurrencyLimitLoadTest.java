@@ -0,0 +1,160 @@
+package com.eazybytes.gatewayserver.concurrency;
+
+import com.eazybytes.gatewayserver.config.ConcurrencyLimitProperties;
+import com.eazybytes.gatewayserver.filters.ConcurrencyLimitGatewayFilterFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load harness for the ConcurrencyLimit filter: a closed loop of clients, several times more than a stub
+ * backend can serve at once, first straight against the backend and then through the filter. Half of the
+ * clients send reads with critical priority, the other half sheddable writes.
+ * <p>
+ * Without the limit every request waits in the backend queue; with it the backend queue stays short, the
+ * excess is rejected within microseconds and the writes are shed before the reads.
+ * <p>
+ * Run with {@code mvn test -Dtest=ConcurrencyLimitLoadTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ConcurrencyLimitLoadTest {
+
+    private static final int WORKERS = 8;
+    private static final Duration SERVICE_TIME = Duration.ofMillis(10);
+    private static final int CLIENTS = 64;
+    private static final Duration WARM_UP = Duration.ofSeconds(1);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(2);
+    private static final Duration CLIENT_BACKOFF = Duration.ofMillis(5);
+
+    @Test
+    void keepsLatencyOfAdmittedRequestsLowUnderOverload() throws Exception {
+        ConnectionProvider connections = ConnectionProvider.create("concurrency-load", CLIENTS * 2);
+        HttpClient httpClient = HttpClient.create(connections);
+        try (BackendStub backend = new BackendStub(WORKERS, SERVICE_TIME)) {
+            GatewayFilterChain forward = exchange -> httpClient
+                    .request(io.netty.handler.codec.http.HttpMethod.valueOf(exchange.getRequest().getMethod().name()))
+                    .uri(backend.uri())
+                    .responseSingle((response, body) -> body.then(Mono.fromRunnable(() -> exchange.getResponse()
+                            .setStatusCode(HttpStatusCode.valueOf(response.status().code())))))
+                    .then();
+
+            Result unlimited = run((exchange, chain) -> chain.filter(exchange), forward);
+
+            ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+            properties.setDefaultLimit(new ConcurrencyLimiter.Config().setInitialLimit(CLIENTS).setMinLimit(2));
+            ConcurrencyLimiters limiters = new ConcurrencyLimiters(properties, new SimpleMeterRegistry());
+            GatewayFilter filter = new ConcurrencyLimitGatewayFilterFactory(limiters, properties)
+                    .apply(new ConcurrencyLimitGatewayFilterFactory.Config()
+                            .setReadPriority(Priority.CRITICAL)
+                            .setWritePriority(Priority.SHEDDABLE));
+            Result limited = run(filter, forward);
+
+            System.out.printf("unlimited: %s%nlimited:   %s, final limit %d%n", unlimited, limited,
+                    limiters.limiter("loans").limit());
+            assertTrue(limited.percentile(0.99) < unlimited.percentile(0.99) / 2,
+                    "p99 of admitted requests must drop: " + limited + " vs " + unlimited);
+            assertTrue(limited.throughput() > unlimited.throughput() * 0.7,
+                    "backend must stay busy: " + limited + " vs " + unlimited);
+            assertTrue(limited.rejectionRate(HttpMethod.POST) > limited.rejectionRate(HttpMethod.GET),
+                    "writes must be shed before reads: " + limited);
+        } finally {
+            connections.dispose();
+        }
+    }
+
+    private static Result run(GatewayFilter filter, GatewayFilterChain forward) {
+        Result result = new Result();
+        long start = System.nanoTime();
+        long measureFrom = start + WARM_UP.toNanos();
+        long deadline = measureFrom + MEASUREMENT.toNanos();
+        Flux.range(0, CLIENTS)
+                .flatMap(client -> {
+                    HttpMethod method = client % 2 == 0 ? HttpMethod.GET : HttpMethod.POST;
+                    return Mono.defer(() -> call(filter, forward, method, measureFrom, result))
+                            .repeat(() -> System.nanoTime() < deadline);
+                }, CLIENTS)
+                .blockLast();
+        return result;
+    }
+
+    private static Mono<Void> call(GatewayFilter filter, GatewayFilterChain forward, HttpMethod method,
+                                   long measureFrom, Result result) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.method(method, "/eazybank/loans/api/fetch"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+                Route.async().id("loans").uri("lb://LOANS").predicate(e -> true).build());
+        long started = System.nanoTime();
+        return filter.filter(exchange, forward).then(Mono.defer(() -> {
+            boolean rejected = exchange.getResponse().getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE;
+            if (started >= measureFrom) {
+                result.record(method, rejected, System.nanoTime() - started);
+            }
+            return rejected ? Mono.delay(CLIENT_BACKOFF).then() : Mono.empty();
+        }));
+    }
+
+    private static final class Result {
+
+        private final ConcurrentLinkedQueue<Long> admittedNanos = new ConcurrentLinkedQueue<>();
+        private final AtomicLong readsSent = new AtomicLong();
+        private final AtomicLong readsRejected = new AtomicLong();
+        private final AtomicLong writesSent = new AtomicLong();
+        private final AtomicLong writesRejected = new AtomicLong();
+
+        private void record(HttpMethod method, boolean rejected, long nanos) {
+            boolean read = method == HttpMethod.GET;
+            (read ? readsSent : writesSent).incrementAndGet();
+            if (rejected) {
+                (read ? readsRejected : writesRejected).incrementAndGet();
+            } else {
+                admittedNanos.add(nanos);
+            }
+        }
+
+        private double percentile(double quantile) {
+            long[] sorted = admittedNanos.stream().mapToLong(Long::longValue).sorted().toArray();
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[Math.min(sorted.length - 1, (int) (sorted.length * quantile))] / 1e6;
+        }
+
+        private double throughput() {
+            return admittedNanos.size() / (MEASUREMENT.toNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        private double rejectionRate(HttpMethod method) {
+            return method == HttpMethod.GET
+                    ? readsRejected.get() / (double) Math.max(1, readsSent.get())
+                    : writesRejected.get() / (double) Math.max(1, writesSent.get());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f req/s admitted, p50 %.1fms, p99 %.1fms, rejected %.0f%% of reads and "
+                            + "%.0f%% of writes", throughput(), percentile(0.5), percentile(0.99),
+                    rejectionRate(HttpMethod.GET) * 100, rejectionRate(HttpMethod.POST) * 100);
+        }
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.eazybytes.gatewayserver.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CoalesceRequestsGatewayFilterFactoryTest {
+
+    private static final String PATH = "/eazybank/accounts/api/fetchCustomerDetails?mobileNumber=4354437687";
+    private static final String CUSTOMER_DETAILS = "{\"name\":\"Madan Reddy\",\"mobileNumber\":\"4354437687\"}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CoalesceRequestsGatewayFilterFactory factory = new CoalesceRequestsGatewayFilterFactory(meterRegistry);
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+
+    @Test
+    void sharesOneDownstreamCallBetweenIdenticalRequests() {
+        GatewayFilter filter = filter(DataSize.ofKilobytes(256));
+        List<MockServerWebExchange> exchanges = exchanges(10, "alice");
+
+        Flux.merge(exchanges.stream().map(exchange -> filter.filter(exchange, downstream(CUSTOMER_DETAILS))).toList())
+                .blockLast();
+
+        assertEquals(1, downstreamCalls.get());
+        for (MockServerWebExchange exchange : exchanges) {
+            assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+            assertEquals(MediaType.APPLICATION_JSON, exchange.getResponse().getHeaders().getContentType());
+            assertEquals(CUSTOMER_DETAILS, exchange.getResponse().getBodyAsString().block());
+        }
+        assertEquals(9, meterRegistry.get("gateway.coalescing.requests").tag("role", "follower").counter().count());
+        assertEquals(1, meterRegistry.get("gateway.coalescing.requests").tag("role", "leader").counter().count());
+    }
+
+    @Test
+    void doesNotShareBetweenPrincipals() {
+        GatewayFilter filter = filter(DataSize.ofKilobytes(256));
+        List<ServerWebExchange> exchanges = new ArrayList<>();
+        exchanges.addAll(exchanges(3, "alice"));
+        exchanges.addAll(exchanges(3, "bob"));
+
+        Flux.merge(exchanges.stream().map(exchange -> filter.filter(exchange, downstream(CUSTOMER_DETAILS))).toList())
+                .blockLast();
+
+        assertEquals(2, downstreamCalls.get());
+    }
+
+    @Test
+    void forwardsFollowersOnTheirOwnWhenBodyExceedsLimit() {
+        GatewayFilter filter = filter(DataSize.ofBytes(16));
+        List<MockServerWebExchange> exchanges = exchanges(4, "alice");
+
+        Flux.merge(exchanges.stream().map(exchange -> filter.filter(exchange, downstream(CUSTOMER_DETAILS))).toList())
+                .blockLast();
+
+        assertEquals(4, downstreamCalls.get());
+        for (MockServerWebExchange exchange : exchanges) {
+            assertEquals(CUSTOMER_DETAILS, exchange.getResponse().getBodyAsString().block());
+        }
+        assertEquals(3, meterRegistry.get("gateway.coalescing.requests").tag("role", "fallback").counter().count());
+    }
+
+    @Test
+    void passesDownstreamErrorToFollowers() {
+        GatewayFilter filter = filter(DataSize.ofKilobytes(256));
+        GatewayFilterChain failing = exchange -> {
+            downstreamCalls.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(100)).then(Mono.error(new IllegalStateException("accounts down")));
+        };
+
+        List<Mono<Void>> requests = exchanges(3, "alice").stream().map(exchange -> filter.filter(exchange, failing)
+                .onErrorResume(IllegalStateException.class, e -> Mono.empty())).toList();
+        Flux.merge(requests).blockLast();
+        assertEquals(1, downstreamCalls.get());
+
+        assertThrows(IllegalStateException.class,
+                () -> filter.filter(exchanges(1, "alice").get(0), failing).block());
+    }
+
+    private GatewayFilter filter(DataSize maxBodySize) {
+        return factory.apply(new CoalesceRequestsGatewayFilterFactory.Config()
+                .setPaths(List.of("/eazybank/accounts/api/fetchCustomerDetails"))
+                .setMaxBodySize(maxBodySize));
+    }
+
+    private static List<MockServerWebExchange> exchanges(int count, String principal) {
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.builder(MockServerHttpRequest.get(PATH)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .principal(new TestingAuthenticationToken(principal, null))
+                    .build();
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+                    Route.async().id("accounts").uri("lb://ACCOUNTS").predicate(e -> true).build());
+            exchanges.add(exchange);
+        }
+        return exchanges;
+    }
+
+    private GatewayFilterChain downstream(String body) {
+        return exchange -> {
+            downstreamCalls.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(100)).then(Mono.defer(() -> {
+                exchange.getResponse().setStatusCode(HttpStatus.OK);
+                exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                // two chunks, like a body arriving in several network reads
+                return exchange.getResponse().writeWith(Flux.just(
+                        exchange.getResponse().bufferFactory().wrap(Arrays.copyOfRange(bytes, 0, 10)),
+                        exchange.getResponse().bufferFactory().wrap(Arrays.copyOfRange(bytes, 10, bytes.length))));
+            }));
+        };
+    }
+}
@@ -0,0 +1,146 @@
+package com.eazybytes.gatewayserver.filters;
+
+import com.eazybytes.gatewayserver.concurrency.ConcurrencyLimiter;
+import com.eazybytes.gatewayserver.concurrency.ConcurrencyLimiters;
+import com.eazybytes.gatewayserver.concurrency.Priority;
+import com.eazybytes.gatewayserver.config.ConcurrencyLimitProperties;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitGatewayFilterFactoryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+
+    @Test
+    void rejectsRequestsBeyondTheLimitWithRetryAfter() {
+        properties.setDefaultLimit(new ConcurrencyLimiter.Config().setInitialLimit(4).setMinLimit(1));
+        properties.setRetryAfter(Duration.ofMillis(2500));
+        ConcurrencyLimiters limiters = new ConcurrencyLimiters(properties, meterRegistry);
+        GatewayFilter filter = new ConcurrencyLimitGatewayFilterFactory(limiters, properties)
+                .apply(new ConcurrencyLimitGatewayFilterFactory.Config().setReadPriority(Priority.CRITICAL));
+        Sinks.Empty<Void> backend = Sinks.empty();
+        GatewayFilterChain chain = exchange -> backend.asMono();
+
+        for (int i = 0; i < 4; i++) {
+            filter.filter(get("cards"), chain).subscribe();
+        }
+        MockServerWebExchange rejected = get("cards");
+        filter.filter(rejected, chain).block();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+        assertEquals("3", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(4, limiters.limiter("cards").inFlight());
+        assertEquals(1, meterRegistry.get("gateway.concurrency.rejected").tag("route", "cards")
+                .tag("priority", "critical").counter().count());
+
+        backend.tryEmitEmpty();
+        assertEquals(0, limiters.limiter("cards").inFlight());
+    }
+
+    @Test
+    void shedsLowerPrioritiesFirst() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimiter.Config().setInitialLimit(10));
+
+        for (int i = 0; i < 7; i++) {
+            assertTrue(limiter.tryAcquire(Priority.SHEDDABLE) != null);
+        }
+        assertNull(limiter.tryAcquire(Priority.SHEDDABLE));
+        assertTrue(limiter.tryAcquire(Priority.NORMAL) != null);
+        assertTrue(limiter.tryAcquire(Priority.NORMAL) != null);
+        assertNull(limiter.tryAcquire(Priority.NORMAL));
+        assertTrue(limiter.tryAcquire(Priority.CRITICAL) != null);
+        assertNull(limiter.tryAcquire(Priority.CRITICAL));
+    }
+
+    @Test
+    void shrinksTheLimitWhenTheBackendSlowsDownOrTimesOut() {
+        properties.setDefaultLimit(new ConcurrencyLimiter.Config().setInitialLimit(20));
+        ConcurrencyLimiters limiters = new ConcurrencyLimiters(properties, meterRegistry);
+        GatewayFilter filter = new ConcurrencyLimitGatewayFilterFactory(limiters, properties)
+                .apply(new ConcurrencyLimitGatewayFilterFactory.Config());
+
+        // a baseline of fast responses with the limit fully used
+        for (int i = 0; i < 5; i++) {
+            runBatch(filter, limiters.limiter("loans") == null ? 20 : limiters.limiter("loans").limit(),
+                    Duration.ofMillis(2), HttpStatus.OK);
+        }
+        int baseline = limiters.limiter("loans").limit();
+        for (int i = 0; i < 5; i++) {
+            runBatch(filter, baseline, Duration.ofMillis(50), HttpStatus.OK);
+        }
+        int slowed = limiters.limiter("loans").limit();
+        assertTrue(slowed < baseline, slowed + " < " + baseline);
+
+        runBatch(filter, slowed, Duration.ZERO, HttpStatus.GATEWAY_TIMEOUT);
+        assertTrue(limiters.limiter("loans").limit() < slowed);
+    }
+
+    @Test
+    void countsAFallbackAfterATimeoutAsOverload() {
+        properties.setDefaultLimit(new ConcurrencyLimiter.Config().setInitialLimit(20));
+        ConcurrencyLimiters limiters = new ConcurrencyLimiters(properties, meterRegistry);
+        GatewayFilter filter = new ConcurrencyLimitGatewayFilterFactory(limiters, properties)
+                .apply(new ConcurrencyLimitGatewayFilterFactory.Config());
+        runBatch(filter, 20, Duration.ofMillis(2), HttpStatus.OK, null);
+        int before = limiters.limiter("loans").limit();
+
+        // an open circuit is answered by the fallback without calling the backend
+        Throwable openCircuit = CallNotPermittedException.createCallNotPermittedException(
+                CircuitBreaker.ofDefaults("loans"));
+        runBatch(filter, before, Duration.ZERO, HttpStatus.OK, openCircuit);
+        assertEquals(before, limiters.limiter("loans").limit());
+
+        // the circuit breaker timed the backend out and forwarded to the fallback, which answers 200
+        runBatch(filter, before, Duration.ZERO, HttpStatus.OK, new TimeoutException());
+        assertTrue(limiters.limiter("loans").limit() < before);
+    }
+
+    private static void runBatch(GatewayFilter filter, int requests, Duration latency, HttpStatus status) {
+        runBatch(filter, requests, latency, status, null);
+    }
+
+    private static void runBatch(GatewayFilter filter, int requests, Duration latency, HttpStatus status,
+                                 Throwable fallbackCause) {
+        GatewayFilterChain chain = exchange -> Mono.delay(latency)
+                .doOnNext(tick -> {
+                    if (fallbackCause != null) {
+                        exchange.getAttributes().put(ServerWebExchangeUtils.CIRCUITBREAKER_EXECUTION_EXCEPTION_ATTR,
+                                fallbackCause);
+                    }
+                    exchange.getResponse().setStatusCode(status);
+                })
+                .then();
+        Mono.when(IntStream.range(0, requests)
+                .mapToObj(i -> filter.filter(get("loans"), chain))
+                .toList()).block();
+    }
+
+    private static MockServerWebExchange get(String routeId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/eazybank/" + routeId
+                + "/api/fetch"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+                Route.async().id(routeId).uri("lb://" + routeId.toUpperCase()).predicate(e -> true).build());
+        return exchange;
+    }
+}
@@ -0,0 +1,174 @@
+package com.eazybytes.gatewayserver.filters;
+
+import ch.qos.logback.classic.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a request through the correlation id handling against a mock exchange, comparing CorrelationIdFilter
+ * with the former RequestTraceFilter/ResponseTraceFilter pair, which is reproduced below as the baseline.
+ * The response is completed after the chain, so the response header is written in both cases; the former
+ * pair added it only after the chain had finished, which fails once a downstream filter has committed the
+ * response. {@code createExchange} measures the mock exchange alone, to be subtracted from the others.
+ * Run with {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-cp %classpath com.eazybytes.gatewayserver.filters.CorrelationIdFilterBenchmark"};
+ * add {@code -prof gc} to the arguments of {@code main} to see the allocation per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CorrelationIdFilterBenchmark {
+
+    private static final GatewayFilterChain DOWNSTREAM = exchange -> Mono.empty();
+
+    private final CorrelationIdFilter correlationIdFilter = new CorrelationIdFilter();
+    private final GlobalFilter legacyRequestFilter = new LegacyRequestTraceFilter();
+    private final GlobalFilter legacyResponseFilter = new LegacyResponseTraceFilter();
+
+    @Setup
+    public void setUp() {
+        // without Spring Boot's logging setup logback logs everything at DEBUG to the console
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    @Benchmark
+    public ServerWebExchange createExchange() {
+        ServerWebExchange exchange = exchange(null);
+        exchange.getResponse().setComplete().block();
+        return exchange;
+    }
+
+    @Benchmark
+    public ServerWebExchange filterWithoutCorrelationId() {
+        ServerWebExchange exchange = exchange(null);
+        correlationIdFilter.filter(exchange, DOWNSTREAM).block();
+        exchange.getResponse().setComplete().block();
+        return exchange;
+    }
+
+    @Benchmark
+    public ServerWebExchange filterWithCorrelationId() {
+        ServerWebExchange exchange = exchange("0198f3a2-5c1e-7b4d-9a6f-2d3e4f5a6b7c");
+        correlationIdFilter.filter(exchange, DOWNSTREAM).block();
+        exchange.getResponse().setComplete().block();
+        return exchange;
+    }
+
+    @Benchmark
+    public ServerWebExchange legacyFiltersWithoutCorrelationId() {
+        ServerWebExchange exchange = exchange(null);
+        legacyChain(exchange).block();
+        exchange.getResponse().setComplete().block();
+        return exchange;
+    }
+
+    @Benchmark
+    public ServerWebExchange legacyFiltersWithCorrelationId() {
+        ServerWebExchange exchange = exchange("0198f3a2-5c1e-7b4d-9a6f-2d3e4f5a6b7c");
+        legacyChain(exchange).block();
+        exchange.getResponse().setComplete().block();
+        return exchange;
+    }
+
+    @Benchmark
+    public String generateCorrelationId() {
+        return CorrelationIdGenerator.next();
+    }
+
+    @Benchmark
+    public String generateRandomUuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    private Mono<Void> legacyChain(ServerWebExchange exchange) {
+        return legacyRequestFilter.filter(exchange,
+                requestFiltered -> legacyResponseFilter.filter(requestFiltered, DOWNSTREAM));
+    }
+
+    private static ServerWebExchange exchange(String correlationId) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/eazybank/accounts/api/fetch")
+                .header(HttpHeaders.ACCEPT, "application/json");
+        if (correlationId != null) {
+            request.header(CorrelationIdFilter.CORRELATION_ID, correlationId);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CorrelationIdFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static String legacyGetCorrelationId(HttpHeaders requestHeaders) {
+        if (requestHeaders.get(CorrelationIdFilter.CORRELATION_ID) != null) {
+            List<String> requestHeaderList = requestHeaders.get(CorrelationIdFilter.CORRELATION_ID);
+            return requestHeaderList.stream().findFirst().get();
+        }
+        return null;
+    }
+
+    /**
+     * The former RequestTraceFilter: two header lookups and a SecureRandom backed UUID.
+     */
+    private static final class LegacyRequestTraceFilter implements GlobalFilter {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
+            if (legacyGetCorrelationId(requestHeaders) != null) {
+                legacyGetCorrelationId(requestHeaders);
+            } else {
+                String correlationId = UUID.randomUUID().toString();
+                exchange = exchange.mutate().request(exchange.getRequest().mutate()
+                        .header(CorrelationIdFilter.CORRELATION_ID, correlationId).build()).build();
+            }
+            return chain.filter(exchange);
+        }
+    }
+
+    /**
+     * The former ResponseTraceFilter: looks the request header up again once the chain completed.
+     */
+    private static final class LegacyResponseTraceFilter implements GlobalFilter {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+            return chain.filter(exchange).then(Mono.fromRunnable(() -> {
+                String correlationId = legacyGetCorrelationId(exchange.getRequest().getHeaders());
+                if (!exchange.getResponse().getHeaders().containsKey(CorrelationIdFilter.CORRELATION_ID)) {
+                    exchange.getResponse().getHeaders().add(CorrelationIdFilter.CORRELATION_ID, correlationId);
+                }
+            }));
+        }
+    }
+}
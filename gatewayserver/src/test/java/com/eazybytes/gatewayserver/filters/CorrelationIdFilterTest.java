@@ -0,0 +1,48 @@
+package com.eazybytes.gatewayserver.filters;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class CorrelationIdFilterTest {
+
+    private final CorrelationIdFilter filter = new CorrelationIdFilter();
+
+    @Test
+    void keepsIncomingCorrelationId() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/eazybank/loans/api/fetch")
+                .header(CorrelationIdFilter.CORRELATION_ID, "incoming-id"));
+        AtomicReference<String> forwarded = new AtomicReference<>();
+
+        filter.filter(exchange, forwardedExchange -> {
+            forwarded.set(forwardedExchange.getRequest().getHeaders().getFirst(CorrelationIdFilter.CORRELATION_ID));
+            return forwardedExchange.getResponse().setComplete();
+        }).block();
+
+        assertEquals("incoming-id", forwarded.get());
+        assertEquals("incoming-id", exchange.getResponse().getHeaders().getFirst(CorrelationIdFilter.CORRELATION_ID));
+    }
+
+    @Test
+    void generatesTimeOrderedCorrelationIdWhenMissing() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/eazybank/loans/api/fetch"));
+        AtomicReference<String> forwarded = new AtomicReference<>();
+
+        filter.filter(exchange, forwardedExchange -> {
+            forwarded.set(forwardedExchange.getRequest().getHeaders().getFirst(CorrelationIdFilter.CORRELATION_ID));
+            return forwardedExchange.getResponse().setComplete();
+        }).block();
+
+        assertNotNull(forwarded.get());
+        assertEquals(forwarded.get(), exchange.getResponse().getHeaders().getFirst(CorrelationIdFilter.CORRELATION_ID));
+        UUID id = UUID.fromString(forwarded.get());
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+    }
+}
@@ -0,0 +1,250 @@
+package com.eazybytes.gatewayserver.filters;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClientsProperties;
+import org.springframework.cloud.gateway.config.GatewayLoadBalancerProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClientSpecification;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the gateway's routing filters, with the load balancer, against local stand-ins for two loans
+ * instances. Every twentieth request to an instance stalls, the way a request does during a GC pause or on a
+ * busy host, which sets the tail latency of the route unless the request is hedged.
+ * <p>
+ * The comparison of the tail latency with and without hedging takes about ten seconds and only runs with
+ * {@code -Dbenchmark=true}.
+ */
+class HedgingFilterTest {
+
+    private static final String BODY = "{\"mobileNumber\":\"4354437687\",\"loanType\":\"Home Loan\"}";
+    private static final int WARM_UP = 200;
+    private static final int REQUESTS = 600;
+    private static final int CONCURRENCY = 4;
+    private static final List<InstanceStub> INSTANCES = new ArrayList<>();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LoadBalancerClientFactory clientFactory;
+    private FilteringWebHandler handler;
+
+    @BeforeEach
+    void startInstances() {
+        INSTANCES.add(new InstanceStub());
+        INSTANCES.add(new InstanceStub());
+        clientFactory = new LoadBalancerClientFactory(new LoadBalancerClientsProperties());
+        clientFactory.setConfigurations(List.of(new LoadBalancerClientSpecification("LOANS",
+                new Class<?>[]{LoansInstances.class})));
+        ObjectProvider<List<HttpHeadersFilter>> headersFilters = new DefaultListableBeanFactory()
+                .getBeanProvider(ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class));
+        handler = new FilteringWebHandler(List.of(
+                new NettyWriteResponseFilter(List.of()),
+                new RouteToRequestUrlFilter(),
+                new ReactiveLoadBalancerClientFilter(clientFactory, new GatewayLoadBalancerProperties()),
+                new HedgingFilter(clientFactory, meterRegistry),
+                new NettyRoutingFilter(HttpClient.create(), headersFilters, new HttpClientProperties())));
+    }
+
+    @AfterEach
+    void stopInstances() {
+        INSTANCES.forEach(InstanceStub::close);
+        INSTANCES.clear();
+        clientFactory.destroy();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void hedgingCutsTheTailLatencyOfTheRoute() {
+        Route plain = route();
+        run(plain, WARM_UP);
+        long[] unhedged = run(plain, REQUESTS);
+
+        Route hedged = route(new HedgeGatewayFilterFactory().apply(new HedgeGatewayFilterFactory.Config()));
+        run(hedged, WARM_UP);
+        long[] withHedging = run(hedged, REQUESTS);
+
+        double hedges = meterRegistry.get("gateway.hedging.requests").tag("result", "hedged").counter().count();
+        double won = meterRegistry.get("gateway.hedging.requests").tag("result", "won").counter().count();
+        double delay = meterRegistry.get("gateway.hedging.delay").gauge().value();
+        System.out.printf("unhedged: p50 %.1fms, p99 %.1fms%nhedged:   p50 %.1fms, p99 %.1fms, %.0f hedges "
+                        + "for %d requests, %.0f used, hedge delay %.1fms%n", percentile(unhedged, 0.5),
+                percentile(unhedged, 0.99), percentile(withHedging, 0.5), percentile(withHedging, 0.99), hedges,
+                WARM_UP + REQUESTS, won, delay);
+
+        assertTrue(percentile(withHedging, 0.99) < percentile(unhedged, 0.99) / 3);
+        assertTrue(hedges <= (WARM_UP + REQUESTS) * 0.10 + 10, "hedges stay within the budget: " + hedges);
+        assertTrue(won > 0);
+    }
+
+    @Test
+    void stalledRequestIsAnsweredByTheHedgeOnTheOtherInstance() {
+        INSTANCES.get(0).stallEvery = 1;
+        INSTANCES.get(0).stallMillis = 2_000;
+        INSTANCES.get(1).stallEvery = Integer.MAX_VALUE;
+        Route hedged = route(new HedgeGatewayFilterFactory().apply(new HedgeGatewayFilterFactory.Config()
+                .setMaxDelay(Duration.ofMillis(20))
+                .setBudgetPercent(100)));
+
+        long[] latencies = run(hedged, 10);
+
+        double won = meterRegistry.get("gateway.hedging.requests").tag("result", "won").counter().count();
+        assertTrue(won >= 1, "requests to the stalled instance are won by their hedge: " + won);
+        assertTrue(percentile(latencies, 1) < 1_000, "slowest request " + percentile(latencies, 1) + "ms");
+    }
+
+    @Test
+    void budgetCapsHedgesWhenEveryInstanceIsSlow() {
+        INSTANCES.forEach(instance -> {
+            instance.stallEvery = 1;
+            instance.stallMillis = 50;
+        });
+        Route hedged = route(new HedgeGatewayFilterFactory().apply(new HedgeGatewayFilterFactory.Config()
+                .setMaxDelay(Duration.ofMillis(10))));
+        run(hedged, 100);
+
+        double hedges = meterRegistry.get("gateway.hedging.requests").tag("result", "hedged").counter().count();
+        double exhausted = meterRegistry.get("gateway.hedging.requests").tag("result", "budget_exhausted")
+                .counter().count();
+        assertTrue(hedges <= 10, "at most 10% of 100 requests are hedged: " + hedges);
+        assertEquals(100, hedges + exhausted);
+    }
+
+    private static Route route(GatewayFilter... filters) {
+        List<GatewayFilter> ordered = new ArrayList<>();
+        for (int i = 0; i < filters.length; i++) {
+            ordered.add(new OrderedGatewayFilter(filters[i], i + 1));
+        }
+        return Route.async().id("loans").uri("lb://LOANS").predicate(e -> true).filters(ordered).build();
+    }
+
+    /**
+     * @return The latency of each request in nanoseconds, sorted.
+     */
+    private long[] run(Route route, int requests) {
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        Flux.range(0, requests)
+                .flatMap(i -> {
+                    MockServerWebExchange exchange = MockServerWebExchange.from(
+                            MockServerHttpRequest.get("http://localhost/api/fetch?mobileNumber=4354437687"));
+                    exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+                    long start = System.nanoTime();
+                    return handler.handle(exchange)
+                            .then(Mono.defer(() -> exchange.getResponse().getBodyAsString()))
+                            .doOnNext(body -> {
+                                latencies.add(System.nanoTime() - start);
+                                assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+                                assertEquals(BODY, body);
+                            });
+                }, CONCURRENCY)
+                .blockLast();
+        return latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * quantile))] / 1e6;
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class LoansInstances {
+
+        @Bean
+        ServiceInstanceListSupplier loansInstances() {
+            return new ServiceInstanceListSupplier() {
+
+                @Override
+                public String getServiceId() {
+                    return "LOANS";
+                }
+
+                @Override
+                public Flux<List<ServiceInstance>> get() {
+                    List<ServiceInstance> instances = new ArrayList<>();
+                    for (InstanceStub instance : INSTANCES) {
+                        instances.add(new DefaultServiceInstance("loans-" + instance.port(), "LOANS", "localhost",
+                                instance.port(), false));
+                    }
+                    return Flux.just(instances);
+                }
+            };
+        }
+
+        @Bean
+        ReactorLoadBalancer<ServiceInstance> loansLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers) {
+            return new RoundRobinLoadBalancer(suppliers, "LOANS");
+        }
+    }
+
+    /**
+     * A loans instance that answers in about 2ms, except for every n-th request, which stalls.
+     */
+    private static final class InstanceStub implements AutoCloseable {
+
+        private final DisposableServer server;
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile int stallEvery = 20;
+        private volatile int stallMillis = 300;
+
+        private InstanceStub() {
+            server = HttpServer.create()
+                    .host("localhost")
+                    .port(0)
+                    .handle((request, response) -> Mono.delay(Duration.ofMillis(
+                                    requests.incrementAndGet() % stallEvery == 0 ? stallMillis : 2))
+                            .then(response.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                    .sendString(Mono.just(BODY))
+                                    .then()))
+                    .bindNow();
+        }
+
+        private int port() {
+            return server.port();
+        }
+
+        @Override
+        public void close() {
+            server.disposeNow();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.eazybytes.gatewayserver.filters;
+
+import com.eazybytes.gatewayserver.cache.ResponseCache;
+import com.eazybytes.gatewayserver.config.ResponseCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final String CONTACT_INFO = "{\"message\":\"Welcome to EazyBank accounts\"}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseCache responseCache = new ResponseCache(new ResponseCacheProperties(), meterRegistry);
+    private final GatewayFilter filter = new ResponseCacheGatewayFilterFactory(responseCache)
+            .apply(new ResponseCacheGatewayFilterFactory.Config()
+                    .setPaths(List.of("/eazybank/*/api/contact-info"))
+                    .setTtl(Duration.ofMinutes(5)));
+    private final AtomicInteger downstreamCalls = new AtomicInteger();
+
+    @Test
+    void servesRepeatedGetFromCache() {
+        MockServerWebExchange first = exchange("/eazybank/accounts/api/contact-info", null);
+        filter.filter(first, downstream(CONTACT_INFO, null)).block();
+        MockServerWebExchange second = exchange("/eazybank/accounts/api/contact-info", null);
+        filter.filter(second, downstream(CONTACT_INFO, null)).block();
+
+        assertEquals(1, downstreamCalls.get());
+        assertEquals("MISS", first.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER));
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER));
+        assertEquals(CONTACT_INFO, second.getResponse().getBodyAsString().block());
+        assertEquals(MediaType.APPLICATION_JSON, second.getResponse().getHeaders().getContentType());
+        assertEquals(first.getResponse().getHeaders().getETag(), second.getResponse().getHeaders().getETag());
+        assertEquals(CONTACT_INFO.length(), meterRegistry.get("gateway.response.cache.saved").counter().count());
+        assertEquals(1, meterRegistry.get("gateway.response.cache.requests").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void answersMatchingIfNoneMatchWithNotModified() {
+        MockServerWebExchange first = exchange("/eazybank/accounts/api/contact-info", null);
+        filter.filter(first, downstream(CONTACT_INFO, null)).block();
+        String etag = first.getResponse().getHeaders().getETag();
+        assertNotNull(etag);
+
+        MockServerWebExchange revalidation = exchange("/eazybank/accounts/api/contact-info", "W/" + etag);
+        filter.filter(revalidation, downstream(CONTACT_INFO, null)).block();
+
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidation.getResponse().getStatusCode());
+        assertEquals(etag, revalidation.getResponse().getHeaders().getETag());
+        assertEquals(1, downstreamCalls.get());
+    }
+
+    @Test
+    void doesNotCacheUnselectedPathsOrNoStoreResponses() {
+        filter.filter(exchange("/eazybank/accounts/api/fetch", null), downstream(CONTACT_INFO, null)).block();
+        filter.filter(exchange("/eazybank/accounts/api/fetch", null), downstream(CONTACT_INFO, null)).block();
+        filter.filter(exchange("/eazybank/cards/api/contact-info", null), downstream(CONTACT_INFO, "no-store")).block();
+        filter.filter(exchange("/eazybank/cards/api/contact-info", null), downstream(CONTACT_INFO, "no-store")).block();
+
+        assertEquals(4, downstreamCalls.get());
+    }
+
+    @Test
+    void dropsCachedResponsesOnConfigRefresh() {
+        filter.filter(exchange("/eazybank/loans/api/contact-info", null), downstream(CONTACT_INFO, null)).block();
+        responseCache.onConfigRefresh();
+        MockServerWebExchange afterRefresh = exchange("/eazybank/loans/api/contact-info", null);
+        filter.filter(afterRefresh, downstream(CONTACT_INFO, null)).block();
+
+        assertEquals(2, downstreamCalls.get());
+        assertEquals("MISS", afterRefresh.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER));
+    }
+
+    private static MockServerWebExchange exchange(String path, String ifNoneMatch) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path).accept(MediaType.APPLICATION_JSON);
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+                Route.async().id(path.split("/")[2]).uri("lb://SERVICE").predicate(e -> true).build());
+        return exchange;
+    }
+
+    private GatewayFilterChain downstream(String body, String cacheControl) {
+        return exchange -> {
+            downstreamCalls.incrementAndGet();
+            assertNull(exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            if (cacheControl != null) {
+                exchange.getResponse().getHeaders().setCacheControl(cacheControl);
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(bytes)));
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.eazybytes.gatewayserver.filters;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteTimingFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RouteTimers routeTimers = new RouteTimers(meterRegistry);
+    private final RouteTimingFilter routeTimingFilter = new RouteTimingFilter(routeTimers);
+    private final UpstreamTimingFilter upstreamTimingFilter = new UpstreamTimingFilter(routeTimers);
+
+    @Test
+    void recordsPerRouteTimersAndReturnsMeasuredResponseTime() throws InterruptedException {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/eazybank/loans/api/fetch"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR,
+                Route.async().id("loans").uri("lb://LOANS").predicate(e -> true).build());
+
+        routeTimingFilter.filter(exchange, afterRouteTiming -> upstreamTimingFilter.filter(afterRouteTiming,
+                        upstream -> Mono.delay(Duration.ofMillis(20))
+                                .doOnNext(tick -> upstream.getResponse().setStatusCode(HttpStatus.NOT_FOUND))
+                                .then())
+                .then(afterRouteTiming.getResponse().setComplete())).block();
+
+        String responseTime = exchange.getResponse().getHeaders().getFirst(RouteTimingFilter.RESPONSE_TIME_HEADER);
+        assertNotNull(responseTime);
+        assertTrue(responseTime.matches("\\d+\\.\\d{3}ms"), responseTime);
+        assertTrue(Double.parseDouble(responseTime.substring(0, responseTime.length() - 2)) >= 20, responseTime);
+
+        Timer upstream = awaitTimer(RouteTimers.UPSTREAM_TIMER, "loans", "404");
+        Timer total = awaitTimer(RouteTimers.TOTAL_TIMER, "loans", "404");
+        assertEquals(1, upstream.count());
+        assertEquals(1, total.count());
+        assertTrue(upstream.totalTime(TimeUnit.MILLISECONDS) >= 20);
+        assertTrue(total.totalTime(TimeUnit.NANOSECONDS) >= upstream.totalTime(TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * doFinally callbacks run after the terminal signal has reached the subscriber, so block() may return first.
+     */
+    private Timer awaitTimer(String name, String route, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        Timer timer = meterRegistry.find(name).tag("route", route).tag("status", status).timer();
+        while ((timer == null || timer.count() == 0) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            timer = meterRegistry.find(name).tag("route", route).tag("status", status).timer();
+        }
+        assertNotNull(timer, name);
+        return timer;
+    }
+
+    @Test
+    void formatsMillisecondsWithMicrosecondPrecision() {
+        assertEquals("0.000ms", RouteTimingFilter.formatMillis(999));
+        assertEquals("12.034ms", RouteTimingFilter.formatMillis(12_034_567));
+        assertEquals("1500.500ms", RouteTimingFilter.formatMillis(1_500_500_000));
+    }
+}
@@ -0,0 +1,140 @@
+package com.eazybytes.gatewayserver.httpclient;
+
+import com.eazybytes.gatewayserver.config.HttpClientPoolProperties;
+import com.eazybytes.gatewayserver.filters.RouteHttpClientRoutingFilter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteHttpClientsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private DisposableServer backend;
+    private ConnectionLeakDetector leakDetector;
+    private RouteHttpClients clients;
+    private FilteringWebHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        Metrics.globalRegistry.add(meterRegistry);
+        // answers with the protocol of the request, or stalls halfway through the body of /stall
+        backend = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .handle((request, response) -> request.uri().equals("/stall")
+                        ? response.sendString(Flux.concat(Mono.just("partial"), Mono.never()))
+                        : response.sendString(Mono.just(request.protocol())))
+                .bindNow();
+
+        HttpClientPoolProperties properties = new HttpClientPoolProperties();
+        properties.getDefaultPool().setMaxConnections(2);
+        properties.getRoutes().put("loans", new RouteHttpClients.Pool()
+                .setProtocol(RouteHttpClients.Protocol.H2C)
+                .setMaxConnections(1));
+        leakDetector = new ConnectionLeakDetector(Duration.ofMillis(100), Duration.ofMinutes(1), meterRegistry);
+        HttpClientProperties httpClientProperties = new HttpClientProperties();
+        ServerProperties serverProperties = new ServerProperties();
+        clients = new RouteHttpClients(properties, httpClientProperties, serverProperties,
+                new HttpClientSslConfigurer(httpClientProperties.getSsl(), serverProperties, null), List.of(),
+                leakDetector);
+
+        ObjectProvider<List<HttpHeadersFilter>> headersFilters = new DefaultListableBeanFactory()
+                .getBeanProvider(ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class));
+        handler = new FilteringWebHandler(List.of(
+                new NettyWriteResponseFilter(List.of()),
+                new RouteToRequestUrlFilter(),
+                new RouteHttpClientRoutingFilter(clients, HttpClient.create(), headersFilters, httpClientProperties)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.destroy();
+        backend.disposeNow();
+        Metrics.globalRegistry.remove(meterRegistry);
+    }
+
+    @Test
+    void routesUseThePoolAndProtocolOfTheirSettings() {
+        assertEquals(List.of("HTTP/2.0"), fetch("loans", 20).distinct().collectList().block());
+        assertEquals(List.of("HTTP/1.1"), fetch("cards", 20).distinct().collectList().block());
+
+        // every request went over the single h2c connection of the loans pool
+        assertNotNull(meterRegistry.find("reactor.netty.connection.provider.pending.streams.time")
+                .tag("name", "http2.gateway-loans").timer());
+        assertEquals(1, meterRegistry.get("reactor.netty.connection.provider.total.connections")
+                .tag("name", "gateway-loans").gauge().value());
+        assertEquals(2, meterRegistry.get("reactor.netty.connection.provider.total.connections")
+                .tag("name", "gateway-cards").gauge().value());
+        awaitTrue(() -> leakDetector.leased() == 0);
+        assertEquals(0, leakDetector.sweep());
+    }
+
+    @Test
+    void heldConnectionsAreReportedOnceAsLeaked() throws InterruptedException {
+        Connection held = clients.get("cards").get()
+                .uri("http://localhost:" + backend.port() + "/stall")
+                .responseConnection((response, connection) -> Mono.just(connection))
+                .blockLast();
+        assertEquals("HTTP/1.1", fetch("cards", 1).blockLast());
+        Thread.sleep(150);
+
+        assertEquals(1, leakDetector.sweep());
+        assertEquals(0, leakDetector.sweep());
+        assertEquals(1, meterRegistry.get("gateway.httpclient.leaked").tag("route", "cards").counter().count());
+
+        held.dispose();
+        awaitTrue(() -> leakDetector.leased() == 0);
+    }
+
+    private Flux<String> fetch(String routeId, int requests) {
+        Route route = Route.async().id(routeId).uri("http://localhost:" + backend.port())
+                .predicate(exchange -> true).build();
+        return Flux.range(0, requests)
+                .flatMap(i -> {
+                    MockServerWebExchange exchange = MockServerWebExchange.from(
+                            MockServerHttpRequest.get("http://localhost/protocol"));
+                    exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+                    return handler.handle(exchange).then(Mono.defer(() -> exchange.getResponse().getBodyAsString()));
+                });
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            Thread.onSpinWait();
+        }
+    }
+}
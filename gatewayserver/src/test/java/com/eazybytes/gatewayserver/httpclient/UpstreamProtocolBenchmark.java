@@ -0,0 +1,126 @@
+package com.eazybytes.gatewayserver.httpclient;
+
+import ch.qos.logback.classic.Level;
+import com.eazybytes.gatewayserver.config.HttpClientPoolProperties;
+import com.eazybytes.gatewayserver.filters.RouteHttpClientRoutingFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.RouteToRequestUrlFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of GETs through the gateway's routing filters with HTTP/1.1 and with h2c to the backend, a
+ * local server that answers both in 10ms with a 1KB body. 64 threads send requests on a pool of
+ * {@code maxConnections}: with HTTP/1.1 that many requests can be in flight, with h2c all of them share the
+ * connections as streams. With enough connections the two only differ in the cost of the protocol. Run with
+ * {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-cp %classpath org.openjdk.jmh.Main UpstreamProtocolBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class UpstreamProtocolBenchmark {
+
+    private static final String BODY = "{\"loanNumber\":\"" + "0".repeat(1000) + "\"}";
+
+    @Param({"HTTP11", "H2C"})
+    public RouteHttpClients.Protocol protocol;
+
+    @Param({"4", "64"})
+    public int maxConnections;
+
+    private DisposableServer backend;
+    private RouteHttpClients clients;
+    private FilteringWebHandler handler;
+    private Route route;
+
+    @Setup
+    public void setUp() {
+        // without Spring Boot's logging setup logback logs everything at DEBUG to the console
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        backend = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .handle((request, response) -> Mono.delay(Duration.ofMillis(10))
+                        .then(response.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                .sendString(Mono.just(BODY))
+                                .then()))
+                .bindNow();
+
+        HttpClientPoolProperties properties = new HttpClientPoolProperties();
+        properties.getDefaultPool()
+                .setProtocol(protocol)
+                .setMaxConnections(maxConnections)
+                .setPendingAcquireMaxCount(-1)
+                .setMetrics(false);
+        HttpClientProperties httpClientProperties = new HttpClientProperties();
+        ServerProperties serverProperties = new ServerProperties();
+        clients = new RouteHttpClients(properties, httpClientProperties, serverProperties,
+                new HttpClientSslConfigurer(httpClientProperties.getSsl(), serverProperties, null), List.of(), null);
+        handler = new FilteringWebHandler(List.of(
+                new NettyWriteResponseFilter(List.of()),
+                new RouteToRequestUrlFilter(),
+                new RouteHttpClientRoutingFilter(clients, HttpClient.create(),
+                        new DefaultListableBeanFactory().getBeanProvider(
+                                ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class)),
+                        httpClientProperties)));
+        route = Route.async().id("loans").uri("http://localhost:" + backend.port())
+                .predicate(exchange -> true).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        clients.destroy();
+        backend.disposeNow();
+    }
+
+    @Benchmark
+    public String fetch() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("http://localhost/api/fetch?mobileNumber=4354437687"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return handler.handle(exchange)
+                .then(Mono.defer(() -> exchange.getResponse().getBodyAsString()))
+                .block();
+    }
+}
@@ -0,0 +1,119 @@
+package com.eazybytes.gatewayserver.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalRateLimiterTest {
+
+    private static final String ROUTE = "cards";
+
+    @Test
+    void allowsBurstThenRefillsAtReplenishRate() throws InterruptedException {
+        LocalRateLimiter rateLimiter = rateLimiter(new LocalRateLimiter.Config(20, 3, 1));
+
+        for (int i = 2; i >= 0; i--) {
+            RateLimiter.Response response = rateLimiter.isAllowed(ROUTE, "alice").block();
+            assertTrue(response.isAllowed());
+            assertEquals(Integer.toString(i), response.getHeaders().get(RedisRateLimiter.REMAINING_HEADER));
+        }
+        RateLimiter.Response denied = rateLimiter.isAllowed(ROUTE, "alice").block();
+        assertFalse(denied.isAllowed());
+        assertEquals("0", denied.getHeaders().get(RedisRateLimiter.REMAINING_HEADER));
+        assertEquals("3", denied.getHeaders().get(RedisRateLimiter.BURST_CAPACITY_HEADER));
+        assertTrue(rateLimiter.isAllowed(ROUTE, "bob").block().isAllowed(), "keys have separate buckets");
+
+        Thread.sleep(60);
+        assertTrue(rateLimiter.isAllowed(ROUTE, "alice").block().isAllowed());
+    }
+
+    @Test
+    void neverGrantsMoreThanBurstUnderContention() throws Exception {
+        LocalRateLimiter rateLimiter = rateLimiter(new LocalRateLimiter.Config(1, 10_000, 1));
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(() -> {
+                    int allowed = 0;
+                    for (int i = 0; i < 5_000; i++) {
+                        if (rateLimiter.isAllowed(ROUTE, "shared").block().isAllowed()) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                });
+            }
+            int allowed = 0;
+            for (Future<Integer> result : executor.invokeAll(tasks)) {
+                allowed += result.get();
+            }
+            long refilled = (System.nanoTime() - start) / 1_000_000_000L + 1;
+            assertTrue(allowed >= 10_000 && allowed <= 10_000 + refilled, "allowed " + allowed);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void evictsOnlyBucketsThatAreFullAgain() throws InterruptedException {
+        LocalRateLimiter rateLimiter = rateLimiter(new LocalRateLimiter.Config(1_000, 1, 1));
+        rateLimiter.isAllowed(ROUTE, "alice").block();
+        assertEquals(0, rateLimiter.evictIdle(0), "the bucket refills within 1ms");
+
+        Thread.sleep(5);
+        assertEquals(1, rateLimiter.evictIdle(0));
+        assertEquals(0, rateLimiter.size());
+        assertTrue(rateLimiter.isAllowed(ROUTE, "alice").block().isAllowed());
+    }
+
+    @Test
+    void chargesUsageOfOtherInstancesInHybridMode() {
+        RedisStandIn redis = new RedisStandIn(Duration.ZERO);
+        LocalRateLimiter instanceA = rateLimiter(new LocalRateLimiter.Config(1, 10, 1));
+        LocalRateLimiter instanceB = rateLimiter(new LocalRateLimiter.Config(1, 10, 1));
+        RedisUsageSync syncA = new RedisUsageSync(instanceA, redis, Duration.ofMinutes(10));
+        RedisUsageSync syncB = new RedisUsageSync(instanceB, redis, Duration.ofMinutes(10));
+
+        // the first sync of a key only records the baseline
+        instanceA.isAllowed(ROUTE, "alice").block();
+        instanceB.isAllowed(ROUTE, "alice").block();
+        syncA.sync().block();
+        syncB.sync().block();
+
+        for (int i = 0; i < 7; i++) {
+            assertTrue(instanceB.isAllowed(ROUTE, "alice").block().isAllowed());
+        }
+        instanceA.isAllowed(ROUTE, "alice").block();
+        syncB.sync().block();
+        syncA.sync().block();
+
+        // A used 2 and B 8 of the 10 tokens, so A has at most one refilled token left
+        assertEquals(10, redis.counter(RedisUsageSync.usageKey(ROUTE, "alice")));
+        int allowed = 0;
+        while (instanceA.isAllowed(ROUTE, "alice").block().isAllowed()) {
+            allowed++;
+        }
+        assertTrue(allowed <= 1, "allowed " + allowed);
+    }
+
+    private static LocalRateLimiter rateLimiter(LocalRateLimiter.Config config) {
+        LocalRateLimiter rateLimiter = new LocalRateLimiter(null, config, true);
+        rateLimiter.getConfig().put(ROUTE, config);
+        return rateLimiter;
+    }
+}
@@ -0,0 +1,95 @@
+package com.eazybytes.gatewayserver.ratelimit;
+
+import ch.qos.logback.classic.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a rate limiter decision of LocalRateLimiter with RedisRateLimiter, whose script runs on
+ * {@link RedisStandIn}. {@code roundTripMicros} adds a simulated network round trip to every Redis call;
+ * with 0 the Redis path still pays for building the script arguments and parsing the reply. Limits are high
+ * enough that every request is allowed, and each thread spreads its requests over 10,000 user keys.
+ * Run with {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-cp %classpath org.openjdk.jmh.Main RateLimiterBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RateLimiterBenchmark {
+
+    private static final String ROUTE = "cards";
+    private static final int KEYS = 10_000;
+    private static final int RATE = 1_000_000;
+
+    @Param({"0", "50"})
+    public int roundTripMicros;
+
+    private final String[] ids = new String[KEYS];
+    private LocalRateLimiter localRateLimiter;
+    private LocalRateLimiter hybridRateLimiter;
+    private RedisRateLimiter redisRateLimiter;
+
+    @Setup
+    public void setUp() {
+        // without Spring Boot's logging setup logback logs everything at DEBUG to the console
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        for (int i = 0; i < KEYS; i++) {
+            ids[i] = "user-" + i;
+        }
+        RedisStandIn redis = new RedisStandIn(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(roundTripMicros)));
+
+        localRateLimiter = new LocalRateLimiter(null, new LocalRateLimiter.Config(RATE, RATE, 1), true);
+        hybridRateLimiter = new LocalRateLimiter(null, new LocalRateLimiter.Config(RATE, RATE, 1), true);
+        // usage is only recorded per request; the background sync itself is not part of a decision
+        new RedisUsageSync(hybridRateLimiter, redis, Duration.ofMinutes(10));
+
+        RedisScript<List<Long>> script = RedisScript.of(new ClassPathResource("META-INF/scripts/request_rate_limiter.lua"));
+        redisRateLimiter = new RedisRateLimiter(redis, script, null);
+        redisRateLimiter.getConfig().put(ROUTE, new RedisRateLimiter.Config()
+                .setReplenishRate(RATE).setBurstCapacity(RATE).setRequestedTokens(1));
+    }
+
+    @Benchmark
+    public RateLimiter.Response local() {
+        return localRateLimiter.isAllowed(ROUTE, nextId()).block();
+    }
+
+    @Benchmark
+    public RateLimiter.Response hybrid() {
+        return hybridRateLimiter.isAllowed(ROUTE, nextId()).block();
+    }
+
+    @Benchmark
+    public RateLimiter.Response redis() {
+        return redisRateLimiter.isAllowed(ROUTE, nextId()).block();
+    }
+
+    private String nextId() {
+        return ids[ThreadLocalRandom.current().nextInt(KEYS)];
+    }
+}
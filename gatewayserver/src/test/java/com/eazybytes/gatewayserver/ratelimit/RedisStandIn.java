@@ -0,0 +1,69 @@
+package com.eazybytes.gatewayserver.ratelimit;
+
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * In-process stand-in for Redis that runs the two scripts the gateway uses: the request_rate_limiter.lua script
+ * of RedisRateLimiter and {@link RedisUsageSync#ADD_USAGE_SCRIPT}. Like Redis it executes one script at a time,
+ * and it can delay every reply by a simulated network round trip.
+ */
+class RedisStandIn extends ReactiveStringRedisTemplate {
+
+    private final Duration roundTrip;
+    private final Map<String, double[]> rateLimiterState = new HashMap<>();
+    private final Map<String, Long> counters = new HashMap<>();
+
+    RedisStandIn(Duration roundTrip) {
+        super(mock(ReactiveRedisConnectionFactory.class));
+        this.roundTrip = roundTrip;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> execute(RedisScript<T> script, List<String> keys, List<?> args) {
+        Object result;
+        if (script == RedisUsageSync.ADD_USAGE_SCRIPT) {
+            result = addUsage(keys.get(0), Long.parseLong((String) args.get(0)));
+        } else {
+            result = requestRateLimiter(keys.get(0), Double.parseDouble((String) args.get(0)),
+                    Double.parseDouble((String) args.get(1)), Double.parseDouble((String) args.get(3)));
+        }
+        Mono<T> reply = Mono.just((T) result);
+        return (roundTrip.isZero() ? reply : reply.delayElement(roundTrip)).flux();
+    }
+
+    long counter(String key) {
+        synchronized (this) {
+            return counters.getOrDefault(key, 0L);
+        }
+    }
+
+    private synchronized long addUsage(String key, long tokens) {
+        return counters.merge(key, tokens, Long::sum);
+    }
+
+    /**
+     * Java version of request_rate_limiter.lua, with the state of both of its keys kept under the first one.
+     */
+    private synchronized List<Long> requestRateLimiter(String key, double rate, double capacity, double requested) {
+        double now = System.currentTimeMillis() / 1000L;
+        double[] state = rateLimiterState.computeIfAbsent(key, k -> new double[] {capacity, 0});
+        double delta = Math.max(0, now - state[1]);
+        double filledTokens = Math.min(capacity, state[0] + delta * rate);
+        boolean allowed = filledTokens >= requested;
+        state[0] = allowed ? filledTokens - requested : filledTokens;
+        state[1] = now;
+        return List.of(allowed ? 1L : 0L, (long) state[0]);
+    }
+}
@@ -0,0 +1,100 @@
+package com.eazybytes.gatewayserver.security;
+
+import com.eazybytes.gatewayserver.config.KeycloakRoleConverter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
+import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingJwtAuthenticationManagerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JwksStub jwksStub;
+    private CachingJwtAuthenticationManager authenticationManager;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jwksStub = new JwksStub();
+        JwksRefresher jwksRefresher = new JwksRefresher(WebClient.create(), jwksStub.jwkSetUri(),
+                Duration.ofMinutes(5), Duration.ZERO, meterRegistry);
+        NimbusReactiveJwtDecoder jwtDecoder = NimbusReactiveJwtDecoder.withJwkSource(jwksRefresher::keysFor).build();
+        jwtDecoder.setJwtValidator(JwtValidators.createDefault());
+        JwtAuthenticationConverter jwtAuthenticationConverter = new JwtAuthenticationConverter();
+        jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(new KeycloakRoleConverter());
+        JwtReactiveAuthenticationManager verifyingManager = new JwtReactiveAuthenticationManager(jwtDecoder);
+        verifyingManager.setJwtAuthenticationConverter(new ReactiveJwtAuthenticationConverterAdapter(jwtAuthenticationConverter));
+        authenticationManager = new CachingJwtAuthenticationManager(verifyingManager, 100, Duration.ofMinutes(5),
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jwksStub.close();
+    }
+
+    @Test
+    void verifiesTokenOnceAndServesAuthenticationFromCache() {
+        String token = jwksStub.token("alice", List.of("CARDS", "LOANS"), Duration.ofMinutes(5));
+
+        Authentication first = authenticate(token);
+        Authentication second = authenticate(token);
+
+        assertSame(first, second);
+        assertEquals(List.of("ROLE_CARDS", "ROLE_LOANS"),
+                first.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        assertEquals(1, jwksStub.requests(), "the keys were loaded once, for the first unknown key id");
+        assertEquals(1, meterRegistry.get("gateway.jwt.verification").timer().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", CachingJwtAuthenticationManager.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void doesNotCacheRejectedTokens() {
+        authenticate(jwksStub.token("alice", List.of("CARDS"), Duration.ofMinutes(5)));
+        String forged = jwksStub.forgedToken("mallory", List.of("ACCOUNTS"));
+
+        assertThrows(RuntimeException.class, () -> authenticate(forged));
+        assertThrows(RuntimeException.class, () -> authenticate(forged));
+        assertEquals(1, authenticationManager.cachedTokens());
+    }
+
+    @Test
+    void evictsAuthenticationWhenTokenExpires() throws InterruptedException {
+        authenticate(jwksStub.token("alice", List.of("CARDS"), Duration.ofSeconds(2)));
+        assertEquals(1, authenticationManager.cachedTokens());
+
+        Thread.sleep(2_100);
+        assertEquals(0, authenticationManager.cachedTokens());
+    }
+
+    @Test
+    void loadsRotatedKeysForUnknownKeyId() {
+        authenticate(jwksStub.token("alice", List.of("CARDS"), Duration.ofMinutes(5)));
+        jwksStub.rotateKey();
+
+        Authentication rotated = authenticate(jwksStub.token("bob", List.of("ACCOUNTS"), Duration.ofMinutes(5)));
+
+        assertEquals("bob", rotated.getName());
+        assertEquals(2, jwksStub.requests());
+    }
+
+    private Authentication authenticate(String token) {
+        return authenticationManager.authenticate(new BearerTokenAuthenticationToken(token)).block();
+    }
+}
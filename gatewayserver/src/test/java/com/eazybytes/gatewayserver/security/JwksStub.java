@@ -0,0 +1,104 @@
+package com.eazybytes.gatewayserver.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the JWK set endpoint of Keycloak. It serves the public half of its current signing key
+ * and issues tokens signed with it, with the realm roles where Keycloak puts them.
+ */
+class JwksStub implements AutoCloseable {
+
+    private final HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile RSAKey signingKey = newKey();
+
+    JwksStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/certs", exchange -> {
+            requests.incrementAndGet();
+            byte[] body = new JWKSet(signingKey.toPublicJWK()).toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    String jwkSetUri() {
+        return "http://localhost:" + server.getAddress().getPort() + "/certs";
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    void rotateKey() {
+        signingKey = newKey();
+    }
+
+    String token(String subject, List<String> roles, Duration validFor) {
+        return sign(signingKey, subject, roles, validFor);
+    }
+
+    /**
+     * Signs a token with a key the endpoint does not publish, under the key id of the current key.
+     */
+    String forgedToken(String subject, List<String> roles) {
+        RSAKey forger = newKey();
+        RSAKey impostor = new RSAKey.Builder(forger).keyID(signingKey.getKeyID()).build();
+        return sign(impostor, subject, roles, Duration.ofMinutes(5));
+    }
+
+    private static String sign(RSAKey key, String subject, List<String> roles, Duration validFor) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(subject)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(validFor)))
+                .claim("realm_access", Map.of("roles", roles))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+        try {
+            jwt.sign(new RSASSASigner(key));
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return jwt.serialize();
+    }
+
+    private static RSAKey newKey() {
+        try {
+            return new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
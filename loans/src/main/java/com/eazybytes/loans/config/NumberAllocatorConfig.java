@@ -0,0 +1,29 @@
+package com.eazybytes.loans.config;
+
+import com.eazybytes.common.sequence.JdbcBlockSource;
+import com.eazybytes.common.sequence.NumberAllocator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class NumberAllocatorConfig {
+
+    /**
+     * Allocator for new loan numbers. Blocks are reserved from the number_block table, so every
+     * instance sharing the database hands out distinct numbers (loan numbers: 12 digits). Numbers were
+     * drawn at random from 100000000000-100899999999 before, so the range starts above them.
+     *
+     * @param dataSource the DataSource holding the number_block table
+     * @param blockSize  the number of loan numbers reserved per round trip
+     * @return the NumberAllocator for loan numbers
+     */
+    @Bean
+    public NumberAllocator loanNumberAllocator(DataSource dataSource,
+                                          @Value("${loans.number-block-size:100}") int blockSize) {
+        return new NumberAllocator(new JdbcBlockSource(dataSource), "loan_number",
+                100_900_000_000L, 999_999_999_999L, blockSize);
+    }
+}
@@ -0,0 +1,51 @@
+package com.eazybytes.loans.config;
+
+import com.eazybytes.loans.ingest.RepaymentFileInbox;
+import com.eazybytes.loans.ingest.RepaymentFileIngester;
+import com.eazybytes.loans.repository.LoansRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+@ConditionalOnProperty(prefix = "loans.repayment-file", name = "inbox")
+public class RepaymentFileConfig {
+
+    /**
+     * Ingester for end-of-day repayment files, see {@link RepaymentFileIngester}.
+     *
+     * @param loansRepository         the repository the repayments are posted through
+     * @param jdbcTemplate            the JdbcTemplate the chunk checkpoints are kept with
+     * @param transactionManager      the transaction manager every chunk runs in
+     * @param repaymentFileProperties the file format, chunk size and parallelism
+     * @param auditAwareImpl          the auditor recorded on repaid loans
+     * @param meterRegistry           the registry for the ingestion metrics
+     * @return the RepaymentFileIngester
+     */
+    @Bean
+    public RepaymentFileIngester repaymentFileIngester(LoansRepository loansRepository, JdbcTemplate jdbcTemplate,
+                                                       PlatformTransactionManager transactionManager,
+                                                       RepaymentFileProperties repaymentFileProperties,
+                                                       AuditorAware<String> auditAwareImpl,
+                                                       MeterRegistry meterRegistry) {
+        return new RepaymentFileIngester(loansRepository, jdbcTemplate, transactionManager, repaymentFileProperties,
+                auditAwareImpl.getCurrentAuditor().orElse(null), meterRegistry);
+    }
+
+    /**
+     * Polls the inbox directory and ingests the files delivered to it.
+     *
+     * @param repaymentFileIngester   the ingester applying the files
+     * @param repaymentFileProperties the inbox directory and poll interval
+     * @return the RepaymentFileInbox
+     */
+    @Bean
+    public RepaymentFileInbox repaymentFileInbox(RepaymentFileIngester repaymentFileIngester,
+                                                 RepaymentFileProperties repaymentFileProperties) {
+        return new RepaymentFileInbox(repaymentFileIngester, repaymentFileProperties);
+    }
+}
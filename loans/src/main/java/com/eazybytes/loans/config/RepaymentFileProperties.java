@@ -0,0 +1,78 @@
+package com.eazybytes.loans.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for ingesting the end-of-day repayment files of the core banking system.
+ */
+@ConfigurationProperties(prefix = "loans.repayment-file")
+@Getter
+@Setter
+public class RepaymentFileProperties {
+
+    public enum Format {
+        /**
+         * Comma separated loan number and amount, further columns are ignored. A first line that is not a
+         * repayment is taken as the header.
+         */
+        CSV,
+        /**
+         * Loan number and amount at fixed columns, see {@link FixedWidth}.
+         */
+        FIXED_WIDTH
+    }
+
+    /**
+     * Directory the repayment files are delivered to. Ingestion is off when not set. Files must be moved in
+     * complete; names starting with a dot or ending in .tmp are skipped. Ingested files are moved to its
+     * processed subdirectory.
+     */
+    private Path inbox;
+
+    private Format format = Format.CSV;
+
+    private FixedWidth fixedWidth = new FixedWidth();
+
+    /**
+     * Size of the pieces a file is split into. Each chunk is applied and checkpointed in one transaction, so
+     * a crash repeats at most the chunks in flight. At most 64MB. Keep it unchanged while a file is only
+     * partly ingested, as the checkpoints refer to the chunks.
+     */
+    private DataSize chunkSize = DataSize.ofMegabytes(4);
+
+    /**
+     * Number of chunks parsed and applied at the same time.
+     */
+    private int parallelism = 4;
+
+    /**
+     * How often the inbox is checked for new files.
+     */
+    private Duration pollInterval = Duration.ofMinutes(1);
+
+    @Getter
+    @Setter
+    public static class FixedWidth {
+
+        /**
+         * Column, counted from zero, at which the 12 digit loan number starts.
+         */
+        private int loanNumberStart = 0;
+
+        /**
+         * Column, counted from zero, at which the amount starts.
+         */
+        private int amountStart = 12;
+
+        /**
+         * Width of the amount, which may be padded with blanks or zeros.
+         */
+        private int amountLength = 10;
+    }
+}
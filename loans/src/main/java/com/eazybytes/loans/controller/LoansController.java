@@ -4,6 +4,8 @@ import com.eazybytes.common.dto.ErrorResponseDto;
 import com.eazybytes.loans.constants.LoansConstants;
 import com.eazybytes.loans.dto.LoansContactInfoDto;
 import com.eazybytes.loans.dto.LoansDto;
+import com.eazybytes.loans.dto.RepaymentDto;
+import com.eazybytes.loans.dto.RepaymentResultDto;
 import com.eazybytes.loans.dto.ResponseDto;
 import com.eazybytes.loans.service.ILoansService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,6 +16,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +29,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Tag(
         name = "CRUD REST APIs for Loans in EazyBank",
         description = "CRUD REST APIs in EazyBank to CREATE, UPDATE, FETCH AND DELETE loan details"
@@ -122,6 +128,39 @@ public class LoansController {
         return ResponseEntity.status(HttpStatus.OK).body(loansDto);
     }
 
+    /**
+     * Fetches the loan details of many mobile numbers in one call.
+     * @param mobileNumbers the mobile numbers the loans are associated with
+     * @return a ResponseEntity containing the loan details of every mobile number that has a loan
+     */
+    @Operation(
+            summary = "Fetch Loan Details in bulk REST API",
+            description = "REST API to fetch loan details of a list of mobile numbers"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "HTTP Status OK"
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "HTTP Status Internal Server Error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            )
+    })
+    @PostMapping("/fetchBulk")
+    public ResponseEntity<List<LoansDto>> fetchLoanDetailsBulk(@RequestHeader("eazybank-correlation-id") String correlationId,
+                                                             @RequestBody
+                                                             @Size(max = 200, message = "At most 200 mobile numbers can be fetched in one call")
+                                                             List<@Pattern(regexp="(^$|[0-9]{10})",message = "Mobile number must be 10 digits") String> mobileNumbers) {
+        logger.debug("fetchLoanDetailsBulk method start");
+        List<LoansDto> loansDtos = iLoansService.fetchLoans(mobileNumbers);
+        logger.debug("fetchLoanDetailsBulk method end");
+        return ResponseEntity.status(HttpStatus.OK).body(loansDtos);
+    }
+
     /**
      * Updates the loan details for the given loan number.
      * @param loansDto The LoansDto object containing the updated loan details.
@@ -140,6 +179,13 @@ public class LoansController {
                     responseCode = "200",
                     description = "HTTP Status OK"
             ),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "Loan was changed after it was read",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            ),
             @ApiResponse(
                     responseCode = "417",
                     description = "Expectation Failed"
@@ -167,6 +213,86 @@ public class LoansController {
         }
     }
 
+    /**
+     * Posts a repayment against a loan, if it does not exceed the outstanding amount.
+     * @param loanNumber the loan number of the loan being repaid
+     * @param amount the amount repaid
+     * @return a ResponseEntity containing status and message
+     */
+    @Operation(
+            summary = "Repay Loan REST API",
+            description = "REST API to post a repayment against the outstanding amount of a loan"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "HTTP Status OK"
+            ),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "HTTP Status Not Found",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "422",
+                    description = "Amount exceeds the outstanding amount",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "HTTP Status Internal Server Error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            )
+    })
+    @PostMapping("/repay")
+    public ResponseEntity<ResponseDto> repay(@RequestParam
+                                             @Pattern(regexp="(^$|[0-9]{12})",message = "LoanNumber must be 12 digits")
+                                             String loanNumber,
+                                             @RequestParam
+                                             @Positive(message = "Repaid amount should be greater than zero")
+                                             int amount) {
+        iLoansService.repay(loanNumber, amount);
+        return ResponseEntity
+                .status(HttpStatus.OK)
+                .body(new ResponseDto(LoansConstants.STATUS_200, LoansConstants.MESSAGE_200));
+    }
+
+    /**
+     * Posts many repayments in one call, such as those of an end-of-day posting file.
+     * @param repayments the repayments to post, in the order they are to be applied
+     * @return a ResponseEntity containing the outcome of every repayment, in the order given
+     */
+    @Operation(
+            summary = "Repay Loans in bulk REST API",
+            description = "REST API to post a list of repayments; rejected repayments do not stop the others"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "HTTP Status OK"
+            ),
+            @ApiResponse(
+                    responseCode = "500",
+                    description = "HTTP Status Internal Server Error",
+                    content = @Content(
+                            schema = @Schema(implementation = ErrorResponseDto.class)
+                    )
+            )
+    })
+    @PostMapping("/repayBulk")
+    public ResponseEntity<List<RepaymentResultDto>> repayBulk(@RequestBody
+                                                              @Size(max = 10_000, message = "At most 10000 repayments can be posted in one call")
+                                                              List<@Valid RepaymentDto> repayments) {
+        List<RepaymentResultDto> results = iLoansService.repayAll(repayments);
+        return ResponseEntity.status(HttpStatus.OK).body(results);
+    }
+
     /**
      * Deletes the loan details for the given mobile number.
      * @param mobileNumber The mobile number of the customer whose loan details are being deleted.
@@ -2,6 +2,7 @@ package com.eazybytes.loans.dto;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
@@ -50,4 +51,11 @@ public class LoansDto {
             description = "Total outstanding amount against a loan", example = "99000"
     )
     private int outstandingAmount;
+
+    @NotNull(message = "Version can not be null")
+    @Schema(
+            description = "Version of the loan as last read; an update based on an older version is rejected",
+            example = "0"
+    )
+    private Long version;
 }
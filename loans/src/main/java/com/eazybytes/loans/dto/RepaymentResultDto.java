@@ -0,0 +1,32 @@
+package com.eazybytes.loans.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Schema(name = "RepaymentResult",
+        description = "Schema to hold the outcome of one repayment of a batch"
+)
+@Data
+@AllArgsConstructor
+public class RepaymentResultDto {
+
+    public enum Status {
+        POSTED, LOAN_NOT_FOUND, OVERPAYMENT
+    }
+
+    @Schema(
+            description = "Loan Number of the customer", example = "548732457654"
+    )
+    private String loanNumber;
+
+    @Schema(
+            description = "Amount repaid", example = "1000"
+    )
+    private int amount;
+
+    @Schema(
+            description = "Whether the repayment was posted, or why not", example = "POSTED"
+    )
+    private Status status;
+}
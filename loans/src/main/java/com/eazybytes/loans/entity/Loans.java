@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.*;
 
 @Entity
@@ -29,4 +30,11 @@ public class Loans extends BaseEntity {
     private int amountPaid;
 
     private int outstandingAmount;
+
+    /**
+     * Incremented on every change, including repayments, so a full update based on an outdated read fails
+     * instead of overwriting the amounts.
+     */
+    @Version
+    private long version;
 }
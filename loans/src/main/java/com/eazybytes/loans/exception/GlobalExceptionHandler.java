@@ -1,5 +1,9 @@
 package com.eazybytes.loans.exception;
 
+import com.eazybytes.common.dto.ErrorResponseDto;
+import com.eazybytes.loans.constants.LoansConstants;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -70,6 +74,22 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(errorResponseDTO, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    /**
+     * Request parameters and bodies validated on the method, like the size limit of the bulk fetch, are
+     * client errors rather than server errors.
+     */
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<ErrorResponseDto> handleConstraintViolationException(ConstraintViolationException exception,
+                                                                               WebRequest webRequest) {
+        ErrorResponseDto errorResponseDTO = new ErrorResponseDto(
+                webRequest.getDescription(false),
+                HttpStatus.BAD_REQUEST,
+                exception.getMessage(),
+                LocalDateTime.now()
+        );
+        return new ResponseEntity<>(errorResponseDTO, HttpStatus.BAD_REQUEST);
+    }
+
 /**
  * Handles the ResourceNotFoundException by returning a ResponseEntity with HTTP Status code as NOT_FOUND.
  * Constructs an ErrorResponseDto with details about the error, including the request path, status code,
@@ -112,4 +132,32 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         );
         return new ResponseEntity<>(errorResponseDTO, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(LoanOverpaymentException.class)
+    public ResponseEntity<ErrorResponseDto> handleLoanOverpaymentException(LoanOverpaymentException exception,
+                                                                           WebRequest webRequest){
+        ErrorResponseDto errorResponseDTO = new ErrorResponseDto(
+                webRequest.getDescription(false),
+                HttpStatus.UNPROCESSABLE_ENTITY,
+                exception.getMessage(),
+                LocalDateTime.now()
+        );
+        return new ResponseEntity<>(errorResponseDTO, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    /**
+     * A full update lost the race against another change of the same loan, such as a repayment; the client
+     * can read the loan again and retry.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponseDto> handleOptimisticLockingFailureException(OptimisticLockingFailureException exception,
+                                                                                    WebRequest webRequest){
+        ErrorResponseDto errorResponseDTO = new ErrorResponseDto(
+                webRequest.getDescription(false),
+                HttpStatus.CONFLICT,
+                LoansConstants.MESSAGE_409_UPDATE,
+                LocalDateTime.now()
+        );
+        return new ResponseEntity<>(errorResponseDTO, HttpStatus.CONFLICT);
+    }
 }
@@ -0,0 +1,12 @@
+package com.eazybytes.loans.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.UNPROCESSABLE_ENTITY)
+public class LoanOverpaymentException extends RuntimeException {
+
+    public LoanOverpaymentException(String loanNumber, int amount){
+        super(String.format("Loan '%s' has less than %d outstanding", loanNumber, amount));
+    }
+}
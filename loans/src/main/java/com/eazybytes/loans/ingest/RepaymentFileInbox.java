@@ -0,0 +1,90 @@
+package com.eazybytes.loans.ingest;
+
+import com.eazybytes.loans.config.RepaymentFileProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Ingests the files delivered to the inbox directory, oldest name first, and moves each completely ingested
+ * file to the processed subdirectory. A file that failed, or was left when the service stopped, stays in the
+ * inbox and is resumed from its committed chunks at the next poll.
+ */
+public class RepaymentFileInbox implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RepaymentFileInbox.class);
+
+    private final RepaymentFileIngester repaymentFileIngester;
+    private final RepaymentFileProperties repaymentFileProperties;
+
+    private volatile boolean running;
+    private ScheduledExecutorService scheduler;
+
+    public RepaymentFileInbox(RepaymentFileIngester repaymentFileIngester,
+                              RepaymentFileProperties repaymentFileProperties) {
+        this.repaymentFileIngester = repaymentFileIngester;
+        this.repaymentFileProperties = repaymentFileProperties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("repayment-file-inbox").factory());
+        scheduler.scheduleWithFixedDelay(this::poll, 0, repaymentFileProperties.getPollInterval().toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            // chunks being applied are completed, the others are left for the next start
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    void poll() {
+        Path inbox = repaymentFileProperties.getInbox();
+        try {
+            Path processed = Files.createDirectories(inbox.resolve("processed"));
+            List<Path> files;
+            try (Stream<Path> listed = Files.list(inbox)) {
+                files = listed.filter(Files::isRegularFile)
+                        .filter(file -> !file.getFileName().toString().startsWith("."))
+                        .filter(file -> !file.getFileName().toString().endsWith(".tmp"))
+                        .sorted()
+                        .toList();
+            }
+            for (Path file : files) {
+                if (!running) {
+                    return;
+                }
+                if (repaymentFileIngester.ingest(file, () -> !running).complete()) {
+                    Files.move(file, processed.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.error("Ingesting repayment files from {} failed", inbox, ex);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.eazybytes.loans.ingest;
+
+import com.eazybytes.loans.config.RepaymentFileProperties;
+import com.eazybytes.loans.dto.RepaymentDto;
+import com.eazybytes.loans.repository.LoansRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Applies the repayments of an end-of-day file to the loans table.
+ * <p>
+ * The file is split into chunks of about the chunk size, each ending with a complete line, and every chunk
+ * is memory-mapped and parsed in place. The repayments of a chunk are grouped by loan number: a loan gets
+ * one conditional update for the sum of its repayments, and only when that sum exceeds the outstanding
+ * amount are its repayments applied one by one in file order, so each is posted or rejected as it would be
+ * on its own. The updates go to the database in JDBC batches ordered by loan number, so chunks applied at
+ * the same time never deadlock on the loans they share.
+ * <p>
+ * A chunk and its row in repayment_file_chunk commit in one transaction. The next run over the same file
+ * skips the chunks found there, so after a crash ingestion resumes from the committed chunks and every
+ * repayment is applied exactly once. The row's primary key also keeps two instances from applying the same
+ * chunk. Files are identified by name, which the core banking system makes unique per business day.
+ * <p>
+ * Chunks applied in parallel may apply the repayments of a loan in a different order than the file lists
+ * them. That only changes which of them are rejected when a loan is paid off within the file.
+ */
+public class RepaymentFileIngester implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RepaymentFileIngester.class);
+
+    // sort keys hold the loan number above the position in the chunk; loan numbers take 40 bits
+    private static final int POSITION_BITS = 23;
+    private static final long MAX_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private static final String STAGE_SPLIT = "split";
+    private static final String STAGE_PARSE = "parse";
+    private static final String STAGE_GROUP = "group";
+    private static final String STAGE_APPLY = "apply";
+
+    private final LoansRepository loansRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RepaymentFileProperties repaymentFileProperties;
+    private final String auditor;
+    private final ExecutorService workers;
+    private final Map<String, Timer> stageTimers = new HashMap<>();
+    private final Counter postedCounter;
+    private final Counter overpaymentCounter;
+    private final Counter loanNotFoundCounter;
+    private final Counter malformedCounter;
+
+    public RepaymentFileIngester(LoansRepository loansRepository, JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 RepaymentFileProperties repaymentFileProperties, String auditor,
+                                 MeterRegistry meterRegistry) {
+        if (repaymentFileProperties.getChunkSize().toBytes() > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Repayment file chunk size must be at most 64MB");
+        }
+        this.loansRepository = loansRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.repaymentFileProperties = repaymentFileProperties;
+        this.auditor = auditor;
+        this.workers = Executors.newFixedThreadPool(repaymentFileProperties.getParallelism(),
+                Thread.ofPlatform().name("repayment-file-", 0).factory());
+        for (String stage : List.of(STAGE_SPLIT, STAGE_PARSE, STAGE_GROUP, STAGE_APPLY)) {
+            stageTimers.put(stage, Timer.builder("loans.repayment.file.stage")
+                    .description("Time spent per chunk in each stage of repayment file ingestion")
+                    .tag("stage", stage)
+                    .register(meterRegistry));
+        }
+        this.postedCounter = recordCounter(meterRegistry, "posted");
+        this.overpaymentCounter = recordCounter(meterRegistry, "overpayment");
+        this.loanNotFoundCounter = recordCounter(meterRegistry, "loan_not_found");
+        this.malformedCounter = recordCounter(meterRegistry, "malformed");
+    }
+
+    private static Counter recordCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("loans.repayment.file.records")
+                .description("Lines of repayment files, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Applies every chunk of the file not committed by an earlier run.
+     *
+     * @param file The repayment file.
+     * @return What the run did.
+     * @throws IOException if the file cannot be read.
+     */
+    public RepaymentFileReport ingest(Path file) throws IOException {
+        return ingest(file, () -> false);
+    }
+
+    /**
+     * Applies every chunk of the file not committed by an earlier run, until cancelled. Chunks already being
+     * applied when it is cancelled are completed; the others are left for the next run.
+     *
+     * @param file      The repayment file.
+     * @param cancelled Tells whether to stop starting chunks.
+     * @return What the run did.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalStateException if the committed chunks do not match the chunks of the file, for example
+     *                               because the chunk size was changed in between.
+     */
+    public RepaymentFileReport ingest(Path file, BooleanSupplier cancelled) throws IOException {
+        long started = System.nanoTime();
+        String fileName = file.getFileName().toString();
+        Progress progress = new Progress();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Chunk> chunks = progress.time(STAGE_SPLIT, () -> split(channel));
+            Map<Long, Integer> committed = committedChunks(fileName, chunks);
+            List<Future<Boolean>> applied = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                if (!committed.containsKey(chunk.offset())) {
+                    applied.add(workers.submit(() -> !cancelled.getAsBoolean()
+                            && apply(fileName, chunk, progress)));
+                }
+            }
+            int appliedChunks = 0;
+            Throwable failure = null;
+            for (Future<Boolean> future : applied) {
+                try {
+                    appliedChunks += future.get() ? 1 : 0;
+                } catch (ExecutionException ex) {
+                    failure = failure == null ? ex.getCause() : failure;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while ingesting " + fileName, ex);
+                }
+            }
+            if (failure instanceof IOException ioException) {
+                throw ioException;
+            } else if (failure instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (failure != null) {
+                throw (Error) failure;
+            }
+            RepaymentFileReport report = progress.report(fileName,
+                    committed.size() + appliedChunks + progress.takenOver.intValue() == chunks.size(),
+                    chunks.size(), committed.size(), Duration.ofNanos(System.nanoTime() - started));
+            log.info("Ingested {}: {} records in {} ms ({} records/s), {} posted, {} overpayments, {} for unknown loans, " +
+                            "{} malformed, {} of {} chunks resumed, {}complete; stage times {}",
+                    fileName, report.records(), report.elapsed().toMillis(), Math.round(report.recordsPerSecond()),
+                    report.posted(), report.overpayments(), report.loansNotFound(), report.malformed(),
+                    report.resumedChunks(), report.chunks(), report.complete() ? "" : "not ", report.stageTimes());
+            return report;
+        }
+    }
+
+    /**
+     * Splits the file into chunks of about the chunk size which end with a complete line.
+     */
+    private List<Chunk> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long chunkSize = repaymentFileProperties.getChunkSize().toBytes();
+        List<Chunk> chunks = new ArrayList<>();
+        for (long offset = 0; offset < size; ) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(chunkSize, size - offset));
+            int length = mapped.limit();
+            if (offset + length < size) {
+                while (length > 0 && mapped.get(length - 1) != '\n') {
+                    length--;
+                }
+                if (length == 0) {
+                    throw new IOException("Line at byte " + offset + " is longer than the chunk size");
+                }
+            }
+            chunks.add(new Chunk(offset, mapped.slice(0, length)));
+            offset += length;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return The offsets and lengths of the chunks of the file committed by earlier runs.
+     */
+    private Map<Long, Integer> committedChunks(String fileName, List<Chunk> chunks) {
+        Map<Long, Integer> committed = new HashMap<>();
+        jdbcTemplate.query("select chunk_offset, chunk_length from repayment_file_chunk where file_name = ?",
+                rs -> {
+                    committed.put(rs.getLong(1), rs.getInt(2));
+                }, fileName);
+        long matching = chunks.stream()
+                .filter(chunk -> Integer.valueOf(chunk.buffer().limit()).equals(committed.get(chunk.offset())))
+                .count();
+        if (matching != committed.size()) {
+            throw new IllegalStateException("The committed chunks of " + fileName + " do not match its chunks; " +
+                    "was the chunk size changed while it was partly ingested?");
+        }
+        return committed;
+    }
+
+    /**
+     * Parses, groups and applies one chunk, and records it as committed in the same transaction.
+     *
+     * @return true if this run applied the chunk, false if another run committed it in the meantime.
+     */
+    private boolean apply(String fileName, Chunk chunk, Progress progress) {
+        RepaymentRecords records = progress.time(STAGE_PARSE, () -> RepaymentFileParser.parse(chunk.buffer(),
+                chunk.offset() == 0, repaymentFileProperties.getFormat(), repaymentFileProperties.getFixedWidth()));
+        if (records.malformed > 0) {
+            log.warn("{} malformed lines in {} from byte {}, the first at byte {}", records.malformed, fileName,
+                    chunk.offset(), chunk.offset() + records.firstMalformed);
+        }
+        long[] sorted = progress.time(STAGE_GROUP, () -> sortByLoanNumber(records));
+        ChunkOutcome outcome;
+        try {
+            outcome = progress.time(STAGE_APPLY, () -> transactionTemplate.execute(status -> {
+                ChunkOutcome applied = applyGrouped(records, sorted);
+                jdbcTemplate.update("insert into repayment_file_chunk (file_name, chunk_offset, chunk_length, " +
+                                "records, posted, created_at) values (?, ?, ?, ?, ?, ?)", fileName, chunk.offset(),
+                        chunk.buffer().limit(), records.size, applied.posted, Timestamp.valueOf(LocalDateTime.now()));
+                return applied;
+            }));
+        } catch (DuplicateKeyException ex) {
+            log.info("Chunk of {} from byte {} was committed by another run", fileName, chunk.offset());
+            progress.takenOver.increment();
+            return false;
+        }
+        progress.add(records, outcome);
+        postedCounter.increment(outcome.posted);
+        overpaymentCounter.increment(outcome.overpayments);
+        loanNotFoundCounter.increment(outcome.loansNotFound);
+        malformedCounter.increment(records.malformed);
+        return true;
+    }
+
+    /**
+     * @return The sort keys of the repayments: the loan number above the position, so the repayments of a
+     *         loan are next to each other and in file order.
+     */
+    private static long[] sortByLoanNumber(RepaymentRecords records) {
+        long[] keys = new long[records.size];
+        for (int i = 0; i < records.size; i++) {
+            keys[i] = records.loanNumbers[i] << POSITION_BITS | i;
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Posts the sum of every loan's repayments, and the repayments one by one for the loans whose sum was
+     * rejected.
+     */
+    private ChunkOutcome applyGrouped(RepaymentRecords records, long[] sorted) {
+        LocalDateTime now = LocalDateTime.now();
+        List<RepaymentDto> sums = new ArrayList<>();
+        // the range of sorted keys of every sum
+        List<int[]> sumRanges = new ArrayList<>();
+        List<RepaymentDto> singles = new ArrayList<>();
+        for (int from = 0, to; from < sorted.length; from = to) {
+            long loanNumber = sorted[from] >>> POSITION_BITS;
+            long sum = 0;
+            for (to = from; to < sorted.length && sorted[to] >>> POSITION_BITS == loanNumber; to++) {
+                sum += records.amounts[position(sorted[to])];
+            }
+            if (sum <= Integer.MAX_VALUE) {
+                sums.add(new RepaymentDto(loanNumber(loanNumber), (int) sum));
+                sumRanges.add(new int[]{from, to});
+            } else {
+                addSingles(records, sorted, from, to, singles);
+            }
+        }
+        ChunkOutcome outcome = new ChunkOutcome();
+        Set<String> rejected = new HashSet<>();
+        List<RepaymentDto> rejectedRepayments = new ArrayList<>();
+        int[] updated = loansRepository.repayAll(sums, now, auditor);
+        for (int i = 0; i < updated.length; i++) {
+            int[] range = sumRanges.get(i);
+            if (updated[i] > 0) {
+                outcome.posted += range[1] - range[0];
+            } else if (range[1] - range[0] == 1) {
+                rejected.add(sums.get(i).getLoanNumber());
+                rejectedRepayments.add(sums.get(i));
+            } else {
+                addSingles(records, sorted, range[0], range[1], singles);
+            }
+        }
+        updated = loansRepository.repayAll(singles, now, auditor);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] > 0) {
+                outcome.posted++;
+            } else {
+                rejected.add(singles.get(i).getLoanNumber());
+                rejectedRepayments.add(singles.get(i));
+            }
+        }
+        if (!rejected.isEmpty()) {
+            Set<String> existing = loansRepository.findExistingLoanNumbers(rejected);
+            for (RepaymentDto repayment : rejectedRepayments) {
+                if (existing.contains(repayment.getLoanNumber())) {
+                    outcome.overpayments++;
+                } else {
+                    outcome.loansNotFound++;
+                }
+                log.debug("Repayment of {} on loan {} rejected", repayment.getAmount(), repayment.getLoanNumber());
+            }
+        }
+        return outcome;
+    }
+
+    private static void addSingles(RepaymentRecords records, long[] sorted, int from, int to,
+                                   List<RepaymentDto> singles) {
+        for (int i = from; i < to; i++) {
+            int position = position(sorted[i]);
+            singles.add(new RepaymentDto(loanNumber(records.loanNumbers[position]), records.amounts[position]));
+        }
+    }
+
+    private static int position(long key) {
+        return (int) (key & ((1L << POSITION_BITS) - 1));
+    }
+
+    private static String loanNumber(long loanNumber) {
+        String digits = Long.toString(loanNumber);
+        return "0".repeat(RepaymentFileParser.LOAN_NUMBER_DIGITS - digits.length()) + digits;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Chunk(long offset, MappedByteBuffer buffer) {
+    }
+
+    private static class ChunkOutcome {
+        int posted;
+        int overpayments;
+        int loansNotFound;
+    }
+
+    private interface Stage<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * The counts and stage times of one run, added to by every worker.
+     */
+    private class Progress {
+
+        final LongAdder records = new LongAdder();
+        final LongAdder posted = new LongAdder();
+        final LongAdder overpayments = new LongAdder();
+        final LongAdder loansNotFound = new LongAdder();
+        final LongAdder malformed = new LongAdder();
+        final LongAdder takenOver = new LongAdder();
+        final Map<String, LongAdder> stageNanos = new LinkedHashMap<>();
+
+        Progress() {
+            for (String stage : List.of(STAGE_SPLIT, STAGE_PARSE, STAGE_GROUP, STAGE_APPLY)) {
+                stageNanos.put(stage, new LongAdder());
+            }
+        }
+
+        <T, E extends Exception> T time(String stage, Stage<T, E> work) throws E {
+            long started = System.nanoTime();
+            try {
+                return work.run();
+            } finally {
+                long nanos = System.nanoTime() - started;
+                stageNanos.get(stage).add(nanos);
+                stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        void add(RepaymentRecords chunkRecords, ChunkOutcome outcome) {
+            records.add(chunkRecords.size);
+            malformed.add(chunkRecords.malformed);
+            posted.add(outcome.posted);
+            overpayments.add(outcome.overpayments);
+            loansNotFound.add(outcome.loansNotFound);
+        }
+
+        RepaymentFileReport report(String fileName, boolean complete, int chunks, int resumedChunks, Duration elapsed) {
+            Map<String, Duration> stageTimes = new LinkedHashMap<>();
+            stageNanos.forEach((stage, nanos) -> stageTimes.put(stage, Duration.ofNanos(nanos.sum())));
+            return new RepaymentFileReport(fileName, complete, chunks, resumedChunks, records.sum(), posted.sum(),
+                    overpayments.sum(), loansNotFound.sum(), malformed.sum(), elapsed, stageTimes);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.eazybytes.loans.ingest;
+
+import com.eazybytes.loans.config.RepaymentFileProperties;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses repayment lines straight from the bytes of a mapped chunk. Loan numbers and amounts are read as
+ * numbers, so no String is created per line or field.
+ */
+final class RepaymentFileParser {
+
+    static final int LOAN_NUMBER_DIGITS = 12;
+
+    private RepaymentFileParser() {
+        // restrict instantiation
+    }
+
+    /**
+     * Parses every line of the chunk. Empty lines are skipped, lines which are not a valid repayment are
+     * counted as malformed.
+     *
+     * @param chunk       The bytes of the chunk, which ends with a complete line.
+     * @param firstChunk  Whether the chunk starts the file; its first line may then be a header.
+     * @param format      The format of the lines.
+     * @param fixedWidth  The columns of the fields in {@link RepaymentFileProperties.Format#FIXED_WIDTH} files.
+     * @return The repayments of the chunk, in file order.
+     */
+    static RepaymentRecords parse(ByteBuffer chunk, boolean firstChunk, RepaymentFileProperties.Format format,
+                                  RepaymentFileProperties.FixedWidth fixedWidth) {
+        int limit = chunk.limit();
+        // a repayment line takes at least 15 bytes
+        RepaymentRecords records = new RepaymentRecords(Math.max(16, limit / 16));
+        boolean header = firstChunk;
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && chunk.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int nextLine = lineEnd + 1;
+            if (lineEnd > lineStart && chunk.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > lineStart) {
+                boolean parsed = format == RepaymentFileProperties.Format.CSV
+                        ? parseCsv(chunk, lineStart, lineEnd, records)
+                        : parseFixedWidth(chunk, lineStart, lineEnd, fixedWidth, records);
+                if (!parsed && !header) {
+                    records.malformed(lineStart);
+                }
+                header = false;
+            }
+            lineStart = nextLine;
+        }
+        return records;
+    }
+
+    private static boolean parseCsv(ByteBuffer chunk, int from, int to, RepaymentRecords records) {
+        int loanNumberEnd = indexOf(chunk, from, to, (byte) ',');
+        if (loanNumberEnd < 0) {
+            return false;
+        }
+        int amountEnd = indexOf(chunk, loanNumberEnd + 1, to, (byte) ',');
+        return add(records, parseDigits(chunk, from, loanNumberEnd, LOAN_NUMBER_DIGITS, LOAN_NUMBER_DIGITS),
+                parseDigits(chunk, loanNumberEnd + 1, amountEnd < 0 ? to : amountEnd, 1, 18));
+    }
+
+    private static boolean parseFixedWidth(ByteBuffer chunk, int from, int to,
+                                           RepaymentFileProperties.FixedWidth fixedWidth, RepaymentRecords records) {
+        int loanNumberStart = from + fixedWidth.getLoanNumberStart();
+        int amountStart = from + fixedWidth.getAmountStart();
+        if (loanNumberStart + LOAN_NUMBER_DIGITS > to || amountStart >= to) {
+            return false;
+        }
+        return add(records, parseDigits(chunk, loanNumberStart, loanNumberStart + LOAN_NUMBER_DIGITS,
+                        LOAN_NUMBER_DIGITS, LOAN_NUMBER_DIGITS),
+                parseDigits(chunk, amountStart, Math.min(amountStart + fixedWidth.getAmountLength(), to), 1, 18));
+    }
+
+    private static boolean add(RepaymentRecords records, long loanNumber, long amount) {
+        if (loanNumber < 0 || amount <= 0 || amount > Integer.MAX_VALUE) {
+            return false;
+        }
+        records.add(loanNumber, (int) amount);
+        return true;
+    }
+
+    /**
+     * @return The value of the digits between from and to, ignoring surrounding blanks and quotes, or -1 if
+     *         there is anything else or the number of digits is out of range.
+     */
+    private static long parseDigits(ByteBuffer chunk, int from, int to, int minDigits, int maxDigits) {
+        while (from < to && isBlankOrQuote(chunk.get(from))) {
+            from++;
+        }
+        while (to > from && isBlankOrQuote(chunk.get(to - 1))) {
+            to--;
+        }
+        if (to - from < minDigits || to - from > maxDigits) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            byte digit = chunk.get(i);
+            if (digit < '0' || digit > '9') {
+                return -1;
+            }
+            value = value * 10 + (digit - '0');
+        }
+        return value;
+    }
+
+    private static boolean isBlankOrQuote(byte b) {
+        return b == ' ' || b == '\t' || b == '"';
+    }
+
+    private static int indexOf(ByteBuffer chunk, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (chunk.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
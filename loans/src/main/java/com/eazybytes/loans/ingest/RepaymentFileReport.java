@@ -0,0 +1,29 @@
+package com.eazybytes.loans.ingest;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * What one run over a repayment file did. The counts cover the chunks applied by this run; chunks committed
+ * by an earlier run are only counted as resumed.
+ *
+ * @param fileName      The name of the file.
+ * @param complete      Whether every chunk of the file is now applied; false when the run was cancelled.
+ * @param chunks        The number of chunks of the file.
+ * @param resumedChunks The number of chunks an earlier run had already committed.
+ * @param records       The repayments read.
+ * @param posted        The repayments posted.
+ * @param overpayments  The repayments rejected for exceeding the outstanding amount.
+ * @param loansNotFound The repayments rejected for an unknown loan number.
+ * @param malformed     The lines which are not a valid repayment.
+ * @param elapsed       The wall-clock time of the run.
+ * @param stageTimes    The time spent per stage, summed over the parallel workers.
+ */
+public record RepaymentFileReport(String fileName, boolean complete, int chunks, int resumedChunks, long records,
+                                  long posted, long overpayments, long loansNotFound, long malformed,
+                                  Duration elapsed, Map<String, Duration> stageTimes) {
+
+    public double recordsPerSecond() {
+        return elapsed.isZero() ? 0 : records * 1_000_000_000.0 / elapsed.toNanos();
+    }
+}
@@ -0,0 +1,37 @@
+package com.eazybytes.loans.ingest;
+
+import java.util.Arrays;
+
+/**
+ * The repayments parsed from one chunk of a file, kept in primitive arrays in file order.
+ */
+final class RepaymentRecords {
+
+    long[] loanNumbers;
+    int[] amounts;
+    int size;
+    int malformed;
+    // position within the chunk of the first malformed line, -1 if there is none
+    int firstMalformed = -1;
+
+    RepaymentRecords(int capacity) {
+        loanNumbers = new long[capacity];
+        amounts = new int[capacity];
+    }
+
+    void add(long loanNumber, int amount) {
+        if (size == loanNumbers.length) {
+            loanNumbers = Arrays.copyOf(loanNumbers, size * 2);
+            amounts = Arrays.copyOf(amounts, size * 2);
+        }
+        loanNumbers[size] = loanNumber;
+        amounts[size] = amount;
+        size++;
+    }
+
+    void malformed(int position) {
+        if (malformed++ == 0) {
+            firstMalformed = position;
+        }
+    }
+}
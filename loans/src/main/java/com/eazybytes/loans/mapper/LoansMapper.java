@@ -18,11 +18,13 @@ public class LoansMapper {
         loansDto.setTotalLoan(loans.getTotalLoan());
         loansDto.setAmountPaid(loans.getAmountPaid());
         loansDto.setOutstandingAmount(loans.getOutstandingAmount());
+        loansDto.setVersion(loans.getVersion());
         return loansDto;
     }
 
     /**
-     * Maps a LoansDto to a Loans entity.
+     * Maps a LoansDto to a Loans entity. Copies everything but the version, which only the persistence
+     * provider changes.
      * @param loansDto The LoansDto to map.
      * @param loans The Loans entity to map to.
      * @return The mapped Loans entity.
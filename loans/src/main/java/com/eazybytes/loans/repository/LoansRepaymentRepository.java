@@ -0,0 +1,24 @@
+package com.eazybytes.loans.repository;
+
+import com.eazybytes.loans.dto.RepaymentDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Posts many repayments with JDBC batching, for end-of-day posting files.
+ */
+public interface LoansRepaymentRepository {
+
+    /**
+     * Posts the repayments with the same conditional update as {@link LoansRepository#repay}, sent to the
+     * database in batches. Inside a transaction all posted repayments commit at once.
+     *
+     * @param repayments The repayments, in the order they are to be applied.
+     * @param updatedAt  The modification time to record.
+     * @param updatedBy  The auditor to record.
+     * @return For each repayment, 1 if it was posted, 0 if the loan does not exist or the amount exceeds
+     *         what is outstanding at that point of the batch.
+     */
+    int[] repayAll(List<RepaymentDto> repayments, LocalDateTime updatedAt, String updatedBy);
+}
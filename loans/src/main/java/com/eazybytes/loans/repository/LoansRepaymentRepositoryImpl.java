@@ -0,0 +1,57 @@
+package com.eazybytes.loans.repository;
+
+import com.eazybytes.loans.dto.RepaymentDto;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+@AllArgsConstructor
+class LoansRepaymentRepositoryImpl implements LoansRepaymentRepository {
+
+    private static final String REPAY_SQL = "update loans set amount_paid = amount_paid + ?, " +
+            "outstanding_amount = outstanding_amount - ?, version = version + 1, updated_at = ?, updated_by = ? " +
+            "where loan_number = ? and outstanding_amount >= ?";
+
+    /**
+     * The number of repayments sent to the database per round trip.
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The repayments are sent ordered by loan number, so concurrent batches lock the loans they share in the
+     * same order instead of deadlocking. The sort is stable, so repayments of the same loan keep their order.
+     */
+    @Override
+    public int[] repayAll(List<RepaymentDto> repayments, LocalDateTime updatedAt, String updatedBy) {
+        List<Integer> order = IntStream.range(0, repayments.size()).boxed()
+                .sorted(Comparator.comparing(i -> repayments.get(i).getLoanNumber()))
+                .toList();
+        Timestamp timestamp = Timestamp.valueOf(updatedAt);
+        int[][] batches = jdbcTemplate.batchUpdate(REPAY_SQL, order, BATCH_SIZE, (ps, i) -> {
+            RepaymentDto repayment = repayments.get(i);
+            ps.setInt(1, repayment.getAmount());
+            ps.setInt(2, repayment.getAmount());
+            ps.setTimestamp(3, timestamp);
+            ps.setString(4, updatedBy);
+            ps.setString(5, repayment.getLoanNumber());
+            ps.setInt(6, repayment.getAmount());
+        });
+        int[] updated = new int[repayments.size()];
+        int sent = 0;
+        for (int[] batch : batches) {
+            for (int count : batch) {
+                updated[order.get(sent++)] = count;
+            }
+        }
+        return updated;
+    }
+}
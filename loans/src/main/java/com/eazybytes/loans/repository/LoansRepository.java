@@ -2,12 +2,20 @@ package com.eazybytes.loans.repository;
 
 import com.eazybytes.loans.entity.Loans;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface LoansRepository extends JpaRepository<Loans, Long> {
+public interface LoansRepository extends JpaRepository<Loans, Long>, LoansRepaymentRepository {
     /**
      * Finds a Loans by mobile number.
      * @param mobileNumber The mobile number
@@ -21,4 +29,50 @@ public interface LoansRepository extends JpaRepository<Loans, Long> {
      * @return An Optional containing the Loans if found, empty otherwise
      */
     Optional<Loans> findByLoanNumber(String loanNumber);
+
+    /**
+     * Finds the loans of all the given mobile numbers in a single query.
+     *
+     * @param mobileNumbers The mobile numbers of the customers.
+     * @return The loans found; mobile numbers without a loan are simply absent.
+     */
+    List<Loans> findByMobileNumberIn(Collection<String> mobileNumbers);
+
+    /**
+     * Tells whether a loan with the given loan number exists.
+     *
+     * @param loanNumber The loan number of the loan.
+     * @return true if the loan exists, false otherwise.
+     */
+    boolean existsByLoanNumber(String loanNumber);
+
+    /**
+     * Finds which of the given loan numbers belong to a loan, in a single query.
+     *
+     * @param loanNumbers The loan numbers to look for.
+     * @return The loan numbers that exist.
+     */
+    @Query("select l.loanNumber from Loans l where l.loanNumber in :loanNumbers")
+    Set<String> findExistingLoanNumbers(@Param("loanNumbers") Collection<String> loanNumbers);
+
+    /**
+     * Moves the given amount from the outstanding amount to the amount paid of a loan in a single statement,
+     * provided no more than the outstanding amount is paid. The database applies concurrent repayments one
+     * after the other, so none of them is lost and totalLoan = amountPaid + outstandingAmount keeps holding.
+     * The version is incremented, so a full update based on a read from before the repayment fails.
+     *
+     * @param loanNumber The loan number of the loan.
+     * @param amount     The amount repaid, greater than zero.
+     * @param updatedAt  The modification time to record.
+     * @param updatedBy  The auditor to record.
+     * @return 1 if the repayment was posted, 0 if the loan does not exist or the amount exceeds what is outstanding.
+     */
+    @Transactional
+    @Modifying
+    @Query("update Loans l set l.amountPaid = l.amountPaid + :amount, " +
+            "l.outstandingAmount = l.outstandingAmount - :amount, l.version = l.version + 1, " +
+            "l.updatedAt = :updatedAt, l.updatedBy = :updatedBy " +
+            "where l.loanNumber = :loanNumber and l.outstandingAmount >= :amount")
+    int repay(@Param("loanNumber") String loanNumber, @Param("amount") int amount,
+              @Param("updatedAt") LocalDateTime updatedAt, @Param("updatedBy") String updatedBy);
 }
@@ -1,6 +1,10 @@
 package com.eazybytes.loans.service;
 
 import com.eazybytes.loans.dto.LoansDto;
+import com.eazybytes.loans.dto.RepaymentDto;
+import com.eazybytes.loans.dto.RepaymentResultDto;
+
+import java.util.List;
 
 public interface ILoansService {
 
@@ -17,6 +21,13 @@ public interface ILoansService {
      */
     LoansDto fetchLoan(String mobileNumber);
 
+    /**
+     *
+     * @param mobileNumbers - Input mobile Numbers
+     * @return Loan Details of every given mobileNumber that has a loan
+     */
+    List<LoansDto> fetchLoans(List<String> mobileNumbers);
+
     /**
      *
      * @param loansDto - LoansDto Object
@@ -24,6 +35,20 @@ public interface ILoansService {
      */
     boolean updateLoan(LoansDto loansDto);
 
+    /**
+     *
+     * @param loanNumber - Loan Number of the loan being repaid
+     * @param amount - Amount repaid
+     */
+    void repay(String loanNumber, int amount);
+
+    /**
+     *
+     * @param repayments - Repayments to post, in order
+     * @return Outcome of every repayment, in the order given
+     */
+    List<RepaymentResultDto> repayAll(List<RepaymentDto> repayments);
+
     /**
      *
      * @param mobileNumber - Input Mobile Number
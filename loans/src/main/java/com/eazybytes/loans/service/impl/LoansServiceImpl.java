@@ -1,49 +1,66 @@
 package com.eazybytes.loans.service.impl;
 
+import com.eazybytes.common.persistence.UniqueConstraints;
+import com.eazybytes.common.sequence.NumberAllocator;
 import com.eazybytes.loans.constants.LoansConstants;
 import com.eazybytes.loans.dto.LoansDto;
+import com.eazybytes.loans.dto.RepaymentDto;
+import com.eazybytes.loans.dto.RepaymentResultDto;
 import com.eazybytes.loans.entity.Loans;
 import com.eazybytes.loans.exception.LoanAlreadyExistsException;
+import com.eazybytes.loans.exception.LoanOverpaymentException;
 import com.eazybytes.loans.exception.ResourceNotFoundException;
 import com.eazybytes.loans.mapper.LoansMapper;
 import com.eazybytes.loans.repository.LoansRepository;
 import com.eazybytes.loans.service.ILoansService;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
-import java.util.Random;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @AllArgsConstructor
 public class LoansServiceImpl implements ILoansService {
 
     private LoansRepository loansRepository;
+    private NumberAllocator loanNumberAllocator;
+    private AuditorAware<String> auditAwareImpl;
 
     /**
      * Creates a new loan for the given mobile number.
+     * The loan is inserted right away; the unique constraint on the mobile number rejects a second loan,
+     * also when two requests for the same mobile number arrive at the same time.
      * @param mobileNumber The unique mobile number of the customer whose loan is to be created.
      * @throws LoanAlreadyExistsException if a loan is already registered with the given mobile number.
      */
     @Override
     public void createLoan(String mobileNumber) {
-        Optional<Loans> optionalLoans= loansRepository.findByMobileNumber(mobileNumber);
-        if(optionalLoans.isPresent()){
-            throw new LoanAlreadyExistsException("Loan already registered with given mobileNumber "+mobileNumber);
+        try {
+            loansRepository.save(createNewLoan(mobileNumber));
+        } catch (DataIntegrityViolationException ex) {
+            if (UniqueConstraints.isViolated(ex, LoansConstants.MOBILE_NUMBER_CONSTRAINT)) {
+                throw new LoanAlreadyExistsException("Loan already registered with given mobileNumber "+mobileNumber);
+            }
+            throw ex;
         }
-        loansRepository.save(createNewLoan(mobileNumber));
     }
 
     /**
-     * Creates a new Loans object with a random loan number, the given mobile number,
+     * Creates a new Loans object with a unique loan number, the given mobile number,
      * default loan type, default total loan, and default amount paid.
      * @param mobileNumber The unique mobile number of the customer whose loan is to be created.
      * @return A new Loans object with the assigned loan number, mobile number, loan type, total loan, amount paid, and outstanding amount.
      */
     private Loans createNewLoan(String mobileNumber) {
         Loans newLoan = new Loans();
-        long randomLoanNumber = 100000000000L + new Random().nextInt(900000000);
-        newLoan.setLoanNumber(Long.toString(randomLoanNumber));
+        newLoan.setLoanNumber(Long.toString(loanNumberAllocator.next()));
         newLoan.setMobileNumber(mobileNumber);
         newLoan.setLoanType(LoansConstants.HOME_LOAN);
         newLoan.setTotalLoan(LoansConstants.NEW_LOAN_LIMIT);
@@ -66,24 +83,92 @@ public class LoansServiceImpl implements ILoansService {
         return LoansMapper.mapToLoansDto(loans, new LoansDto());
     }
 
+    /**
+     * Fetches the loan details of many mobile numbers with a single query.
+     * @param mobileNumbers The mobile numbers of the customers whose loan details are being fetched.
+     * @return The LoansDto objects of the mobile numbers that have a loan; others are simply absent.
+     */
+    @Override
+    public List<LoansDto> fetchLoans(List<String> mobileNumbers) {
+        return loansRepository.findByMobileNumberIn(mobileNumbers).stream()
+                .map(loans -> LoansMapper.mapToLoansDto(loans, new LoansDto()))
+                .toList();
+    }
+
     /**
      * Updates the loan for the given loan number.
      * Retrieves the existing loan information based on the provided loan number.
      * Updates the loan with the new information and saves it to the repository.
+     * The update is based on the version the client read; if the loan changed since, e.g. by a repayment, it
+     * is rejected rather than overwriting the amounts.
      *
-     * @param loansDto The LoansDto object containing the updated loan details.
+     * @param loansDto The LoansDto object containing the updated loan details and the version they are based on.
      * @return true if the update is successful, false otherwise.
      * @throws ResourceNotFoundException if no loan is found for the given loan number.
+     * @throws org.springframework.dao.OptimisticLockingFailureException if the loan changed after it was read.
      */
     @Override
     public boolean updateLoan(LoansDto loansDto) {
         Loans loans = loansRepository.findByLoanNumber(loansDto.getLoanNumber()).orElseThrow(
                 () -> new ResourceNotFoundException("Loan", "LoanNumber", loansDto.getLoanNumber()));
+        if (loansDto.getVersion() == null || loansDto.getVersion() != loans.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Loans.class, loans.getLoanId());
+        }
         LoansMapper.mapToLoans(loansDto, loans);
         loansRepository.save(loans);
         return  true;
     }
 
+    /**
+     * Posts a repayment with one conditional update, without reading the loan first.
+     * Only when nothing was updated is the loan looked up, to tell a missing loan from an overpayment.
+     * @param loanNumber The loan number of the loan being repaid.
+     * @param amount The amount repaid, greater than zero.
+     * @throws ResourceNotFoundException if no loan is found for the given loan number.
+     * @throws LoanOverpaymentException if the amount exceeds the outstanding amount of the loan.
+     */
+    @Override
+    public void repay(String loanNumber, int amount) {
+        int updated = loansRepository.repay(loanNumber, amount, LocalDateTime.now(),
+                auditAwareImpl.getCurrentAuditor().orElse(null));
+        if (updated == 0) {
+            if (!loansRepository.existsByLoanNumber(loanNumber)) {
+                throw new ResourceNotFoundException("Loan", "LoanNumber", loanNumber);
+            }
+            throw new LoanOverpaymentException(loanNumber, amount);
+        }
+    }
+
+    /**
+     * Posts many repayments in order, sent to the database in JDBC batches and committed together.
+     * A repayment that is rejected does not stop the others; the loans of the rejected ones are looked up
+     * with a single query to tell a missing loan from an overpayment.
+     * @param repayments The repayments to post, in the order they are to be applied.
+     * @return The outcome of each repayment, in the order given.
+     */
+    @Override
+    @Transactional
+    public List<RepaymentResultDto> repayAll(List<RepaymentDto> repayments) {
+        int[] updated = loansRepository.repayAll(repayments, LocalDateTime.now(),
+                auditAwareImpl.getCurrentAuditor().orElse(null));
+        List<String> rejected = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                rejected.add(repayments.get(i).getLoanNumber());
+            }
+        }
+        Set<String> existing = rejected.isEmpty() ? Set.of() : loansRepository.findExistingLoanNumbers(rejected);
+        List<RepaymentResultDto> results = new ArrayList<>(repayments.size());
+        for (int i = 0; i < updated.length; i++) {
+            RepaymentDto repayment = repayments.get(i);
+            RepaymentResultDto.Status status = updated[i] > 0 ? RepaymentResultDto.Status.POSTED
+                    : existing.contains(repayment.getLoanNumber()) ? RepaymentResultDto.Status.OVERPAYMENT
+                    : RepaymentResultDto.Status.LOAN_NOT_FOUND;
+            results.add(new RepaymentResultDto(repayment.getLoanNumber(), repayment.getAmount(), status));
+        }
+        return results;
+    }
+
     /**
      * Deletes the loan associated with the given mobile number.
      * @param mobileNumber The unique mobile number of the customer whose loan is to be deleted.
@@ -0,0 +1,5 @@
+-- blocks of loan numbers reserved by each instance's NumberAllocator
+CREATE TABLE IF NOT EXISTS `number_block` (
+  `sequence_name` varchar(50) PRIMARY KEY,
+  `next_value` bigint NOT NULL
+);
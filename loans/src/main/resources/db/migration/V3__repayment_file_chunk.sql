@@ -0,0 +1,10 @@
+-- chunks of repayment files already posted, so an interrupted ingestion resumes after them
+CREATE TABLE IF NOT EXISTS `repayment_file_chunk` (
+  `file_name` varchar(255) NOT NULL,
+  `chunk_offset` bigint NOT NULL,
+  `chunk_length` int NOT NULL,
+  `records` int NOT NULL,
+  `posted` int NOT NULL,
+  `created_at` timestamp NOT NULL,
+  PRIMARY KEY (`file_name`, `chunk_offset`)
+);
@@ -0,0 +1,5 @@
+-- loans are looked up by loan number, e.g. for every repayment
+ALTER TABLE `loans` ADD CONSTRAINT `uk_loans_loan_number` UNIQUE (`loan_number`);
+
+-- loans are fetched by mobile number, and a mobile number registers one loan
+ALTER TABLE `loans` ADD CONSTRAINT `uk_loans_mobile_number` UNIQUE (`mobile_number`);
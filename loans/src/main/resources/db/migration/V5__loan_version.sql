@@ -0,0 +1,2 @@
+-- optimistic locking of full loan updates; every repayment increments it as well
+ALTER TABLE `loans` ADD COLUMN IF NOT EXISTS `version` bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,84 @@
+package com.eazybytes.loans.controller;
+
+import com.eazybytes.loans.constants.LoansConstants;
+import com.eazybytes.loans.entity.Loans;
+import com.eazybytes.loans.repository.LoansRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Calls the bulk fetch endpoint that the accounts service uses for batch customer details.
+ */
+@SpringBootTest(properties = {"build.version=test", "eureka.client.enabled=false", "spring.jpa.show-sql=false"})
+@AutoConfigureMockMvc
+@Transactional
+class LoansBulkFetchTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private LoansRepository loansRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void returnsTheLoansOfTheMobileNumbersThatHaveOne() throws Exception {
+        saveLoan("9345432123", "900000000001");
+        saveLoan("9345432124", "900000000002");
+
+        mockMvc.perform(fetchBulk(List.of("9345432123", "1111111111", "9345432124")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[*].loanNumber").value(
+                        containsInAnyOrder("900000000001", "900000000002")));
+    }
+
+    @Test
+    void rejectsMoreThan200MobileNumbers() throws Exception {
+        mockMvc.perform(fetchBulk(Collections.nCopies(201, "9345432123")))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(fetchBulk(Collections.nCopies(200, "9345432123")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void rejectsMalformedMobileNumbers() throws Exception {
+        mockMvc.perform(fetchBulk(List.of("9345432123", "12345")))
+                .andExpect(status().isBadRequest());
+    }
+
+    private RequestBuilder fetchBulk(List<String> mobileNumbers) throws Exception {
+        return post("/api/fetchBulk")
+                .header("eazybank-correlation-id", "test")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(mobileNumbers));
+    }
+
+    private void saveLoan(String mobileNumber, String loanNumber) {
+        Loans loan = new Loans();
+        loan.setMobileNumber(mobileNumber);
+        loan.setLoanNumber(loanNumber);
+        loan.setLoanType(LoansConstants.HOME_LOAN);
+        loan.setTotalLoan(LoansConstants.NEW_LOAN_LIMIT);
+        loan.setAmountPaid(0);
+        loan.setOutstandingAmount(LoansConstants.NEW_LOAN_LIMIT);
+        loansRepository.save(loan);
+    }
+}
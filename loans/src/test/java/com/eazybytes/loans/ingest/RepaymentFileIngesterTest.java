@@ -0,0 +1,189 @@
+package com.eazybytes.loans.ingest;
+
+import com.eazybytes.loans.audit.AuditAwareImpl;
+import com.eazybytes.loans.config.RepaymentFileProperties;
+import com.eazybytes.loans.constants.LoansConstants;
+import com.eazybytes.loans.entity.Loans;
+import com.eazybytes.loans.repository.LoansRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ingests generated repayment files in small chunks on several workers, and checks that every loan ends up
+ * with exactly the repayments of the file, also when a run is cut short and resumed.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(AuditAwareImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RepaymentFileIngesterTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RepaymentFileIngesterTest.class);
+
+    private static final int LOANS = 500;
+    private static final int RECORDS = 200_000;
+
+    @Autowired
+    private LoansRepository loansRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void csvFileIsAppliedOnceAcrossParallelChunks() throws Exception {
+        List<Loans> loans = saveLoans(200_000_000_000L);
+        long[] expected = new long[LOANS];
+        Path file = writeCsv("repayments-1.csv", loans, expected);
+
+        RepaymentFileReport report;
+        try (RepaymentFileIngester ingester = ingester(RepaymentFileProperties.Format.CSV)) {
+            report = ingester.ingest(file);
+        }
+
+        log.info("{} records/s, stage times {}", Math.round(report.recordsPerSecond()), report.stageTimes());
+        assertTrue(report.complete());
+        assertTrue(report.chunks() > 10, report.chunks() + " chunks");
+        assertEquals(RECORDS, report.records());
+        assertEquals(RECORDS - 1, report.posted());
+        assertEquals(1, report.loansNotFound());
+        assertEquals(1, report.malformed());
+        assertPaid(loans, expected);
+    }
+
+    @Test
+    void cancelledRunIsResumedFromTheCommittedChunks() throws Exception {
+        List<Loans> loans = saveLoans(300_000_000_000L);
+        long[] expected = new long[LOANS];
+        Path file = writeCsv("repayments-2.csv", loans, expected);
+
+        AtomicInteger started = new AtomicInteger();
+        RepaymentFileReport first;
+        try (RepaymentFileIngester ingester = ingester(RepaymentFileProperties.Format.CSV)) {
+            first = ingester.ingest(file, () -> started.incrementAndGet() > 5);
+        }
+        // a new ingester, as after a restart
+        RepaymentFileReport second;
+        try (RepaymentFileIngester ingester = ingester(RepaymentFileProperties.Format.CSV)) {
+            second = ingester.ingest(file);
+        }
+
+        assertFalse(first.complete());
+        assertTrue(second.complete());
+        assertTrue(second.resumedChunks() >= 5, second.resumedChunks() + " chunks resumed");
+        assertEquals(RECORDS, first.records() + second.records());
+        assertPaid(loans, expected);
+    }
+
+    @Test
+    void fixedWidthRepaymentsOfALoanAreAppliedOneByOneWhenTheirSumIsTooHigh() throws Exception {
+        Loans loan = saveLoan("400000000001", 1_000);
+        Path file = directory.resolve("repayments-3.txt");
+        Files.writeString(file, """
+                400000000001       600
+                400000000001       600
+                4000000000010000000300
+                40000000000X       100
+                """);
+
+        RepaymentFileReport report;
+        try (RepaymentFileIngester ingester = ingester(RepaymentFileProperties.Format.FIXED_WIDTH)) {
+            report = ingester.ingest(file);
+        }
+
+        Loans updated = loansRepository.findByLoanNumber(loan.getLoanNumber()).orElseThrow();
+        assertEquals(900, updated.getAmountPaid());
+        assertEquals(100, updated.getOutstandingAmount());
+        assertEquals(2, report.posted());
+        assertEquals(1, report.overpayments());
+        assertEquals(1, report.malformed());
+    }
+
+    private RepaymentFileIngester ingester(RepaymentFileProperties.Format format) {
+        RepaymentFileProperties properties = new RepaymentFileProperties();
+        properties.setFormat(format);
+        properties.setChunkSize(DataSize.ofKilobytes(64));
+        properties.setParallelism(4);
+        return new RepaymentFileIngester(loansRepository, jdbcTemplate, transactionManager, properties, "TEST",
+                new SimpleMeterRegistry());
+    }
+
+    /**
+     * Writes a header, {@link #RECORDS} repayments over the loans, one for an unknown loan and one malformed
+     * line, and adds the repayments of every loan to expected.
+     */
+    private Path writeCsv(String name, List<Loans> loans, long[] expected) throws Exception {
+        Path file = directory.resolve(name);
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("loanNumber,amount,reference\n");
+            for (int i = 0; i < RECORDS - 1; i++) {
+                int loan = random.nextInt(loans.size());
+                int amount = 1 + random.nextInt(99);
+                expected[loan] += amount;
+                writer.write(loans.get(loan).getLoanNumber() + "," + amount + ",EOD" + i + "\n");
+                if (i == RECORDS / 2) {
+                    writer.write("not a repayment\n");
+                }
+            }
+            // no line break after the last line
+            writer.write("999999999999,10,EOD");
+        }
+        return file;
+    }
+
+    private void assertPaid(List<Loans> loans, long[] expected) {
+        for (int i = 0; i < loans.size(); i++) {
+            Loans updated = loansRepository.findByLoanNumber(loans.get(i).getLoanNumber()).orElseThrow();
+            assertEquals(expected[i], updated.getAmountPaid(), "amount paid of loan " + updated.getLoanNumber());
+            assertEquals(updated.getTotalLoan(), updated.getAmountPaid() + updated.getOutstandingAmount());
+        }
+    }
+
+    private List<Loans> saveLoans(long firstLoanNumber) {
+        List<Loans> loans = new ArrayList<>();
+        for (int i = 0; i < LOANS; i++) {
+            loans.add(saveLoan(Long.toString(firstLoanNumber + i), LoansConstants.NEW_LOAN_LIMIT));
+        }
+        return loans;
+    }
+
+    private Loans saveLoan(String loanNumber, int totalLoan) {
+        Loans loan = new Loans();
+        loan.setLoanNumber(loanNumber);
+        // one loan per mobile number; the tests use different leading digits
+        loan.setMobileNumber(loanNumber.charAt(0) + loanNumber.substring(3));
+        loan.setLoanType(LoansConstants.HOME_LOAN);
+        loan.setTotalLoan(totalLoan);
+        loan.setAmountPaid(0);
+        loan.setOutstandingAmount(totalLoan);
+        return loansRepository.save(loan);
+    }
+}
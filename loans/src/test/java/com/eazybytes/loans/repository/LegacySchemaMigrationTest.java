@@ -0,0 +1,51 @@
+package com.eazybytes.loans.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Migrates a database that was set up from the former schema.sql, which is baselined at V1, and checks that
+ * the objects of the later migrations are there.
+ */
+class LegacySchemaMigrationTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy_loans;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(dataSource);
+        jdbcTemplate.update("insert into loans (mobile_number, loan_number, loan_type, total_loan, amount_paid, " +
+                "outstanding_amount, created_at, created_by) values ('9345432123', '548732457654', 'Home Loan', " +
+                "100000, 0, 100000, current_date, 'LEGACY')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop all objects");
+    }
+
+    @Test
+    void legacyDatabaseGetsTheObjectsOfTheLaterMigrations() {
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).load().migrate();
+
+        assertEquals(0, jdbcTemplate.queryForObject("select version from loans where loan_number = '548732457654'",
+                Long.class));
+        jdbcTemplate.update("insert into number_block (sequence_name, next_value) values ('loan_number', 1)");
+        jdbcTemplate.update("insert into repayment_file_chunk (file_name, chunk_offset, chunk_length, records, " +
+                "posted, created_at) values ('repayments.csv', 0, 100, 2, 2, ?)", Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,77 @@
+package com.eazybytes.loans.repository;
+
+import com.eazybytes.loans.audit.AuditAwareImpl;
+import com.eazybytes.loans.config.NumberAllocatorConfig;
+import com.eazybytes.loans.exception.LoanAlreadyExistsException;
+import com.eazybytes.loans.service.ILoansService;
+import com.eazybytes.loans.service.impl.LoansServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Creates a loan for the same mobile number from many threads at once. Without a read beforehand, only the
+ * unique constraint on the mobile number decides which request wins.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import({AuditAwareImpl.class, NumberAllocatorConfig.class, LoansServiceImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoanCreationRaceTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private LoansRepository loansRepository;
+
+    @Autowired
+    private ILoansService loansService;
+
+    @Test
+    void concurrentCreationsMakeOneLoan() throws Exception {
+        String mobileNumber = "5550001234";
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        int created = 0;
+        int rejected = 0;
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        loansService.createLoan(mobileNumber);
+                        return true;
+                    } catch (LoanAlreadyExistsException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> future : futures) {
+                if (future.get()) {
+                    created++;
+                } else {
+                    rejected++;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, created);
+        assertEquals(THREADS - 1, rejected);
+        assertEquals(1, loansRepository.findByMobileNumberIn(List.of(mobileNumber)).size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.eazybytes.loans.repository;
+
+import com.eazybytes.loans.audit.AuditAwareImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures loan lookups by loan number and by mobile number as the table grows, through the unique indexes
+ * of the V2 migration and, for comparison, with H2 told to use no index. Opt-in because seeding takes a
+ * while: run with {@code mvn test -Dbenchmark=true -Dtest=LoanLookupScalingBenchmarkTest}. The default sizes
+ * go up to 10M rows, which needs a heap of several GB, e.g. {@code -DargLine=-Xmx8g}; pick others with
+ * {@code -Dbenchmark.sizes=10000,100000,1000000}.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import(AuditAwareImpl.class)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LoanLookupScalingBenchmarkTest {
+
+    private static final int[] SIZES = Arrays.stream(System.getProperty("benchmark.sizes",
+            "10000,100000,1000000,10000000").split(",")).mapToInt(Integer::parseInt).toArray();
+    private static final int LOOKUPS = Integer.getInteger("benchmark.lookups", 10_000);
+    // table scans get slow with size, so they take fewer samples
+    private static final int SCAN_LOOKUPS = Integer.getInteger("benchmark.scan-lookups", 20);
+
+    @Autowired
+    private LoansRepository loansRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void lookupLatencyBySize() {
+        System.out.printf("%12s %14s %14s %14s%n", "rows", "loan number", "mobile number", "no index");
+        int seeded = 0;
+        for (int size : SIZES) {
+            seed(seeded, size);
+            seeded = size;
+            int rows = size;
+            Consumer<Integer> byLoanNumber = i -> assertEquals(loanNumber(i),
+                    loansRepository.findByLoanNumber(loanNumber(i)).orElseThrow().getLoanNumber());
+            Consumer<Integer> byMobileNumber = i -> assertEquals(mobileNumber(i),
+                    loansRepository.findByMobileNumber(mobileNumber(i)).orElseThrow().getMobileNumber());
+            Consumer<Integer> scan = i -> assertEquals(1, jdbcTemplate.queryForList(
+                    "select * from loans use index () where loan_number = ?", loanNumber(i)).size());
+
+            run(byLoanNumber, rows, LOOKUPS / 5);
+            run(byMobileNumber, rows, LOOKUPS / 5);
+            double loanNumberMicros = run(byLoanNumber, rows, LOOKUPS);
+            double mobileNumberMicros = run(byMobileNumber, rows, LOOKUPS);
+            double scanMicros = run(scan, rows, SCAN_LOOKUPS);
+            System.out.printf("%,12d %11.1f us %11.1f us %11.1f us%n", size, loanNumberMicros, mobileNumberMicros,
+                    scanMicros);
+        }
+    }
+
+    private void seed(int from, int to) {
+        Date today = Date.valueOf(LocalDate.now());
+        int chunk = 10_000;
+        for (int start = from; start < to; start += chunk) {
+            List<Object[]> loans = new ArrayList<>(chunk);
+            for (int i = start; i < Math.min(start + chunk, to); i++) {
+                loans.add(new Object[]{mobileNumber(i), loanNumber(i), today});
+            }
+            jdbcTemplate.batchUpdate("insert into loans (mobile_number, loan_number, loan_type, total_loan, " +
+                    "amount_paid, outstanding_amount, created_at, created_by) " +
+                    "values (?, ?, 'Home Loan', 100000, 0, 100000, ?, 'BENCHMARK')", loans);
+        }
+    }
+
+    /**
+     * @return The average time of a lookup of a random row, in microseconds.
+     */
+    private double run(Consumer<Integer> lookup, int rows, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            lookup.accept(ThreadLocalRandom.current().nextInt(rows));
+            // keep the persistence context from growing like it would across requests
+            entityManager.clear();
+        }
+        return (System.nanoTime() - start) / 1_000.0 / count;
+    }
+
+    private static String loanNumber(int i) {
+        return Long.toString(500_000_000_000L + i);
+    }
+
+    private static String mobileNumber(int i) {
+        return String.format("8%09d", i);
+    }
+}
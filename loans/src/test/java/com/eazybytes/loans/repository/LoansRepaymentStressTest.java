@@ -0,0 +1,192 @@
+package com.eazybytes.loans.repository;
+
+import com.eazybytes.loans.audit.AuditAwareImpl;
+import com.eazybytes.loans.config.NumberAllocatorConfig;
+import com.eazybytes.loans.constants.LoansConstants;
+import com.eazybytes.loans.dto.LoansDto;
+import com.eazybytes.loans.dto.RepaymentDto;
+import com.eazybytes.loans.dto.RepaymentResultDto;
+import com.eazybytes.loans.entity.Loans;
+import com.eazybytes.loans.exception.LoanOverpaymentException;
+import com.eazybytes.loans.exception.ResourceNotFoundException;
+import com.eazybytes.loans.service.ILoansService;
+import com.eazybytes.loans.service.impl.LoansServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Posts repayments on the same loans from many threads at once, one by one, in batches and alongside full
+ * updates, and checks that totalLoan = amountPaid + outstandingAmount holds with exactly the posted repayments. Each post commits on
+ * its own, as it does behind the endpoints, so the test itself runs outside a transaction.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@Import({AuditAwareImpl.class, NumberAllocatorConfig.class, LoansServiceImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoansRepaymentStressTest {
+
+    private static final int THREADS = 16;
+    private static final int POSTS_PER_THREAD = 100;
+    // the fixtures use loan numbers below the allocator's range, so loans that other tests create in the same
+    // database never take one of them
+    private static final String UNKNOWN_LOAN = "000000000000";
+
+    @Autowired
+    private LoansRepository loansRepository;
+
+    @Autowired
+    private ILoansService loansService;
+
+    @Test
+    void concurrentRepaymentsNeverOverpay() throws Exception {
+        // the threads repay more than the loan
+        Loans loan = saveLoan("000000000001", 10_000);
+
+        int paid = postConcurrently(() -> {
+            try {
+                loansService.repay(loan.getLoanNumber(), 7);
+                return 7;
+            } catch (LoanOverpaymentException e) {
+                return 0;
+            }
+        });
+
+        Loans updated = loansRepository.findByLoanNumber(loan.getLoanNumber()).orElseThrow();
+        assertEquals(paid, updated.getAmountPaid());
+        assertEquals(updated.getTotalLoan(), updated.getAmountPaid() + updated.getOutstandingAmount());
+        assertTrue(updated.getOutstandingAmount() >= 0 && updated.getOutstandingAmount() < 7,
+                "outstanding amount " + updated.getOutstandingAmount());
+        assertThrows(ResourceNotFoundException.class, () -> loansService.repay(UNKNOWN_LOAN, 1));
+    }
+
+    @Test
+    void concurrentBatchesPostExactlyWhatTheyReport() throws Exception {
+        List<Loans> loans = List.of(saveLoan("000000000002", LoansConstants.NEW_LOAN_LIMIT),
+                saveLoan("000000000003", LoansConstants.NEW_LOAN_LIMIT),
+                saveLoan("000000000004", 5_000));
+
+        List<List<RepaymentResultDto>> batches = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<RepaymentResultDto>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    List<RepaymentDto> repayments = new ArrayList<>();
+                    for (int i = 0; i < POSTS_PER_THREAD; i++) {
+                        int loan = ThreadLocalRandom.current().nextInt(loans.size() + 1);
+                        // one in four repayments goes to a loan that does not exist
+                        String loanNumber = loan < loans.size() ? loans.get(loan).getLoanNumber() : UNKNOWN_LOAN;
+                        repayments.add(new RepaymentDto(loanNumber, ThreadLocalRandom.current().nextInt(1, 100)));
+                    }
+                    return loansService.repayAll(repayments);
+                }));
+            }
+            for (Future<List<RepaymentResultDto>> future : futures) {
+                batches.add(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (Loans loan : loans) {
+            int posted = batches.stream().flatMap(List::stream)
+                    .filter(result -> result.getLoanNumber().equals(loan.getLoanNumber()))
+                    .filter(result -> result.getStatus() == RepaymentResultDto.Status.POSTED)
+                    .mapToInt(RepaymentResultDto::getAmount).sum();
+            Loans updated = loansRepository.findByLoanNumber(loan.getLoanNumber()).orElseThrow();
+            assertEquals(posted, updated.getAmountPaid(), "amount paid of loan " + loan.getLoanNumber());
+            assertEquals(updated.getTotalLoan(), updated.getAmountPaid() + updated.getOutstandingAmount());
+            assertTrue(updated.getOutstandingAmount() >= 0);
+        }
+        assertTrue(batches.stream().flatMap(List::stream)
+                .filter(result -> result.getLoanNumber().equals(UNKNOWN_LOAN))
+                .allMatch(result -> result.getStatus() == RepaymentResultDto.Status.LOAN_NOT_FOUND));
+        // the small loan is paid off early, after which its repayments are overpayments
+        assertTrue(batches.stream().flatMap(List::stream)
+                .anyMatch(result -> result.getStatus() == RepaymentResultDto.Status.OVERPAYMENT));
+    }
+
+    @Test
+    void fullUpdatesNeverOverwriteRepayments() throws Exception {
+        Loans loan = saveLoan("000000000005", LoansConstants.NEW_LOAN_LIMIT);
+        AtomicInteger conflicts = new AtomicInteger();
+
+        // every other post is a repayment, the others read the loan and write it back in full
+        AtomicInteger posts = new AtomicInteger();
+        int paid = postConcurrently(() -> {
+            if (posts.getAndIncrement() % 2 == 0) {
+                loansService.repay(loan.getLoanNumber(), 3);
+                return 3;
+            }
+            LoansDto loansDto = loansService.fetchLoan(loan.getMobileNumber());
+            loansDto.setLoanType(LoansConstants.HOME_LOAN);
+            try {
+                loansService.updateLoan(loansDto);
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.incrementAndGet();
+            }
+            return 0;
+        });
+
+        Loans updated = loansRepository.findByLoanNumber(loan.getLoanNumber()).orElseThrow();
+        assertEquals(paid, updated.getAmountPaid());
+        assertEquals(updated.getTotalLoan(), updated.getAmountPaid() + updated.getOutstandingAmount());
+        assertTrue(conflicts.get() > 0, "no update raced a repayment");
+    }
+
+    private Loans saveLoan(String loanNumber, int totalLoan) {
+        Loans loan = new Loans();
+        loan.setLoanNumber(loanNumber);
+        loan.setMobileNumber(loanNumber.substring(2));
+        loan.setLoanType(LoansConstants.HOME_LOAN);
+        loan.setTotalLoan(totalLoan);
+        loan.setAmountPaid(0);
+        loan.setOutstandingAmount(totalLoan);
+        return loansRepository.save(loan);
+    }
+
+    /**
+     * Runs the post {@link #POSTS_PER_THREAD} times on each of {@link #THREADS} threads.
+     *
+     * @return The sum of the amounts the posts returned.
+     */
+    private static int postConcurrently(Callable<Integer> post) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    int paid = 0;
+                    for (int i = 0; i < POSTS_PER_THREAD; i++) {
+                        paid += post.call();
+                    }
+                    return paid;
+                }));
+            }
+            int paid = 0;
+            for (Future<Integer> future : futures) {
+                paid += future.get();
+            }
+            return paid;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.eazybytes.message;
 
+import com.eazybytes.message.config.DispatchProperties;
+import com.eazybytes.message.config.IdempotencyProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
+@EnableConfigurationProperties({DispatchProperties.class, IdempotencyProperties.class})
 public class MessageApplication {
 
 	public static void main(String[] args) {
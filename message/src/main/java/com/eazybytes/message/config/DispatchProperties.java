@@ -0,0 +1,65 @@
+package com.eazybytes.message.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for dispatching communication requests to the email and sms providers.
+ */
+@ConfigurationProperties(prefix = "message.dispatch")
+public class DispatchProperties {
+
+    /**
+     * Maximum number of communication requests of one partition being dispatched at the same time. The
+     * partitions of a poll are dispatched side by side, and acknowledgements keep the order of their partition.
+     */
+    private int maxInFlightPerPartition = 16;
+
+    /**
+     * Deadline for sending both the email and the sms of one request.
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+
+    /**
+     * Wait before a failed request is polled again. It doubles with every further failure of the request.
+     */
+    private Duration retryInitialInterval = Duration.ofSeconds(1);
+
+    /**
+     * Longest wait between two attempts of a failed request. Failed requests are retried until they are sent.
+     */
+    private Duration retryMaxInterval = Duration.ofMinutes(1);
+
+    public int getMaxInFlightPerPartition() {
+        return maxInFlightPerPartition;
+    }
+
+    public void setMaxInFlightPerPartition(int maxInFlightPerPartition) {
+        this.maxInFlightPerPartition = maxInFlightPerPartition;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public Duration getRetryInitialInterval() {
+        return retryInitialInterval;
+    }
+
+    public void setRetryInitialInterval(Duration retryInitialInterval) {
+        this.retryInitialInterval = retryInitialInterval;
+    }
+
+    public Duration getRetryMaxInterval() {
+        return retryMaxInterval;
+    }
+
+    public void setRetryMaxInterval(Duration retryMaxInterval) {
+        this.retryMaxInterval = retryMaxInterval;
+    }
+}
@@ -0,0 +1,40 @@
+package com.eazybytes.message.config;
+
+import com.eazybytes.message.idempotency.IdempotencyStore;
+import com.eazybytes.message.idempotency.InMemoryIdempotencyStore;
+import com.eazybytes.message.idempotency.JdbcIdempotencyStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class IdempotencyConfig {
+
+    /**
+     * In-memory IdempotencyStore, used unless message.idempotency.store is set to jdbc.
+     *
+     * @param idempotencyProperties the idempotency settings
+     * @return the in-memory IdempotencyStore
+     */
+    @Bean
+    @ConditionalOnProperty(name = "message.idempotency.store", havingValue = "memory", matchIfMissing = true)
+    public IdempotencyStore inMemoryIdempotencyStore(IdempotencyProperties idempotencyProperties) {
+        return new InMemoryIdempotencyStore(idempotencyProperties.getTtl(), idempotencyProperties.getMaxEntries());
+    }
+
+    /**
+     * JDBC IdempotencyStore, used when message.idempotency.store is set to jdbc. Needs a DataSource, so a JDBC
+     * driver and connection pool have to be added to the deployment.
+     *
+     * @param dataSource            the DataSource holding the processed_message table
+     * @param idempotencyProperties the idempotency settings
+     * @return the JDBC IdempotencyStore
+     */
+    @Bean
+    @ConditionalOnProperty(name = "message.idempotency.store", havingValue = "jdbc")
+    public IdempotencyStore jdbcIdempotencyStore(DataSource dataSource, IdempotencyProperties idempotencyProperties) {
+        return new JdbcIdempotencyStore(dataSource, idempotencyProperties.getTtl());
+    }
+}
@@ -0,0 +1,52 @@
+package com.eazybytes.message.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the store remembering which communication requests were already dispatched.
+ */
+@ConfigurationProperties(prefix = "message.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Where dispatched requests are remembered: "memory" for a bounded in-process store,
+     * or "jdbc" for the processed_message table of the application DataSource.
+     */
+    private String store = "memory";
+
+    /**
+     * How long a dispatched request is remembered.
+     */
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * Number of requests the in-memory store remembers before dropping the oldest ones early.
+     */
+    private int maxEntries = 500_000;
+
+    public String getStore() {
+        return store;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+}
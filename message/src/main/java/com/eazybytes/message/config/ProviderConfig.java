@@ -0,0 +1,58 @@
+package com.eazybytes.message.config;
+
+import com.eazybytes.message.provider.EmailProvider;
+import com.eazybytes.message.provider.SmsProvider;
+import com.eazybytes.message.provider.StubEmailProvider;
+import com.eazybytes.message.provider.StubSmsProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ProviderConfig {
+
+    /**
+     * Scheduler the provider calls run on. Every call gets its own virtual thread, so a slow provider
+     * only parks a virtual thread instead of holding the consumer thread.
+     *
+     * @return the Scheduler for provider calls
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler providerScheduler() {
+        return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "message-provider");
+    }
+
+    /**
+     * Stub EmailProvider used until a real provider bean is defined.
+     *
+     * @param latency the simulated base latency of an email call
+     * @param jitter  the simulated random extra latency of an email call
+     * @return the stub EmailProvider
+     */
+    @Bean
+    @ConditionalOnMissingBean(EmailProvider.class)
+    public EmailProvider emailProvider(@Value("${message.stub.email-latency:50ms}") Duration latency,
+                                       @Value("${message.stub.email-jitter:0ms}") Duration jitter) {
+        return new StubEmailProvider(latency, jitter);
+    }
+
+    /**
+     * Stub SmsProvider used until a real provider bean is defined.
+     *
+     * @param latency the simulated base latency of an sms call
+     * @param jitter  the simulated random extra latency of an sms call
+     * @return the stub SmsProvider
+     */
+    @Bean
+    @ConditionalOnMissingBean(SmsProvider.class)
+    public SmsProvider smsProvider(@Value("${message.stub.sms-latency:20ms}") Duration latency,
+                                   @Value("${message.stub.sms-jitter:0ms}") Duration jitter) {
+        return new StubSmsProvider(latency, jitter);
+    }
+}
@@ -0,0 +1,29 @@
+package com.eazybytes.message.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+@Configuration
+public class RedeliveryConfig {
+
+    /**
+     * Error handler of the emailsms-in-0 consumer, named by its common-error-handler-bean-name. When a poll
+     * fails with a BatchListenerFailedException the records before the failed one are committed and the
+     * partitions are polled again from it, after a back-off that grows up to
+     * {@code message.dispatch.retry-max-interval}. A failed request is never skipped, so it is sent once the
+     * providers recover.
+     *
+     * @param dispatchProperties the settings holding the back-off
+     * @return the CommonErrorHandler redelivering failed requests
+     */
+    @Bean
+    public CommonErrorHandler communicationErrorHandler(DispatchProperties dispatchProperties) {
+        ExponentialBackOff backOff = new ExponentialBackOff(dispatchProperties.getRetryInitialInterval().toMillis(),
+                ExponentialBackOff.DEFAULT_MULTIPLIER);
+        backOff.setMaxInterval(dispatchProperties.getRetryMaxInterval().toMillis());
+        return new DefaultErrorHandler(backOff);
+    }
+}
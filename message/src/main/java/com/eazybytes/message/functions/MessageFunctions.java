@@ -1,31 +1,44 @@
 package com.eazybytes.message.functions;
 
 import com.eazybytes.message.dto.AccountsMsgDto;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.eazybytes.message.service.CommunicationDispatcher;
+import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.messaging.Message;
 
-import java.util.function.Function;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Configuration
 public class MessageFunctions {
 
-    private static final Logger log = LoggerFactory.getLogger(MessageFunctions.class);
+    /**
+     * Binding the account numbers of sent communication requests are acknowledged on.
+     */
+    public static final String ACKNOWLEDGEMENT_BINDING = "acknowledgeCommunication-out-0";
 
+    /**
+     * Sends the email and the sms of every communication request of a poll and acknowledges it with its
+     * account number. Requests that were dispatched before are skipped. When a request fails the consumer
+     * throws a BatchListenerFailedException with its index, so only the records before it are committed
+     * and the poll is delivered again from the failed record; the requests sent meanwhile are skipped then.
+     *
+     * @param communicationDispatcher the dispatcher calling the email and sms providers
+     * @param streamBridge            the bridge the acknowledgements are sent through
+     * @return a Consumer of the communication requests of one poll
+     */
     @Bean
-    public Function<AccountsMsgDto, AccountsMsgDto> email() {
-        return accountsMsgDto -> {
-            log.info("Sending email with the details : " +  accountsMsgDto.toString());
-            return accountsMsgDto;
-        };
-    }
-
-    @Bean
-    public Function<AccountsMsgDto,Long> sms() {
-        return accountsMsgDto -> {
-            log.info("Sending sms with the details : " +  accountsMsgDto.toString());
-            return accountsMsgDto.accountNumber();
+    public Consumer<Message<List<AccountsMsgDto>>> emailsms(CommunicationDispatcher communicationDispatcher,
+                                                            StreamBridge streamBridge) {
+        return batch -> {
+            CommunicationDispatcher.BatchResult result = communicationDispatcher.dispatchBatch(batch);
+            result.acknowledged().forEach(accountNumber -> streamBridge.send(ACKNOWLEDGEMENT_BINDING, accountNumber));
+            if (result.failed()) {
+                throw new BatchListenerFailedException("Communication request could not be sent",
+                        result.firstFailure());
+            }
         };
     }
 }
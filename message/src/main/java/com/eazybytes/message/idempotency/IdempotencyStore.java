@@ -0,0 +1,25 @@
+package com.eazybytes.message.idempotency;
+
+/**
+ * Remembers which communication requests were already dispatched, so that redelivered requests are skipped.
+ * A request is identified by its account number together with the id of the message carrying it.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims a request for dispatching.
+     *
+     * @param accountNumber the account number of the request
+     * @param messageId     the id of the message carrying the request
+     * @return true if the request was not seen before and is now claimed, false if it is a duplicate
+     */
+    boolean tryAcquire(long accountNumber, long messageId);
+
+    /**
+     * Forgets a claimed request again, so that a redelivery of it is dispatched. Used when dispatching failed.
+     *
+     * @param accountNumber the account number of the request
+     * @param messageId     the id of the message carrying the request
+     */
+    void release(long accountNumber, long messageId);
+}
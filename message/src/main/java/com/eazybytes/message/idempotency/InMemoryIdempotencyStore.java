@@ -0,0 +1,205 @@
+package com.eazybytes.message.idempotency;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * IdempotencyStore keeping the keys in primitive open-addressing tables, without boxing or per-entry objects.
+ * <p>
+ * Keys are spread over lock stripes. Every stripe holds two generations of a fixed size: new keys go into the
+ * current generation and lookups check both. Once the current generation is older than the time to live,
+ * or full, the previous generation is cleared and reused as the new current one. A key is therefore
+ * remembered for at least the time to live unless the store is under capacity pressure, in which case the
+ * oldest keys are dropped first. Memory is allocated once up front and never grows.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final long TOMBSTONE = Long.MIN_VALUE + 1;
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    /**
+     * @param ttl        How long a key is remembered at least.
+     * @param maxEntries Number of keys the current generations hold together before they rotate early.
+     *                   The store holds at most twice as many keys.
+     */
+    public InMemoryIdempotencyStore(Duration ttl, int maxEntries) {
+        this(ttl, maxEntries, System::nanoTime);
+    }
+
+    InMemoryIdempotencyStore(Duration ttl, int maxEntries, LongSupplier nanoClock) {
+        this.ttlNanos = ttl.toNanos();
+        this.nanoClock = nanoClock;
+        int entriesPerStripe = Math.max(16, maxEntries / STRIPES);
+        long now = nanoClock.getAsLong();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(entriesPerStripe, now);
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(long accountNumber, long messageId) {
+        checkAccountNumber(accountNumber);
+        int hash = hash(accountNumber, messageId);
+        return stripes[hash >>> 28].tryAcquire(accountNumber, messageId, hash, nanoClock.getAsLong());
+    }
+
+    @Override
+    public void release(long accountNumber, long messageId) {
+        checkAccountNumber(accountNumber);
+        int hash = hash(accountNumber, messageId);
+        stripes[hash >>> 28].release(accountNumber, messageId, hash);
+    }
+
+    /**
+     * @return the number of keys currently remembered
+     */
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of slots allocated for keys, which stays the same for the lifetime of the store
+     */
+    public long capacity() {
+        long capacity = 0;
+        for (Stripe stripe : stripes) {
+            capacity += 2L * stripe.current.accountNumbers.length;
+        }
+        return capacity;
+    }
+
+    private static void checkAccountNumber(long accountNumber) {
+        if (accountNumber == EMPTY || accountNumber == TOMBSTONE) {
+            throw new IllegalArgumentException("Unsupported account number " + accountNumber);
+        }
+    }
+
+    private static int hash(long accountNumber, long messageId) {
+        long h = accountNumber * 0x9E3779B97F4A7C15L + messageId;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (h ^ (h >>> 31));
+    }
+
+    private final class Stripe {
+
+        private final int maxEntries;
+        private Generation current;
+        private Generation previous;
+        private long currentStartedAt;
+
+        private Stripe(int maxEntries, long now) {
+            this.maxEntries = maxEntries;
+            this.current = new Generation(maxEntries);
+            this.previous = new Generation(maxEntries);
+            this.currentStartedAt = now;
+        }
+
+        private synchronized boolean tryAcquire(long accountNumber, long messageId, int hash, long now) {
+            long age = now - currentStartedAt;
+            if (age >= 2 * ttlNanos) {
+                previous.clear();
+                current.clear();
+                currentStartedAt = now;
+            } else if (age >= ttlNanos || current.used >= maxEntries) {
+                rotate(now);
+            }
+            if (previous.indexOf(accountNumber, messageId, hash) >= 0) {
+                return false;
+            }
+            return current.insert(accountNumber, messageId, hash);
+        }
+
+        private synchronized void release(long accountNumber, long messageId, int hash) {
+            current.remove(accountNumber, messageId, hash);
+            previous.remove(accountNumber, messageId, hash);
+        }
+
+        private synchronized int size() {
+            return current.size + previous.size;
+        }
+
+        private void rotate(long now) {
+            Generation reused = previous;
+            reused.clear();
+            previous = current;
+            current = reused;
+            currentStartedAt = now;
+        }
+    }
+
+    private static final class Generation {
+
+        private final long[] accountNumbers;
+        private final long[] messageIds;
+        private final int mask;
+        private int size;
+        private int used;
+
+        private Generation(int maxEntries) {
+            // keeps the load factor at or below 0.75, so probing always reaches an empty slot
+            int slots = Integer.highestOneBit(Math.max(maxEntries * 4 / 3, 1)) << 1;
+            this.accountNumbers = new long[slots];
+            this.messageIds = new long[slots];
+            this.mask = slots - 1;
+            Arrays.fill(accountNumbers, EMPTY);
+        }
+
+        private int indexOf(long accountNumber, long messageId, int hash) {
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                long slot = accountNumbers[i];
+                if (slot == EMPTY) {
+                    return -1;
+                }
+                if (slot == accountNumber && messageIds[i] == messageId) {
+                    return i;
+                }
+            }
+        }
+
+        private boolean insert(long accountNumber, long messageId, int hash) {
+            int free = -1;
+            int i = hash & mask;
+            for (; accountNumbers[i] != EMPTY; i = (i + 1) & mask) {
+                if (accountNumbers[i] == accountNumber && messageIds[i] == messageId) {
+                    return false;
+                }
+                if (free < 0 && accountNumbers[i] == TOMBSTONE) {
+                    free = i;
+                }
+            }
+            if (free < 0) {
+                free = i;
+                used++;
+            }
+            accountNumbers[free] = accountNumber;
+            messageIds[free] = messageId;
+            size++;
+            return true;
+        }
+
+        private void remove(long accountNumber, long messageId, int hash) {
+            int i = indexOf(accountNumber, messageId, hash);
+            if (i >= 0) {
+                accountNumbers[i] = TOMBSTONE;
+                size--;
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(accountNumbers, EMPTY);
+            size = 0;
+            used = 0;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.eazybytes.message.idempotency;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * IdempotencyStore keeping the keys in the processed_message table, so that they survive restarts and are
+ * shared by all instances of the message service. Every claim is one insert relying on the primary key;
+ * expired rows are purged at most once per tenth of the time to live.
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final String CREATE_TABLE = "create table if not exists processed_message (" +
+            "account_number bigint not null, message_id bigint not null, processed_at timestamp not null, " +
+            "primary key (account_number, message_id))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Clock clock;
+    private volatile Instant nextPurge;
+
+    public JdbcIdempotencyStore(DataSource dataSource, Duration ttl) {
+        this(dataSource, ttl, Clock.systemUTC());
+    }
+
+    JdbcIdempotencyStore(DataSource dataSource, Duration ttl, Clock clock) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.ttl = ttl;
+        this.clock = clock;
+        this.nextPurge = clock.instant();
+        jdbcTemplate.execute(CREATE_TABLE);
+    }
+
+    @Override
+    public boolean tryAcquire(long accountNumber, long messageId) {
+        Instant now = clock.instant();
+        purgeExpiredIfDue(now);
+        try {
+            jdbcTemplate.update("insert into processed_message (account_number, message_id, processed_at) " +
+                    "values (?, ?, ?)", accountNumber, messageId, Timestamp.from(now));
+            return true;
+        } catch (DuplicateKeyException ex) {
+            // an expired row not purged yet does not count as a duplicate
+            return jdbcTemplate.update("update processed_message set processed_at = ? " +
+                            "where account_number = ? and message_id = ? and processed_at < ?",
+                    Timestamp.from(now), accountNumber, messageId, Timestamp.from(now.minus(ttl))) == 1;
+        }
+    }
+
+    @Override
+    public void release(long accountNumber, long messageId) {
+        jdbcTemplate.update("delete from processed_message where account_number = ? and message_id = ?",
+                accountNumber, messageId);
+    }
+
+    private void purgeExpiredIfDue(Instant now) {
+        if (now.isBefore(nextPurge)) {
+            return;
+        }
+        nextPurge = now.plus(ttl.dividedBy(10));
+        jdbcTemplate.update("delete from processed_message where processed_at < ?", Timestamp.from(now.minus(ttl)));
+    }
+}
@@ -0,0 +1,17 @@
+package com.eazybytes.message.provider;
+
+import com.eazybytes.message.dto.AccountsMsgDto;
+
+/**
+ * Sends the email of a communication request. Implementations may block; they are called on virtual threads.
+ */
+public interface EmailProvider {
+
+    /**
+     * Sends the email for the given communication request.
+     *
+     * @param accountsMsgDto the communication request
+     * @throws RuntimeException if the email could not be sent
+     */
+    void sendEmail(AccountsMsgDto accountsMsgDto);
+}
@@ -0,0 +1,17 @@
+package com.eazybytes.message.provider;
+
+import com.eazybytes.message.dto.AccountsMsgDto;
+
+/**
+ * Sends the sms of a communication request. Implementations may block; they are called on virtual threads.
+ */
+public interface SmsProvider {
+
+    /**
+     * Sends the sms for the given communication request.
+     *
+     * @param accountsMsgDto the communication request
+     * @throws RuntimeException if the sms could not be sent
+     */
+    void sendSms(AccountsMsgDto accountsMsgDto);
+}
@@ -0,0 +1,27 @@
+package com.eazybytes.message.provider;
+
+import com.eazybytes.message.dto.AccountsMsgDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * In-memory EmailProvider which only logs, after waiting as long as a real provider call might take.
+ */
+public class StubEmailProvider implements EmailProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(StubEmailProvider.class);
+
+    private final StubLatency latency;
+
+    public StubEmailProvider(Duration latency, Duration jitter) {
+        this.latency = new StubLatency(latency, jitter);
+    }
+
+    @Override
+    public void sendEmail(AccountsMsgDto accountsMsgDto) {
+        latency.pause();
+        log.info("Sending email with the details : {}", accountsMsgDto);
+    }
+}
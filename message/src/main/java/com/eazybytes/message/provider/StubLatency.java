@@ -0,0 +1,26 @@
+package com.eazybytes.message.provider;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulated provider latency: a fixed base plus a random jitter.
+ *
+ * @param base   the minimum time a call takes
+ * @param jitter the maximum extra time added at random
+ */
+record StubLatency(Duration base, Duration jitter) {
+
+    void pause() {
+        long millis = base.toMillis();
+        if (!jitter.isZero()) {
+            millis += ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending", ex);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.eazybytes.message.provider;
+
+import com.eazybytes.message.dto.AccountsMsgDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * In-memory SmsProvider which only logs, after waiting as long as a real provider call might take.
+ */
+public class StubSmsProvider implements SmsProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(StubSmsProvider.class);
+
+    private final StubLatency latency;
+
+    public StubSmsProvider(Duration latency, Duration jitter) {
+        this.latency = new StubLatency(latency, jitter);
+    }
+
+    @Override
+    public void sendSms(AccountsMsgDto accountsMsgDto) {
+        latency.pause();
+        log.info("Sending sms with the details : {}", accountsMsgDto);
+    }
+}
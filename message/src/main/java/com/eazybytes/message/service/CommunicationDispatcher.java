@@ -0,0 +1,179 @@
+package com.eazybytes.message.service;
+
+import com.eazybytes.message.config.DispatchProperties;
+import com.eazybytes.message.dto.AccountsMsgDto;
+import com.eazybytes.message.idempotency.IdempotencyStore;
+import com.eazybytes.message.provider.EmailProvider;
+import com.eazybytes.message.provider.SmsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Service
+public class CommunicationDispatcher {
+
+    /**
+     * Header carrying the id the accounts outbox assigned to a communication request. A request published
+     * again by the outbox keeps its id, so together with the account number it identifies the request.
+     */
+    public static final String MESSAGE_ID_HEADER = "eazybank-message-id";
+
+    private static final Logger log = LoggerFactory.getLogger(CommunicationDispatcher.class);
+
+    private final EmailProvider emailProvider;
+    private final SmsProvider smsProvider;
+    private final Scheduler providerScheduler;
+    private final DispatchProperties dispatchProperties;
+    private final IdempotencyStore idempotencyStore;
+
+    public CommunicationDispatcher(EmailProvider emailProvider, SmsProvider smsProvider,
+                                   @Qualifier("providerScheduler") Scheduler providerScheduler,
+                                   DispatchProperties dispatchProperties, IdempotencyStore idempotencyStore) {
+        this.emailProvider = emailProvider;
+        this.smsProvider = smsProvider;
+        this.providerScheduler = providerScheduler;
+        this.dispatchProperties = dispatchProperties;
+        this.idempotencyStore = idempotencyStore;
+    }
+
+    /**
+     * Dispatches the communication requests of one poll. The requests of every partition are dispatched with
+     * at most {@code message.dispatch.max-in-flight-per-partition} of them in progress at once, and the
+     * partitions are dispatched side by side, so a slow partition does not hold back the others. Within a
+     * partition acknowledgements keep the order of the requests. Requests already dispatched before are
+     * skipped without being acknowledged again.
+     *
+     * @param batch the requests of one poll, with the partition and the headers of every record in the
+     *              list headers the Kafka binder sets in batch mode
+     * @return the account numbers to acknowledge and the index of the first request that failed
+     */
+    public BatchResult dispatchBatch(Message<List<AccountsMsgDto>> batch) {
+        List<AccountsMsgDto> requests = batch.getPayload();
+        List<?> partitions = batch.getHeaders().get(KafkaHeaders.RECEIVED_PARTITION, List.class);
+        List<?> recordHeaders = batch.getHeaders().get(KafkaHeaders.BATCH_CONVERTED_HEADERS, List.class);
+        Map<Object, List<Integer>> byPartition = IntStream.range(0, requests.size()).boxed()
+                .collect(Collectors.groupingBy(i -> partitions == null ? 0 : partitions.get(i), LinkedHashMap::new,
+                        Collectors.toList()));
+        List<Map.Entry<Integer, Outcome>> outcomes = Flux.fromIterable(byPartition.values())
+                .flatMap(indexes -> Flux.fromIterable(indexes)
+                                .flatMapSequential(i -> dispatchOnce(requests.get(i), messageId(recordHeaders, i))
+                                        .map(outcome -> Map.entry(i, outcome)),
+                                        dispatchProperties.getMaxInFlightPerPartition()),
+                        Math.max(1, byPartition.size()))
+                .collectList()
+                .block();
+        List<Long> acknowledged = new ArrayList<>(requests.size());
+        int firstFailure = -1;
+        for (Map.Entry<Integer, Outcome> outcome : outcomes) {
+            if (outcome.getValue() == Outcome.SENT) {
+                acknowledged.add(requests.get(outcome.getKey()).accountNumber());
+            } else if (outcome.getValue() == Outcome.FAILED
+                    && (firstFailure < 0 || outcome.getKey() < firstFailure)) {
+                firstFailure = outcome.getKey();
+            }
+        }
+        return new BatchResult(acknowledged, firstFailure);
+    }
+
+    /**
+     * Dispatches a communication request unless it was dispatched before. When dispatching fails the claim
+     * is released again, so that a redelivery of the request is dispatched.
+     *
+     * @param accountsMsgDto the communication request
+     * @param messageId      the id of the message carrying the request
+     * @return what became of the request
+     */
+    public Mono<Outcome> dispatchOnce(AccountsMsgDto accountsMsgDto, long messageId) {
+        long accountNumber = accountsMsgDto.accountNumber();
+        if (!idempotencyStore.tryAcquire(accountNumber, messageId)) {
+            log.debug("Skipping duplicate communication for account {} and message {}", accountNumber, messageId);
+            return Mono.just(Outcome.DUPLICATE);
+        }
+        return dispatch(accountsMsgDto)
+                .map(sent -> Outcome.SENT)
+                .switchIfEmpty(Mono.fromRunnable(() -> idempotencyStore.release(accountNumber, messageId))
+                        .thenReturn(Outcome.FAILED));
+    }
+
+    /**
+     * Sends the email and the sms of one communication request in parallel.
+     *
+     * @param accountsMsgDto the communication request
+     * @return the account number once both were sent, or an empty Mono if either of them failed
+     */
+    public Mono<Long> dispatch(AccountsMsgDto accountsMsgDto) {
+        Mono<Void> email = Mono.<Void>fromRunnable(() -> emailProvider.sendEmail(accountsMsgDto))
+                .subscribeOn(providerScheduler);
+        Mono<Void> sms = Mono.<Void>fromRunnable(() -> smsProvider.sendSms(accountsMsgDto))
+                .subscribeOn(providerScheduler);
+        return Mono.when(email, sms)
+                .timeout(dispatchProperties.getTimeout())
+                .thenReturn(accountsMsgDto.accountNumber())
+                .onErrorResume(ex -> {
+                    log.error("Communication for account {} could not be sent", accountsMsgDto.accountNumber(), ex);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Reads the message id header of one record of a batch. Requests published without one are keyed by their
+     * account number alone, which is enough because an account is only ever announced once.
+     */
+    private static long messageId(List<?> recordHeaders, int index) {
+        Object header = recordHeaders != null && recordHeaders.get(index) instanceof Map<?, ?> headers
+                ? headers.get(MESSAGE_ID_HEADER) : null;
+        if (header instanceof Number number) {
+            return number.longValue();
+        }
+        if (header instanceof byte[] bytes) {
+            header = new String(bytes, StandardCharsets.UTF_8);
+        }
+        if (header instanceof String text && !text.isBlank()) {
+            try {
+                return Long.parseLong(text.strip());
+            } catch (NumberFormatException ex) {
+                log.warn("Ignoring malformed {} header: {}", MESSAGE_ID_HEADER, text);
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * What became of one communication request.
+     */
+    public enum Outcome {
+        /** The email and the sms were sent. */
+        SENT,
+        /** The request was dispatched before and is skipped. */
+        DUPLICATE,
+        /** Sending failed; the request has to be delivered again. */
+        FAILED
+    }
+
+    /**
+     * The result of dispatching one poll.
+     *
+     * @param acknowledged the account numbers of the requests sent, in the order of their partition
+     * @param firstFailure the index of the first request that failed, or -1 if none failed
+     */
+    public record BatchResult(List<Long> acknowledged, int firstFailure) {
+
+        public boolean failed() {
+            return firstFailure >= 0;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.eazybytes.message.functions;
+
+import com.eazybytes.message.dto.AccountsMsgDto;
+import com.eazybytes.message.service.CommunicationDispatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends polls through the in-memory test binder the way the Kafka binder delivers them in batch mode: a list of
+ * requests with the partition and headers of every record in list headers.
+ */
+@SpringBootTest(properties = {
+        "spring.cloud.stream.default-binder=integration",
+        "message.dispatch.max-in-flight-per-partition=8",
+        "message.stub.email-latency=40ms",
+        "message.stub.email-jitter=40ms",
+        "message.stub.sms-latency=40ms",
+        "message.stub.sms-jitter=40ms"
+})
+@Import(TestChannelBinderConfiguration.class)
+class MessageFunctionsTest {
+
+    private static final int REQUESTS = 48;
+
+    @Autowired
+    private InputDestination inputDestination;
+
+    @Autowired
+    private OutputDestination outputDestination;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void acknowledgesInPartitionOrderWhileDispatchingConcurrently() throws Exception {
+        List<Long> accountNumbers = LongStream.range(0, REQUESTS).map(i -> 1_000_000_000L + i).boxed().toList();
+        List<Integer> partitions = IntStream.range(0, REQUESTS).map(i -> i % 2).boxed().toList();
+        long start = System.nanoTime();
+        sendPoll(accountNumbers, partitions, Collections.nCopies(REQUESTS, Map.of()));
+
+        List<Long> acknowledged = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            Message<byte[]> message = outputDestination.receive(5_000, "communication-sent");
+            assertNotNull(message, "missing acknowledgement " + i);
+            acknowledged.add(objectMapper.readValue(message.getPayload(), Long.class));
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        for (int partition = 0; partition < 2; partition++) {
+            int p = partition;
+            assertEquals(accountNumbers.stream().filter(accountNumber -> accountNumber % 2 == p).toList(),
+                    acknowledged.stream().filter(accountNumber -> accountNumber % 2 == p).toList());
+        }
+        // one after the other, email then sms, this takes at least 48 * 80ms
+        assertTrue(elapsedMillis < REQUESTS * 80L / 2, "took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    void skipsRedeliveredRequests() throws Exception {
+        sendPoll(Collections.nCopies(3, 2_000_000_000L), List.of(0, 0, 1),
+                Collections.nCopies(3, Map.of(CommunicationDispatcher.MESSAGE_ID_HEADER, 42L)));
+
+        Message<byte[]> acknowledgement = outputDestination.receive(5_000, "communication-sent");
+        assertNotNull(acknowledgement);
+        assertEquals(2_000_000_000L, objectMapper.readValue(acknowledgement.getPayload(), Long.class));
+        assertNull(outputDestination.receive(500, "communication-sent"));
+    }
+
+    private void sendPoll(List<Long> accountNumbers, List<Integer> partitions,
+                          List<Map<String, Object>> recordHeaders) throws Exception {
+        List<AccountsMsgDto> requests = accountNumbers.stream()
+                .map(accountNumber -> new AccountsMsgDto(accountNumber, "Eazy Bytes", "tutor@eazybytes.com",
+                        "9345432123"))
+                .toList();
+        inputDestination.send(MessageBuilder.withPayload(objectMapper.writeValueAsBytes(requests))
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, partitions)
+                .setHeader(KafkaHeaders.BATCH_CONVERTED_HEADERS, recordHeaders)
+                .build(), "send-communication");
+    }
+}
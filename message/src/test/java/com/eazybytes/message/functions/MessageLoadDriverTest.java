@@ -0,0 +1,92 @@
+package com.eazybytes.message.functions;
+
+import com.eazybytes.message.dto.AccountsMsgDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.stream.binder.test.InputDestination;
+import org.springframework.cloud.stream.binder.test.OutputDestination;
+import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Load driver for the email|sms pipeline. Pushes polls of communication requests, spread over partitions,
+ * through the in-memory test binder and reports how many acknowledgements per second come out, using the stub
+ * providers and their latency.
+ * <p>
+ * Run with {@code mvn test -Dtest=MessageLoadDriverTest -Dbenchmark=true}; add for example
+ * {@code -Dmessage.dispatch.max-in-flight-per-partition=1} or {@code -Dmessage.stub.email-latency=200ms} to compare settings.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "spring.cloud.stream.default-binder=integration",
+        "logging.level.com.eazybytes.message.provider=WARN"
+})
+@Import(TestChannelBinderConfiguration.class)
+class MessageLoadDriverTest {
+
+    @Autowired
+    private InputDestination inputDestination;
+
+    @Autowired
+    private OutputDestination outputDestination;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${load.requests:2000}")
+    private int requests;
+
+    @Value("${load.poll-size:500}")
+    private int pollSize;
+
+    @Value("${load.partitions:3}")
+    private int partitions;
+
+    @Value("${message.dispatch.max-in-flight-per-partition}")
+    private int maxInFlight;
+
+    @Test
+    void measureThroughput() throws Exception {
+        List<Message<byte[]>> polls = new ArrayList<>();
+        for (int first = 0; first < requests; first += pollSize) {
+            List<AccountsMsgDto> poll = new ArrayList<>();
+            List<Integer> pollPartitions = new ArrayList<>();
+            for (int i = first; i < Math.min(first + pollSize, requests); i++) {
+                poll.add(new AccountsMsgDto(1_000_000_000L + i, "Eazy Bytes", "tutor@eazybytes.com", "9345432123"));
+                pollPartitions.add(i % partitions);
+            }
+            polls.add(MessageBuilder.withPayload(objectMapper.writeValueAsBytes(poll))
+                    .setHeader(KafkaHeaders.RECEIVED_PARTITION, pollPartitions)
+                    .build());
+        }
+        // the sender runs on its own thread so polls keep arriving while acknowledgements are drained
+        Thread sender = Thread.ofPlatform().start(() -> {
+            for (Message<byte[]> poll : polls) {
+                inputDestination.send(poll, "send-communication");
+            }
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            Message<byte[]> message = outputDestination.receive(30_000, "communication-sent");
+            assertNotNull(message, "missing acknowledgement " + i);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        sender.join();
+
+        System.out.printf("%d requests, %d partitions, max-in-flight per partition %d: %.1f s, " +
+                        "%.0f acknowledgements/s%n", requests, partitions, maxInFlight, elapsedNanos / 1e9,
+                requests / (elapsedNanos / 1e9));
+    }
+}
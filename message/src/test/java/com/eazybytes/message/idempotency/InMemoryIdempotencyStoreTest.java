@@ -0,0 +1,71 @@
+package com.eazybytes.message.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryIdempotencyStoreTest {
+
+    private static final long FIRST_ACCOUNT = 1_000_000_000L;
+
+    @Test
+    void skipsDuplicatesAndForgetsReleasedKeys() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofHours(1), 1_000);
+
+        assertTrue(store.tryAcquire(FIRST_ACCOUNT, 7));
+        assertFalse(store.tryAcquire(FIRST_ACCOUNT, 7));
+        assertTrue(store.tryAcquire(FIRST_ACCOUNT, 8));
+
+        store.release(FIRST_ACCOUNT, 7);
+        assertTrue(store.tryAcquire(FIRST_ACCOUNT, 7));
+    }
+
+    @Test
+    void forgetsKeysAfterTwiceTheTimeToLive() {
+        AtomicLong now = new AtomicLong();
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofNanos(100), 1_000, now::get);
+
+        assertTrue(store.tryAcquire(FIRST_ACCOUNT, 1));
+        now.set(150);
+        assertFalse(store.tryAcquire(FIRST_ACCOUNT, 1), "still remembered within the previous generation");
+        now.set(400);
+        assertTrue(store.tryAcquire(FIRST_ACCOUNT, 1));
+    }
+
+    /**
+     * Replays several million messages, each delivered twice with other messages in between, through a store
+     * far smaller than the stream. Every redelivery within the store's reach must be skipped while the
+     * allocated memory stays the same.
+     */
+    @Test
+    void replayOfMillionsOfMessagesStaysBounded() {
+        int maxEntries = 200_000;
+        int messages = 4_000_000;
+        int redeliveryDistance = 50_000;
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(Duration.ofHours(1), maxEntries);
+        long capacity = store.capacity();
+
+        int acquired = 0;
+        for (int i = 0; i < messages + redeliveryDistance; i++) {
+            if (i < messages && store.tryAcquire(FIRST_ACCOUNT + i, i)) {
+                acquired++;
+            }
+            int redelivered = i - redeliveryDistance;
+            if (redelivered >= 0 && store.tryAcquire(FIRST_ACCOUNT + redelivered, redelivered)) {
+                acquired++;
+            }
+            if (i % 500_000 == 0) {
+                assertTrue(store.size() <= 2L * maxEntries, "size " + store.size());
+            }
+        }
+
+        assertEquals(messages, acquired);
+        assertEquals(capacity, store.capacity());
+        assertTrue(store.size() <= 2L * maxEntries);
+    }
+}
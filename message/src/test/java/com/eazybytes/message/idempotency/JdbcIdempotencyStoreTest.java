@@ -0,0 +1,35 @@
+package com.eazybytes.message.idempotency;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcIdempotencyStoreTest {
+
+    @Test
+    void skipsDuplicatesUntilTheyExpire() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:idempotency;DB_CLOSE_DELAY=-1");
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        JdbcIdempotencyStore store = new JdbcIdempotencyStore(dataSource, Duration.ofHours(1),
+                Clock.fixed(start, ZoneOffset.UTC));
+        JdbcIdempotencyStore later = new JdbcIdempotencyStore(dataSource, Duration.ofHours(1),
+                Clock.fixed(start.plus(Duration.ofHours(2)), ZoneOffset.UTC));
+
+        assertTrue(store.tryAcquire(1_000_000_000L, 7));
+        assertFalse(store.tryAcquire(1_000_000_000L, 7));
+        assertTrue(store.tryAcquire(1_000_000_000L, 8));
+
+        store.release(1_000_000_000L, 8);
+        assertTrue(store.tryAcquire(1_000_000_000L, 8));
+
+        assertTrue(later.tryAcquire(1_000_000_000L, 7), "expired keys are no duplicates");
+    }
+}
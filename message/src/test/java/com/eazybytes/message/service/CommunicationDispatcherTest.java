@@ -0,0 +1,136 @@
+package com.eazybytes.message.service;
+
+import com.eazybytes.message.config.DispatchProperties;
+import com.eazybytes.message.dto.AccountsMsgDto;
+import com.eazybytes.message.idempotency.InMemoryIdempotencyStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Dispatches polls against providers that record concurrency or fail on demand, to check the per-partition
+ * bound and which requests a redelivered poll sends again.
+ */
+class CommunicationDispatcherTest {
+
+    private static final long FIRST_ACCOUNT = 1_000_000_000L;
+
+    private final Scheduler scheduler =
+            Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "test-provider");
+    private final DispatchProperties dispatchProperties = new DispatchProperties();
+    private final Set<Long> failing = ConcurrentHashMap.newKeySet();
+    private final Map<Long, AtomicInteger> sent = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> maxInFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger totalInFlight = new AtomicInteger();
+    private final AtomicInteger maxTotalInFlight = new AtomicInteger();
+
+    private Map<Long, Integer> partitionsByAccount = Map.of();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    void boundsConcurrencyPerPartitionWhileDispatchingPartitionsSideBySide() {
+        dispatchProperties.setMaxInFlightPerPartition(4);
+        CommunicationDispatcher dispatcher = dispatcher(20);
+        List<Integer> partitions = IntStream.range(0, 60).map(i -> i % 3).boxed().toList();
+
+        CommunicationDispatcher.BatchResult result = dispatcher.dispatchBatch(batch(60, partitions));
+
+        assertFalse(result.failed());
+        assertEquals(60, result.acknowledged().size());
+        for (int partition = 0; partition < 3; partition++) {
+            int p = partition;
+            List<Long> expected = LongStream.range(0, 60).filter(i -> i % 3 == p).map(i -> FIRST_ACCOUNT + i)
+                    .boxed().toList();
+            // acknowledgements keep the order of their partition
+            assertEquals(expected, result.acknowledged().stream()
+                    .filter(accountNumber -> (accountNumber - FIRST_ACCOUNT) % 3 == p).toList());
+            assertTrue(maxInFlight.get(partition) <= 4, "partition " + partition + ": " + maxInFlight.get(partition));
+        }
+        assertTrue(maxTotalInFlight.get() > 4, "partitions were not dispatched side by side");
+    }
+
+    @Test
+    void redeliveredPollSendsOnlyTheFailedRequests() {
+        CommunicationDispatcher dispatcher = dispatcher(0);
+        List<Integer> partitions = List.of(0, 0, 0, 1, 1);
+        failing.add(FIRST_ACCOUNT + 1);
+        failing.add(FIRST_ACCOUNT + 4);
+
+        CommunicationDispatcher.BatchResult first = dispatcher.dispatchBatch(batch(5, partitions));
+
+        assertEquals(1, first.firstFailure());
+        // partitions finish in any order
+        assertEquals(Set.of(FIRST_ACCOUNT, FIRST_ACCOUNT + 2, FIRST_ACCOUNT + 3), Set.copyOf(first.acknowledged()));
+
+        // the records from the failed one on are polled again, once the providers recovered
+        failing.clear();
+        CommunicationDispatcher.BatchResult second = dispatcher.dispatchBatch(batch(5, partitions));
+
+        assertFalse(second.failed());
+        assertEquals(Set.of(FIRST_ACCOUNT + 1, FIRST_ACCOUNT + 4), Set.copyOf(second.acknowledged()));
+        LongStream.range(0, 5).forEach(i -> assertEquals(1, sent.get(FIRST_ACCOUNT + i).get(), "account " + i));
+    }
+
+    private CommunicationDispatcher dispatcher(long latencyMillis) {
+        return new CommunicationDispatcher(accountsMsgDto -> {
+            int partition = partitionsByAccount.get(accountsMsgDto.accountNumber());
+            int current = inFlight.computeIfAbsent(partition, p -> new AtomicInteger()).incrementAndGet();
+            maxInFlight.merge(partition, current, Math::max);
+            maxTotalInFlight.accumulateAndGet(totalInFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.get(partition).decrementAndGet();
+                totalInFlight.decrementAndGet();
+            }
+            if (failing.contains(accountsMsgDto.accountNumber())) {
+                throw new IllegalStateException("email provider is down");
+            }
+        }, accountsMsgDto -> {
+            if (!failing.contains(accountsMsgDto.accountNumber())) {
+                sent.computeIfAbsent(accountsMsgDto.accountNumber(), a -> new AtomicInteger()).incrementAndGet();
+            }
+        }, scheduler, dispatchProperties, new InMemoryIdempotencyStore(Duration.ofHours(1), 1_000));
+    }
+
+    private Message<List<AccountsMsgDto>> batch(int size, List<Integer> partitions) {
+        partitionsByAccount = IntStream.range(0, size).boxed()
+                .collect(Collectors.toMap(i -> FIRST_ACCOUNT + i, partitions::get));
+        List<AccountsMsgDto> requests = LongStream.range(0, size)
+                .mapToObj(i -> new AccountsMsgDto(FIRST_ACCOUNT + i, "Eazy Bytes", "tutor@eazybytes.com", "9345432123"))
+                .toList();
+        List<Map<String, Object>> headers = LongStream.range(0, size)
+                .mapToObj(i -> Map.<String, Object>of(CommunicationDispatcher.MESSAGE_ID_HEADER, 100 + i))
+                .toList();
+        return MessageBuilder.withPayload(requests)
+                .setHeader(KafkaHeaders.RECEIVED_PARTITION, partitions)
+                .setHeader(KafkaHeaders.BATCH_CONVERTED_HEADERS, headers)
+                .build();
+    }
+}